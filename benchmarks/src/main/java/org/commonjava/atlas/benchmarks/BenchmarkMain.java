@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.ProfilerConfig;
+
+/**
+ * Entry point for the shaded benchmarks jar. Accepts the usual JMH command line, but always attaches the GC profiler
+ * so that every run reports allocation (gc.alloc.rate.norm, in bytes/op) next to the timings:
+ *
+ * <pre>
+ * java -jar benchmarks/target/benchmarks.jar [regexp*] [JMH options]
+ * </pre>
+ */
+public final class BenchmarkMain
+{
+
+    private BenchmarkMain()
+    {
+    }
+
+    public static void main( final String[] args )
+            throws Exception
+    {
+        final CommandLineOptions cli = new CommandLineOptions( args );
+        if ( cli.shouldHelp() || cli.shouldList() || cli.shouldListProfilers() || cli.shouldListResultFormats() )
+        {
+            org.openjdk.jmh.Main.main( args );
+            return;
+        }
+
+        final ChainedOptionsBuilder builder = new OptionsBuilder().parent( cli );
+        if ( !hasGcProfiler( cli ) )
+        {
+            builder.addProfiler( GCProfiler.class );
+        }
+
+        new Runner( builder.build() ).run();
+    }
+
+    private static boolean hasGcProfiler( final CommandLineOptions cli )
+    {
+        for ( final ProfilerConfig profiler : cli.getProfilers() )
+        {
+            final String name = profiler.getKlass();
+            if ( "gc".equals( name ) || GCProfiler.class.getName().equals( name ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.commonjava.atlas.maven.graph.jackson.ProjectRelationshipSerializerModule;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.jackson.ProjectVersionRefSerializerModule;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading the relationships of a {@link SyntheticGraph}, and the dependency target refs on their own,
+ * through the same modules on a text JSON, Smile or CBOR backend. Refs are strings in JSON and field objects in the
+ * binary formats. Payload sizes are printed at setup.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class BinaryCodecBenchmarks
+{
+
+    private static final TypeReference<List<ProjectRelationship<?, ?>>> RELATIONSHIP_LIST =
+        new TypeReference<List<ProjectRelationship<?, ?>>>()
+        {
+        };
+
+    private static final TypeReference<List<ArtifactRef>> ARTIFACT_LIST = new TypeReference<List<ArtifactRef>>()
+    {
+    };
+
+    @Param( { "json", "smile", "cbor" } )
+    public String format;
+
+    private ObjectMapper mapper;
+
+    private List<ProjectRelationship<?, ?>> relationships;
+
+    private List<ArtifactRef> refs;
+
+    private byte[] relationshipData;
+
+    private byte[] refData;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        final JsonFactory factory;
+        if ( "smile".equals( format ) )
+        {
+            factory = new SmileFactory();
+        }
+        else if ( "cbor".equals( format ) )
+        {
+            factory = new CBORFactory();
+        }
+        else
+        {
+            factory = new JsonFactory();
+        }
+
+        mapper = new ObjectMapper( factory );
+        mapper.registerModules( new ProjectVersionRefSerializerModule(), new ProjectRelationshipSerializerModule() );
+
+        relationships = new SyntheticGraph( 10000, 100000, 0, 17 ).toRelationships();
+        refs = new ArrayList<ArtifactRef>( relationships.size() );
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            refs.add( rel.getTargetArtifact() );
+        }
+
+        relationshipData = writeRelationships();
+        refData = writeRefs();
+
+        System.out.printf( "%n%s: %d relationships in %d bytes, %d refs in %d bytes%n", format, relationships.size(),
+                           relationshipData.length, refs.size(), refData.length );
+    }
+
+    @Benchmark
+    public byte[] writeRelationships()
+        throws IOException
+    {
+        return mapper.writerFor( RELATIONSHIP_LIST ).writeValueAsBytes( relationships );
+    }
+
+    @Benchmark
+    public List<ProjectRelationship<?, ?>> readRelationships()
+        throws IOException
+    {
+        return mapper.readValue( relationshipData, RELATIONSHIP_LIST );
+    }
+
+    @Benchmark
+    public byte[] writeRefs()
+        throws IOException
+    {
+        return mapper.writerFor( ARTIFACT_LIST ).writeValueAsBytes( refs );
+    }
+
+    @Benchmark
+    public List<ArtifactRef> readRefs()
+        throws IOException
+    {
+        return mapper.readValue( refData, ARTIFACT_LIST );
+    }
+
+}
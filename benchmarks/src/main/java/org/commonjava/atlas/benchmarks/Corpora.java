@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Loads the checked-in benchmark corpora from src/main/resources/corpus. Blank lines and lines starting with '#' are
+ * skipped.
+ */
+final class Corpora
+{
+
+    static final String VERSIONS = "corpus/versions.txt";
+
+    static final String RANGES = "corpus/ranges.txt";
+
+    static final String GAVS = "corpus/gavs.txt";
+
+    static final String MAVEN_PATHS = "corpus/maven-paths.txt";
+
+    static final String NPM_PATHS = "corpus/npm-paths.txt";
+
+    private Corpora()
+    {
+    }
+
+    static List<String> load( final String resource )
+    {
+        final InputStream in = Corpora.class.getClassLoader().getResourceAsStream( resource );
+        if ( in == null )
+        {
+            throw new IllegalStateException( "Missing benchmark corpus: " + resource );
+        }
+
+        final List<String> result = new ArrayList<String>();
+        try
+        {
+            final BufferedReader reader = new BufferedReader( new InputStreamReader( in, "UTF-8" ) );
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                line = line.trim();
+                if ( line.length() > 0 && !line.startsWith( "#" ) )
+                {
+                    result.add( line );
+                }
+            }
+        }
+        catch ( final IOException e )
+        {
+            throw new IllegalStateException( "Failed to read benchmark corpus: " + resource, e );
+        }
+        finally
+        {
+            try
+            {
+                in.close();
+            }
+            catch ( final IOException e )
+            {
+                // nothing to do.
+            }
+        }
+
+        return Collections.unmodifiableList( result );
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.model.EProjectCycle;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deduplicating candidate cycles, the way a path-walking cycle search produces them: each distinct cycle shows up
+ * several times, starting from different members.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+@State( Scope.Benchmark )
+public class CycleBenchmarks
+{
+
+    private static final int DISTINCT = 20000;
+
+    private static final int ROTATIONS = 4;
+
+    private static final int PROJECTS = 2000;
+
+    private final List<EProjectCycle.Builder> candidates = new ArrayList<EProjectCycle.Builder>();
+
+    private final List<EProjectCycle> cycles = new ArrayList<EProjectCycle>();
+
+    private final List<ProjectVersionRef> probes = new ArrayList<ProjectVersionRef>();
+
+    @Setup
+    public void setup()
+    {
+        final URI src = URI.create( "bench:cycles" );
+        final Random rand = new Random( 17L );
+
+        final ProjectVersionRef[] projects = new ProjectVersionRef[PROJECTS];
+        for ( int i = 0; i < PROJECTS; i++ )
+        {
+            projects[i] = new SimpleProjectVersionRef( "org.bench.g" + ( i % 50 ), "a" + i, "1." + ( i % 7 ) );
+        }
+
+        for ( int i = 0; i < DISTINCT; i++ )
+        {
+            final int length = 2 + rand.nextInt( 8 );
+            final List<ProjectVersionRef> members = new ArrayList<ProjectVersionRef>();
+            while ( members.size() < length )
+            {
+                final ProjectVersionRef ref = projects[rand.nextInt( PROJECTS )];
+                if ( !members.contains( ref ) )
+                {
+                    members.add( ref );
+                }
+            }
+
+            final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+            for ( int j = 0; j < length; j++ )
+            {
+                rels.add( new SimpleDependencyRelationship( src, members.get( j ),
+                                                            members.get( ( j + 1 ) % length ).asJarArtifact(),
+                                                            DependencyScope.compile, j, false, false, false ) );
+            }
+
+            for ( int r = 0; r < ROTATIONS; r++ )
+            {
+                final int start = rand.nextInt( length );
+                final List<ProjectRelationship<?, ?>> rotated = new ArrayList<ProjectRelationship<?, ?>>();
+                rotated.addAll( rels.subList( start, length ) );
+                rotated.addAll( rels.subList( 0, start ) );
+                candidates.add( new EProjectCycle.Builder( rotated ) );
+            }
+
+            cycles.add( new EProjectCycle( rels ) );
+            probes.add( projects[rand.nextInt( PROJECTS )] );
+        }
+    }
+
+    @Benchmark
+    public int buildAndDedup()
+    {
+        final Set<EProjectCycle> unique = new HashSet<EProjectCycle>();
+        for ( final EProjectCycle.Builder candidate : candidates )
+        {
+            unique.add( candidate.build() );
+        }
+
+        return unique.size();
+    }
+
+    @Benchmark
+    public int containsProject()
+    {
+        int found = 0;
+        for ( int i = 0; i < cycles.size(); i++ )
+        {
+            if ( cycles.get( i ).contains( probes.get( i ) ) )
+            {
+                found++;
+            }
+        }
+
+        return found;
+    }
+
+}
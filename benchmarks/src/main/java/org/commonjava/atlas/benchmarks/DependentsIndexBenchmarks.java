@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.DependentsIndex;
+import org.commonjava.atlas.maven.graph.engine.EdgeFilter;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Which projects depend on X, any version": scanning every relationship we hold, against the {@link DependentsIndex}
+ * lookup, plus the transitive "who is affected" expansion and the cost of keeping the index up to date.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+@State( Scope.Benchmark )
+public class DependentsIndexBenchmarks
+{
+
+    private static final EdgeFilter DEPENDENCIES =
+        EdgeFilter.ALL.withTypes( RelationshipType.DEPENDENCY ).withoutManaged();
+
+    @Param( { "1000000" } )
+    public int edges;
+
+    @Param( { "100000" } )
+    public int nodes;
+
+    private List<ProjectRelationship<?, ?>> relationships;
+
+    private DependentsIndex index;
+
+    private ProjectRef popular;
+
+    private ProjectRef midTier;
+
+    private ProjectRelationship<?, ?> churn;
+
+    @Setup
+    public void setup()
+    {
+        final SyntheticGraph synthetic = new SyntheticGraph( nodes, edges, 0.0, 31L );
+        relationships = synthetic.toRelationships();
+        index = new DependentsIndex( relationships );
+
+        popular = synthetic.nodes[3].asProjectRef();
+        midTier = synthetic.nodes[nodes / 2].asProjectRef();
+        churn = relationships.get( relationships.size() / 2 );
+
+        System.out.printf( "%n%s: %d direct / %d affected dependents of %s%n", index,
+                           index.getDependentsOfAnyVersion( midTier, DEPENDENCIES ).size(),
+                           index.getAffectedByAnyVersion( midTier, DEPENDENCIES ).size(), midTier );
+    }
+
+    @Benchmark
+    public Set<ProjectVersionRef> scanForDependents()
+    {
+        final Set<ProjectVersionRef> result = new HashSet<ProjectVersionRef>();
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            if ( rel.getType() == RelationshipType.DEPENDENCY && !rel.isManaged()
+                && rel.getTarget().asProjectRef().equals( midTier ) )
+            {
+                result.add( rel.getDeclaring() );
+            }
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public Set<ProjectVersionRef> indexedDependents()
+    {
+        return index.getDependentsOfAnyVersion( midTier, DEPENDENCIES );
+    }
+
+    @Benchmark
+    public Set<ProjectVersionRef> indexedDependentsOfPopular()
+    {
+        return index.getDependentsOfAnyVersion( popular, DEPENDENCIES );
+    }
+
+    @Benchmark
+    public Set<ProjectVersionRef> affectedTransitively()
+    {
+        return index.getAffectedByAnyVersion( midTier, DEPENDENCIES );
+    }
+
+    @Benchmark
+    public boolean removeAndReAdd()
+    {
+        index.remove( churn );
+        return index.add( churn );
+    }
+
+}
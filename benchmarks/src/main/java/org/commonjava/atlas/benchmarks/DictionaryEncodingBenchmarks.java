@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.atlas.maven.graph.jackson.DictionaryEncodedRelationships;
+import org.commonjava.atlas.maven.graph.jackson.ProjectRelationshipSerializerModule;
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.jackson.ProjectVersionRefSerializerModule;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading every relationship of a corpus of {@link EProjectDirectRelationships}, one per node of a
+ * {@link SyntheticGraph}, as a list in the current per-relationship JSON form and as
+ * {@link DictionaryEncodedRelationships}. Both forms are written to byte arrays; their sizes are printed at setup.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class DictionaryEncodingBenchmarks
+{
+
+    private static final URI SOURCE = URI.create( "http://repo.example.com/synthetic/" );
+
+    private static final TypeReference<List<ProjectRelationship<?, ?>>> RELATIONSHIP_LIST =
+        new TypeReference<List<ProjectRelationship<?, ?>>>()
+        {
+        };
+
+    @Param( { "20000" } )
+    public int projects;
+
+    private ObjectMapper mapper;
+
+    private List<ProjectRelationship<?, ?>> relationships;
+
+    private byte[] text;
+
+    private byte[] dictionary;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        mapper = new ObjectMapper();
+        mapper.registerModules( new ProjectVersionRefSerializerModule(), new ProjectRelationshipSerializerModule() );
+
+        final SyntheticGraph graph = new SyntheticGraph( projects, projects * 10, 0, 17 );
+        final Map<ProjectVersionRef, List<ProjectRelationship<?, ?>>> declared =
+            new LinkedHashMap<ProjectVersionRef, List<ProjectRelationship<?, ?>>>();
+        for ( final ProjectRelationship<?, ?> rel : graph.toRelationships() )
+        {
+            List<ProjectRelationship<?, ?>> rels = declared.get( rel.getDeclaring() );
+            if ( rels == null )
+            {
+                rels = new ArrayList<ProjectRelationship<?, ?>>();
+                declared.put( rel.getDeclaring(), rels );
+            }
+            rels.add( rel );
+        }
+
+        relationships = new ArrayList<ProjectRelationship<?, ?>>();
+        for ( final Map.Entry<ProjectVersionRef, List<ProjectRelationship<?, ?>>> entry : declared.entrySet() )
+        {
+            final EProjectDirectRelationships project =
+                new EProjectDirectRelationships.Builder( SOURCE, entry.getKey() ).withRelationships( entry.getValue() )
+                                                                                  .build();
+            relationships.addAll( project.getExactAllRelationships() );
+        }
+
+        text = writeText();
+        dictionary = writeDictionary();
+
+        System.out.printf( "%n%d projects, %d relationships: %d bytes as text, %d bytes dictionary-encoded (%.1f%%)%n",
+                           declared.size(), relationships.size(), text.length, dictionary.length,
+                           100.0 * dictionary.length / text.length );
+    }
+
+    @Benchmark
+    public byte[] writeText()
+        throws IOException
+    {
+        return mapper.writerFor( RELATIONSHIP_LIST ).writeValueAsBytes( relationships );
+    }
+
+    @Benchmark
+    public List<ProjectRelationship<?, ?>> readText()
+        throws IOException
+    {
+        return mapper.readValue( text, RELATIONSHIP_LIST );
+    }
+
+    @Benchmark
+    public byte[] writeDictionary()
+        throws IOException
+    {
+        return mapper.writeValueAsBytes( new DictionaryEncodedRelationships( relationships ) );
+    }
+
+    @Benchmark
+    public List<ProjectRelationship<?, ?>> readDictionary()
+        throws IOException
+    {
+        return mapper.readValue( dictionary, DictionaryEncodedRelationships.class ).getRelationships();
+    }
+
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.atlas.maven.graph.engine.GraphSnapshot;
+import org.commonjava.atlas.maven.graph.jackson.ProjectRelationshipSerializerModule;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.jackson.ProjectVersionRefSerializerModule;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service startup: getting from a persisted graph to the first answered query. The JSON path reads every relationship
+ * before it can answer anything; the snapshot path maps the file, then looks up one project and materializes its
+ * relationships. {@link #writeSnapshot()} is the cost of producing the snapshot. File sizes are printed at setup.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+@State( Scope.Benchmark )
+public class GraphSnapshotBenchmarks
+{
+
+    private static final TypeReference<List<ProjectRelationship<?, ?>>> RELATIONSHIP_LIST =
+        new TypeReference<List<ProjectRelationship<?, ?>>>()
+        {
+        };
+
+    @Param( { "20000" } )
+    public int projects;
+
+    private ObjectMapper mapper;
+
+    private List<ProjectRelationship<?, ?>> relationships;
+
+    private File json;
+
+    private File snapshot;
+
+    private ProjectVersionRef query;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        mapper = new ObjectMapper();
+        mapper.registerModules( new ProjectVersionRefSerializerModule(), new ProjectRelationshipSerializerModule() );
+
+        relationships = new SyntheticGraph( projects, projects * 10, 0, 17 ).toRelationships();
+        query = relationships.get( relationships.size() / 2 ).getDeclaring();
+
+        json = File.createTempFile( "graph", ".json" );
+        mapper.writerFor( RELATIONSHIP_LIST ).writeValue( json, relationships );
+
+        snapshot = File.createTempFile( "graph", ".snapshot" );
+        writeSnapshot();
+
+        System.out.printf( "%n%d relationships: %d bytes as JSON, %d bytes as a snapshot (%.1f%%)%n",
+                           relationships.size(), json.length(), snapshot.length(),
+                           100.0 * snapshot.length() / json.length() );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        json.delete();
+        snapshot.delete();
+    }
+
+    @Benchmark
+    public List<ProjectRelationship<?, ?>> startFromJson()
+        throws IOException
+    {
+        final List<ProjectRelationship<?, ?>> all = mapper.readValue( json, RELATIONSHIP_LIST );
+        return all.subList( 0, 1 );
+    }
+
+    @Benchmark
+    public List<ProjectRelationship<?, ?>> startFromSnapshot()
+        throws IOException
+    {
+        final GraphSnapshot graph = GraphSnapshot.open( snapshot );
+        return graph.getOutgoing( graph.getNodeId( query ) );
+    }
+
+    @Benchmark
+    public int materializeSnapshot()
+        throws IOException
+    {
+        final GraphSnapshot graph = GraphSnapshot.open( snapshot );
+        int count = 0;
+        for ( int e = 0; e < graph.getEdgeCount(); e++ )
+        {
+            if ( graph.getRelationship( e ) != null )
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    public File writeSnapshot()
+        throws IOException
+    {
+        new GraphSnapshot.Writer( projects, relationships.size() ).withRelationships( relationships )
+                                                                  .write( snapshot );
+        return snapshot;
+    }
+
+}
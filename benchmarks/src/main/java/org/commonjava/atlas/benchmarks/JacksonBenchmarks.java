@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.atlas.maven.graph.jackson.ProjectRelationshipDeserializer;
+import org.commonjava.atlas.maven.graph.jackson.ProjectRelationshipSerializerModule;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.jackson.ProjectVersionRefSerializerModule;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round-trips through {@link ProjectVersionRefSerializerModule} and
+ * {@link ProjectRelationshipSerializerModule}. The relationship corpus is built from {@link Corpora#GAVS}, cycling
+ * through every relationship type. The *Direct benchmarks call the current and the previous (map-based) relationship
+ * deserializers on a bare parser, to isolate them from ObjectMapper overhead. Each operation covers the whole corpus.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+@State( Scope.Benchmark )
+public class JacksonBenchmarks
+{
+
+    private static final URI SOURCE = URI.create( "http://repo.maven.apache.org/maven2/" );
+
+    private ObjectMapper mapper;
+
+    private List<ProjectVersionRef> refs;
+
+    private List<String> refJson;
+
+    private List<ProjectRelationship<?, ?>> relationships;
+
+    private List<String> relationshipJson;
+
+    private ProjectRelationshipDeserializer<ProjectRelationship> deserializer;
+
+    private LegacyProjectRelationshipDeserializer<ProjectRelationship> legacyDeserializer;
+
+    @Setup
+    public void setup()
+            throws IOException
+    {
+        mapper = new ObjectMapper();
+        mapper.registerModules( new ProjectVersionRefSerializerModule(), new ProjectRelationshipSerializerModule() );
+
+        refs = new ArrayList<ProjectVersionRef>();
+        for ( final String gav : Corpora.load( Corpora.GAVS ) )
+        {
+            refs.add( SimpleProjectVersionRef.parse( gav ) );
+        }
+
+        refJson = new ArrayList<String>( refs.size() );
+        for ( final ProjectVersionRef ref : refs )
+        {
+            refJson.add( mapper.writeValueAsString( ref ) );
+        }
+
+        relationships = new ArrayList<ProjectRelationship<?, ?>>( refs.size() );
+        final int size = refs.size();
+        for ( int i = 0; i < size; i++ )
+        {
+            relationships.add( relationship( i, refs.get( i ), refs.get( ( i + 1 ) % size ) ) );
+        }
+
+        relationshipJson = new ArrayList<String>( relationships.size() );
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            relationshipJson.add( mapper.writeValueAsString( rel ) );
+        }
+
+        deserializer = new ProjectRelationshipDeserializer<ProjectRelationship>();
+        legacyDeserializer = new LegacyProjectRelationshipDeserializer<ProjectRelationship>();
+    }
+
+    private static ProjectRelationship<?, ?> relationship( final int i, final ProjectVersionRef declaring,
+                                                           final ProjectVersionRef target )
+    {
+        switch ( i % 5 )
+        {
+            case 0:
+                return new SimpleDependencyRelationship( SOURCE, declaring, target.asJarArtifact(),
+                                                         DependencyScope.compile, i, false, false, false );
+            case 1:
+                return new SimpleDependencyRelationship( SOURCE, declaring, target.asArtifactRef( "test-jar", "tests" ),
+                                                         DependencyScope.test, i, true, true, true );
+            case 2:
+                return new SimplePluginRelationship( SOURCE, declaring, target, i, false, true );
+            case 3:
+                return new SimplePluginDependencyRelationship( SOURCE, declaring, target.asProjectRef(),
+                                                               target.asJarArtifact(), i, false, false );
+            case 4:
+                return i % 2 == 0 ? new SimpleParentRelationship( SOURCE, declaring, target )
+                        : new SimpleBomRelationship( SOURCE, declaring, target, i, false, false );
+            default:
+                throw new IllegalStateException( "unreachable" );
+        }
+    }
+
+    @Benchmark
+    public void serializeRefs( final Blackhole bh )
+            throws IOException
+    {
+        for ( final ProjectVersionRef ref : refs )
+        {
+            bh.consume( mapper.writeValueAsString( ref ) );
+        }
+    }
+
+    @Benchmark
+    public void deserializeRefs( final Blackhole bh )
+            throws IOException
+    {
+        for ( final String json : refJson )
+        {
+            bh.consume( mapper.readValue( json, ProjectVersionRef.class ) );
+        }
+    }
+
+    @Benchmark
+    public void serializeRelationships( final Blackhole bh )
+            throws IOException
+    {
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            bh.consume( mapper.writeValueAsString( rel ) );
+        }
+    }
+
+    @Benchmark
+    public void deserializeRelationships( final Blackhole bh )
+            throws IOException
+    {
+        for ( final String json : relationshipJson )
+        {
+            bh.consume( mapper.readValue( json, ProjectRelationship.class ) );
+        }
+    }
+
+    @Benchmark
+    public void deserializeRelationshipsDirect( final Blackhole bh )
+            throws IOException
+    {
+        for ( final String json : relationshipJson )
+        {
+            final JsonParser jp = mapper.getFactory().createParser( json );
+            jp.nextToken();
+            bh.consume( deserializer.deserialize( jp, null ) );
+            jp.close();
+        }
+    }
+
+    @Benchmark
+    public void legacyDeserializeRelationshipsDirect( final Blackhole bh )
+            throws IOException
+    {
+        for ( final String json : relationshipJson )
+        {
+            final JsonParser jp = mapper.getFactory().createParser( json );
+            jp.nextToken();
+            bh.consume( legacyDeserializer.deserialize( jp, null ) );
+            jp.close();
+        }
+    }
+
+}
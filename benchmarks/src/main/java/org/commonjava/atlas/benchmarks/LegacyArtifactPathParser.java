@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.ident.util.ArtifactPathInfo;
+import org.commonjava.atlas.maven.ident.util.SnapshotUtils;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Copy of the regex-based {@link ArtifactPathInfo#parse(String)} that shipped before the hand-written path scanner,
+ * including the per-call {@link Pattern#compile(String)}. Kept only as the baseline for {@link PathInfoBenchmarks}.
+ */
+final class LegacyArtifactPathParser
+{
+
+    private static final String GROUP_REGEX = "(([^/]+/)*[^/]+)"; // group 1~2
+
+    private static final String ARTIFACT_REGEX = "([^/]+)"; // group 3
+
+    private static final String VERSION_RAW_REGEX = "(([^/]+)(-SNAPSHOT)?)"; // group 4~6
+
+    private static final String CLASSIFIER_REGEX = "(-([a-zA-Z]+\\d*(\\.\\d*)*))?"; // group 13~15
+
+    private static final String TYPE_REGEX = "(\\.(.+))"; // group 16~17
+
+    private static final String ARTIFACT_PATH_REGEX =
+            "/?" + GROUP_REGEX + "/" + ARTIFACT_REGEX + "/" + VERSION_RAW_REGEX + "/(\\3-((\\4)|(\\5-"
+                    + SnapshotUtils.RAW_REMOTE_SNAPSHOT_PART_PATTERN + "))" + CLASSIFIER_REGEX + TYPE_REGEX + ")";
+
+    private static final int GROUP_ID_GROUP = 1;
+
+    private static final int ARTIFACT_ID_GROUP = 3;
+
+    private static final int FILE_GROUP = 7;
+
+    private static final int VERSION_GROUP = 8;
+
+    private static final int NON_REMOTE_SNAP_CLASSIFIER_GROUP = 12;
+
+    private static final int REMOTE_SNAP_CLASSIFIER_GROUP = 14;
+
+    private static final int NON_REMOTE_SNAP_TYPE_GROUP = 14;
+
+    private static final int REMOTE_SNAP_TYPE_GROUP = 17;
+
+    private static final int REMOTE_SNAPSHOT_GROUP_COUNT = 17;
+
+    private LegacyArtifactPathParser()
+    {
+    }
+
+    static ArtifactPathInfo parse( final String path )
+    {
+        if ( path == null || path.length() < 1 )
+        {
+            return null;
+        }
+
+        final Matcher matcher = Pattern.compile( ARTIFACT_PATH_REGEX ).matcher( path.replace( '\\', '/' ) );
+        if ( !matcher.matches() )
+        {
+            return null;
+        }
+
+        final int groupCount = matcher.groupCount();
+
+        final String g = matcher.group( GROUP_ID_GROUP ).replace( '/', '.' );
+        final String a = matcher.group( ARTIFACT_ID_GROUP );
+        final String v = matcher.group( VERSION_GROUP );
+
+        final String c;
+        final String t;
+        if ( groupCount == REMOTE_SNAPSHOT_GROUP_COUNT )
+        {
+            c = matcher.group( REMOTE_SNAP_CLASSIFIER_GROUP );
+            t = matcher.group( REMOTE_SNAP_TYPE_GROUP );
+        }
+        else
+        {
+            c = matcher.group( NON_REMOTE_SNAP_CLASSIFIER_GROUP );
+            t = matcher.group( NON_REMOTE_SNAP_TYPE_GROUP );
+        }
+
+        final String f = matcher.group( FILE_GROUP );
+
+        return new ArtifactPathInfo( g, a, v, c, t, f, path );
+    }
+
+}
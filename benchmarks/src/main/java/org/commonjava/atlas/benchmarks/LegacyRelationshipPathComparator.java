@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipComparator;
+import org.commonjava.atlas.maven.graph.rel.RelationshipPathComparator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Copy of {@link RelationshipPathComparator#compare(List, List)} as it shipped before the single-pass rewrite,
+ * including the per-call logger lookup and debug call. Kept only as the baseline for {@link PathSortBenchmarks}.
+ */
+final class LegacyRelationshipPathComparator
+    implements Comparator<List<ProjectRelationship<?, ?>>>
+{
+
+    static final LegacyRelationshipPathComparator INSTANCE = new LegacyRelationshipPathComparator();
+
+    private final RelationshipComparator comp = RelationshipComparator.INSTANCE;
+
+    private LegacyRelationshipPathComparator()
+    {
+    }
+
+    @Override
+    public int compare( final List<ProjectRelationship<?, ?>> one, final List<ProjectRelationship<?, ?>> two )
+    {
+        Logger logger = LoggerFactory.getLogger( getClass() );
+        logger.debug( "Comparing:\nOne: {}\nTwo: {}", one, two );
+
+        final int commonLen = Math.min( one.size(), two.size() );
+
+        if ( one.size() > commonLen )
+        {
+            return 1;
+        }
+        else if ( two.size() > commonLen )
+        {
+            return -1;
+        }
+
+        for ( int i = 0; i < commonLen; i++ )
+        {
+            final int result = one.get( i ).getType().ordinal() - two.get( i ).getType().ordinal();
+            if ( result != 0 )
+            {
+                return result;
+            }
+        }
+
+        for ( int i = 0; i < commonLen; i++ )
+        {
+            final int result = comp.compare( one.get( i ), two.get( i ) );
+            if ( result != 0 )
+            {
+                return result;
+            }
+        }
+
+        return 0;
+    }
+
+}
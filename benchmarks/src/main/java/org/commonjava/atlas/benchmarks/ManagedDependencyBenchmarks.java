@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.ManagedDependencies;
+import org.commonjava.atlas.maven.graph.engine.ManagedDependencyResolver;
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.BomRelationship;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.ParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleVersionlessArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.VersionlessArtifactRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding the managed version of every dependency of every module: walking each module's parents and imported BOMs
+ * for each dependency, against {@link ManagedDependencyResolver} (built and queried within the benchmark, so chain
+ * flattening is included). Modules come in families sharing a three-level parent chain; each family root imports two
+ * of ten BOMs of 400 entries, each with a parent of its own.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class ManagedDependencyBenchmarks
+{
+
+    private static final URI SOURCE = URI.create( "http://repo.example.com/synthetic/" );
+
+    private static final int BOMS = 10;
+
+    private static final int BOM_ENTRIES = 400;
+
+    private static final int LIBRARIES = 3000;
+
+    @Param( { "5000" } )
+    public int modules;
+
+    private List<EProjectDirectRelationships> projects;
+
+    private Map<ProjectVersionRef, EProjectDirectRelationships> byRef;
+
+    private List<EProjectDirectRelationships> moduleProjects;
+
+    @Setup
+    public void setup()
+    {
+        final Random rand = new Random( 13 );
+        projects = new ArrayList<EProjectDirectRelationships>();
+        moduleProjects = new ArrayList<EProjectDirectRelationships>();
+
+        for ( int b = 0; b < BOMS; b++ )
+        {
+            projects.add( project( rand, "bom-parent-" + b, null, 50, new ProjectVersionRef[0] ) );
+            projects.add( project( rand, "bom-" + b, ref( "bom-parent-" + b ), BOM_ENTRIES,
+                                   new ProjectVersionRef[0] ) );
+        }
+
+        final int families = Math.max( 1, modules / 100 );
+        for ( int f = 0; f < families; f++ )
+        {
+            projects.add( project( rand, "family-" + f, null, 100,
+                                   new ProjectVersionRef[] { ref( "bom-" + rand.nextInt( BOMS ) ),
+                                       ref( "bom-" + rand.nextInt( BOMS ) ) } ) );
+            projects.add( project( rand, "family-" + f + "-parent", ref( "family-" + f ), 20,
+                                   new ProjectVersionRef[0] ) );
+        }
+
+        for ( int m = 0; m < modules; m++ )
+        {
+            final ProjectVersionRef parent = ref( "family-" + rand.nextInt( families ) + "-parent" );
+            final EProjectDirectRelationships.Builder builder =
+                new EProjectDirectRelationships.Builder( SOURCE, ref( "module-" + m ) ).withParent( parent );
+            for ( int d = 0; d < 20; d++ )
+            {
+                builder.withDependencies( dependency( ref( "module-" + m ), rand.nextInt( LIBRARIES ), "0", false ) );
+            }
+
+            final EProjectDirectRelationships module = builder.build();
+            projects.add( module );
+            moduleProjects.add( module );
+        }
+
+        byRef = new HashMap<ProjectVersionRef, EProjectDirectRelationships>();
+        for ( final EProjectDirectRelationships project : projects )
+        {
+            byRef.put( project.getProjectRef(), project );
+        }
+
+        System.out.printf( "%n%d projects, %d managed lookups: %d by walking, %d by index%n", projects.size(),
+                           modules * 20, walkChains(), resolveIndexed() );
+    }
+
+    @Benchmark
+    public int walkChains()
+    {
+        int managed = 0;
+        for ( final EProjectDirectRelationships module : moduleProjects )
+        {
+            for ( final DependencyRelationship dep : module.getDependencies() )
+            {
+                if ( findManaged( module.getProjectRef(), new SimpleVersionlessArtifactRef( dep.getTargetArtifact() ),
+                                  new HashSet<ProjectVersionRef>() ) != null )
+                {
+                    managed++;
+                }
+            }
+        }
+
+        return managed;
+    }
+
+    private DependencyRelationship findManaged( final ProjectVersionRef ref, final VersionlessArtifactRef artifact,
+                                                final Set<ProjectVersionRef> seen )
+    {
+        // own and inherited declarations first, then BOMs along the same chain
+        final List<ProjectVersionRef> boms = new ArrayList<ProjectVersionRef>();
+        for ( ProjectVersionRef current = ref; current != null && seen.add( current ); )
+        {
+            final EProjectDirectRelationships project = byRef.get( current );
+            if ( project == null )
+            {
+                break;
+            }
+
+            for ( final DependencyRelationship rel : project.getManagedDependencies() )
+            {
+                if ( new SimpleVersionlessArtifactRef( rel.getTargetArtifact() ).equals( artifact ) )
+                {
+                    return rel;
+                }
+            }
+            for ( final BomRelationship bom : project.getBoms() )
+            {
+                boms.add( bom.getTarget() );
+            }
+
+            final ParentRelationship parent = project.getParent();
+            current = parent == null || parent.isTerminus() ? null : parent.getTarget();
+        }
+
+        for ( final ProjectVersionRef bom : boms )
+        {
+            final DependencyRelationship rel = findManaged( bom, artifact, seen );
+            if ( rel != null )
+            {
+                return rel;
+            }
+        }
+
+        return null;
+    }
+
+    @Benchmark
+    public int resolveIndexed()
+    {
+        final ManagedDependencyResolver resolver = new ManagedDependencyResolver( projects );
+        int managed = 0;
+        for ( final EProjectDirectRelationships module : moduleProjects )
+        {
+            final ManagedDependencies management = resolver.resolve( module.getProjectRef() );
+            for ( final DependencyRelationship dep : module.getDependencies() )
+            {
+                if ( management.getManagement( dep ) != null )
+                {
+                    managed++;
+                }
+            }
+        }
+
+        return managed;
+    }
+
+    private static EProjectDirectRelationships project( final Random rand, final String name,
+                                                        final ProjectVersionRef parent, final int managed,
+                                                        final ProjectVersionRef[] boms )
+    {
+        final ProjectVersionRef ref = ref( name );
+        final EProjectDirectRelationships.Builder builder = new EProjectDirectRelationships.Builder( SOURCE, ref );
+        if ( parent != null )
+        {
+            builder.withParent( parent );
+        }
+
+        for ( int i = 0; i < managed; i++ )
+        {
+            builder.withDependencies( dependency( ref, rand.nextInt( LIBRARIES ), "1." + rand.nextInt( 10 ), true ) );
+        }
+        for ( final ProjectVersionRef bom : boms )
+        {
+            builder.withBoms( new SimpleBomRelationship( SOURCE, ref, bom, 0, false, false ) );
+        }
+
+        return builder.build();
+    }
+
+    private static DependencyRelationship dependency( final ProjectVersionRef declaring, final int library,
+                                                      final String version, final boolean managed )
+    {
+        final ProjectVersionRef target = new SimpleProjectVersionRef( "org.synthetic.lib", "lib-" + library, version );
+        return new SimpleDependencyRelationship( SOURCE, declaring, target.asJarArtifact(), DependencyScope.compile,
+                                                 0, managed, false, false );
+    }
+
+    private static ProjectVersionRef ref( final String name )
+    {
+        return new SimpleProjectVersionRef( "org.synthetic.build", name, "1" );
+    }
+
+}
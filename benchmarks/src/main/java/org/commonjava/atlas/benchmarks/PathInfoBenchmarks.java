@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.ident.util.ArtifactPathInfo;
+import org.commonjava.atlas.npm.ident.util.NpmPackagePathInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository path parsing over {@link Corpora#MAVEN_PATHS} and {@link Corpora#NPM_PATHS}. Each operation covers the
+ * whole corpus, including the paths that are expected not to parse. {@link #legacyArtifactPathInfoParse(Blackhole)}
+ * runs the previous regex-based parser as a baseline.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+@State( Scope.Benchmark )
+public class PathInfoBenchmarks
+{
+
+    private List<String> mavenPaths;
+
+    private List<String> npmPaths;
+
+    @Setup
+    public void setup()
+    {
+        mavenPaths = Corpora.load( Corpora.MAVEN_PATHS );
+        npmPaths = Corpora.load( Corpora.NPM_PATHS );
+    }
+
+    @Benchmark
+    public void artifactPathInfoParse( final Blackhole bh )
+    {
+        for ( final String path : mavenPaths )
+        {
+            bh.consume( ArtifactPathInfo.parse( path ) );
+        }
+    }
+
+    @Benchmark
+    public void legacyArtifactPathInfoParse( final Blackhole bh )
+    {
+        for ( final String path : mavenPaths )
+        {
+            bh.consume( LegacyArtifactPathParser.parse( path ) );
+        }
+    }
+
+    @Benchmark
+    public void npmPackagePathInfoParse( final Blackhole bh )
+    {
+        for ( final String path : npmPaths )
+        {
+            bh.consume( NpmPackagePathInfo.parse( path ) );
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.RelationshipGraph;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipPath;
+import org.commonjava.atlas.maven.graph.rel.RelationshipPathComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sorting 100k relationship paths (random walks of 1-8 relationships through a synthetic graph): the comparator as
+ * it used to be, the single-pass comparator, the keyed {@link RelationshipPathComparator#sort(List)}, and the natural
+ * ordering of {@link RelationshipPath}.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class PathSortBenchmarks
+{
+
+    @Param( { "100000" } )
+    public int paths;
+
+    private List<List<ProjectRelationship<?, ?>>> lists;
+
+    private List<RelationshipPath> sharedPaths;
+
+    @Setup
+    public void setup()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new SyntheticGraph( 20000, 100000, 0.0, 19L ).toRelationships();
+        final RelationshipGraph graph =
+            new RelationshipGraph.Builder().retainRelationships().withRelationships( rels ).build();
+
+        final Random rand = new Random( 2 );
+        lists = new ArrayList<List<ProjectRelationship<?, ?>>>( paths );
+        sharedPaths = new ArrayList<RelationshipPath>( paths );
+        while ( lists.size() < paths )
+        {
+            final List<ProjectRelationship<?, ?>> path = new ArrayList<ProjectRelationship<?, ?>>();
+            int node = graph.getNodeCount() - 1 - rand.nextInt( 1000 );
+            final int length = 1 + rand.nextInt( 8 );
+            while ( path.size() < length && graph.getOutEnd( node ) > graph.getOutStart( node ) )
+            {
+                final int e = graph.getOutStart( node )
+                    + rand.nextInt( graph.getOutEnd( node ) - graph.getOutStart( node ) );
+                path.add( graph.getRelationship( e ) );
+                node = graph.getTarget( e );
+            }
+
+            if ( !path.isEmpty() )
+            {
+                lists.add( path );
+                sharedPaths.add( RelationshipPath.of( path ) );
+            }
+        }
+
+        Collections.shuffle( lists, rand );
+        Collections.shuffle( sharedPaths, rand );
+    }
+
+    @Benchmark
+    public List<List<ProjectRelationship<?, ?>>> legacyComparator()
+    {
+        final List<List<ProjectRelationship<?, ?>>> copy = new ArrayList<List<ProjectRelationship<?, ?>>>( lists );
+        Collections.sort( copy, LegacyRelationshipPathComparator.INSTANCE );
+        return copy;
+    }
+
+    @Benchmark
+    public List<List<ProjectRelationship<?, ?>>> comparator()
+    {
+        final List<List<ProjectRelationship<?, ?>>> copy = new ArrayList<List<ProjectRelationship<?, ?>>>( lists );
+        Collections.sort( copy, RelationshipPathComparator.INSTANCE );
+        return copy;
+    }
+
+    @Benchmark
+    public List<List<ProjectRelationship<?, ?>>> keyedSort()
+    {
+        final List<List<ProjectRelationship<?, ?>>> copy = new ArrayList<List<ProjectRelationship<?, ?>>>( lists );
+        RelationshipPathComparator.sort( copy );
+        return copy;
+    }
+
+    @Benchmark
+    public List<RelationshipPath> relationshipPaths()
+    {
+        final List<RelationshipPath> copy = new ArrayList<RelationshipPath>( sharedPaths );
+        Collections.sort( copy );
+        return copy;
+    }
+
+}
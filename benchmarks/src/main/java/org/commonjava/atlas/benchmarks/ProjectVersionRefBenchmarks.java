@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing, hashing and equality of {@link SimpleProjectVersionRef} over {@link Corpora#GAVS}, plus the HashSet build
+ * and lookup pattern graph code leans on. Lookups use separately parsed, equal-but-not-identical copies so equals()
+ * really runs. Each operation covers the whole corpus.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+@State( Scope.Benchmark )
+public class ProjectVersionRefBenchmarks
+{
+
+    private List<String> gavs;
+
+    private List<ProjectVersionRef> refs;
+
+    private List<ProjectVersionRef> copies;
+
+    private Set<ProjectVersionRef> refSet;
+
+    @Setup
+    public void setup()
+    {
+        gavs = Corpora.load( Corpora.GAVS );
+        refs = parseAll( gavs );
+        copies = parseAll( gavs );
+        refSet = new HashSet<ProjectVersionRef>( refs );
+    }
+
+    private static List<ProjectVersionRef> parseAll( final List<String> gavs )
+    {
+        final List<ProjectVersionRef> result = new ArrayList<ProjectVersionRef>( gavs.size() );
+        for ( final String gav : gavs )
+        {
+            result.add( SimpleProjectVersionRef.parse( gav ) );
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public void parse( final Blackhole bh )
+    {
+        for ( final String gav : gavs )
+        {
+            bh.consume( SimpleProjectVersionRef.parse( gav ) );
+        }
+    }
+
+    @Benchmark
+    public int hashCodes()
+    {
+        int result = 0;
+        for ( final ProjectVersionRef ref : refs )
+        {
+            result += ref.hashCode();
+        }
+
+        return result;
+    }
+
+    @Benchmark
+    public int equalsCopiesAndNeighbours()
+    {
+        int matches = 0;
+        final int size = refs.size();
+        for ( int i = 0; i < size; i++ )
+        {
+            final ProjectVersionRef ref = refs.get( i );
+            if ( ref.equals( copies.get( i ) ) )
+            {
+                matches++;
+            }
+            if ( ref.equals( copies.get( ( i + 1 ) % size ) ) )
+            {
+                matches++;
+            }
+        }
+
+        return matches;
+    }
+
+    @Benchmark
+    public Set<ProjectVersionRef> hashSetBuild()
+    {
+        return new HashSet<ProjectVersionRef>( refs );
+    }
+
+    @Benchmark
+    public int hashSetLookup()
+    {
+        int hits = 0;
+        for ( final ProjectVersionRef ref : copies )
+        {
+            if ( refSet.contains( ref ) )
+            {
+                hits++;
+            }
+        }
+
+        return hits;
+    }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.EdgeFilter;
+import org.commonjava.atlas.maven.graph.engine.ReachabilityIndex;
+import org.commonjava.atlas.maven.graph.engine.RelationshipGraph;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Does A depend on B" answered by {@link ReachabilityIndex}, against a depth-first search of the graph per query.
+ * With 3000 projects the index holds the full transitive closure; with 100000 it falls back to interval labels. Setup
+ * prints the build time and size of each index.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+@State( Scope.Benchmark )
+public class ReachabilityBenchmarks
+{
+
+    private static final int QUERIES = 1024;
+
+    @Param( { "3000", "100000" } )
+    public int nodes;
+
+    private RelationshipGraph graph;
+
+    private ReachabilityIndex index;
+
+    private int[] sources;
+
+    private int[] targets;
+
+    private ProjectVersionRef[] sourceRefs;
+
+    private ProjectVersionRef[] targetRefs;
+
+    @Setup
+    public void setup()
+    {
+        graph = new SyntheticGraph( nodes, nodes * 10, 0.001, 41L ).toGraph();
+        index = new ReachabilityIndex( graph, EdgeFilter.ALL );
+
+        final Random rand = new Random( 3 );
+        sources = new int[QUERIES];
+        targets = new int[QUERIES];
+        sourceRefs = new ProjectVersionRef[QUERIES];
+        targetRefs = new ProjectVersionRef[QUERIES];
+        int positive = 0;
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            sources[i] = rand.nextInt( graph.getNodeCount() );
+            targets[i] = rand.nextInt( graph.getNodeCount() );
+            sourceRefs[i] = graph.getNode( sources[i] );
+            targetRefs[i] = graph.getNode( targets[i] );
+            if ( index.reaches( sourceRefs[i], targetRefs[i] ) )
+            {
+                positive++;
+            }
+        }
+
+        System.out.printf( "%n%s: %.1f bytes per project, %d of %d queries reachable%n", index,
+                           (double) index.getIndexBytes() / graph.getNodeCount(), positive, QUERIES );
+    }
+
+    @Benchmark
+    public ReachabilityIndex buildIndex()
+    {
+        return new ReachabilityIndex( graph, EdgeFilter.ALL );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( QUERIES )
+    public int indexedQueries()
+    {
+        int count = 0;
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            if ( index.reaches( sourceRefs[i], targetRefs[i] ) )
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation( QUERIES )
+    public int searchQueries()
+    {
+        final int[] marks = new int[graph.getNodeCount()];
+        final int[] stack = new int[graph.getNodeCount()];
+        int count = 0;
+        for ( int i = 0; i < QUERIES; i++ )
+        {
+            if ( search( sources[i], targets[i], i + 1, marks, stack ) )
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private boolean search( final int from, final int to, final int stamp, final int[] marks, final int[] stack )
+    {
+        if ( from == to )
+        {
+            return true;
+        }
+
+        int sp = 0;
+        stack[sp++] = from;
+        marks[from] = stamp;
+        while ( sp > 0 )
+        {
+            final int node = stack[--sp];
+            for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+            {
+                final int next = graph.getTarget( e );
+                if ( next == to )
+                {
+                    return true;
+                }
+
+                if ( marks[next] != stamp )
+                {
+                    marks[next] = stamp;
+                    stack[sp++] = next;
+                }
+            }
+        }
+
+        return false;
+    }
+
+}
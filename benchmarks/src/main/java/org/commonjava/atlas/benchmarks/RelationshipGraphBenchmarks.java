@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.BuildOrder;
+import org.commonjava.atlas.maven.graph.engine.BuildOrderScheduler;
+import org.commonjava.atlas.maven.graph.engine.EdgeAttributes;
+import org.commonjava.atlas.maven.graph.engine.RelationshipGraph;
+import org.commonjava.atlas.maven.graph.engine.StronglyConnectedComponents;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and scanning {@link RelationshipGraph} at product scale (1M+ edges), next to the HashMap-of-HashSet
+ * adjacency callers build today. The gc.alloc.rate.norm of the build benchmarks is the memory comparison: it is
+ * roughly what each structure retains.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" } )
+@State( Scope.Benchmark )
+public class RelationshipGraphBenchmarks
+{
+
+    @Param( { "1000000" } )
+    public int edges;
+
+    @Param( { "100000" } )
+    public int nodes;
+
+    private SyntheticGraph synthetic;
+
+    private List<ProjectRelationship<?, ?>> relationships;
+
+    private RelationshipGraph graph;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup()
+    {
+        executor = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+        synthetic = new SyntheticGraph( nodes, edges, 0.001, 11L );
+        relationships = synthetic.toRelationships();
+        graph = synthetic.toGraph();
+
+        System.out.printf( "%n%s: %d adjacency bytes (%.1f per edge)%n", graph, graph.getAdjacencyBytes(),
+                           (double) graph.getAdjacencyBytes() / graph.getEdgeCount() );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public RelationshipGraph buildFromEdges()
+    {
+        return synthetic.toGraph();
+    }
+
+    @Benchmark
+    public RelationshipGraph buildFromRelationships()
+    {
+        return new RelationshipGraph.Builder( nodes, edges ).withRelationships( relationships ).build();
+    }
+
+    @Benchmark
+    public void buildHashMapAdjacency( final Blackhole bh )
+    {
+        final Map<ProjectVersionRef, Set<ProjectVersionRef>> forward =
+            new HashMap<ProjectVersionRef, Set<ProjectVersionRef>>();
+        final Map<ProjectVersionRef, Set<ProjectVersionRef>> reverse =
+            new HashMap<ProjectVersionRef, Set<ProjectVersionRef>>();
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            final ProjectVersionRef from = rel.getDeclaring();
+            final ProjectVersionRef to = rel.getTarget().asProjectVersionRef();
+            add( forward, from, to );
+            add( reverse, to, from );
+        }
+
+        bh.consume( forward );
+        bh.consume( reverse );
+    }
+
+    private static void add( final Map<ProjectVersionRef, Set<ProjectVersionRef>> map, final ProjectVersionRef key,
+                             final ProjectVersionRef value )
+    {
+        Set<ProjectVersionRef> set = map.get( key );
+        if ( set == null )
+        {
+            set = new HashSet<ProjectVersionRef>();
+            map.put( key, set );
+        }
+
+        set.add( value );
+    }
+
+    @Benchmark
+    public long forwardScan()
+    {
+        long sum = 0;
+        for ( int n = 0; n < graph.getNodeCount(); n++ )
+        {
+            for ( int e = graph.getOutStart( n ); e < graph.getOutEnd( n ); e++ )
+            {
+                sum += graph.getTarget( e ) ^ graph.getAttributes( e );
+            }
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public long reverseScan()
+    {
+        long sum = 0;
+        for ( int n = 0; n < graph.getNodeCount(); n++ )
+        {
+            for ( int p = graph.getInStart( n ); p < graph.getInEnd( n ); p++ )
+            {
+                sum += graph.getSource( graph.getInEdge( p ) );
+            }
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public StronglyConnectedComponents stronglyConnectedComponents()
+    {
+        return new StronglyConnectedComponents( graph, EdgeAttributes.typeMask( RelationshipType.values() ) );
+    }
+
+    @Benchmark
+    public BuildOrder scheduleBuildOrder()
+    {
+        return new BuildOrderScheduler( graph ).schedule();
+    }
+
+    @Benchmark
+    public BuildOrder scheduleBuildOrderParallel()
+        throws InterruptedException
+    {
+        return new BuildOrderScheduler( graph ).schedule( executor );
+    }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.GraphSnapshot;
+import org.commonjava.atlas.maven.graph.engine.RelationshipLog;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persisting one finished build's relationships into a large graph. {@link #appendToLog()} writes and fsyncs a single
+ * batch; {@link #rewriteSnapshot()} is the only option without the log, re-serializing the whole graph.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" } )
+@State( Scope.Benchmark )
+public class RelationshipLogBenchmarks
+{
+
+    @Param( { "20000" } )
+    public int projects;
+
+    private List<ProjectRelationship<?, ?>> relationships;
+
+    private List<ProjectRelationship<?, ?>> batch;
+
+    private File dir;
+
+    private File snapshot;
+
+    private RelationshipLog log;
+
+    @Setup
+    public void setup()
+        throws IOException
+    {
+        relationships = new SyntheticGraph( projects, projects * 10, 0, 17 ).toRelationships();
+
+        final ProjectVersionRef declaring = relationships.get( relationships.size() / 2 ).getDeclaring();
+        batch = new ArrayList<ProjectRelationship<?, ?>>();
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            if ( rel.getDeclaring().equals( declaring ) )
+            {
+                batch.add( rel );
+            }
+        }
+
+        dir = File.createTempFile( "relationship-log", ".d" );
+        dir.delete();
+        dir.mkdirs();
+        snapshot = new File( dir, "graph.snapshot" );
+        log = RelationshipLog.open( new File( dir, "graph.log" ) );
+
+        System.out.printf( "%n%d relationships in the graph, %d in the appended batch%n", relationships.size(),
+                           batch.size() );
+    }
+
+    @TearDown
+    public void tearDown()
+        throws IOException
+    {
+        log.close();
+        log.getFile().delete();
+        snapshot.delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public long appendToLog()
+        throws IOException
+    {
+        return log.add( batch );
+    }
+
+    @Benchmark
+    public File rewriteSnapshot()
+        throws IOException
+    {
+        new GraphSnapshot.Writer( projects, relationships.size() ).withRelationships( relationships )
+                                                                  .write( snapshot );
+        return snapshot;
+    }
+
+}
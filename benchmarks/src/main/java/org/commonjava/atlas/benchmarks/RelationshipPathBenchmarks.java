@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.RelationshipGraph;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipPath;
+import org.commonjava.atlas.maven.graph.rel.RelationshipPathComparator;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Enumerating every acyclic path below a project, extending paths by copying a list at each step (what callers of
+ * {@link RelationshipPathComparator} do today) against appending to a shared {@link RelationshipPath}, and sorting
+ * the resulting paths with each one's comparator.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class RelationshipPathBenchmarks
+{
+
+    @Param( { "10" } )
+    public int depth;
+
+    private RelationshipGraph graph;
+
+    private int root;
+
+    private List<List<ProjectRelationship<?, ?>>> listPaths;
+
+    private List<RelationshipPath> sharedPaths;
+
+    @Setup
+    public void setup()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new SyntheticGraph( 5000, 15000, 0.01, 23L ).toRelationships();
+        graph = new RelationshipGraph.Builder().retainRelationships().withRelationships( rels ).build();
+        root = graph.getNodeCount() - 1;
+
+        listPaths = listPaths();
+        sharedPaths = sharedPaths();
+        System.out.printf( "%n%d paths of up to %d relationships below %s%n", sharedPaths.size(), depth,
+                           graph.getNode( root ) );
+    }
+
+    @Benchmark
+    public List<List<ProjectRelationship<?, ?>>> listPaths()
+    {
+        final List<List<ProjectRelationship<?, ?>>> result = new ArrayList<List<ProjectRelationship<?, ?>>>();
+        walkLists( root, new ArrayList<ProjectRelationship<?, ?>>(), result );
+        return result;
+    }
+
+    private void walkLists( final int node, final List<ProjectRelationship<?, ?>> path,
+                            final List<List<ProjectRelationship<?, ?>>> result )
+    {
+        if ( path.size() == depth )
+        {
+            return;
+        }
+
+        for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+        {
+            final ProjectVersionRef target = graph.getNode( graph.getTarget( e ) );
+            if ( onPath( path, target ) )
+            {
+                continue;
+            }
+
+            final List<ProjectRelationship<?, ?>> next = new ArrayList<ProjectRelationship<?, ?>>( path );
+            next.add( graph.getRelationship( e ) );
+            result.add( next );
+            walkLists( graph.getTarget( e ), next, result );
+        }
+    }
+
+    private static boolean onPath( final List<ProjectRelationship<?, ?>> path, final ProjectVersionRef ref )
+    {
+        for ( final ProjectRelationship<?, ?> rel : path )
+        {
+            if ( rel.getDeclaring().equals( ref ) || rel.getTarget().asProjectVersionRef().equals( ref ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Benchmark
+    public List<RelationshipPath> sharedPaths()
+    {
+        final List<RelationshipPath> result = new ArrayList<RelationshipPath>();
+        walkShared( root, RelationshipPath.EMPTY, result );
+        return result;
+    }
+
+    private void walkShared( final int node, final RelationshipPath path, final List<RelationshipPath> result )
+    {
+        if ( path.size() == depth )
+        {
+            return;
+        }
+
+        for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+        {
+            if ( path.contains( graph.getNode( graph.getTarget( e ) ) ) )
+            {
+                continue;
+            }
+
+            final RelationshipPath next = path.append( graph.getRelationship( e ) );
+            result.add( next );
+            walkShared( graph.getTarget( e ), next, result );
+        }
+    }
+
+    @Benchmark
+    public List<List<ProjectRelationship<?, ?>>> sortListPaths()
+    {
+        final List<List<ProjectRelationship<?, ?>>> copy = new ArrayList<List<ProjectRelationship<?, ?>>>( listPaths );
+        Collections.sort( copy, RelationshipPathComparator.INSTANCE );
+        return copy;
+    }
+
+    @Benchmark
+    public List<RelationshipPath> sortSharedPaths()
+    {
+        final List<RelationshipPath> copy = new ArrayList<RelationshipPath>( sharedPaths );
+        Collections.sort( copy );
+        return copy;
+    }
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.EdgeAttributes;
+import org.commonjava.atlas.maven.graph.engine.RelationshipGraph;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic, product-shaped relationship graph for the graph benchmarks. Nodes mostly point at lower ids, skewed
+ * toward a small set of popular libraries, which gives a DAG; a configurable fraction of edges point upwards instead
+ * and close cycles. Edge types are roughly 80% dependencies (mixed scopes), 10% plugins, 5% parents and 5% BOMs.
+ */
+final class SyntheticGraph
+{
+
+    private static final URI SOURCE = URI.create( "http://repo.example.com/synthetic/" );
+
+    private static final DependencyScope[] SCOPES =
+        { DependencyScope.compile, DependencyScope.compile, DependencyScope.compile, DependencyScope.test,
+            DependencyScope.provided, DependencyScope.runtime };
+
+    final ProjectVersionRef[] nodes;
+
+    final int[] sources;
+
+    final int[] targets;
+
+    final int[] attributes;
+
+    SyntheticGraph( final int nodeCount, final int edgeCount, final double backEdgeRatio, final long seed )
+    {
+        final Random rand = new Random( seed );
+
+        nodes = new ProjectVersionRef[nodeCount];
+        for ( int i = 0; i < nodeCount; i++ )
+        {
+            nodes[i] = new SimpleProjectVersionRef( "org.synthetic.g" + ( i % 97 ), "artifact-" + i,
+                                                    "1." + ( i % 13 ) + "." + ( i % 7 ) );
+        }
+
+        sources = new int[edgeCount];
+        targets = new int[edgeCount];
+        attributes = new int[edgeCount];
+
+        final int perNode = Math.max( 1, edgeCount / nodeCount );
+        int e = 0;
+        for ( int n = 1; e < edgeCount; n = n % ( nodeCount - 1 ) + 1 )
+        {
+            for ( int j = 0; j < perNode && e < edgeCount; j++, e++ )
+            {
+                final int target;
+                if ( rand.nextDouble() < backEdgeRatio )
+                {
+                    target = n + 1 + rand.nextInt( nodeCount - n );
+                }
+                else
+                {
+                    final double r = rand.nextDouble();
+                    target = (int) ( n * r * r );
+                }
+
+                sources[e] = n;
+                targets[e] = Math.min( target, nodeCount - 1 );
+                attributes[e] = randomAttributes( rand, j );
+            }
+        }
+    }
+
+    private static int randomAttributes( final Random rand, final int index )
+    {
+        final int pick = rand.nextInt( 20 );
+        if ( pick < 16 )
+        {
+            return EdgeAttributes.pack( RelationshipType.DEPENDENCY, SCOPES[rand.nextInt( SCOPES.length )], index,
+                                        pick == 0, false, pick == 1, false );
+        }
+        else if ( pick < 18 )
+        {
+            return EdgeAttributes.pack( RelationshipType.PLUGIN, null, index, false, false, false, false );
+        }
+        else if ( pick < 19 )
+        {
+            return EdgeAttributes.pack( RelationshipType.PARENT, null, 0, false, false, false, false );
+        }
+
+        return EdgeAttributes.pack( RelationshipType.BOM, null, index, true, false, false, false );
+    }
+
+    int edgeCount()
+    {
+        return targets.length;
+    }
+
+    RelationshipGraph toGraph()
+    {
+        final RelationshipGraph.Builder builder = new RelationshipGraph.Builder( nodes.length, targets.length );
+        for ( final ProjectVersionRef node : nodes )
+        {
+            builder.addNode( node );
+        }
+        for ( int e = 0; e < targets.length; e++ )
+        {
+            builder.withEdge( sources[e], targets[e], attributes[e] );
+        }
+
+        return builder.build();
+    }
+
+    List<ProjectRelationship<?, ?>> toRelationships()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>( targets.length );
+        for ( int e = 0; e < targets.length; e++ )
+        {
+            final ProjectVersionRef from = nodes[sources[e]];
+            final ProjectVersionRef to = nodes[targets[e]];
+            final int attrs = attributes[e];
+            final int index = EdgeAttributes.index( attrs );
+            switch ( EdgeAttributes.type( attrs ) )
+            {
+                case DEPENDENCY:
+                    rels.add( new SimpleDependencyRelationship( SOURCE, from, to.asJarArtifact(),
+                                                                EdgeAttributes.scope( attrs ), index,
+                                                                EdgeAttributes.isManaged( attrs ), false,
+                                                                EdgeAttributes.isOptional( attrs ) ) );
+                    break;
+                case PLUGIN:
+                    rels.add( new SimplePluginRelationship( SOURCE, from, to, index, false, false ) );
+                    break;
+                case PARENT:
+                    rels.add( new SimpleParentRelationship( SOURCE, from, to ) );
+                    break;
+                default:
+                    rels.add( new SimpleBomRelationship( SOURCE, from, to, index, false, false ) );
+                    break;
+            }
+        }
+
+        return rels;
+    }
+
+}
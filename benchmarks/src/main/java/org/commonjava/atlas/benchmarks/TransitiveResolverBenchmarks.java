@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.graph.engine.RelationshipGraph;
+import org.commonjava.atlas.maven.graph.engine.TransitiveResolution;
+import org.commonjava.atlas.maven.graph.engine.TransitiveResolver;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the test classpath of every module of a product-sized graph: with a fresh resolver per module (nothing
+ * shared between modules), with one resolver for all of them, and with one resolver spread over all cores.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+@State( Scope.Benchmark )
+public class TransitiveResolverBenchmarks
+{
+
+    @Param( { "3000" } )
+    public int modules;
+
+    private RelationshipGraph graph;
+
+    private List<ProjectVersionRef> roots;
+
+    private ExecutorService executor;
+
+    @Setup
+    public void setup()
+    {
+        final SyntheticGraph synthetic = new SyntheticGraph( modules, modules * 12, 0.0, 23L );
+        graph = new RelationshipGraph.Builder().retainRelationships()
+                                               .withRelationships( synthetic.toRelationships() )
+                                               .build();
+        roots = Arrays.asList( synthetic.nodes );
+        executor = Executors.newFixedThreadPool( Runtime.getRuntime().availableProcessors() );
+
+        long total = 0;
+        for ( final TransitiveResolution resolution : resolveShared().values() )
+        {
+            total += resolution.getDependencyCount();
+        }
+        System.out.printf( "%n%s: %d resolved dependencies over %d roots%n", graph, total, roots.size() );
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public long resolveWithFreshResolvers()
+    {
+        long total = 0;
+        for ( final ProjectVersionRef root : roots )
+        {
+            total += new TransitiveResolver( graph ).withScope( DependencyScope.test )
+                                                    .resolve( root )
+                                                    .getDependencyCount();
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public long resolveWithSharedResolver()
+    {
+        final TransitiveResolver resolver = new TransitiveResolver( graph ).withScope( DependencyScope.test );
+        long total = 0;
+        for ( final ProjectVersionRef root : roots )
+        {
+            total += resolver.resolve( root ).getDependencyCount();
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public Map<ProjectVersionRef, TransitiveResolution> resolveWithSharedResolverParallel()
+        throws InterruptedException
+    {
+        return new TransitiveResolver( graph ).withScope( DependencyScope.test ).resolveEach( roots, executor );
+    }
+
+    private Map<ProjectVersionRef, TransitiveResolution> resolveShared()
+    {
+        try
+        {
+            return resolveWithSharedResolverParallel();
+        }
+        catch ( final InterruptedException e )
+        {
+            throw new IllegalStateException( e );
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.benchmarks;
+
+import org.commonjava.atlas.maven.ident.util.VersionUtils;
+import org.commonjava.atlas.maven.ident.version.InvalidVersionSpecificationException;
+import org.commonjava.atlas.maven.ident.version.RangeVersionSpec;
+import org.commonjava.atlas.maven.ident.version.SingleVersion;
+import org.commonjava.atlas.maven.ident.version.VersionSpecComparisons;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Version parsing, sorting and range matching over {@link Corpora#VERSIONS} and {@link Corpora#RANGES}. Each
+ * operation covers the whole corpus.
+ */
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+@State( Scope.Benchmark )
+public class VersionBenchmarks
+{
+
+    private List<String> versions;
+
+    private List<SingleVersion> shuffled;
+
+    private List<RangeVersionSpec> ranges;
+
+    @Setup
+    public void setup()
+            throws InvalidVersionSpecificationException
+    {
+        // measure parsing, not the optional cache.
+        VersionUtils.disableVersionSpecCache();
+
+        versions = Corpora.load( Corpora.VERSIONS );
+
+        shuffled = new ArrayList<SingleVersion>( versions.size() );
+        for ( final String v : versions )
+        {
+            shuffled.add( VersionUtils.createSingleVersion( v ) );
+        }
+        Collections.shuffle( shuffled, new Random( 42 ) );
+
+        ranges = new ArrayList<RangeVersionSpec>();
+        for ( final String r : Corpora.load( Corpora.RANGES ) )
+        {
+            ranges.add( VersionUtils.createRange( r ) );
+        }
+    }
+
+    @Benchmark
+    public void createFromSpec( final Blackhole bh )
+            throws InvalidVersionSpecificationException
+    {
+        for ( final String v : versions )
+        {
+            bh.consume( VersionUtils.createFromSpec( v ) );
+        }
+    }
+
+    @Benchmark
+    public List<SingleVersion> sortWithComparator()
+    {
+        final List<SingleVersion> copy = new ArrayList<SingleVersion>( shuffled );
+        Collections.sort( copy, VersionSpecComparisons.comparator() );
+        return copy;
+    }
+
+    @Benchmark
+    public List<SingleVersion> sortWithSortKeys()
+    {
+        final List<SingleVersion> copy = new ArrayList<SingleVersion>( shuffled );
+        Collections.sort( copy, VersionSpecComparisons.sortKeyComparator() );
+        return copy;
+    }
+
+    @Benchmark
+    public int rangeContains()
+    {
+        int matches = 0;
+        for ( final RangeVersionSpec range : ranges )
+        {
+            for ( final SingleVersion v : shuffled )
+            {
+                if ( range.contains( v ) )
+                {
+                    matches++;
+                }
+            }
+        }
+
+        return matches;
+    }
+
+}
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class BinaryCodecBenchmarks_jmhType extends BinaryCodecBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class CycleBenchmarks_jmhType extends CycleBenchmarks_jmhType_B3 {
+}
+
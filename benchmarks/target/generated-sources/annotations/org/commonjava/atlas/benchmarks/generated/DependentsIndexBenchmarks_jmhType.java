@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class DependentsIndexBenchmarks_jmhType extends DependentsIndexBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class DictionaryEncodingBenchmarks_jmhType extends DictionaryEncodingBenchmarks_jmhType_B3 {
+}
+
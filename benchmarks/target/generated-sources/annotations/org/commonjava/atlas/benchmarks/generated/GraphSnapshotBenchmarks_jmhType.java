@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class GraphSnapshotBenchmarks_jmhType extends GraphSnapshotBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class JacksonBenchmarks_jmhType extends JacksonBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class ManagedDependencyBenchmarks_jmhType extends ManagedDependencyBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class PathInfoBenchmarks_jmhType extends PathInfoBenchmarks_jmhType_B3 {
+}
+
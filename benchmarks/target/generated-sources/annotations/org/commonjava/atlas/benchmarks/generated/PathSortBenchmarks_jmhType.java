@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class PathSortBenchmarks_jmhType extends PathSortBenchmarks_jmhType_B3 {
+}
+
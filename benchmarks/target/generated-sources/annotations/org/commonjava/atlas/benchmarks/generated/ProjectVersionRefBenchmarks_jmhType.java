@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class ProjectVersionRefBenchmarks_jmhType extends ProjectVersionRefBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class ReachabilityBenchmarks_jmhType extends ReachabilityBenchmarks_jmhType_B3 {
+}
+
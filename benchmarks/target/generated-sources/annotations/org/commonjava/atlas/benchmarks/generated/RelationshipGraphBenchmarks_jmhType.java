@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class RelationshipGraphBenchmarks_jmhType extends RelationshipGraphBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class RelationshipLogBenchmarks_jmhType extends RelationshipLogBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class RelationshipPathBenchmarks_jmhType extends RelationshipPathBenchmarks_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class TransitiveResolverBenchmarks_jmhType extends TransitiveResolverBenchmarks_jmhType_B3 {
+}
+
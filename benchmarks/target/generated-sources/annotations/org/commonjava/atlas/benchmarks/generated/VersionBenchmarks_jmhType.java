@@ -0,0 +1,4 @@
+package org.commonjava.atlas.benchmarks.generated;
+public class VersionBenchmarks_jmhType extends VersionBenchmarks_jmhType_B3 {
+}
+
@@ -43,6 +43,6 @@ public class ProjectRefDeserializer<T extends ProjectRef>
     public T deserialize( final JsonParser jp, final DeserializationContext ctxt )
             throws IOException, JsonProcessingException
     {
-        return SerializerIdentityUtils.parse( jp.getText(), refCls );
+        return SerializerIdentityUtils.read( jp, refCls );
     }
 }
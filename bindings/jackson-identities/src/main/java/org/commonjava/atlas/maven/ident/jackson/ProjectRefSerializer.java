@@ -45,6 +45,10 @@ public final class ProjectRefSerializer<T extends ProjectRef>
         {
             generator.writeFieldName( src.toString() );
         }
+        else if ( SerializerIdentityUtils.writesFields( generator ) )
+        {
+            SerializerIdentityUtils.write( src, generator );
+        }
         else
         {
             generator.writeString( src.toString() );
@@ -15,7 +15,13 @@
  */
 package org.commonjava.atlas.maven.ident.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.IdentityPool;
 import org.commonjava.atlas.maven.ident.ref.ProjectRef;
 import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
 import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
@@ -29,12 +35,179 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
 /**
+ * Refs are written as their toString() form, except to generators that can write binary natively (Smile, CBOR),
+ * which get an object of short fields instead, so nothing has to be concatenated or split again:
+ * <pre>
+ * { "g": groupId, "a": artifactId, "v": version, "t": type, "c": classifier }
+ * </pre>
+ * Only the fields the ref has are written: g and a always, v for versioned refs, t (and c, if set) for artifacts.
+ * Token buffers (valueToTree(), convertValue()) also claim native binary support, but they're read back as JSON
+ * trees and values, so they get the string form.
+ * {@link #read(JsonParser, Class)} accepts either form from any parser.
+ *
  * Created by jdcasey on 8/26/15.
  */
 public final class SerializerIdentityUtils
 {
+    public static final String GROUP_ID = "g";
+
+    public static final String ARTIFACT_ID = "a";
+
+    public static final String VERSION = "v";
+
+    public static final String TYPE = "t";
+
+    public static final String CLASSIFIER = "c";
+
+    private static final String DEFAULT_TYPE = "pom";
+
     private SerializerIdentityUtils(){}
 
+    /**
+     * Whether refs are written to this generator as field objects rather than strings.
+     */
+    public static boolean writesFields( final JsonGenerator generator )
+    {
+        return !( generator instanceof TokenBuffer ) && generator.canWriteBinaryNatively();
+    }
+
+    public static void write( final ProjectRef ref, final JsonGenerator generator )
+            throws IOException
+    {
+        generator.writeStartObject();
+        generator.writeStringField( GROUP_ID, ref.getGroupId() );
+        generator.writeStringField( ARTIFACT_ID, ref.getArtifactId() );
+        if ( ref instanceof ProjectVersionRef )
+        {
+            generator.writeStringField( VERSION, ( (ProjectVersionRef) ref ).getVersionString() );
+        }
+
+        String type = null;
+        String classifier = null;
+        if ( ref instanceof ArtifactRef )
+        {
+            type = ( (ArtifactRef) ref ).getType();
+            classifier = ( (ArtifactRef) ref ).getClassifier();
+        }
+        else if ( ref instanceof VersionlessArtifactRef )
+        {
+            type = ( (VersionlessArtifactRef) ref ).getType();
+            classifier = ( (VersionlessArtifactRef) ref ).getClassifier();
+        }
+
+        if ( type != null )
+        {
+            generator.writeStringField( TYPE, type );
+        }
+        if ( classifier != null )
+        {
+            generator.writeStringField( CLASSIFIER, classifier );
+        }
+        generator.writeEndObject();
+    }
+
+    /**
+     * Reads a ref in either form, starting at the parser's current token. For the field form, the most specific ref
+     * the fields describe is returned if it is a {@code type}; otherwise the ref is built as a {@code type}, with the
+     * same defaults parse() uses (a missing artifact type means 'pom').
+     */
+    public static <T extends ProjectRef> T read( final JsonParser jp, final Class<T> type )
+            throws IOException
+    {
+        final JsonToken token = jp.getCurrentToken();
+        if ( token == JsonToken.VALUE_STRING )
+        {
+            return parse( jp.getText(), type );
+        }
+        else if ( token != JsonToken.START_OBJECT )
+        {
+            throw new JsonParseException( jp, "Expected a " + type.getSimpleName() + " string or object, found: "
+                    + token );
+        }
+
+        String g = null;
+        String a = null;
+        String v = null;
+        String t = null;
+        String c = null;
+        while ( jp.nextToken() == JsonToken.FIELD_NAME )
+        {
+            final String field = jp.getCurrentName();
+            final JsonToken value = jp.nextToken();
+            if ( value == JsonToken.VALUE_STRING )
+            {
+                final String text = jp.getText();
+                if ( GROUP_ID.equals( field ) )
+                {
+                    g = text;
+                }
+                else if ( ARTIFACT_ID.equals( field ) )
+                {
+                    a = text;
+                }
+                else if ( VERSION.equals( field ) )
+                {
+                    v = text;
+                }
+                else if ( TYPE.equals( field ) )
+                {
+                    t = text;
+                }
+                else if ( CLASSIFIER.equals( field ) )
+                {
+                    c = text;
+                }
+            }
+            else
+            {
+                jp.skipChildren();
+            }
+        }
+
+        if ( jp.getCurrentToken() != JsonToken.END_OBJECT )
+        {
+            throw new JsonParseException( jp, "Unexpected end of " + type.getSimpleName() );
+        }
+
+        final ProjectRef ref;
+        if ( v != null && t != null )
+        {
+            ref = new SimpleArtifactRef( g, a, v, t, c );
+        }
+        else if ( t != null )
+        {
+            ref = new SimpleVersionlessArtifactRef( g, a, t, c );
+        }
+        else if ( v != null )
+        {
+            ref = new SimpleProjectVersionRef( g, a, v );
+        }
+        else
+        {
+            ref = new SimpleProjectRef( g, a );
+        }
+
+        if ( type.isInstance( ref ) )
+        {
+            return type.cast( IdentityPool.canonical( ref ) );
+        }
+        else if ( v != null && ArtifactRef.class.isAssignableFrom( type ) )
+        {
+            return type.cast( IdentityPool.canonical( new SimpleArtifactRef( g, a, v, DEFAULT_TYPE, null ) ) );
+        }
+        else if ( VersionlessArtifactRef.class.isAssignableFrom( type ) )
+        {
+            return type.cast( IdentityPool.canonical(
+                    new SimpleVersionlessArtifactRef( g, a, t == null ? DEFAULT_TYPE : t, c ) ) );
+        }
+        else if ( v != null && ProjectVersionRef.class.isAssignableFrom( type ) )
+        {
+            return type.cast( IdentityPool.canonical( new SimpleProjectVersionRef( g, a, v ) ) );
+        }
+
+        throw new JsonParseException( jp, "Fields of " + ref + " do not describe a " + type.getSimpleName() );
+    }
+
     public static <T extends ProjectRef> T parse( final String value, final Class<T> type )
             throws IOException
     {
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.jackson;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleVersionlessArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.VersionlessArtifactRef;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+public class BinaryFormatRefSerializationTest
+{
+
+    private static List<ObjectMapper> binaryMappers()
+    {
+        final ObjectMapper smile = new ObjectMapper( new SmileFactory() );
+        smile.registerModule( new ProjectVersionRefSerializerModule() );
+
+        final ObjectMapper cbor = new ObjectMapper( new CBORFactory() );
+        cbor.registerModule( new ProjectVersionRefSerializerModule() );
+
+        return Arrays.asList( smile, cbor );
+    }
+
+    @Test
+    public void refsAreWrittenAsFields()
+        throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final ArtifactRef ref = new SimpleArtifactRef( "org.foo", "bar", "1.0", "test-jar", "tests" );
+            final JsonNode node = mapper.readTree( mapper.writeValueAsBytes( ref ) );
+
+            assertThat( node.isObject(), equalTo( true ) );
+            assertThat( node.get( SerializerIdentityUtils.GROUP_ID ).asText(), equalTo( "org.foo" ) );
+            assertThat( node.get( SerializerIdentityUtils.ARTIFACT_ID ).asText(), equalTo( "bar" ) );
+            assertThat( node.get( SerializerIdentityUtils.VERSION ).asText(), equalTo( "1.0" ) );
+            assertThat( node.get( SerializerIdentityUtils.TYPE ).asText(), equalTo( "test-jar" ) );
+            assertThat( node.get( SerializerIdentityUtils.CLASSIFIER ).asText(), equalTo( "tests" ) );
+
+            final JsonNode gav = mapper.readTree( mapper.writeValueAsBytes(
+                    new SimpleProjectVersionRef( "org.foo", "bar", "1.0" ) ) );
+            assertThat( gav.size(), equalTo( 3 ) );
+            assertThat( gav.get( SerializerIdentityUtils.TYPE ), nullValue() );
+        }
+    }
+
+    @Test
+    public void everyRefTypeRoundTrips()
+        throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final ProjectRef pr = new SimpleProjectRef( "org.foo", "bar" );
+            final ProjectVersionRef pvr = new SimpleProjectVersionRef( "org.foo", "bar", "1.0-SNAPSHOT" );
+            final ArtifactRef ar = new SimpleArtifactRef( "org.foo", "bar", "1.0", "jar", null );
+            final ArtifactRef classified = new SimpleArtifactRef( "org.foo", "bar", "1.0", "zip", "dist" );
+            final VersionlessArtifactRef var = new SimpleVersionlessArtifactRef( pr, "war", null );
+
+            assertRoundTrip( mapper, pr, ProjectRef.class );
+            assertRoundTrip( mapper, pvr, ProjectVersionRef.class );
+            assertRoundTrip( mapper, ar, ArtifactRef.class );
+            assertRoundTrip( mapper, classified, ArtifactRef.class );
+            assertRoundTrip( mapper, var, VersionlessArtifactRef.class );
+
+            // the most specific ref is kept when reading into a wider type
+            assertThat( mapper.readValue( mapper.writeValueAsBytes( classified ), ProjectRef.class ).toString(),
+                        equalTo( classified.toString() ) );
+        }
+    }
+
+    @Test
+    public void stringFormIsStillReadable()
+        throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final byte[] data = mapper.writeValueAsBytes( "org.foo:bar:jar:1.0:tests" );
+            final ArtifactRef result = mapper.readValue( data, ArtifactRef.class );
+
+            assertThat( result.toString(), equalTo( "org.foo:bar:jar:1.0:tests" ) );
+        }
+    }
+
+    @Test
+    public void refKeysRoundTrip()
+        throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final Map<ProjectVersionRef, String> map = new HashMap<ProjectVersionRef, String>();
+            map.put( new SimpleProjectVersionRef( "org.foo", "bar", "1" ), "value" );
+
+            final Map<ProjectVersionRef, String> result =
+                    mapper.readValue( mapper.writeValueAsBytes( map ),
+                                      new TypeReference<Map<ProjectVersionRef, String>>()
+                                      {
+                                      } );
+
+            assertThat( result, equalTo( map ) );
+        }
+    }
+
+    @Test
+    public void textJsonIsUnchanged()
+        throws Exception
+    {
+        final ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule( new ProjectVersionRefSerializerModule() );
+
+        final String json = mapper.writeValueAsString( new SimpleArtifactRef( "org.foo", "bar", "1.0", "jar", null ) );
+
+        assertThat( json, equalTo( "\"org.foo:bar:jar:1.0\"" ) );
+    }
+
+    @Test
+    public void treesAndConvertedValuesUseTheStringForm()
+        throws Exception
+    {
+        final ObjectMapper json = new ObjectMapper();
+        json.registerModule( new ProjectVersionRefSerializerModule() );
+
+        final List<ObjectMapper> mappers = new ArrayList<ObjectMapper>( binaryMappers() );
+        mappers.add( json );
+        for ( final ObjectMapper mapper : mappers )
+        {
+            final ArtifactRef ref = new SimpleArtifactRef( "org.foo", "bar", "1.0", "test-jar", "tests" );
+
+            final JsonNode node = mapper.valueToTree( ref );
+            assertThat( node.isTextual(), equalTo( true ) );
+            assertThat( node.asText(), equalTo( ref.toString() ) );
+            assertThat( mapper.treeToValue( node, ArtifactRef.class ), equalTo( ref ) );
+
+            final String converted = mapper.convertValue( ref, String.class );
+            assertThat( converted, equalTo( ref.toString() ) );
+            assertThat( mapper.convertValue( converted, ArtifactRef.class ), equalTo( ref ) );
+            assertThat( mapper.convertValue( ref, ArtifactRef.class ), equalTo( ref ) );
+
+            final ProjectVersionRef pvr = new SimpleProjectVersionRef( "org.foo", "bar", "1.0" );
+            assertThat( mapper.convertValue( mapper.valueToTree( pvr ), ProjectVersionRef.class ), equalTo( pvr ) );
+        }
+    }
+
+    @Test
+    public void malformedFieldsReportTheirLocation()
+        throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final Map<String, Object> fields = new HashMap<String, Object>();
+            fields.put( SerializerIdentityUtils.GROUP_ID, "org.foo" );
+            fields.put( SerializerIdentityUtils.ARTIFACT_ID, "bar" );
+
+            try
+            {
+                mapper.readValue( mapper.writeValueAsBytes( fields ), ProjectVersionRef.class );
+                fail( "Fields without a version should not be read as a ProjectVersionRef" );
+            }
+            catch ( final JsonParseException e )
+            {
+                assertThat( e.getProcessor() != null, equalTo( true ) );
+                assertThat( e.getLocation() != null, equalTo( true ) );
+            }
+        }
+    }
+
+    private static <T extends ProjectRef> void assertRoundTrip( final ObjectMapper mapper, final T ref,
+                                                                final Class<T> type )
+        throws Exception
+    {
+        final T result = mapper.readValue( mapper.writeValueAsBytes( ref ), type );
+
+        assertThat( result, equalTo( ref ) );
+        assertThat( result.toString(), equalTo( ref.toString() ) );
+        assertThat( result.getClass().equals( ref.getClass() ), equalTo( true ) );
+    }
+
+}
@@ -0,0 +1,569 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.ref;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Weak, thread-safe canonicalizer for the Simple* ref types, {@link SimpleTypeAndClassifier} and the Strings they are
+ * made of. Interning a ref returns the pooled instance with exactly the same class and field values, so the duplicate
+ * can be dropped; pooled instances are only weakly held, and disappear once nothing else refers to them.
+ * <p>
+ * Matching is deliberately stricter than {@link Object#equals(Object)}: ref equality compares versions semantically
+ * ('1.0' equals '1.0.0') and across classes, but a canonical instance must render exactly like the one it replaces.
+ * Other implementations (including subclasses) of the ref interfaces are returned unchanged.
+ * <p>
+ * The shared pool used by the parse() methods and {@link org.commonjava.atlas.maven.ident.util.IdentityUtils} is off
+ * by default; switch it on with {@link #enableSharedPool()} or the {@link #ENABLED_PROPERTY} system property.
+ */
+public final class IdentityPool
+{
+
+    /**
+     * System property used to switch on the shared pool at startup.
+     * @see #enableSharedPool()
+     */
+    public static final String ENABLED_PROPERTY = "atlas.identity.pool";
+
+    private static final int SEGMENTS = 16;
+
+    private static final int INITIAL_SEGMENT_CAPACITY = 64;
+
+    private static final int STRING = 0;
+
+    private static final int PROJECT = 1;
+
+    private static final int PROJECT_VERSION = 2;
+
+    private static final int ARTIFACT = 3;
+
+    private static final int VERSIONLESS_ARTIFACT = 4;
+
+    private static final int TYPE_AND_CLASSIFIER = 5;
+
+    private static volatile IdentityPool shared;
+
+    static
+    {
+        if ( Boolean.getBoolean( ENABLED_PROPERTY ) )
+        {
+            shared = new IdentityPool();
+        }
+    }
+
+    private final Segment[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public IdentityPool()
+    {
+        segments = new Segment[SEGMENTS];
+        for ( int i = 0; i < SEGMENTS; i++ )
+        {
+            segments[i] = new Segment();
+        }
+    }
+
+    /**
+     * Switch on the shared pool, if it isn't on already.
+     *
+     * @return the shared pool, which can be used to read its size and hit rate
+     */
+    public static IdentityPool enableSharedPool()
+    {
+        synchronized ( IdentityPool.class )
+        {
+            if ( shared == null )
+            {
+                shared = new IdentityPool();
+            }
+
+            return shared;
+        }
+    }
+
+    public static void disableSharedPool()
+    {
+        shared = null;
+    }
+
+    /**
+     * @return the shared pool, or null if it is switched off (the default).
+     */
+    public static IdentityPool getSharedPool()
+    {
+        return shared;
+    }
+
+    /**
+     * Intern the given ref in the shared pool, if it is switched on; otherwise return it as-is.
+     */
+    public static <T extends ProjectRef> T canonical( final T ref )
+    {
+        final IdentityPool pool = shared;
+        return pool == null ? ref : pool.intern( ref );
+    }
+
+    /**
+     * Intern the given type and classifier in the shared pool, if it is switched on; otherwise return it as-is.
+     */
+    public static <T extends TypeAndClassifier> T canonical( final T tc )
+    {
+        final IdentityPool pool = shared;
+        return pool == null ? tc : pool.intern( tc );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public <T extends ProjectRef> T intern( final T ref )
+    {
+        if ( ref == null )
+        {
+            return null;
+        }
+
+        final int kind = kindOf( ref );
+        if ( kind < 0 )
+        {
+            return ref;
+        }
+
+        // canonical instances always have exactly the class of the ref they were created from.
+        return (T) intern( ref, kind, true );
+    }
+
+    @SuppressWarnings( "unchecked" )
+    public <T extends TypeAndClassifier> T intern( final T tc )
+    {
+        if ( tc == null || tc.getClass() != SimpleTypeAndClassifier.class )
+        {
+            return tc;
+        }
+
+        return (T) intern( tc, TYPE_AND_CLASSIFIER, true );
+    }
+
+    public String intern( final String value )
+    {
+        if ( value == null )
+        {
+            return null;
+        }
+
+        return (String) intern( value, STRING, false );
+    }
+
+    /**
+     * @return the number of live pooled instances, including component Strings.
+     */
+    public int size()
+    {
+        int size = 0;
+        for ( final Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                segment.expunge();
+                size += segment.count;
+            }
+        }
+
+        return size;
+    }
+
+    public void clear()
+    {
+        for ( final Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                segment.clear();
+            }
+        }
+
+        hits.set( 0 );
+        misses.set( 0 );
+    }
+
+    /**
+     * @return the number of refs and type/classifiers that were replaced by an already-pooled instance.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public double getHitRate()
+    {
+        final long h = hits.get();
+        final long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "IdentityPool [size=%s, hits=%s, misses=%s]", size(), hits.get(), misses.get() );
+    }
+
+    /**
+     * @param record whether to count the lookup as a hit or miss; lookups for components of other instances aren't
+     *            counted.
+     */
+    private Object intern( final Object value, final int kind, final boolean record )
+    {
+        final int hash = hash( value, kind );
+
+        // segments are picked from the high bits, buckets within them from the low ones.
+        final Segment segment = segments[( hash * 0x9E3779B9 ) >>> 28];
+
+        Object found;
+        synchronized ( segment )
+        {
+            found = segment.find( value, kind, hash );
+        }
+
+        if ( found == null )
+        {
+            // build outside the lock; components are interned through other segments.
+            final Object created = create( value, kind );
+            synchronized ( segment )
+            {
+                found = segment.find( value, kind, hash );
+                if ( found == null )
+                {
+                    segment.add( created, hash );
+                }
+            }
+
+            if ( found == null )
+            {
+                if ( record )
+                {
+                    misses.incrementAndGet();
+                }
+
+                return created;
+            }
+        }
+
+        if ( record )
+        {
+            hits.incrementAndGet();
+        }
+
+        return found;
+    }
+
+    /**
+     * Build the instance to pool for a miss, sharing interned components where the constructors allow it.
+     */
+    private Object create( final Object value, final int kind )
+    {
+        switch ( kind )
+        {
+            case PROJECT:
+            {
+                final ProjectRef ref = (ProjectRef) value;
+                return new SimpleProjectRef( intern( ref.getGroupId() ), intern( ref.getArtifactId() ) );
+            }
+            case PROJECT_VERSION:
+            {
+                final ProjectVersionRef ref = (ProjectVersionRef) value;
+                return new SimpleProjectVersionRef( intern( ref.getGroupId() ), intern( ref.getArtifactId() ),
+                                                    ref.getVersionSpecRaw(), intern( ref.getVersionString() ) );
+            }
+            case ARTIFACT:
+            {
+                final ArtifactRef ref = (ArtifactRef) value;
+                final ProjectVersionRef pv = new SimpleProjectVersionRef( ref.getGroupId(), ref.getArtifactId(),
+                                                                          ref.getVersionSpecRaw(),
+                                                                          ref.getVersionString() );
+                final Object pvr = intern( pv, PROJECT_VERSION, false );
+                return new SimpleArtifactRef( (ProjectVersionRef) pvr,
+                                              internTypeAndClassifier( ref.getType(), ref.getClassifier() ) );
+            }
+            case VERSIONLESS_ARTIFACT:
+            {
+                final VersionlessArtifactRef ref = (VersionlessArtifactRef) value;
+                final ProjectRef p = new SimpleProjectRef( ref.getGroupId(), ref.getArtifactId() );
+                final Object pr = intern( p, PROJECT, false );
+                return new SimpleVersionlessArtifactRef( (ProjectRef) pr,
+                                                         internTypeAndClassifier( ref.getType(), ref.getClassifier() ) );
+            }
+            case TYPE_AND_CLASSIFIER:
+            {
+                final TypeAndClassifier tc = (TypeAndClassifier) value;
+                return new SimpleTypeAndClassifier( intern( tc.getType() ), intern( tc.getClassifier() ) );
+            }
+            default:
+                return value;
+        }
+    }
+
+    private TypeAndClassifier internTypeAndClassifier( final String type, final String classifier )
+    {
+        return (TypeAndClassifier) intern( new SimpleTypeAndClassifier( type, classifier ), TYPE_AND_CLASSIFIER,
+                                           false );
+    }
+
+    private static int kindOf( final ProjectRef ref )
+    {
+        final Class<?> cls = ref.getClass();
+        if ( cls == SimpleProjectVersionRef.class )
+        {
+            return PROJECT_VERSION;
+        }
+        else if ( cls == SimpleArtifactRef.class )
+        {
+            return ARTIFACT;
+        }
+        else if ( cls == SimpleProjectRef.class )
+        {
+            return PROJECT;
+        }
+        else if ( cls == SimpleVersionlessArtifactRef.class )
+        {
+            return VERSIONLESS_ARTIFACT;
+        }
+
+        return -1;
+    }
+
+    private static int hash( final Object value, final int kind )
+    {
+        final int prime = 31;
+        switch ( kind )
+        {
+            case STRING:
+                return value.hashCode();
+            case TYPE_AND_CLASSIFIER:
+            {
+                final TypeAndClassifier tc = (TypeAndClassifier) value;
+                return prime * ( prime * kind + hash( tc.getType() ) ) + hash( tc.getClassifier() );
+            }
+            default:
+            {
+                final ProjectRef ref = (ProjectRef) value;
+                int result = prime * ( prime * kind + ref.getGroupId()
+                                                          .hashCode() ) + ref.getArtifactId()
+                                                                             .hashCode();
+                if ( kind == PROJECT_VERSION || kind == ARTIFACT )
+                {
+                    result = prime * result + hash( ( (ProjectVersionRef) ref ).getVersionString() );
+                }
+                if ( kind == ARTIFACT )
+                {
+                    final ArtifactRef ar = (ArtifactRef) ref;
+                    result = prime * ( prime * result + hash( ar.getType() ) ) + hash( ar.getClassifier() );
+                }
+                else if ( kind == VERSIONLESS_ARTIFACT )
+                {
+                    final VersionlessArtifactRef vr = (VersionlessArtifactRef) ref;
+                    result = prime * ( prime * result + hash( vr.getType() ) ) + hash( vr.getClassifier() );
+                }
+
+                return result;
+            }
+        }
+    }
+
+    private static boolean same( final Object pooled, final Object value, final int kind )
+    {
+        if ( pooled.getClass() != value.getClass() )
+        {
+            return false;
+        }
+
+        switch ( kind )
+        {
+            case STRING:
+                return pooled.equals( value );
+            case TYPE_AND_CLASSIFIER:
+            {
+                final TypeAndClassifier p = (TypeAndClassifier) pooled;
+                final TypeAndClassifier v = (TypeAndClassifier) value;
+                return same( p.getType(), v.getType() ) && same( p.getClassifier(), v.getClassifier() );
+            }
+            default:
+            {
+                final ProjectRef p = (ProjectRef) pooled;
+                final ProjectRef v = (ProjectRef) value;
+                if ( !p.getGroupId()
+                       .equals( v.getGroupId() ) || !p.getArtifactId()
+                                                      .equals( v.getArtifactId() ) )
+                {
+                    return false;
+                }
+
+                if ( ( kind == PROJECT_VERSION || kind == ARTIFACT )
+                    && !same( ( (ProjectVersionRef) p ).getVersionString(),
+                              ( (ProjectVersionRef) v ).getVersionString() ) )
+                {
+                    return false;
+                }
+
+                if ( kind == ARTIFACT )
+                {
+                    final ArtifactRef pa = (ArtifactRef) p;
+                    final ArtifactRef va = (ArtifactRef) v;
+                    return same( pa.getType(), va.getType() ) && same( pa.getClassifier(), va.getClassifier() );
+                }
+                else if ( kind == VERSIONLESS_ARTIFACT )
+                {
+                    final VersionlessArtifactRef pa = (VersionlessArtifactRef) p;
+                    final VersionlessArtifactRef va = (VersionlessArtifactRef) v;
+                    return same( pa.getType(), va.getType() ) && same( pa.getClassifier(), va.getClassifier() );
+                }
+
+                return true;
+            }
+        }
+    }
+
+    private static boolean same( final String a, final String b )
+    {
+        return a == null ? b == null : a.equals( b );
+    }
+
+    private static int hash( final String value )
+    {
+        return value == null ? 0 : value.hashCode();
+    }
+
+    private static final class Entry
+        extends WeakReference<Object>
+    {
+        private final int hash;
+
+        private Entry next;
+
+        Entry( final Object value, final int hash, final ReferenceQueue<Object> queue, final Entry next )
+        {
+            super( value, queue );
+            this.hash = hash;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Chained hash table of weak entries; all access is synchronized on the segment.
+     */
+    private static final class Segment
+    {
+        private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+
+        private Entry[] table = new Entry[INITIAL_SEGMENT_CAPACITY];
+
+        private int count;
+
+        Object find( final Object value, final int kind, final int hash )
+        {
+            expunge();
+
+            for ( Entry e = table[hash & ( table.length - 1 )]; e != null; e = e.next )
+            {
+                if ( e.hash == hash )
+                {
+                    final Object pooled = e.get();
+                    if ( pooled != null && same( pooled, value, kind ) )
+                    {
+                        return pooled;
+                    }
+                }
+            }
+
+            return null;
+        }
+
+        void add( final Object value, final int hash )
+        {
+            if ( count >= table.length * 3 / 4 )
+            {
+                resize();
+            }
+
+            final int idx = hash & ( table.length - 1 );
+            table[idx] = new Entry( value, hash, queue, table[idx] );
+            count++;
+        }
+
+        void expunge()
+        {
+            Entry stale;
+            while ( ( stale = (Entry) queue.poll() ) != null )
+            {
+                final int idx = stale.hash & ( table.length - 1 );
+                Entry prev = null;
+                for ( Entry e = table[idx]; e != null; prev = e, e = e.next )
+                {
+                    if ( e == stale )
+                    {
+                        if ( prev == null )
+                        {
+                            table[idx] = e.next;
+                        }
+                        else
+                        {
+                            prev.next = e.next;
+                        }
+                        count--;
+                        break;
+                    }
+                }
+            }
+        }
+
+        void clear()
+        {
+            while ( queue.poll() != null )
+            {
+                // drop pending notifications for entries that are about to go anyway
+            }
+
+            table = new Entry[INITIAL_SEGMENT_CAPACITY];
+            count = 0;
+        }
+
+        private void resize()
+        {
+            final Entry[] old = table;
+            final Entry[] resized = new Entry[old.length * 2];
+            for ( Entry head : old )
+            {
+                while ( head != null )
+                {
+                    final Entry next = head.next;
+                    final int idx = head.hash & ( resized.length - 1 );
+                    head.next = resized[idx];
+                    resized[idx] = head;
+                    head = next;
+                }
+            }
+
+            table = resized;
+        }
+    }
+
+}
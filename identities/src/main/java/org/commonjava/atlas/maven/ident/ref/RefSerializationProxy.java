@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.ref;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+
+/**
+ * Serialized form of {@link SimpleProjectRef}, {@link SimpleProjectVersionRef}, {@link SimpleArtifactRef} and
+ * {@link SimpleVersionlessArtifactRef}, substituted via their <code>writeReplace()</code> methods.
+ * <br/>
+ * Layout: a format version byte, a byte holding the ref kind (low two bits) plus a has-classifier flag, then the
+ * coordinates as length-prefixed UTF strings. The version is written in its raw string form and re-parsed lazily on
+ * read, the same as when the ref is first constructed. Streams written before these proxies existed still use the
+ * default field-by-field form, and remain readable since the ref classes keep their fields and serialVersionUID.
+ */
+final class RefSerializationProxy
+    implements Externalizable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    static final int FORMAT_VERSION = 1;
+
+    static final int KIND_PROJECT = 0;
+
+    static final int KIND_PROJECT_VERSION = 1;
+
+    static final int KIND_ARTIFACT = 2;
+
+    static final int KIND_VERSIONLESS_ARTIFACT = 3;
+
+    private static final int KIND_MASK = 0x3;
+
+    private static final int FLAG_CLASSIFIER = 0x4;
+
+    private ProjectRef ref;
+
+    /**
+     * Required by {@link Externalizable}; used only during deserialization.
+     */
+    public RefSerializationProxy()
+    {
+    }
+
+    RefSerializationProxy( final ProjectRef ref )
+    {
+        this.ref = ref;
+    }
+
+    @Override
+    public void writeExternal( final ObjectOutput out )
+        throws IOException
+    {
+        final int kind = kindOf( ref );
+        String type = null;
+        String classifier = null;
+        if ( kind == KIND_ARTIFACT )
+        {
+            type = ( (ArtifactRef) ref ).getType();
+            classifier = ( (ArtifactRef) ref ).getClassifier();
+        }
+        else if ( kind == KIND_VERSIONLESS_ARTIFACT )
+        {
+            type = ( (VersionlessArtifactRef) ref ).getType();
+            classifier = ( (VersionlessArtifactRef) ref ).getClassifier();
+        }
+
+        out.writeByte( FORMAT_VERSION );
+        out.writeByte( kind | ( classifier == null ? 0 : FLAG_CLASSIFIER ) );
+        out.writeUTF( ref.getGroupId() );
+        out.writeUTF( ref.getArtifactId() );
+
+        if ( kind == KIND_PROJECT_VERSION || kind == KIND_ARTIFACT )
+        {
+            out.writeUTF( ( (ProjectVersionRef) ref ).getVersionString() );
+        }
+
+        if ( type != null )
+        {
+            out.writeUTF( type );
+        }
+
+        if ( classifier != null )
+        {
+            out.writeUTF( classifier );
+        }
+    }
+
+    @Override
+    public void readExternal( final ObjectInput in )
+        throws IOException
+    {
+        final int version = in.readUnsignedByte();
+        if ( version > FORMAT_VERSION )
+        {
+            throw new InvalidObjectException( "Unsupported ref serialization format: " + version
+                + " (this library reads up to " + FORMAT_VERSION + ")" );
+        }
+
+        final int header = in.readUnsignedByte();
+        final int kind = header & KIND_MASK;
+
+        final String groupId = in.readUTF();
+        final String artifactId = in.readUTF();
+
+        String versionString = null;
+        if ( kind == KIND_PROJECT_VERSION || kind == KIND_ARTIFACT )
+        {
+            versionString = in.readUTF();
+        }
+
+        String type = null;
+        if ( kind == KIND_ARTIFACT || kind == KIND_VERSIONLESS_ARTIFACT )
+        {
+            type = in.readUTF();
+        }
+
+        final String classifier = ( header & FLAG_CLASSIFIER ) == 0 ? null : in.readUTF();
+
+        switch ( kind )
+        {
+            case KIND_PROJECT:
+                ref = new SimpleProjectRef( groupId, artifactId );
+                break;
+            case KIND_PROJECT_VERSION:
+                ref = new SimpleProjectVersionRef( groupId, artifactId, versionString );
+                break;
+            case KIND_ARTIFACT:
+                ref = new SimpleArtifactRef( groupId, artifactId, versionString, type, classifier );
+                break;
+            default:
+                ref = new SimpleVersionlessArtifactRef( groupId, artifactId, type, classifier );
+        }
+    }
+
+    private Object readResolve()
+    {
+        return IdentityPool.canonical( ref );
+    }
+
+    private static int kindOf( final ProjectRef ref )
+    {
+        if ( ref instanceof ArtifactRef )
+        {
+            return KIND_ARTIFACT;
+        }
+        else if ( ref instanceof VersionlessArtifactRef )
+        {
+            return KIND_VERSIONLESS_ARTIFACT;
+        }
+        else if ( ref instanceof ProjectVersionRef )
+        {
+            return KIND_PROJECT_VERSION;
+        }
+
+        return KIND_PROJECT;
+    }
+
+}
@@ -43,6 +43,9 @@ public class SimpleArtifactRef
 
     private final TypeAndClassifier tc;
 
+    // lazily computed; 0 means not yet
+    private transient int hashCode;
+
     public SimpleArtifactRef( final String groupId, final String artifactId, final VersionSpec version,
                               final String type, final String classifier )
     {
@@ -128,7 +131,7 @@ public class SimpleArtifactRef
 
         // assume non-optional, because it might not matter if you're parsing a string like this...you'd be more careful if you were reading something
         // that had an optional field, because it's not in the normal GATV[C] spec.
-        return new SimpleArtifactRef( g, a, v, t, c );
+        return IdentityPool.canonical( new SimpleArtifactRef( g, a, v, t, c ) );
     }
 
     @Override
@@ -158,9 +161,15 @@ public class SimpleArtifactRef
     @Override
     public int hashCode()
     {
-        final int prime = 31;
-        int result = super.hashCode();
-        result = prime * result + ( ( tc == null ) ? 0 : tc.hashCode() );
+        int result = hashCode;
+        if ( result == 0 )
+        {
+            final int prime = 31;
+            result = super.hashCode();
+            result = prime * result + ( ( tc == null ) ? 0 : tc.hashCode() );
+            hashCode = result;
+        }
+
         return result;
     }
 
@@ -217,4 +226,12 @@ public class SimpleArtifactRef
         return artifactFieldsEqual( (ArtifactRef) other );
     }
 
+    /**
+     * Serialize through the compact {@link RefSerializationProxy} form. Private, so subclasses keep their own form.
+     */
+    private Object writeReplace()
+    {
+        return new RefSerializationProxy( this );
+    }
+
 }
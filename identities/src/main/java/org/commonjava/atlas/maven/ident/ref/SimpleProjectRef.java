@@ -34,6 +34,9 @@ public class SimpleProjectRef
     // NEVER null
     private final String artifactId;
 
+    // lazily computed; 0 means not yet
+    private transient int hashCode;
+
     public SimpleProjectRef( final String groupId, final String artifactId )
     {
         if ( isEmpty( groupId ) || isEmpty( artifactId ) )
@@ -61,7 +64,7 @@ public class SimpleProjectRef
                 + "')" );
         }
 
-        return new SimpleProjectRef( parts[0], parts[1] );
+        return IdentityPool.canonical( new SimpleProjectRef( parts[0], parts[1] ) );
     }
 
     @Override
@@ -115,10 +118,16 @@ public class SimpleProjectRef
     @Override
     public int hashCode()
     {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + artifactId.hashCode();
-        result = prime * result + groupId.hashCode();
+        int result = hashCode;
+        if ( result == 0 )
+        {
+            final int prime = 31;
+            result = 1;
+            result = prime * result + artifactId.hashCode();
+            result = prime * result + groupId.hashCode();
+            hashCode = result;
+        }
+
         return result;
     }
 
@@ -183,4 +192,12 @@ public class SimpleProjectRef
                   .replaceAll( "\\*", ".*" );
     }
 
+    /**
+     * Serialize through the compact {@link RefSerializationProxy} form. Private, so subclasses keep their own form.
+     */
+    private Object writeReplace()
+    {
+        return new RefSerializationProxy( this );
+    }
+
 }
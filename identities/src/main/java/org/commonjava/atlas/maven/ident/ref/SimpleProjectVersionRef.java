@@ -43,6 +43,9 @@ public class SimpleProjectVersionRef
 
     private String versionString;
 
+    // lazily computed; 0 means not yet
+    private transient int hashCode;
+
     public SimpleProjectVersionRef( final ProjectRef ref, final VersionSpec versionSpec )
     {
         this( ref.getGroupId(), ref.getArtifactId(), versionSpec, null );
@@ -96,7 +99,7 @@ public class SimpleProjectVersionRef
                                                + gav + "')" );
         }
 
-        return new SimpleProjectVersionRef( parts[0], parts[1], parts[2] );
+        return IdentityPool.canonical( new SimpleProjectVersionRef( parts[0], parts[1], parts[2] ) );
     }
 
     @Override
@@ -219,9 +222,15 @@ public class SimpleProjectVersionRef
     @Override
     public int hashCode()
     {
-        final int prime = 31;
-        int result = super.hashCode();
-        result = prime * result + ( ( getVersionString() == null ) ? 0 : getVersionString().hashCode() );
+        int result = hashCode;
+        if ( result == 0 )
+        {
+            final int prime = 31;
+            result = super.hashCode();
+            result = prime * result + ( ( getVersionString() == null ) ? 0 : getVersionString().hashCode() );
+            hashCode = result;
+        }
+
         return result;
     }
 
@@ -248,6 +257,15 @@ public class SimpleProjectVersionRef
         }
 
         final ProjectVersionRef other = (ProjectVersionRef) obj;
+
+        // identical versions (rendered from the spec if that's all we have) can't differ semantically, so only
+        // parse when the strings differ.
+        final String otherVersion = other.getVersionString();
+        if ( otherVersion != null && otherVersion.equals( getVersionString() ) )
+        {
+            return true;
+        }
+
         boolean result = true;
         try
         {
@@ -329,4 +347,12 @@ public class SimpleProjectVersionRef
         return comp;
     }
 
+    /**
+     * Serialize through the compact {@link RefSerializationProxy} form. Private, so subclasses keep their own form.
+     */
+    private Object writeReplace()
+    {
+        return new RefSerializationProxy( this );
+    }
+
 }
@@ -34,6 +34,9 @@ public class SimpleVersionlessArtifactRef
 
     private final TypeAndClassifier tc;
 
+    // lazily computed; 0 means not yet
+    private transient int hashCode;
+
     public SimpleVersionlessArtifactRef( final ArtifactRef ref )
     {
         super( ref.getGroupId(), ref.getArtifactId() );
@@ -110,7 +113,7 @@ public class SimpleVersionlessArtifactRef
 
         // assume non-optional, because it might not matter if you're parsing a string like this...you'd be more careful if you were reading something
         // that had an optional field, because it's not in the normal GATV[C] spec.
-        return new SimpleVersionlessArtifactRef( g, a, t, c );
+        return IdentityPool.canonical( new SimpleVersionlessArtifactRef( g, a, t, c ) );
     }
 
     @Override
@@ -134,9 +137,15 @@ public class SimpleVersionlessArtifactRef
     @Override
     public int hashCode()
     {
-        final int prime = 31;
-        int result = super.hashCode();
-        result = prime * result + ( ( tc == null ) ? 0 : tc.hashCode() );
+        int result = hashCode;
+        if ( result == 0 )
+        {
+            final int prime = 31;
+            result = super.hashCode();
+            result = prime * result + ( ( tc == null ) ? 0 : tc.hashCode() );
+            hashCode = result;
+        }
+
         return result;
     }
 
@@ -204,4 +213,12 @@ public class SimpleVersionlessArtifactRef
 
         return super.asVersionlessArtifactRef( tc );
     }
+
+    /**
+     * Serialize through the compact {@link RefSerializationProxy} form. Private, so subclasses keep their own form.
+     */
+    private Object writeReplace()
+    {
+        return new RefSerializationProxy( this );
+    }
 }
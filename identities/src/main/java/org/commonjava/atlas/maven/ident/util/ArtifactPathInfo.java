@@ -21,87 +21,282 @@ import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
 import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
 import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class ArtifactPathInfo implements PathInfo
 {
-    private static final String GROUP_REGEX = "(([^/]+/)*[^/]+)"; // group 1~2
+    private static final String LOCAL_SNAPSHOT_SUFFIX = "-SNAPSHOT";
+
+    private static final int TIMESTAMP_DATE_DIGITS = 8;
+
+    private static final int TIMESTAMP_TIME_DIGITS = 6;
+
+    /**
+     * Parses paths of the form '[/]group/path/artifactId/version/artifactId-version[-classifier].type', where the
+     * filename version may also be the timestamped form of a snapshot ('1.0-SNAPSHOT' stored as
+     * '1.0-20120307.200227-1'). Classifiers containing dots must look like 'wildfly8.1.3': letters, then digits, then
+     * dot-separated digit groups.
+     * <p>
+     * The path is scanned by index rather than with a regular expression, but resolves ambiguities exactly as the
+     * expression this replaced did: the longest possible groupId wins, the directory version is tried before a
+     * timestamped one, and the classifier is as long as it can be while still leaving a type.
+     */
+    public static ArtifactPathInfo parse( final String path )
+    {
+        if ( path == null || path.length() < 1 )
+        {
+            return null;
+        }
 
-    private static final String ARTIFACT_REGEX = "([^/]+)"; // group 3
+        final String p = path.replace( '\\', '/' );
+        final int start = p.charAt( 0 ) == '/' ? 1 : 0;
+        final int groupEnd = firstEmptySegment( p, start );
 
-    private static final String VERSION_RAW_REGEX = "(([^/]+)(-SNAPSHOT)?)"; // group 4~6
+        // the version directory ends at the third-to-last (or earlier) slash; try the rightmost split first, which
+        // is nearly always the only one that can work.
+        int versionEnd = p.lastIndexOf( '/' );
+        while ( versionEnd > start )
+        {
+            final int artifactEnd = p.lastIndexOf( '/', versionEnd - 1 );
+            if ( artifactEnd <= start )
+            {
+                break;
+            }
 
-    // For classifier, if it contains dot, that means we cannot use a simple pattern which just defined by dot/non-dot way to
-    // tell, so we must define this strict way like: 1. Starts with several alphabet. 2. Following with several or non dot plus digits
-    // Here is one example: wildfly8.1.3
-    private static final String CLASSIFIER_REGEX = "(-([a-zA-Z]+\\d*(\\.\\d*)*))?"; // group 13~15
+            final int groupSlash = p.lastIndexOf( '/', artifactEnd - 1 );
+            if ( groupSlash <= start )
+            {
+                break;
+            }
 
-    private static final String TYPE_REGEX = "(\\.(.+))"; // group 16~17
+            if ( groupSlash <= groupEnd && artifactEnd - groupSlash > 1 && versionEnd - artifactEnd > 1 )
+            {
+                final ArtifactPathInfo info = parseFile( path, p, start, groupSlash, artifactEnd, versionEnd );
+                if ( info != null )
+                {
+                    return info;
+                }
+            }
 
-    // regex developed at: http://fiddle.re/tvk5
-    private static final String ARTIFACT_PATH_REGEX =
-            "/?" + GROUP_REGEX + "/" + ARTIFACT_REGEX + "/" + VERSION_RAW_REGEX + "/(\\3-((\\4)|(\\5-"
-                    + SnapshotUtils.RAW_REMOTE_SNAPSHOT_PART_PATTERN + "))" + CLASSIFIER_REGEX + TYPE_REGEX + ")";
-            // RAW_REMOTE_SNAPSHOT_PART_PATTERN contains group 11 & 12
+            versionEnd = artifactEnd;
+        }
 
-    private static final int GROUP_ID_GROUP = 1;
+        return null;
+    }
 
-    private static final int ARTIFACT_ID_GROUP = 3;
+    /**
+     * @return the index of the slash ending the last segment before the first empty one, or the length of the path
+     *         if there are no empty segments. Group segments can't be empty.
+     */
+    private static int firstEmptySegment( final String p, final int start )
+    {
+        if ( start >= p.length() || p.charAt( start ) == '/' )
+        {
+            return -1;
+        }
 
-    private static final int VERSION_RAW_GROUP = 4;
+        int idx = p.indexOf( "//", start );
+        return idx < 0 ? p.length() : idx;
+    }
 
-    private static final int FILE_GROUP = 7;
+    private static ArtifactPathInfo parseFile( final String path, final String p, final int start,
+                                               final int groupSlash, final int artifactEnd, final int versionEnd )
+    {
+        final int artifactLen = artifactEnd - groupSlash - 1;
+        final int fileStart = versionEnd + 1;
+        final int versionStart = fileStart + artifactLen + 1;
+        if ( versionStart >= p.length() || !p.regionMatches( groupSlash + 1, p, fileStart, artifactLen )
+            || p.charAt( versionStart - 1 ) != '-' )
+        {
+            return null;
+        }
 
-    private static final int VERSION_GROUP = 8;
+        final int dirStart = artifactEnd + 1;
+        final int dirLen = versionEnd - dirStart;
 
-    private static final int NON_REMOTE_SNAP_CLASSIFIER_GROUP = 12;
+        int versionEndInFile = -1;
+        int tail = -1;
+        if ( p.regionMatches( dirStart, p, versionStart, dirLen ) )
+        {
+            // file version is the same as the directory version
+            tail = matchTail( p, versionStart + dirLen );
+            if ( tail >= 0 )
+            {
+                versionEndInFile = versionStart + dirLen;
+            }
+            else
+            {
+                // the directory version, plus a snapshot timestamp and build number
+                versionEndInFile = matchRemoteSnapshot( p, versionStart + dirLen );
+            }
+        }
+
+        if ( versionEndInFile < 0 && dirLen > LOCAL_SNAPSHOT_SUFFIX.length()
+            && p.regionMatches( versionEnd - LOCAL_SNAPSHOT_SUFFIX.length(), LOCAL_SNAPSHOT_SUFFIX, 0,
+                                LOCAL_SNAPSHOT_SUFFIX.length() ) )
+        {
+            // directory version minus '-SNAPSHOT', plus a snapshot timestamp and build number
+            final int baseLen = dirLen - LOCAL_SNAPSHOT_SUFFIX.length();
+            if ( p.regionMatches( dirStart, p, versionStart, baseLen ) )
+            {
+                versionEndInFile = matchRemoteSnapshot( p, versionStart + baseLen );
+            }
+        }
 
-    private static final int REMOTE_SNAP_CLASSIFIER_GROUP = 14;
+        if ( versionEndInFile < 0 )
+        {
+            return null;
+        }
 
-    private static final int NON_REMOTE_SNAP_TYPE_GROUP = 14;
+        if ( tail < 0 )
+        {
+            tail = matchTail( p, versionEndInFile );
+        }
 
-    private static final int REMOTE_SNAP_TYPE_GROUP = 17;
+        final String c;
+        final int typeStart;
+        if ( tail > versionEndInFile )
+        {
+            c = p.substring( versionEndInFile + 1, tail );
+            typeStart = tail + 1;
+        }
+        else
+        {
+            c = null;
+            typeStart = versionEndInFile + 1;
+        }
 
-    private static final int REMOTE_SNAPSHOT_GROUP_COUNT = 17;
+        final String g = p.substring( start, groupSlash )
+                          .replace( '/', '.' );
+        final String a = p.substring( groupSlash + 1, artifactEnd );
+        final String v = p.substring( versionStart, versionEndInFile );
+        final String t = p.substring( typeStart );
+        final String f = p.substring( fileStart );
 
-    public static ArtifactPathInfo parse( final String path )
+        return new ArtifactPathInfo( g, a, v, c, t, f, path );
+    }
+
+    /**
+     * Matches '-yyyyMMdd.HHmmss-N' (any character between date and time) at pos, followed by a valid classifier and
+     * type.
+     *
+     * @return the index just past the build number, or -1 if there's no match.
+     */
+    private static int matchRemoteSnapshot( final String p, final int pos )
     {
-        if ( path == null || path.length() < 1 )
+        final int len = p.length();
+        final int dateStart = pos + 1;
+        final int timeStart = dateStart + TIMESTAMP_DATE_DIGITS + 1;
+        final int buildStart = timeStart + TIMESTAMP_TIME_DIGITS + 1;
+        if ( buildStart >= len || p.charAt( pos ) != '-' || p.charAt( buildStart - 1 ) != '-'
+            || !isDigits( p, dateStart, TIMESTAMP_DATE_DIGITS ) || isLineTerminator( p.charAt( timeStart - 1 ) )
+            || !isDigits( p, timeStart, TIMESTAMP_TIME_DIGITS ) )
         {
-            return null;
+            return -1;
         }
 
-        final Matcher matcher = Pattern.compile( ARTIFACT_PATH_REGEX )
-                                       .matcher( path.replace( '\\', '/' ) );
-        if ( !matcher.matches() )
+        int end = buildStart;
+        while ( end < len && isDigit( p.charAt( end ) ) )
         {
-            return null;
+            end++;
         }
 
-        final int groupCount = matcher.groupCount();
+        if ( end == buildStart || matchTail( p, end ) < 0 )
+        {
+            return -1;
+        }
 
-        final String g = matcher.group( GROUP_ID_GROUP )
-                                .replace( '/', '.' );
-        final String a = matcher.group( ARTIFACT_ID_GROUP );
-        final String v = matcher.group( VERSION_GROUP );
+        return end;
+    }
 
-        final String c;
-        final String t;
-        if ( groupCount == REMOTE_SNAPSHOT_GROUP_COUNT )
+    /**
+     * Matches '[-classifier].type' from pos to the end of the path. A classifier is letters, then digits, then any
+     * number of '.digits' groups; it takes as many of those groups as it can while leaving a non-empty type after a
+     * dot.
+     *
+     * @return the index of the dot before the type when there's a classifier, pos when there isn't, or -1 if there's
+     *         no match.
+     */
+    private static int matchTail( final String p, final int pos )
+    {
+        final int len = p.length();
+        if ( pos + 1 >= len )
         {
-            c = matcher.group( REMOTE_SNAP_CLASSIFIER_GROUP );
-            t = matcher.group( REMOTE_SNAP_TYPE_GROUP );
+            return -1;
         }
-        else
+
+        int typeDot = -1;
+        if ( p.charAt( pos ) == '-' && isLetter( p.charAt( pos + 1 ) ) )
+        {
+            int i = pos + 2;
+            while ( i < len && isLetter( p.charAt( i ) ) )
+            {
+                i++;
+            }
+            while ( i < len && isDigit( p.charAt( i ) ) )
+            {
+                i++;
+            }
+
+            int lastDot = -1;
+            int prevDot = -1;
+            while ( i < len && p.charAt( i ) == '.' )
+            {
+                prevDot = lastDot;
+                lastDot = i++;
+                while ( i < len && isDigit( p.charAt( i ) ) )
+                {
+                    i++;
+                }
+            }
+
+            typeDot = lastDot > -1 && lastDot + 1 < len ? lastDot : prevDot;
+        }
+        else if ( p.charAt( pos ) == '.' )
         {
-            c = matcher.group( NON_REMOTE_SNAP_CLASSIFIER_GROUP );
-            t = matcher.group( NON_REMOTE_SNAP_TYPE_GROUP );
+            typeDot = pos;
         }
 
-        final String f = matcher.group( FILE_GROUP );
+        if ( typeDot < 0 )
+        {
+            return -1;
+        }
 
-        return new ArtifactPathInfo( g, a, v, c, t, f, path );
+        for ( int i = typeDot + 1; i < len; i++ )
+        {
+            if ( isLineTerminator( p.charAt( i ) ) )
+            {
+                return -1;
+            }
+        }
+
+        return typeDot;
+    }
+
+    private static boolean isDigits( final String p, final int pos, final int count )
+    {
+        for ( int i = pos; i < pos + count; i++ )
+        {
+            if ( !isDigit( p.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean isDigit( final char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter( final char c )
+    {
+        return ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' );
+    }
+
+    private static boolean isLineTerminator( final char c )
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 
     private final String groupId;
@@ -16,6 +16,7 @@
 package org.commonjava.atlas.maven.ident.util;
 
 import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.IdentityPool;
 import org.commonjava.atlas.maven.ident.ref.ProjectRef;
 import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
 import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
@@ -33,25 +34,27 @@ public final class IdentityUtils
     public static ArtifactRef artifact( final String groupId, final String artifactId, final String version )
         throws InvalidVersionSpecificationException
     {
-        return new SimpleArtifactRef( projectVersion( groupId, artifactId, version ), null, null );
+        return IdentityPool.canonical( new SimpleArtifactRef( projectVersion( groupId, artifactId, version ), null,
+                                                              null ) );
     }
 
     public static ArtifactRef artifact( final ProjectVersionRef ref )
         throws InvalidVersionSpecificationException
     {
-        return new SimpleArtifactRef( ref, null, null );
+        return IdentityPool.canonical( new SimpleArtifactRef( ref, null, null ) );
     }
 
     public static ArtifactRef artifact( final String groupId, final String artifactId, final String version,
                                         final String type, final String classifier )
         throws InvalidVersionSpecificationException
     {
-        return new SimpleArtifactRef( projectVersion( groupId, artifactId, version ), type, classifier );
+        return IdentityPool.canonical( new SimpleArtifactRef( projectVersion( groupId, artifactId, version ), type,
+                                                              classifier ) );
     }
 
     public static ArtifactRef artifact( final ProjectVersionRef dep, final String type, final String classifier )
     {
-        return new SimpleArtifactRef( dep, type, classifier );
+        return IdentityPool.canonical( new SimpleArtifactRef( dep, type, classifier ) );
     }
 
     public static ProjectVersionRef projectVersion( final String src )
@@ -65,7 +68,7 @@ public final class IdentityUtils
 
         try
         {
-            return new SimpleProjectVersionRef( parts[0], parts[1], parts[2] );
+            return IdentityPool.canonical( new SimpleProjectVersionRef( parts[0], parts[1], parts[2] ) );
         }
         catch ( final InvalidVersionSpecificationException e )
         {
@@ -77,7 +80,7 @@ public final class IdentityUtils
     public static ProjectVersionRef projectVersion( final String groupId, final String artifactId, final String version )
         throws InvalidVersionSpecificationException
     {
-        return new SimpleProjectVersionRef( groupId, artifactId, version );
+        return IdentityPool.canonical( new SimpleProjectVersionRef( groupId, artifactId, version ) );
     }
 
     public static ProjectRef project( final String src )
@@ -89,13 +92,13 @@ public final class IdentityUtils
                 + "'. Must contain at least two fields separated by ':'" );
         }
 
-        return new SimpleProjectRef( parts[0], parts[1] );
+        return IdentityPool.canonical( new SimpleProjectRef( parts[0], parts[1] ) );
     }
 
     public static ProjectRef project( final String groupId, final String artifactId )
         throws InvalidVersionSpecificationException
     {
-        return new SimpleProjectRef( groupId, artifactId );
+        return IdentityPool.canonical( new SimpleProjectRef( groupId, artifactId ) );
     }
 
 }
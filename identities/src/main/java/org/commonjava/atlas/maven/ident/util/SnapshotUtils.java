@@ -21,11 +21,16 @@ import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.TimeZone;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
 
+/**
+ * Snapshot timestamp helpers. Timestamps are read and written in the JVM's default time zone. Formatters and
+ * calendars are kept per thread, and are switched to the current default zone on every call, so changes to the default
+ * zone take effect immediately.
+ * Remote snapshot versions ('[base-]yyyyMMdd.HHmmss-N') are recognized by a hand-written scanner that never allocates
+ * for non-matching input.
+ */
 public class SnapshotUtils
 {
 
@@ -39,6 +44,61 @@ public class SnapshotUtils
 
     public static final String LOCAL_SNAPSHOT_VERSION_PART = "-SNAPSHOT";
 
+    private static final int TSTAMP_LENGTH = SNAPSHOT_TSTAMP_FORMAT.length();
+
+    private static final int TSTAMP_DOT = SNAPSHOT_TSTAMP_FORMAT.indexOf( '.' );
+
+    private static final ThreadLocal<DateFormat> SNAPSHOT_FORMAT = new ThreadLocal<DateFormat>()
+    {
+        @Override
+        protected DateFormat initialValue()
+        {
+            return new SimpleDateFormat( SNAPSHOT_TSTAMP_FORMAT );
+        }
+    };
+
+    private static final ThreadLocal<DateFormat> UPDATE_FORMAT = new ThreadLocal<DateFormat>()
+    {
+        @Override
+        protected DateFormat initialValue()
+        {
+            return new SimpleDateFormat( LAST_UPDATED_FORMAT );
+        }
+    };
+
+    private static final ThreadLocal<Calendar> CALENDAR = new ThreadLocal<Calendar>()
+    {
+        @Override
+        protected Calendar initialValue()
+        {
+            return Calendar.getInstance();
+        }
+    };
+
+    // the cached instances capture the default time zone when they're created; follow any later change to it, the way
+    // a freshly created instance would.
+
+    private static DateFormat snapshotFormat()
+    {
+        final DateFormat fmt = SNAPSHOT_FORMAT.get();
+        fmt.setTimeZone( TimeZone.getDefault() );
+        return fmt;
+    }
+
+    private static DateFormat updateFormat()
+    {
+        final DateFormat fmt = UPDATE_FORMAT.get();
+        fmt.setTimeZone( TimeZone.getDefault() );
+        return fmt;
+    }
+
+    private static Calendar calendar()
+    {
+        final Calendar cal = CALENDAR.get();
+        cal.setTimeZone( TimeZone.getDefault() );
+        return cal;
+    }
+
     public static String generateSnapshotSuffix( final Date d, final int buildNumber )
     {
         return generateSnapshotTimestamp( d ) + "-" + buildNumber;
@@ -46,7 +106,7 @@ public class SnapshotUtils
 
     public static String generateSnapshotTimestamp( final Date d )
     {
-        return getFormat().format( d );
+        return snapshotFormat().format( d );
     }
 
     public static Date getCurrentTimestamp()
@@ -63,57 +123,174 @@ public class SnapshotUtils
 
     public static boolean isRemoteSnapshotVersion( final String literal )
     {
-        return literal.matches( REMOTE_SNAPSHOT_PART_PATTERN );
+        return findRemoteSnapshotTimestamp( literal ) > -1;
     }
 
     public static boolean isRemoteSnapshotVersionPart( final String literal )
     {
-        return literal.matches( REMOTE_SNAPSHOT_PART_PATTERN );
+        return findRemoteSnapshotTimestamp( literal ) > -1;
     }
 
     public static SnapshotPart parseRemoteSnapshotVersionPart( final String literal )
     {
-        final Pattern pattern = Pattern.compile( REMOTE_SNAPSHOT_PART_PATTERN );
-        final Matcher matcher = pattern.matcher( literal );
-        if ( matcher.matches() )
+        final int tstampStart = findRemoteSnapshotTimestamp( literal );
+        if ( tstampStart < 0 )
+        {
+            throw new IllegalArgumentException( "'" + literal
+                + "' is not a remote snapshot version-part (of the format: " + SNAPSHOT_TSTAMP_FORMAT + "-NN" );
+        }
+
+        final int tstampEnd = tstampStart + TSTAMP_LENGTH;
+        long d;
+        try
+        {
+            d = parseSnapshotTimestampMillis( literal, tstampStart );
+        }
+        catch ( final ParseException e )
         {
-            final String tstamp = matcher.group( 3 );
-            final String bn = matcher.group( 4 );
-            if ( tstamp != null || bn != null )
+            throw new IllegalArgumentException( "'" + literal
+                + "' is not a remote snapshot version-part (of the format: " + SNAPSHOT_TSTAMP_FORMAT
+                + "-NN (invalid timestamp)", e );
+        }
+        final int build = parseBuildNumber( literal, tstampEnd + 1 );
+
+        return new SnapshotPart( d, build, literal );
+    }
+
+    public static Date parseSnapshotTimestamp( final String tstamp )
+        throws ParseException
+    {
+        return new Date( parseSnapshotTimestampMillis( tstamp ) );
+    }
+
+    /**
+     * Same as {@link #parseSnapshotTimestamp(String)}, but returns epoch milliseconds. Timestamps in the exact
+     * 'yyyyMMdd.HHmmss' shape are converted without going through a {@link DateFormat}.
+     */
+    public static long parseSnapshotTimestampMillis( final String tstamp )
+        throws ParseException
+    {
+        if ( tstamp.length() == TSTAMP_LENGTH )
+        {
+            return parseSnapshotTimestampMillis( tstamp, 0 );
+        }
+
+        return snapshotFormat().parse( tstamp )
+                               .getTime();
+    }
+
+    private static long parseSnapshotTimestampMillis( final String literal, final int start )
+        throws ParseException
+    {
+        final int dot = start + TSTAMP_DOT;
+        if ( literal.charAt( dot ) != '.' || !isDigits( literal, start, dot )
+            || !isDigits( literal, dot + 1, start + TSTAMP_LENGTH ) )
+        {
+            return snapshotFormat().parse( literal.substring( start, start + TSTAMP_LENGTH ) )
+                                   .getTime();
+        }
+
+        // fields are handed to a lenient calendar as-is, exactly the way SimpleDateFormat would.
+        final Calendar cal = calendar();
+        cal.clear();
+        cal.set( digits( literal, start, 4 ), digits( literal, start + 4, 2 ) - 1, digits( literal, start + 6, 2 ),
+                 digits( literal, dot + 1, 2 ), digits( literal, dot + 3, 2 ), digits( literal, dot + 5, 2 ) );
+
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Recognizes '^((.+)-)?([0-9]{8}.[0-9]{6})-([0-9]+)$' (note the unescaped '.', which accepts any character).
+     *
+     * @return the index where the timestamp starts, or -1 if the literal isn't a remote snapshot version.
+     */
+    private static int findRemoteSnapshotTimestamp( final String literal )
+    {
+        final int len = literal.length();
+        int buildStart = len;
+        while ( buildStart > 0 && isDigit( literal.charAt( buildStart - 1 ) ) )
+        {
+            buildStart--;
+        }
+
+        final int tstampStart = buildStart - 1 - TSTAMP_LENGTH;
+        if ( buildStart == len || tstampStart < 0 || literal.charAt( buildStart - 1 ) != '-'
+            || !isDigits( literal, tstampStart, tstampStart + TSTAMP_DOT )
+            || isLineTerminator( literal.charAt( tstampStart + TSTAMP_DOT ) )
+            || !isDigits( literal, tstampStart + TSTAMP_DOT + 1, tstampStart + TSTAMP_LENGTH ) )
+        {
+            return -1;
+        }
+
+        if ( tstampStart > 0 )
+        {
+            // needs a non-empty base version and a '-' before the timestamp
+            if ( tstampStart < 2 || literal.charAt( tstampStart - 1 ) != '-' )
             {
-                Date d;
-                try
-                {
-                    d = parseSnapshotTimestamp( tstamp );
-                }
-                catch ( final ParseException e )
+                return -1;
+            }
+
+            for ( int i = 0; i < tstampStart - 1; i++ )
+            {
+                if ( isLineTerminator( literal.charAt( i ) ) )
                 {
-                    throw new IllegalArgumentException( "'" + literal
-                        + "' is not a remote snapshot version-part (of the format: " + SNAPSHOT_TSTAMP_FORMAT
-                        + "-NN (invalid timestamp)", e );
+                    return -1;
                 }
-                final int build = Integer.parseInt( bn );
+            }
+        }
+
+        return tstampStart;
+    }
 
-                return new SnapshotPart( d, build, literal );
+    private static int parseBuildNumber( final String literal, final int start )
+    {
+        int build = 0;
+        for ( int i = start; i < literal.length(); i++ )
+        {
+            final int next = build * 10 + ( literal.charAt( i ) - '0' );
+            if ( build > Integer.MAX_VALUE / 10 || next < 0 )
+            {
+                // let Integer produce its usual overflow error
+                return Integer.parseInt( literal.substring( start ) );
             }
+            build = next;
         }
 
-        throw new IllegalArgumentException( "'" + literal + "' is not a remote snapshot version-part (of the format: "
-            + SNAPSHOT_TSTAMP_FORMAT + "-NN" );
+        return build;
     }
 
-    public static Date parseSnapshotTimestamp( final String tstamp )
-        throws ParseException
+    private static int digits( final String literal, final int start, final int count )
     {
-        return getFormat().parse( tstamp );
+        int value = 0;
+        for ( int i = start; i < start + count; i++ )
+        {
+            value = value * 10 + ( literal.charAt( i ) - '0' );
+        }
+
+        return value;
     }
 
-    private static DateFormat getFormat()
+    private static boolean isDigits( final String literal, final int start, final int end )
     {
-        final SimpleDateFormat fmt = new SimpleDateFormat( SNAPSHOT_TSTAMP_FORMAT );
-        //        fmt.setTimeZone( TimeZone.getTimeZone( "UTC" ) );
+        for ( int i = start; i < end; i++ )
+        {
+            if ( !isDigit( literal.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
 
-        return fmt;
+        return true;
+    }
+
+    private static boolean isDigit( final char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLineTerminator( final char c )
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029';
     }
 
     public static SnapshotPart extractSnapshotVersionPart( final String version )
@@ -133,13 +310,13 @@ public class SnapshotUtils
 
     public static String generateUpdateTimestamp( final Date d )
     {
-        return new SimpleDateFormat( LAST_UPDATED_FORMAT ).format( d );
+        return updateFormat().format( d );
     }
 
     public static Date parseUpdateTimestamp( final String tstamp )
         throws ParseException
     {
-        return new SimpleDateFormat( LAST_UPDATED_FORMAT ).parse( tstamp );
+        return updateFormat().parse( tstamp );
     }
 
 }
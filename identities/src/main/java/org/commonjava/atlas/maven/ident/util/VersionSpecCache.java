@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.commonjava.atlas.maven.ident.version.VersionSpec;
+
+/**
+ * Bounded, thread-safe cache of parsed {@link VersionSpec} instances, keyed by the raw version string. The key space is
+ * split across a number of independently-locked segments, each of which evicts its least-recently-used entry once it
+ * grows past its share of the total capacity. Parsed versions are immutable, so a single instance can be handed to
+ * every caller that asks for the same raw string.
+ *
+ * @see VersionUtils#enableVersionSpecCache(int)
+ */
+public final class VersionSpecCache
+{
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+
+    private final int capacity;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    public VersionSpecCache( final int capacity )
+    {
+        if ( capacity < 1 )
+        {
+            throw new IllegalArgumentException( "Version cache capacity must be positive. (Given: " + capacity + ")" );
+        }
+
+        int segmentCount = 1;
+        while ( segmentCount < MAX_SEGMENTS && segmentCount * 2 <= capacity )
+        {
+            segmentCount *= 2;
+        }
+
+        final int segmentCapacity = ( capacity + segmentCount - 1 ) / segmentCount;
+
+        this.capacity = capacity;
+        this.segments = new Segment[segmentCount];
+        for ( int i = 0; i < segmentCount; i++ )
+        {
+            segments[i] = new Segment( segmentCapacity );
+        }
+    }
+
+    public VersionSpec get( final String version )
+    {
+        final Segment segment = segmentFor( version );
+        final VersionSpec spec;
+        synchronized ( segment )
+        {
+            spec = segment.get( version );
+        }
+
+        if ( spec == null )
+        {
+            misses.incrementAndGet();
+        }
+        else
+        {
+            hits.incrementAndGet();
+        }
+
+        return spec;
+    }
+
+    /**
+     * Store the given spec, unless another thread got there first. Either way, return the instance that callers
+     * should share from now on.
+     */
+    public VersionSpec put( final String version, final VersionSpec spec )
+    {
+        final Segment segment = segmentFor( version );
+        synchronized ( segment )
+        {
+            final VersionSpec existing = segment.get( version );
+            if ( existing != null )
+            {
+                return existing;
+            }
+
+            segment.put( version, spec );
+        }
+
+        return spec;
+    }
+
+    public void clear()
+    {
+        for ( final Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                segment.clear();
+            }
+        }
+
+        hits.set( 0 );
+        misses.set( 0 );
+        evictions.set( 0 );
+    }
+
+    public int size()
+    {
+        int size = 0;
+        for ( final Segment segment : segments )
+        {
+            synchronized ( segment )
+            {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+    public long getEvictions()
+    {
+        return evictions.get();
+    }
+
+    public double getHitRate()
+    {
+        final long h = hits.get();
+        final long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    private Segment segmentFor( final String version )
+    {
+        int h = version.hashCode();
+        h ^= ( h >>> 16 );
+        return segments[h & ( segments.length - 1 )];
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "VersionSpecCache [capacity=%s, size=%s, hits=%s, misses=%s, evictions=%s]", capacity,
+                              size(), hits.get(), misses.get(), evictions.get() );
+    }
+
+    private final class Segment
+        extends LinkedHashMap<String, VersionSpec>
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int maxSize;
+
+        Segment( final int maxSize )
+        {
+            super( 16, 0.75f, true );
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry( final Map.Entry<String, VersionSpec> eldest )
+        {
+            if ( size() > maxSize )
+            {
+                evictions.incrementAndGet();
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+}
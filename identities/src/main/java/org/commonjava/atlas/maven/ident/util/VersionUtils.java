@@ -18,6 +18,7 @@ package org.commonjava.atlas.maven.ident.util;
 import org.commonjava.atlas.maven.ident.version.InvalidVersionSpecificationException;
 import org.commonjava.atlas.maven.ident.version.RangeVersionSpec;
 import org.commonjava.atlas.maven.ident.version.SingleVersion;
+import org.commonjava.atlas.maven.ident.version.SingleVersionScanner;
 import org.commonjava.atlas.maven.ident.version.VersionSpec;
 import org.commonjava.atlas.maven.ident.version.parse.ParseException;
 import org.commonjava.atlas.maven.ident.version.parse.TokenMgrError;
@@ -26,15 +27,95 @@ import org.commonjava.atlas.maven.ident.version.parse.VersionParser;
 public final class VersionUtils
 {
 
+    /**
+     * System property used to switch on the parsed-version cache at startup, and set its capacity.
+     * @see #enableVersionSpecCache(int)
+     */
+    public static final String VERSION_CACHE_CAPACITY_PROPERTY = "atlas.version.cache.capacity";
+
+    private static volatile VersionSpecCache cache;
+
+    static
+    {
+        final String capacity = System.getProperty( VERSION_CACHE_CAPACITY_PROPERTY );
+        if ( capacity != null )
+        {
+            try
+            {
+                final int c = Integer.parseInt( capacity.trim() );
+                if ( c > 0 )
+                {
+                    cache = new VersionSpecCache( c );
+                }
+            }
+            catch ( final NumberFormatException e )
+            {
+                // leave the cache switched off.
+            }
+        }
+    }
+
     private VersionUtils()
     {
     }
 
+    /**
+     * Switch on caching of parsed versions, so repeated calls to {@link #createFromSpec(String)} and
+     * {@link #createSingleVersion(String)} with the same raw string return a shared instance instead of re-parsing.
+     * Any previously cached entries are discarded.
+     *
+     * @param capacity maximum number of distinct version strings to retain
+     * @return the new cache, which can be used to read hit/miss counters
+     */
+    public static VersionSpecCache enableVersionSpecCache( final int capacity )
+    {
+        final VersionSpecCache c = new VersionSpecCache( capacity );
+        cache = c;
+        return c;
+    }
+
+    public static void disableVersionSpecCache()
+    {
+        cache = null;
+    }
+
+    /**
+     * @return the active version cache, or null if caching is switched off (the default).
+     */
+    public static VersionSpecCache getVersionSpecCache()
+    {
+        return cache;
+    }
+
     public static VersionSpec createFromSpec( final String version )
         throws InvalidVersionSpecificationException
     {
         checkEmpty( version );
 
+        final VersionSpecCache c = cache;
+        if ( c == null )
+        {
+            return parseSpec( version );
+        }
+
+        final VersionSpec cached = c.get( version );
+        if ( cached != null )
+        {
+            return cached;
+        }
+
+        return c.put( version, parseSpec( version ) );
+    }
+
+    private static VersionSpec parseSpec( final String version )
+        throws InvalidVersionSpecificationException
+    {
+        final SingleVersion scanned = SingleVersionScanner.scan( version );
+        if ( scanned != null )
+        {
+            return scanned;
+        }
+
         try
         {
             final VersionSpec spec = new VersionParser( version ).parse();
@@ -92,6 +173,42 @@ public final class VersionUtils
     {
         checkEmpty( version );
 
+        final VersionSpecCache c = cache;
+        if ( c != null )
+        {
+            VersionSpec cached = c.get( version );
+            if ( cached == null )
+            {
+                // Only cache the full-spec parse; single() stops at the first token it can't use, so it may accept
+                // strings that createFromSpec(..) would read differently.
+                try
+                {
+                    cached = c.put( version, parseSpec( version ) );
+                }
+                catch ( final InvalidVersionSpecificationException e )
+                {
+                    // fall through to the single-version parser, which will produce the appropriate error.
+                }
+            }
+
+            if ( cached instanceof SingleVersion )
+            {
+                return (SingleVersion) cached;
+            }
+        }
+
+        return parseSingle( version );
+    }
+
+    private static SingleVersion parseSingle( final String version )
+        throws InvalidVersionSpecificationException
+    {
+        final SingleVersion scanned = SingleVersionScanner.scan( version );
+        if ( scanned != null )
+        {
+            return scanned;
+        }
+
         try
         {
             return new VersionParser( version ).single();
@@ -116,6 +233,12 @@ public final class VersionUtils
         {
             return false;
         }
+
+        if ( SingleVersionScanner.scan( version ) != null )
+        {
+            return true;
+        }
+
         try
         {
             SingleVersion singleVersion = new VersionParser( version ).single();
@@ -41,6 +41,8 @@ public class SingleVersion
 
     private final String rawExpression;
 
+    private transient byte[] sortKey;
+
     private SingleVersion( final List<VersionPhrase> phrases )
     {
         this.phrases = new ArrayList<VersionPhrase>( phrases );
@@ -195,7 +197,7 @@ public class SingleVersion
                         }
                         else
                         {
-                            final NumericPart np = new NumericPart( tok );
+                            final NumericPart np = NumericPart.valueOf( tok );
                             result.add( np );
                             prev = np;
                         }
@@ -391,6 +393,24 @@ public class SingleVersion
         return phrases;
     }
 
+    /**
+     * Binary key whose unsigned lexicographic order matches {@link #compareTo(VersionSpec)} against other single
+     * versions. Computed on first use.
+     *
+     * @see VersionSpecComparisons#sortKeyComparator()
+     */
+    byte[] getSortKey()
+    {
+        byte[] key = sortKey;
+        if ( key == null )
+        {
+            key = SingleVersionSortKey.build( this );
+            sortKey = key;
+        }
+
+        return key;
+    }
+
     @Override
     public int hashCode()
     {
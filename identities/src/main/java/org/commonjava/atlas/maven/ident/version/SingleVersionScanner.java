@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.version;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.commonjava.atlas.maven.ident.util.SnapshotUtils;
+import org.commonjava.atlas.maven.ident.version.part.NumericPart;
+import org.commonjava.atlas.maven.ident.version.part.SeparatorPart;
+import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
+import org.commonjava.atlas.maven.ident.version.part.StringPart;
+import org.commonjava.atlas.maven.ident.version.part.VersionPart;
+import org.commonjava.atlas.maven.ident.version.part.VersionPartSeparator;
+
+/**
+ * Single-pass scanner for the common single-version shapes (digits, letters, '.', '-' and '_', plus local and
+ * timestamped snapshot suffixes). It emits the same {@link VersionPart} sequence that the generated VersionParser's
+ * single() production would, and hands it to the same {@link SingleVersion} constructor, so the resulting phrases are
+ * identical.
+ * <p>
+ * Tokens are recognized the way the grammar's lexer does it (including where an embedded 'yyyyMMdd.HHmmss' timestamp
+ * starts), but nothing is allocated for them. Anything the scanner isn't sure about (ranges, whitespace, leading,
+ * trailing or doubled separators, over-long build numbers) makes it return null, and the caller should fall back to the
+ * grammar.
+ */
+public final class SingleVersionScanner
+{
+
+    private static final String LOCAL_SNAPSHOT = "SNAPSHOT";
+
+    private static final int SNAPSHOT_DATE_LENGTH = 15;
+
+    private static final int SNAPSHOT_DATE_DOT = 8;
+
+    // longest build number guaranteed to fit in an int.
+    private static final int MAX_BUILD_NUMBER_DIGITS = 9;
+
+    private SingleVersionScanner()
+    {
+    }
+
+    /**
+     * @return the parsed version, or null if the expression isn't one of the shapes this scanner handles.
+     * @throws InvalidVersionSpecificationException if the expression scans, but isn't a valid single version
+     *             (exactly as the grammar-based parser would report it)
+     */
+    public static SingleVersion scan( final String version )
+        throws InvalidVersionSpecificationException
+    {
+        final int len = version.length();
+        if ( len < 1 )
+        {
+            return null;
+        }
+
+        final List<VersionPart> parts = new ArrayList<VersionPart>( len );
+        VersionPart last = null;
+        int pos = 0;
+        while ( pos < len )
+        {
+            final char c = version.charAt( pos );
+            final VersionPartSeparator sep = separatorFor( c );
+            if ( sep != null )
+            {
+                if ( last == null || last instanceof SeparatorPart )
+                {
+                    return null;
+                }
+
+                last = add( parts, new SeparatorPart( sep ), last );
+                pos++;
+            }
+            else if ( isDigit( c ) )
+            {
+                if ( isSnapshotDateAt( version, pos ) )
+                {
+                    final int end = pos + SNAPSHOT_DATE_LENGTH;
+                    if ( end + 1 < len && version.charAt( end ) == '-' && isDigit( version.charAt( end + 1 ) )
+                        && !isSnapshotDateAt( version, end + 1 ) )
+                    {
+                        final int bnEnd = scanDigits( version, end + 1 );
+                        if ( bnEnd < len && isDigit( version.charAt( bnEnd ) ) )
+                        {
+                            return null;
+                        }
+
+                        final SnapshotPart snap = newSnapshotPart( version, pos, end, bnEnd );
+                        if ( snap == null )
+                        {
+                            return null;
+                        }
+
+                        last = add( parts, snap, last );
+                        pos = bnEnd;
+                    }
+                    else
+                    {
+                        // bare timestamp: the grammar splits it into two numeric parts around the dot.
+                        final int dot = pos + SNAPSHOT_DATE_DOT;
+                        last = add( parts, NumericPart.valueOf( version.substring( pos, dot ) ), last );
+                        last = add( parts, new SeparatorPart( VersionPartSeparator.DOT ), last );
+                        last = add( parts, NumericPart.valueOf( version.substring( dot + 1, end ) ), last );
+                        pos = end;
+                    }
+                }
+                else
+                {
+                    final int end = scanDigits( version, pos );
+                    last = add( parts, NumericPart.valueOf( version.substring( pos, end ) ), last );
+                    pos = end;
+                }
+            }
+            else if ( isLetter( c ) )
+            {
+                int end = pos + 1;
+                while ( end < len && isLetter( version.charAt( end ) ) )
+                {
+                    end++;
+                }
+
+                final String token = version.substring( pos, end );
+                if ( token.length() == LOCAL_SNAPSHOT.length() && token.equalsIgnoreCase( LOCAL_SNAPSHOT ) )
+                {
+                    last = add( parts, new SnapshotPart( token ), last );
+                }
+                else
+                {
+                    last = add( parts, new StringPart( token ), last );
+                }
+
+                pos = end;
+            }
+            else
+            {
+                return null;
+            }
+        }
+
+        if ( last instanceof SeparatorPart )
+        {
+            return null;
+        }
+
+        return new SingleVersion( version, parts );
+    }
+
+    private static VersionPart add( final List<VersionPart> parts, final VersionPart current, final VersionPart last )
+    {
+        if ( last != null && !( last instanceof SeparatorPart ) && !( current instanceof SeparatorPart ) )
+        {
+            parts.add( new SeparatorPart( VersionPartSeparator.BLANK ) );
+        }
+
+        parts.add( current );
+        return current;
+    }
+
+    /**
+     * Digit runs end where the lexer would start a 'yyyyMMdd.HHmmss' token instead of another single digit.
+     */
+    private static int scanDigits( final String version, final int start )
+    {
+        int end = start + 1;
+        while ( end < version.length() && isDigit( version.charAt( end ) ) && !isSnapshotDateAt( version, end ) )
+        {
+            end++;
+        }
+
+        return end;
+    }
+
+    private static SnapshotPart newSnapshotPart( final String version, final int start, final int dateEnd,
+                                                 final int end )
+    {
+        if ( end - dateEnd - 1 > MAX_BUILD_NUMBER_DIGITS )
+        {
+            return null;
+        }
+
+        final String date = version.substring( start, dateEnd );
+        final long timestamp;
+        try
+        {
+            timestamp = SnapshotUtils.parseSnapshotTimestampMillis( date );
+        }
+        catch ( final ParseException e )
+        {
+            return null;
+        }
+
+        final String buildNumber = version.substring( dateEnd + 1, end );
+        return new SnapshotPart( timestamp, Integer.parseInt( buildNumber ), date + "-" + buildNumber );
+    }
+
+    private static boolean isSnapshotDateAt( final String version, final int pos )
+    {
+        if ( pos + SNAPSHOT_DATE_LENGTH > version.length() || version.charAt( pos + SNAPSHOT_DATE_DOT ) != '.' )
+        {
+            return false;
+        }
+
+        for ( int i = pos; i < pos + SNAPSHOT_DATE_LENGTH; i++ )
+        {
+            if ( i != pos + SNAPSHOT_DATE_DOT && !isDigit( version.charAt( i ) ) )
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static VersionPartSeparator separatorFor( final char c )
+    {
+        switch ( c )
+        {
+            case '.':
+                return VersionPartSeparator.DOT;
+            case '-':
+                return VersionPartSeparator.DASH;
+            case '_':
+                return VersionPartSeparator.UNDERSCORE;
+            default:
+                return null;
+        }
+    }
+
+    private static boolean isDigit( final char c )
+    {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLetter( final char c )
+    {
+        return ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' );
+    }
+
+}
@@ -0,0 +1,305 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.version;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import org.commonjava.atlas.maven.ident.version.part.NumericPart;
+import org.commonjava.atlas.maven.ident.version.part.SeparatorPart;
+import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
+import org.commonjava.atlas.maven.ident.version.part.StringPart;
+import org.commonjava.atlas.maven.ident.version.part.VersionPart;
+import org.commonjava.atlas.maven.ident.version.part.VersionPhrase;
+
+/**
+ * Builds order-preserving binary keys for {@link SingleVersion}, such that an unsigned lexicographic comparison of two
+ * keys gives the same result as {@link VersionSpecComparisons#compareTo(VersionSpec, VersionSpec)}.
+ * <p>
+ * Layout: each phrase is written as its marker index, then its non-separator parts, then a release/snapshot trailer.
+ * Missing phrases and parts compare as zero, so trailing zero-equivalent entries are dropped, and every remaining entry
+ * is preceded by a byte recording whether the rest of the sequence sorts above or below all-zero padding. That byte is
+ * what a shorter key's end-marker is compared against.
+ * <p>
+ * Snapshot parts always end up alone in the final phrase. They rank with the zero-equivalents, and their ordering
+ * (remote by timestamp/build, then local, then release) lives in the phrase trailer. This is where the existing
+ * comparison breaks ties between them and 'GA' or '0'.
+ */
+final class SingleVersionSortKey
+{
+
+    // continuation markers; END must sort between LOWER and HIGHER.
+    private static final int LOWER = 0x01;
+
+    private static final int END = 0x02;
+
+    private static final int HIGHER = 0x03;
+
+    private static final int MARKER_BASE = 0x40;
+
+    private static final int ZERO_RANK = MARKER_BASE + StringPart.ADJ_ZERO_EQUIV_INDEX;
+
+    private static final int RANDOM_STRING_RANK = MARKER_BASE + StringPart.ADJ_RANDOM_STRING_EQUIV_INDEX;
+
+    private static final int NUMBER_RANK = 0x50;
+
+    private static final int REMOTE_SNAPSHOT = 0x01;
+
+    private static final int LOCAL_SNAPSHOT = 0x02;
+
+    private static final int RELEASE = 0x03;
+
+    private static final byte[] PADDING_PHRASE = { (byte) ZERO_RANK, END, RELEASE };
+
+    private SingleVersionSortKey()
+    {
+    }
+
+    static byte[] build( final SingleVersion version )
+    {
+        final List<VersionPhrase> phrases = version.getVersionPhrases();
+        final List<byte[]> encoded = new ArrayList<byte[]>( phrases.size() );
+        for ( final VersionPhrase phrase : phrases )
+        {
+            encoded.add( encodePhrase( phrase ) );
+        }
+
+        final int[] signs = new int[encoded.size()];
+        int sign = 0;
+        for ( int i = encoded.size() - 1; i > -1; i-- )
+        {
+            final int s = compare( encoded.get( i ), PADDING_PHRASE );
+            if ( s != 0 )
+            {
+                sign = s;
+            }
+            signs[i] = sign;
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream( 16 * encoded.size() );
+        for ( int i = 0; i < encoded.size() && signs[i] != 0; i++ )
+        {
+            out.write( signs[i] < 0 ? LOWER : HIGHER );
+            final byte[] phrase = encoded.get( i );
+            out.write( phrase, 0, phrase.length );
+        }
+        out.write( END );
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Unsigned lexicographic comparison.
+     */
+    static int compare( final byte[] first, final byte[] second )
+    {
+        final int len = Math.min( first.length, second.length );
+        for ( int i = 0; i < len; i++ )
+        {
+            final int f = first[i] & 0xff;
+            final int s = second[i] & 0xff;
+            if ( f != s )
+            {
+                return f < s ? -1 : 1;
+            }
+        }
+
+        return first.length - second.length;
+    }
+
+    private static byte[] encodePhrase( final VersionPhrase phrase )
+    {
+        final List<VersionPart> values = new ArrayList<VersionPart>();
+        for ( final VersionPart part : phrase.getVersionParts() )
+        {
+            if ( !( part instanceof SeparatorPart ) )
+            {
+                values.add( part );
+            }
+        }
+
+        final int[] signs = new int[values.size()];
+        int sign = 0;
+        for ( int i = values.size() - 1; i > -1; i-- )
+        {
+            final int rank = rankOf( values.get( i ) );
+            if ( rank != ZERO_RANK )
+            {
+                sign = rank < ZERO_RANK ? -1 : 1;
+            }
+            signs[i] = sign;
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream( 4 + 10 * values.size() );
+
+        final Integer markerIndex = phrase.getMarkerIndex();
+        out.write( MARKER_BASE + ( markerIndex == null ? 0 : markerIndex ) );
+
+        SnapshotPart snapshot = null;
+        for ( int i = 0; i < values.size(); i++ )
+        {
+            final VersionPart part = values.get( i );
+            if ( part instanceof SnapshotPart )
+            {
+                snapshot = (SnapshotPart) part;
+            }
+
+            if ( signs[i] == 0 )
+            {
+                continue;
+            }
+
+            out.write( signs[i] < 0 ? LOWER : HIGHER );
+            writeValue( part, out );
+        }
+        out.write( END );
+
+        if ( snapshot == null )
+        {
+            out.write( RELEASE );
+        }
+        else if ( snapshot.isLocalSnapshot() )
+        {
+            out.write( LOCAL_SNAPSHOT );
+        }
+        else
+        {
+            out.write( REMOTE_SNAPSHOT );
+            writeSigned( snapshot.getTimestampMillis(), 8, out );
+            writeSigned( snapshot.getBuildNumber(), 4, out );
+        }
+
+        return out.toByteArray();
+    }
+
+    private static int rankOf( final VersionPart part )
+    {
+        if ( part instanceof NumericPart )
+        {
+            return ( (NumericPart) part ).isZero() ? ZERO_RANK : NUMBER_RANK;
+        }
+        else if ( part instanceof StringPart )
+        {
+            return MARKER_BASE + ( (StringPart) part ).getZeroCompareIndex();
+        }
+
+        return ZERO_RANK;
+    }
+
+    private static void writeValue( final VersionPart part, final ByteArrayOutputStream out )
+    {
+        final int rank = rankOf( part );
+        out.write( rank );
+
+        if ( rank == NUMBER_RANK )
+        {
+            writeNumber( (NumericPart) part, out );
+        }
+        else if ( rank == RANDOM_STRING_RANK )
+        {
+            writeString( ( (StringPart) part ).getValue()
+                                              .toLowerCase( Locale.ENGLISH ), out );
+        }
+    }
+
+    /**
+     * Length-prefixed magnitude, so longer (larger) numbers sort after shorter ones. Negative numbers can only be
+     * constructed by hand; they get complemented bytes below the non-negative range.
+     */
+    private static void writeNumber( final NumericPart part, final ByteArrayOutputStream out )
+    {
+        if ( !part.fitsInLong() || part.longValue() < 0 )
+        {
+            writeNumber( part.getValue(), out );
+            return;
+        }
+
+        final long value = part.longValue();
+        int len = 1;
+        while ( len < 8 && ( value >>> ( 8 * len ) ) != 0 )
+        {
+            len++;
+        }
+
+        out.write( 0x80 + len );
+        for ( int i = len - 1; i > -1; i-- )
+        {
+            out.write( (int) ( value >>> ( 8 * i ) ) & 0xff );
+        }
+    }
+
+    private static void writeNumber( final BigInteger value, final ByteArrayOutputStream out )
+    {
+        final byte[] mag = value.abs()
+                                .toByteArray();
+        int start = 0;
+        while ( start < mag.length - 1 && mag[start] == 0 )
+        {
+            start++;
+        }
+
+        final int len = mag.length - start;
+        if ( value.signum() < 0 )
+        {
+            out.write( 0x7f - len );
+            for ( int i = start; i < mag.length; i++ )
+            {
+                out.write( ~mag[i] & 0xff );
+            }
+        }
+        else
+        {
+            out.write( 0x80 + len );
+            out.write( mag, start, len );
+        }
+    }
+
+    /**
+     * Order-preserving char encoding, terminated by 0x00: one byte (c+1) for c &lt; 0x7f, otherwise three bytes with
+     * a lead byte in 0x80..0x8f.
+     */
+    private static void writeString( final String value, final ByteArrayOutputStream out )
+    {
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            final char c = value.charAt( i );
+            if ( c < 0x7f )
+            {
+                out.write( c + 1 );
+            }
+            else
+            {
+                out.write( 0x80 | ( c >>> 12 ) );
+                out.write( ( c >>> 6 ) & 0x3f );
+                out.write( c & 0x3f );
+            }
+        }
+        out.write( 0 );
+    }
+
+    private static void writeSigned( final long value, final int bytes, final ByteArrayOutputStream out )
+    {
+        final long flipped = value ^ ( 1L << ( bytes * 8 - 1 ) );
+        for ( int i = bytes - 1; i > -1; i-- )
+        {
+            out.write( (int) ( flipped >>> ( i * 8 ) ) & 0xff );
+        }
+    }
+
+}
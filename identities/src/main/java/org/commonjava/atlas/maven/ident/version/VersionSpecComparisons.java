@@ -42,6 +42,21 @@ public final class VersionSpecComparisons
         };
     }
 
+    /**
+     * Comparator for sorting large numbers of {@link SingleVersion}s. It gives the same order as {@link #comparator()},
+     * but compares each version's cached binary sort key instead of walking its phrases and parts.
+     */
+    public static Comparator<SingleVersion> sortKeyComparator()
+    {
+        return new Comparator<SingleVersion>()
+        {
+            public int compare( final SingleVersion o1, final SingleVersion o2 )
+            {
+                return SingleVersionSortKey.compare( o1.getSortKey(), o2.getSortKey() );
+            }
+        };
+    }
+
     public static int compareTo( final VersionSpec first, final VersionSpec second )
     {
         if ( first instanceof SingleVersion )
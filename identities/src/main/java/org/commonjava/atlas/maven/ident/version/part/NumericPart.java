@@ -15,9 +15,20 @@
  */
 package org.commonjava.atlas.maven.ident.version.part;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigInteger;
 
+/**
+ * Numeric version segment. Values that fit in a long (nearly all of them) are held as a primitive; only segments that
+ * overflow it, such as over-long date stamps, fall back to {@link BigInteger}. Instances are immutable, and
+ * {@link #valueOf(long)} / {@link #valueOf(String)} hand out shared instances for the small values that make up most
+ * versions.
+ */
 public class NumericPart
     extends VersionPart
     implements Serializable
@@ -25,35 +36,147 @@ public class NumericPart
 
     private static final long serialVersionUID = 1L;
 
-    public static final NumericPart ZERO = new NumericPart( 0 );
+    /**
+     * Keep the serialized form of the original, {@link BigInteger}-backed class, so parts written before and after the
+     * switch to a primitive value stay readable by either.
+     */
+    private static final ObjectStreamField[] serialPersistentFields =
+        { new ObjectStreamField( "value", BigInteger.class ) };
+
+    private static final int CACHE_SIZE = 256;
+
+    private static final NumericPart[] CACHE = new NumericPart[CACHE_SIZE];
+
+    static
+    {
+        for ( int i = 0; i < CACHE_SIZE; i++ )
+        {
+            CACHE[i] = new NumericPart( i );
+        }
+    }
+
+    public static final NumericPart ZERO = CACHE[0];
+
+    // not final, so readObject(..) can restore these from the serialized form.
+    private long value;
 
-    private final BigInteger value;
+    /**
+     * Only set when the value doesn't fit in {@link #value}.
+     */
+    private BigInteger bigValue;
 
     public NumericPart( final String value )
     {
-        this.value = BigInteger.valueOf( Long.parseLong( value ) );
+        long l = 0;
+        BigInteger big = null;
+        try
+        {
+            l = Long.parseLong( value );
+        }
+        catch ( final NumberFormatException e )
+        {
+            // either garbage (which BigInteger will reject in turn) or a segment too big for a long.
+            big = new BigInteger( value );
+        }
+
+        this.value = l;
+        this.bigValue = big;
     }
 
     public NumericPart( final long value )
     {
-        this.value = BigInteger.valueOf( value );
+        this.value = value;
+        this.bigValue = null;
+    }
+
+    public static NumericPart valueOf( final long value )
+    {
+        if ( value >= 0 && value < CACHE_SIZE )
+        {
+            return CACHE[(int) value];
+        }
+
+        return new NumericPart( value );
+    }
+
+    public static NumericPart valueOf( final String value )
+    {
+        final int len = value.length();
+        if ( len > 0 && len < 4 )
+        {
+            int v = 0;
+            for ( int i = 0; i < len; i++ )
+            {
+                final char c = value.charAt( i );
+                if ( c < '0' || c > '9' )
+                {
+                    return new NumericPart( value );
+                }
+                v = v * 10 + ( c - '0' );
+            }
+
+            if ( v < CACHE_SIZE )
+            {
+                return CACHE[v];
+            }
+
+            return new NumericPart( v );
+        }
+
+        return new NumericPart( value );
     }
 
     @Override
     public String renderStandard()
     {
-        return value.toString();
+        return bigValue == null ? Long.toString( value ) : bigValue.toString();
     }
 
     public BigInteger getValue()
     {
+        return bigValue == null ? BigInteger.valueOf( value ) : bigValue;
+    }
+
+    /**
+     * Whether the value fits in a long, and so can be read with {@link #longValue()}.
+     */
+    public boolean fitsInLong()
+    {
+        return bigValue == null;
+    }
+
+    /**
+     * @throws ArithmeticException if the value doesn't fit in a long; see {@link #fitsInLong()}.
+     */
+    public long longValue()
+    {
+        if ( bigValue != null )
+        {
+            throw new ArithmeticException( "Numeric version part out of long range: " + bigValue );
+        }
+
         return value;
     }
 
+    public int signum()
+    {
+        if ( bigValue != null )
+        {
+            return bigValue.signum();
+        }
+
+        return value == 0 ? 0 : ( value < 0 ? -1 : 1 );
+    }
+
+    public boolean isZero()
+    {
+        return bigValue == null && value == 0;
+    }
+
     @Override
     public String toString()
     {
-        return String.format( "NUM[%s]", value );
+        return String.format( "NUM[%s]", renderStandard() );
     }
 
     public int compareTo( final VersionPart part )
@@ -71,20 +194,39 @@ public class NumericPart
         }
         else if ( part instanceof NumericPart )
         {
-            final BigInteger other = ( (NumericPart) part ).getValue();
-            return value.compareTo( other );
+            return compareValues( (NumericPart) part );
         }
 
         // punt...shouldn't happen.
         return 0;
     }
 
+    private int compareValues( final NumericPart other )
+    {
+        if ( bigValue == null && other.bigValue == null )
+        {
+            return value < other.value ? -1 : ( value == other.value ? 0 : 1 );
+        }
+
+        // a big value is always outside the long range, so its sign alone orders it against a small one.
+        if ( bigValue == null )
+        {
+            return -other.bigValue.signum();
+        }
+        else if ( other.bigValue == null )
+        {
+            return bigValue.signum();
+        }
+
+        return bigValue.compareTo( other.bigValue );
+    }
+
     @Override
     public int hashCode()
     {
         final int prime = 31;
         int result = 1;
-        result = prime * result + value.hashCode();
+        result = prime * result + ( bigValue == null ? (int) ( value ^ ( value >>> 32 ) ) : bigValue.hashCode() );
         return result;
     }
 
@@ -104,7 +246,52 @@ public class NumericPart
             return false;
         }
         final NumericPart other = (NumericPart) obj;
-        return value.equals( other.value );
+        if ( bigValue == null )
+        {
+            return other.bigValue == null && value == other.value;
+        }
+
+        return bigValue.equals( other.bigValue );
+    }
+
+    private void writeObject( final ObjectOutputStream out )
+        throws IOException
+    {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put( "value", getValue() );
+        out.writeFields();
+    }
+
+    private void readObject( final ObjectInputStream in )
+        throws IOException, ClassNotFoundException
+    {
+        final BigInteger v = (BigInteger) in.readFields()
+                                            .get( "value", null );
+        if ( v == null )
+        {
+            throw new InvalidObjectException( "Numeric version part has no value." );
+        }
+
+        if ( v.bitLength() < Long.SIZE )
+        {
+            value = v.longValue();
+            bigValue = null;
+        }
+        else
+        {
+            value = 0;
+            bigValue = v;
+        }
+    }
+
+    private Object readResolve()
+    {
+        if ( bigValue == null && value >= 0 && value < CACHE_SIZE )
+        {
+            return CACHE[(int) value];
+        }
+
+        return this;
     }
 
 }
@@ -15,6 +15,10 @@
  */
 package org.commonjava.atlas.maven.ident.version.part;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -27,14 +31,37 @@ public class SnapshotPart
 
     private static final long serialVersionUID = 1L;
 
-    private final Date timestamp;
+    /**
+     * Keep the serialized form of the original class, which held a nullable {@link Date} and {@link Integer} build
+     * number, so parts written before and after the switch to primitives stay readable by either.
+     */
+    private static final ObjectStreamField[] serialPersistentFields =
+        { new ObjectStreamField( "timestamp", Date.class ), new ObjectStreamField( "buildNumber", Integer.class ),
+            new ObjectStreamField( "literal", String.class ) };
 
-    private final Integer buildNumber;
+    // not final, so readObject(..) can restore these from the serialized form.
+    private boolean remote;
 
-    private final String literal;
+    /**
+     * Epoch milliseconds; only meaningful for remote snapshots.
+     */
+    private long timestamp;
+
+    private int buildNumber;
+
+    private String literal;
 
     public SnapshotPart( final Date timestamp, final int buildNumber, final String literal )
     {
+        this.remote = timestamp != null;
+        this.timestamp = timestamp == null ? 0 : timestamp.getTime();
+        this.buildNumber = remote ? buildNumber : 0;
+        this.literal = literal;
+    }
+
+    public SnapshotPart( final long timestamp, final int buildNumber, final String literal )
+    {
+        this.remote = true;
         this.timestamp = timestamp;
         this.buildNumber = buildNumber;
         this.literal = literal;
@@ -45,13 +72,15 @@ public class SnapshotPart
         if ( SnapshotUtils.isRemoteSnapshotVersionPart( literal ) )
         {
             final SnapshotPart sp = SnapshotUtils.parseRemoteSnapshotVersionPart( literal );
+            remote = true;
             timestamp = sp.timestamp;
             buildNumber = sp.buildNumber;
         }
         else
         {
-            timestamp = null;
-            buildNumber = null;
+            remote = false;
+            timestamp = 0;
+            buildNumber = 0;
         }
 
         this.literal = literal;
@@ -62,7 +91,19 @@ public class SnapshotPart
         return literal;
     }
 
+    /**
+     * @return a new {@link Date} for the timestamp of a remote snapshot, or null for a local one. Use
+     *         {@link #getTimestampMillis()} to avoid the allocation.
+     */
     public Date getTimestamp()
+    {
+        return remote ? new Date( timestamp ) : null;
+    }
+
+    /**
+     * @return the epoch milliseconds of a remote snapshot's timestamp, or 0 for a local one.
+     */
+    public long getTimestampMillis()
     {
         return timestamp;
     }
@@ -74,18 +115,18 @@ public class SnapshotPart
 
     public boolean isLocalSnapshot()
     {
-        return timestamp == null;
+        return !remote;
     }
 
     public boolean isRemoteSnapshot()
     {
-        return timestamp != null;
+        return remote;
     }
 
     @Override
     public String toString()
     {
-        return "SNAP[" + ( timestamp == null ? "local" : "remote;" + renderStandard() ) + "]";
+        return "SNAP[" + ( remote ? "remote;" + renderStandard() : "local" ) + "]";
     }
 
     @Override
@@ -107,13 +148,12 @@ public class SnapshotPart
             final SnapshotPart oSnap = (SnapshotPart) o;
             if ( !isLocalSnapshot() && !oSnap.isLocalSnapshot() )
             {
-                final int comp = getTimestamp().compareTo( oSnap.getTimestamp() );
-                if ( comp == 0 )
+                if ( timestamp == oSnap.timestamp )
                 {
-                    return getBuildNumber() - oSnap.getBuildNumber();
+                    return buildNumber - oSnap.buildNumber;
                 }
 
-                return comp;
+                return timestamp < oSnap.timestamp ? -1 : 1;
             }
             else if ( isLocalSnapshot() && !oSnap.isLocalSnapshot() )
             {
@@ -146,8 +186,8 @@ public class SnapshotPart
     {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ( ( buildNumber == null ) ? 0 : buildNumber.hashCode() );
-        result = prime * result + ( ( timestamp == null ) ? 0 : timestamp.hashCode() );
+        result = prime * result + ( remote ? buildNumber : 0 );
+        result = prime * result + ( remote ? (int) ( timestamp ^ ( timestamp >>> 32 ) ) : 0 );
         return result;
     }
 
@@ -167,29 +207,30 @@ public class SnapshotPart
             return false;
         }
         final SnapshotPart other = (SnapshotPart) obj;
-        if ( buildNumber == null )
-        {
-            if ( other.buildNumber != null )
-            {
-                return false;
-            }
-        }
-        else if ( !buildNumber.equals( other.buildNumber ) )
-        {
-            return false;
-        }
-        if ( timestamp == null )
-        {
-            if ( other.timestamp != null )
-            {
-                return false;
-            }
-        }
-        else if ( !timestamp.equals( other.timestamp ) )
-        {
-            return false;
-        }
-        return true;
+        return remote == other.remote && timestamp == other.timestamp && buildNumber == other.buildNumber;
+    }
+
+    private void writeObject( final ObjectOutputStream out )
+        throws IOException
+    {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put( "timestamp", getTimestamp() );
+        fields.put( "buildNumber", remote ? Integer.valueOf( buildNumber ) : null );
+        fields.put( "literal", literal );
+        out.writeFields();
+    }
+
+    private void readObject( final ObjectInputStream in )
+        throws IOException, ClassNotFoundException
+    {
+        final ObjectInputStream.GetField fields = in.readFields();
+        final Date ts = (Date) fields.get( "timestamp", null );
+        final Integer build = (Integer) fields.get( "buildNumber", null );
+
+        remote = ts != null;
+        timestamp = remote ? ts.getTime() : 0;
+        buildNumber = remote && build != null ? build : 0;
+        literal = (String) fields.get( "literal", null );
     }
 
 }
@@ -23,18 +23,6 @@ public abstract class VersionPart
 
     private static final long serialVersionUID = 1L;
 
-    private boolean silent = false;
-
     public abstract String renderStandard();
 
-    final boolean isSilent()
-    {
-        return silent;
-    }
-
-    final void setSilent( final boolean silent )
-    {
-        this.silent = silent;
-    }
-
 }
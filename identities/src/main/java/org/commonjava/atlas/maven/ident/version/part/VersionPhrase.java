@@ -15,10 +15,13 @@
  */
 package org.commonjava.atlas.maven.ident.version.part;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Iterator;
 import java.util.List;
 
 import org.commonjava.atlas.maven.ident.version.InvalidVersionSpecificationException;
@@ -30,13 +33,26 @@ public class VersionPhrase
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * The original serialized form, which carried a phrase-level silent flag rather than {@link #firstSilentPart}. The
+     * flag is still written, so older readers see the same fields; it's recomputed from the parts on reading.
+     */
+    private static final ObjectStreamField[] serialPersistentFields =
+        { new ObjectStreamField( "parts", List.class ), new ObjectStreamField( "separator", VersionPartSeparator.class ),
+            new ObjectStreamField( "markerIndex", Integer.class ), new ObjectStreamField( "silent", Boolean.TYPE ) };
+
     private final List<VersionPart> parts;
 
     private final VersionPartSeparator separator;
 
     private final Integer markerIndex;
 
-    private boolean silent = false;
+    /**
+     * Index of the first part in the trailing run of parts that don't affect equality (zeros, separators, GA/FINAL).
+     * Tracking this here rather than on the parts themselves keeps {@link VersionPart} instances immutable, so they
+     * can be shared between phrases. Derived from {@link #parts}, so not serialized.
+     */
+    private transient int firstSilentPart;
 
     public VersionPhrase( final VersionPartSeparator separator, final VersionPart... parts )
         throws InvalidVersionSpecificationException
@@ -51,52 +67,44 @@ public class VersionPhrase
         List<VersionPart> parts = new ArrayList<VersionPart>( p );
         parts = normalize( parts );
         validate( parts );
-        markSilentParts( parts );
+        this.firstSilentPart = findFirstSilentPart( parts );
         this.markerIndex = findMarkerIndex( parts.get( 0 ) );
 
         this.parts = new ArrayList<VersionPart>( parts );
     }
 
-    private void markSilentParts( final List<VersionPart> parts )
+    private static int findFirstSilentPart( final List<VersionPart> parts )
     {
-        for ( int i = parts.size() - 1; i > -1; i-- )
+        int i = parts.size();
+        while ( i > 0 && isSilenceable( parts.get( i - 1 ) ) )
         {
-            final VersionPart part = parts.get( i );
-            boolean silenced = false;
-            if ( NumericPart.ZERO.equals( part ) )
-            {
-                silenced = true;
-            }
-            else if ( part instanceof SeparatorPart )
-            {
-                silenced = true;
-            }
-            else if ( ( part instanceof StringPart )
-                && ( (StringPart) part ).getZeroCompareIndex() == StringPart.ADJ_ZERO_EQUIV_INDEX )
-            {
-                silenced = true;
-            }
-
-            if ( silenced )
-            {
-                part.setSilent( true );
-            }
-            else
-            {
-                break;
-            }
+            i--;
         }
 
-        if ( parts.get( 0 )
-                  .isSilent() )
+        return i;
+    }
+
+    private static boolean isSilenceable( final VersionPart part )
+    {
+        if ( part instanceof NumericPart )
+        {
+            return ( (NumericPart) part ).isZero();
+        }
+        else if ( part instanceof SeparatorPart )
+        {
+            return true;
+        }
+        else if ( part instanceof StringPart )
         {
-            silent = true;
+            return ( (StringPart) part ).getZeroCompareIndex() == StringPart.ADJ_ZERO_EQUIV_INDEX;
         }
+
+        return false;
     }
 
     public boolean isSilent()
     {
-        return silent;
+        return firstSilentPart == 0;
     }
 
     private Integer findMarkerIndex( final VersionPart part )
@@ -111,7 +119,7 @@ public class VersionPhrase
         {
             markerIndex = StringPart.ADJ_ZERO_EQUIV_INDEX;
         }
-        else if ( ( part instanceof NumericPart ) && ( ( (NumericPart) part ).equals( NumericPart.ZERO ) ) )
+        else if ( ( part instanceof NumericPart ) && ( (NumericPart) part ).isZero() )
         {
             markerIndex = StringPart.ADJ_ZERO_EQUIV_INDEX;
         }
@@ -292,12 +300,10 @@ public class VersionPhrase
         int result = 1;
         if ( parts != null )
         {
-            for ( final VersionPart part : parts )
+            for ( int i = 0; i < firstSilentPart; i++ )
             {
-                if ( !part.isSilent() )
-                {
-                    result += part.hashCode();
-                }
+                result += parts.get( i )
+                               .hashCode();
             }
         }
 
@@ -329,73 +335,60 @@ public class VersionPhrase
         }
         else
         {
-            final List<VersionPart> myParts = new ArrayList<VersionPart>( parts );
-            for ( final Iterator<VersionPart> it = myParts.iterator(); it.hasNext(); )
+            // walk the non-separator parts of both phrases in step; once either side runs into its silent tail, the
+            // rest of both phrases has to be silent too.
+            int i = nextValuePart( parts, 0 );
+            int j = nextValuePart( other.parts, 0 );
+            while ( i < firstSilentPart && j < other.firstSilentPart )
             {
-                final VersionPart part = it.next();
-                if ( part instanceof SeparatorPart )
-                {
-                    it.remove();
-                }
-            }
-
-            final List<VersionPart> theirParts = new ArrayList<VersionPart>( other.parts );
-            for ( final Iterator<VersionPart> it = theirParts.iterator(); it.hasNext(); )
-            {
-                final VersionPart part = it.next();
-                if ( part instanceof SeparatorPart )
-                {
-                    it.remove();
-                }
-            }
-
-            int i = 0;
-            for ( ; i < Math.min( myParts.size(), theirParts.size() ); i++ )
-            {
-                final VersionPart mine = myParts.get( i );
-                final VersionPart theirs = theirParts.get( i );
-                if ( mine.isSilent() != theirs.isSilent() )
+                if ( !parts.get( i )
+                           .equals( other.parts.get( j ) ) )
                 {
                     return false;
                 }
-                else if ( !mine.isSilent() && !theirs.isSilent() )
-                {
-                    if ( !mine.equals( theirs ) )
-                    {
-                        return false;
-                    }
-                }
-            }
 
-            if ( i < myParts.size() )
-            {
-                for ( int j = i; j < myParts.size(); j++ )
-                {
-                    final VersionPart mine = myParts.get( j );
-                    if ( !mine.isSilent() )
-                    {
-                        return false;
-                    }
-                }
+                i = nextValuePart( parts, i + 1 );
+                j = nextValuePart( other.parts, j + 1 );
             }
 
-            if ( i < theirParts.size() )
+            if ( i < firstSilentPart || j < other.firstSilentPart )
             {
-                for ( int j = i; j < theirParts.size(); j++ )
-                {
-                    final VersionPart theirs = theirParts.get( j );
-
-                    if ( !theirs.isSilent() )
-                    {
-                        return false;
-                    }
-                }
+                return false;
             }
         }
 
         return true;
     }
 
+    private static int nextValuePart( final List<VersionPart> parts, final int from )
+    {
+        int i = from;
+        while ( i < parts.size() && parts.get( i ) instanceof SeparatorPart )
+        {
+            i++;
+        }
+
+        return i;
+    }
+
+    private void writeObject( final ObjectOutputStream out )
+        throws IOException
+    {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put( "parts", parts );
+        fields.put( "separator", separator );
+        fields.put( "markerIndex", markerIndex );
+        fields.put( "silent", isSilent() );
+        out.writeFields();
+    }
+
+    private void readObject( final ObjectInputStream in )
+        throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+        firstSilentPart = findFirstSilentPart( parts );
+    }
+
     public boolean isSnapshotOnly()
     {
         return parts.size() == 1 && isSnapshot();
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.ref;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.commonjava.atlas.maven.ident.util.IdentityUtils;
+import org.junit.After;
+import org.junit.Test;
+
+public class IdentityPoolTest
+{
+
+    @After
+    public void disablePool()
+    {
+        IdentityPool.disableSharedPool();
+    }
+
+    @Test
+    public void parseSharesInstancesWhenEnabled()
+    {
+        assertThat( SimpleProjectVersionRef.parse( "org.foo:bar:1.0" ),
+                    not( sameInstance( SimpleProjectVersionRef.parse( "org.foo:bar:1.0" ) ) ) );
+
+        final IdentityPool pool = IdentityPool.enableSharedPool();
+        final ProjectVersionRef first = SimpleProjectVersionRef.parse( "org.foo:bar:1.0" );
+        final ProjectVersionRef second = SimpleProjectVersionRef.parse( "org.foo:bar:1.0" );
+        final ProjectVersionRef third = IdentityUtils.projectVersion( "org.foo", "bar", "1.0" );
+
+        assertThat( second, sameInstance( first ) );
+        assertThat( third, sameInstance( first ) );
+        assertThat( pool.getHits(), equalTo( 2L ) );
+        assertThat( pool.getMisses(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void semanticallyEqualVersionsAreNotMerged()
+    {
+        final IdentityPool pool = new IdentityPool();
+        final ProjectVersionRef short10 = pool.intern( new SimpleProjectVersionRef( "org.foo", "bar", "1.0" ) );
+        final ProjectVersionRef long10 = pool.intern( new SimpleProjectVersionRef( "org.foo", "bar", "1.0.0" ) );
+
+        assertThat( short10, equalTo( long10 ) );
+        assertThat( long10.getVersionString(), equalTo( "1.0.0" ) );
+        assertThat( pool.getHits(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void refTypesArePooledSeparately()
+    {
+        final IdentityPool pool = new IdentityPool();
+        final ProjectRef project = pool.intern( new SimpleProjectRef( "org.foo", "bar" ) );
+        final ProjectVersionRef version = pool.intern( new SimpleProjectVersionRef( "org.foo", "bar", "1.0" ) );
+        final ArtifactRef jar = pool.intern( new SimpleArtifactRef( "org.foo", "bar", "1.0", "jar", null ) );
+        final ArtifactRef tests = pool.intern( new SimpleArtifactRef( "org.foo", "bar", "1.0", "jar", "tests" ) );
+        final VersionlessArtifactRef versionless =
+            pool.intern( new SimpleVersionlessArtifactRef( "org.foo", "bar", "jar", null ) );
+
+        assertThat( project.getClass(), equalTo( (Object) SimpleProjectRef.class ) );
+        assertThat( version.getClass(), equalTo( (Object) SimpleProjectVersionRef.class ) );
+        assertThat( jar.getClass(), equalTo( (Object) SimpleArtifactRef.class ) );
+        assertThat( versionless.getClass(), equalTo( (Object) SimpleVersionlessArtifactRef.class ) );
+        assertThat( tests.getClassifier(), equalTo( "tests" ) );
+        assertThat( jar.getClassifier(), equalTo( null ) );
+
+        // components are shared between the different refs
+        assertThat( version.getGroupId(), sameInstance( project.getGroupId() ) );
+        assertThat( jar.getArtifactId(), sameInstance( project.getArtifactId() ) );
+        assertThat( versionless.getTypeAndClassifier(), sameInstance( jar.getTypeAndClassifier() ) );
+        assertThat( pool.intern( new SimpleTypeAndClassifier( "jar" ) ), sameInstance( jar.getTypeAndClassifier() ) );
+
+        assertThat( pool.intern( new SimpleArtifactRef( "org.foo", "bar", "1.0", "jar", "tests" ) ),
+                    sameInstance( tests ) );
+    }
+
+    @Test
+    public void otherImplementationsAreReturnedUnchanged()
+    {
+        final IdentityPool pool = new IdentityPool();
+        final ProjectVersionRef ref = new SimpleProjectVersionRef( "org.foo", "bar", "1.0" )
+        {
+            private static final long serialVersionUID = 1L;
+        };
+
+        assertThat( pool.intern( ref ), sameInstance( ref ) );
+        assertThat( pool.getMisses(), equalTo( 0L ) );
+    }
+
+    @Test
+    public void unreferencedEntriesAreReleased()
+        throws Exception
+    {
+        final IdentityPool pool = new IdentityPool();
+        for ( int i = 0; i < 1000; i++ )
+        {
+            pool.intern( new SimpleProjectVersionRef( "org.foo", "bar", "1." + i ) );
+        }
+
+        final List<ProjectVersionRef> held = new ArrayList<ProjectVersionRef>();
+        held.add( pool.intern( new SimpleProjectVersionRef( "org.foo", "bar", "2.0" ) ) );
+
+        for ( int i = 0; i < 20 && pool.size() > 10; i++ )
+        {
+            System.gc();
+            Thread.sleep( 50 );
+        }
+
+        assertTrue( "Pool should have released unreferenced refs: " + pool, pool.size() <= 10 );
+        assertThat( pool.intern( new SimpleProjectVersionRef( "org.foo", "bar", "2.0" ) ),
+                    sameInstance( held.get( 0 ) ) );
+    }
+
+}
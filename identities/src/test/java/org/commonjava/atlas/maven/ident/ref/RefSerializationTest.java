@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.ref;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.TimeZone;
+
+import org.junit.Test;
+
+public class RefSerializationTest
+{
+
+    @Test
+    public void roundTripsEachRefKind()
+        throws Exception
+    {
+        final ProjectRef pr = new SimpleProjectRef( "org.foo", "bar" );
+        final ProjectVersionRef pvr = new SimpleProjectVersionRef( "org.foo", "bar", "[1.0,2.0)" );
+        final ArtifactRef ar = new SimpleArtifactRef( "org.foo", "bar", "1.0-SNAPSHOT", "test-jar", "tests" );
+        final ArtifactRef noClassifier = new SimpleArtifactRef( "org.foo", "bar", "1.0", "jar", null );
+        final VersionlessArtifactRef var = new SimpleVersionlessArtifactRef( "org.foo", "bar", "zip", "dist" );
+
+        for ( final ProjectRef ref : Arrays.asList( pr, pvr, ar, noClassifier, var ) )
+        {
+            final Object result = roundTrip( ref );
+            assertThat( result.getClass().getName(), equalTo( ref.getClass().getName() ) );
+            assertThat( result, equalTo( (Object) ref ) );
+        }
+
+        final ArtifactRef read = (ArtifactRef) roundTrip( noClassifier );
+        assertThat( read.getClassifier(), nullValue() );
+        assertThat( ( (ArtifactRef) roundTrip( ar ) ).getVersionString(), equalTo( "1.0-SNAPSHOT" ) );
+    }
+
+    @Test
+    public void compactFormIsSmallerThanDefaultForm()
+        throws Exception
+    {
+        final SimpleArtifactRef ref = legacyArtifact();
+        ref.getVersionSpec();
+        final int compact = serialize( ref ).length;
+        final int legacy = resourceBytes( "serialization/SimpleArtifactRef-v0.ser" ).length;
+
+        assertTrue( "compact form (" + compact + " bytes) should be smaller than default form (" + legacy + " bytes)",
+                    compact < legacy / 2 );
+    }
+
+    @Test
+    public void readsDefaultFormWrittenBeforeProxies()
+        throws Exception
+    {
+        // the fixtures were written after their versions were parsed, so they carry the old VersionSpec graphs.
+        assertReadsAsParsed( "serialization/SimpleProjectVersionRef-v0.ser",
+                             new SimpleProjectVersionRef( "org.foo", "bar", "1.0" ) );
+        assertReadsAsParsed( "serialization/SimpleProjectVersionRef-range-v0.ser",
+                             new SimpleProjectVersionRef( "org.foo", "bar", "[1.0,2.0)" ) );
+
+        // the snapshot timestamp was parsed in UTC; compare against the same.
+        final TimeZone original = TimeZone.getDefault();
+        TimeZone.setDefault( TimeZone.getTimeZone( "UTC" ) );
+        try
+        {
+            final ArtifactRef ar = (ArtifactRef) assertReadsAsParsed( "serialization/SimpleArtifactRef-v0.ser",
+                                                                      legacyArtifact() );
+            assertThat( ar.getClassifier(), equalTo( "tests" ) );
+            assertThat( ar.getType(), equalTo( "test-jar" ) );
+            assertThat( ar.isSnapshot(), equalTo( true ) );
+        }
+        finally
+        {
+            TimeZone.setDefault( original );
+        }
+    }
+
+    /**
+     * Matches the ref stored in <code>serialization/SimpleArtifactRef-v0.ser</code>.
+     */
+    private static SimpleArtifactRef legacyArtifact()
+    {
+        return new SimpleArtifactRef( "org.foo", "bar", "1.0-20181012.123456-3", "test-jar", "tests" );
+    }
+
+    private static ProjectVersionRef assertReadsAsParsed( final String resource, final ProjectVersionRef expected )
+        throws Exception
+    {
+        final ProjectVersionRef ref = (ProjectVersionRef) deserialize( resourceBytes( resource ) );
+        assertThat( ref, equalTo( expected ) );
+        assertThat( ref.getVersionString(), equalTo( expected.getVersionString() ) );
+        assertThat( ref.getVersionSpec(), equalTo( expected.getVersionSpec() ) );
+        assertThat( ref.isRelease(), equalTo( expected.isRelease() ) );
+        assertThat( ref.versionlessEquals( expected ), equalTo( true ) );
+
+        return ref;
+    }
+
+    @Test
+    public void subclassesKeepDefaultForm()
+        throws Exception
+    {
+        final Object result = roundTrip( new CustomRef( "org.foo", "bar", "1.0" ) );
+        assertThat( result, instanceOf( CustomRef.class ) );
+    }
+
+    @Test( expected = InvalidObjectException.class )
+    public void rejectsNewerFormatVersion()
+        throws Exception
+    {
+        final byte[] bytes = serialize( new SimpleProjectRef( "org.foo", "bar" ) );
+
+        // the proxy's block data starts with its format version byte, directly ahead of the groupId length prefix.
+        final int versionOffset = indexOf( bytes, new byte[] { RefSerializationProxy.FORMAT_VERSION,
+            RefSerializationProxy.KIND_PROJECT, 0, 7, 'o', 'r', 'g' } );
+        bytes[versionOffset] = (byte) ( RefSerializationProxy.FORMAT_VERSION + 1 );
+
+        deserialize( bytes );
+    }
+
+    private static int indexOf( final byte[] bytes, final byte[] pattern )
+    {
+        outer: for ( int i = 0; i <= bytes.length - pattern.length; i++ )
+        {
+            for ( int j = 0; j < pattern.length; j++ )
+            {
+                if ( bytes[i + j] != pattern[j] )
+                {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+
+        throw new IllegalStateException( "Pattern not found" );
+    }
+
+    private static Object roundTrip( final Object value )
+        throws Exception
+    {
+        return deserialize( serialize( value ) );
+    }
+
+    private static byte[] serialize( final Object value )
+        throws IOException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream( baos );
+        out.writeObject( value );
+        out.close();
+
+        return baos.toByteArray();
+    }
+
+    private static Object deserialize( final byte[] bytes )
+        throws Exception
+    {
+        final ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes ) );
+        try
+        {
+            return in.readObject();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static byte[] resourceBytes( final String path )
+        throws IOException
+    {
+        final InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream( path );
+        try
+        {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int read;
+            while ( ( read = in.read( buf ) ) > -1 )
+            {
+                baos.write( buf, 0, read );
+            }
+
+            return baos.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static final class CustomRef
+        extends SimpleProjectVersionRef
+    {
+        private static final long serialVersionUID = 1L;
+
+        CustomRef( final String groupId, final String artifactId, final String version )
+        {
+            super( groupId, artifactId, version );
+        }
+    }
+
+}
@@ -16,6 +16,7 @@
 package org.commonjava.atlas.maven.ident.util;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
@@ -23,10 +24,129 @@ import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
 import org.junit.Test;
 
 import java.text.SimpleDateFormat;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 public class ArtifactPathInfoTest
 {
 
+    // the regular expression ArtifactPathInfo.parse() used to be built on, kept as the reference for its behavior.
+    private static final Pattern LEGACY_PATTERN = Pattern.compile(
+            "/?(([^/]+/)*[^/]+)/([^/]+)/(([^/]+)(-SNAPSHOT)?)/(\\3-((\\4)|(\\5-([0-9]{8}.[0-9]{6})-([0-9]+)))"
+                    + "(-([a-zA-Z]+\\d*(\\.\\d*)*))?(\\.(.+)))" );
+
+    private static final String[] CORPUS = { "/org/apache/maven/maven-core/3.0.4/maven-core-3.0.4.jar",
+        "org/apache/maven/maven-core/3.0.4/maven-core-3.0.4.pom",
+        "/org/apache/maven/maven-core/3.0.4/maven-core-3.0.4-sources.jar",
+        "/org/apache/maven/maven-core/3.0.4/maven-core-3.0.4.jar.sha1",
+        "/org/apache/maven/maven-core/3.0.4/maven-core-3.0.4-javadoc.jar.md5",
+        "/org/apache/maven/maven-core/3.0.4/maven-core-3.0.4.pom.asc",
+        "/org/apache/maven/maven-core/maven-metadata.xml", "/org/apache/maven/maven-core/3.0.4/maven-metadata.xml",
+        "/org/apache/maven/maven-core/3.0.4/", "/org/apache/maven/maven-core/3.0.4/other-3.0.4.jar",
+        "/org/apache/maven/maven-core/3.0.4/maven-core-3.0.5.jar", "/maven-core/3.0.4/maven-core-3.0.4.jar",
+        "junit/junit/4.12/junit-4.12.jar", "\\junit\\junit\\4.12\\junit-4.12.jar",
+        "/org/commonjava/maven/galley/galley-transport-httpclient/0.10.4-SNAPSHOT/galley-transport-httpclient-0.10.4-20160229.212037-2.pom",
+        "/org/commonjava/maven/galley/galley-core/0.10.4-SNAPSHOT/galley-core-0.10.4-SNAPSHOT.jar",
+        "/org/commonjava/maven/galley/galley-core/0.10.4-SNAPSHOT/galley-core-0.10.4-20160229.212037-12-tests.jar",
+        "/org/commonjava/maven/galley/galley-core/0.10.4-SNAPSHOT/galley-core-0.10.4-SNAPSHOT-20160229.212037-2.jar",
+        "/org/commonjava/maven/galley/galley-core/0.10.4/galley-core-0.10.4-20160229.212037-2.jar",
+        "/org/commonjava/maven/galley/galley-core/0.10.4-SNAPSHOT/galley-core-0.10.4-20160229x212037-2.jar",
+        "/org/commonjava/maven/galley/galley-core/0.10.4-SNAPSHOT/galley-core-0.10.4-20160229.21203-2.jar",
+        "/org/commonjava/maven/galley/galley-core/-SNAPSHOT/galley-core--SNAPSHOT.jar",
+        "/org/commonjava/maven/galley/galley-core/0.10.4-SNAPSHOT/maven-metadata.xml",
+        "/org/uberfire/showcase-distribution-wars/7.33.0.Final-redhat-00003/showcase-distribution-wars-7.33.0.Final-redhat-00003-wildfly8.1.war",
+        "/org/uberfire/showcase-distribution-wars/7.33.0.Final-redhat-00003/showcase-distribution-wars-7.33.0.Final-redhat-00003-wildfly.8.2.3.0.tar.gz",
+        "/org/apache/commons/commons-lang3/3.0.0/commons-lang3-3.0.0-test.",
+        "/org/apache/commons/commons-lang3/3.0.0/commons-lang3-3.0.0-test..",
+        "/org/apache/commons/commons-lang3/3.0.0/commons-lang3-3.0.0-test.1.",
+        "/org/apache/commons/commons-lang3/3.0.0/commons-lang3-3.0.0-test1.2.zip",
+        "/org/apache/commons/commons-lang3/3.0.0/commons-lang3-3.0.0-1test.zip",
+        "/org/apache/commons/commons-lang3/3.0.0/commons-lang3-3.0.0.tar.gz/extra",
+        "/org/apache/commons/commons-lang3/3.0.0/commons-lang3-3.0.0.jar\nfoo",
+        "//org/commons-lang3/3.0.0/commons-lang3-3.0.0.jar", "/org//commons-lang3/3.0.0/commons-lang3-3.0.0.jar",
+        "/org/commons-lang3//3.0.0/commons-lang3-3.0.0.jar", "/org/commons-lang3/3.0.0//commons-lang3-3.0.0.jar",
+        "/a/b/c/b-c.jar/d/e-f.jar", "/a/b/1-SNAPSHOT/b-1-SNAPSHOT-20120307.200227-1.jar", "a", "/", "//", "" };
+
+    private static final String[] FRAGMENTS = { "org", "a", "b", "1.0", "1.0-SNAPSHOT", "SNAPSHOT", "-", ".", "/",
+        "//", "\\", "jar", "tar.gz", "tests", "wildfly8", ".1", "20120307.200227", "20120307/200227", "-1", "-12",
+        "\n", "x" };
+
+    @Test
+    public void corpusMatchesLegacyRegex()
+    {
+        for ( final String path : CORPUS )
+        {
+            assertSameAsLegacy( path );
+        }
+    }
+
+    @Test
+    public void generatedPathsMatchLegacyRegex()
+    {
+        final Random rand = new Random( 2468 );
+        for ( int i = 0; i < 20000; i++ )
+        {
+            final String g = pick( rand, 1, 3 );
+            final String a = pick( rand, 1, 2 );
+            final String v = pick( rand, 1, 3 );
+            final StringBuilder sb = new StringBuilder();
+            if ( rand.nextBoolean() )
+            {
+                sb.append( '/' );
+            }
+            sb.append( g )
+              .append( '/' )
+              .append( a )
+              .append( '/' )
+              .append( v )
+              .append( '/' );
+
+            // mostly well-formed filenames, so the interesting branches actually get exercised
+            if ( rand.nextInt( 4 ) > 0 )
+            {
+                sb.append( a )
+                  .append( '-' );
+                sb.append( rand.nextBoolean() ? v : v.replace( "-SNAPSHOT", "" ) + "-20120307.200227-" + rand.nextInt( 20 ) );
+            }
+            sb.append( pick( rand, 0, 4 ) );
+
+            assertSameAsLegacy( sb.toString() );
+        }
+    }
+
+    private String pick( final Random rand, final int min, final int max )
+    {
+        final StringBuilder sb = new StringBuilder();
+        final int count = min + rand.nextInt( max - min + 1 );
+        for ( int i = 0; i < count; i++ )
+        {
+            sb.append( FRAGMENTS[rand.nextInt( FRAGMENTS.length )] );
+        }
+
+        return sb.toString();
+    }
+
+    private void assertSameAsLegacy( final String path )
+    {
+        final ArtifactPathInfo info = ArtifactPathInfo.parse( path );
+        final Matcher matcher = LEGACY_PATTERN.matcher( path.replace( '\\', '/' ) );
+        if ( path.length() < 1 || !matcher.matches() )
+        {
+            assertThat( path, info, nullValue() );
+            return;
+        }
+
+        assertThat( path, info.getGroupId(), equalTo( matcher.group( 1 )
+                                                             .replace( '/', '.' ) ) );
+        assertThat( path, info.getArtifactId(), equalTo( matcher.group( 3 ) ) );
+        assertThat( path, info.getVersion(), equalTo( matcher.group( 8 ) ) );
+        assertThat( path, info.getClassifier(), equalTo( matcher.group( 14 ) ) );
+        assertThat( path, info.getType(), equalTo( matcher.group( 17 ) ) );
+        assertThat( path, info.getFile(), equalTo( matcher.group( 7 ) ) );
+        assertThat( path, info.getFullPath(), equalTo( path ) );
+    }
+
     @Test
     public void matchSnapshotUIDVersion()
     {
@@ -17,11 +17,21 @@ package org.commonjava.atlas.maven.ident.util;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.commonjava.atlas.maven.ident.util.SnapshotUtils;
+import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
 import org.junit.Test;
 
 public class SnapshotUtilsTest
@@ -75,4 +85,155 @@ public class SnapshotUtilsTest
         assertThat( result, equalTo( d ) );
     }
 
+    @Test
+    public void remoteSnapshotRecognitionMatchesPattern()
+    {
+        final String[] literals = { "20140828.225831-1", "1.0-20140828.225831-12", "1-0-20140828.225831-3",
+            "-20140828.225831-1", "1.0--20140828.225831-1", "1.0-20140828x225831-1", "1.0-20140828.225831-",
+            "1.0-20140828.225831", "1.0-2014082.225831-1", "1.0-20140828.2258311-1", "1.0-20140828.225831-1a",
+            "1.0_20140828.225831-1", "1\n0-20140828.225831-1", "1.0-20140828\n225831-1", "1.0-SNAPSHOT",
+            "1.0-SNAPSHOT-20140828.225831-1", "x20140828.225831-1", "", "-", "1" };
+
+        for ( final String literal : literals )
+        {
+            final boolean expected = literal.matches( SnapshotUtils.REMOTE_SNAPSHOT_PART_PATTERN );
+            assertThat( literal, SnapshotUtils.isRemoteSnapshotVersion( literal ), equalTo( expected ) );
+            assertThat( literal, SnapshotUtils.isSnapshotVersion( literal ),
+                        equalTo( expected || literal.endsWith( SnapshotUtils.LOCAL_SNAPSHOT_VERSION_PART ) ) );
+        }
+    }
+
+    @Test
+    public void parseRemoteSnapshotVersionPart()
+        throws ParseException
+    {
+        final SnapshotPart part = SnapshotUtils.parseRemoteSnapshotVersionPart( "1.0-20140828.225831-12" );
+
+        assertThat( part.isRemoteSnapshot(), equalTo( true ) );
+        assertThat( part.getBuildNumber(), equalTo( 12 ) );
+        assertThat( part.getTimestampMillis(), equalTo( new SimpleDateFormat( SnapshotUtils.SNAPSHOT_TSTAMP_FORMAT ).parse( "20140828.225831" )
+                                                                                                                     .getTime() ) );
+        assertThat( part.getTimestamp(), equalTo( SnapshotUtils.parseSnapshotTimestamp( "20140828.225831" ) ) );
+        assertThat( part.getLiteral(), equalTo( "1.0-20140828.225831-12" ) );
+
+        try
+        {
+            SnapshotUtils.parseRemoteSnapshotVersionPart( "1.0-20140828x225831-12" );
+            fail( "Timestamp without a dot should be rejected" );
+        }
+        catch ( final IllegalArgumentException e )
+        {
+            // expected
+        }
+    }
+
+    @Test
+    public void snapshotTimestampMatchesSimpleDateFormat()
+        throws ParseException
+    {
+        // includes out-of-range fields, which the lenient format rolls over
+        final String[] tstamps = { "20140828.225831", "19700101.000000", "20000229.235959", "20141399.256199",
+            "00000000.000000", "20140828.2258", "20140828.2258311", "2014-828.225831" };
+
+        final SimpleDateFormat fmt = new SimpleDateFormat( SnapshotUtils.SNAPSHOT_TSTAMP_FORMAT );
+        for ( final String tstamp : tstamps )
+        {
+            Long expected;
+            try
+            {
+                expected = fmt.parse( tstamp )
+                              .getTime();
+            }
+            catch ( final ParseException e )
+            {
+                expected = null;
+            }
+
+            Long actual;
+            try
+            {
+                actual = SnapshotUtils.parseSnapshotTimestampMillis( tstamp );
+            }
+            catch ( final ParseException e )
+            {
+                actual = null;
+            }
+
+            assertThat( tstamp, actual, equalTo( expected ) );
+        }
+    }
+
+    @Test
+    public void followsDefaultTimeZoneChanges()
+        throws ParseException
+    {
+        final String tstamp = "20140828.225831";
+        final Date d = new Date( 1409266711000L );
+
+        final TimeZone original = TimeZone.getDefault();
+        try
+        {
+            for ( final String zone : new String[] { "UTC", "America/New_York", "Asia/Tokyo" } )
+            {
+                TimeZone.setDefault( TimeZone.getTimeZone( zone ) );
+
+                // the parse calendar and both formats are cached per thread.
+                final SimpleDateFormat fmt = new SimpleDateFormat( SnapshotUtils.SNAPSHOT_TSTAMP_FORMAT );
+                assertThat( zone, SnapshotUtils.parseSnapshotTimestampMillis( tstamp ), equalTo( fmt.parse( tstamp )
+                                                                                                     .getTime() ) );
+                assertThat( zone, SnapshotUtils.generateSnapshotTimestamp( d ), equalTo( fmt.format( d ) ) );
+
+                final SimpleDateFormat update = new SimpleDateFormat( "yyyyMMddHHmmss" );
+                assertThat( zone, SnapshotUtils.generateUpdateTimestamp( d ), equalTo( update.format( d ) ) );
+            }
+        }
+        finally
+        {
+            TimeZone.setDefault( original );
+        }
+    }
+
+    @Test
+    public void concurrentFormatAndParse()
+        throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>();
+            for ( int t = 0; t < 4; t++ )
+            {
+                final int offset = t;
+                futures.add( executor.submit( new Callable<Void>()
+                {
+                    @Override
+                    public Void call()
+                        throws Exception
+                    {
+                        for ( int i = 0; i < 2000; i++ )
+                        {
+                            final Date d = new Date( ( 1400000000L + ( i * 4 + offset ) * 3599L ) * 1000 );
+                            final String tstamp = SnapshotUtils.generateSnapshotTimestamp( d );
+                            assertThat( SnapshotUtils.parseSnapshotTimestamp( tstamp ), equalTo( d ) );
+
+                            final String updated = SnapshotUtils.generateUpdateTimestamp( d );
+                            assertThat( SnapshotUtils.parseUpdateTimestamp( updated ), equalTo( d ) );
+                        }
+
+                        return null;
+                    }
+                } ) );
+            }
+
+            for ( final Future<Void> future : futures )
+            {
+                future.get();
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
 }
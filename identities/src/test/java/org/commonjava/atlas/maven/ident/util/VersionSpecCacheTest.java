@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.util;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.commonjava.atlas.maven.ident.version.InvalidVersionSpecificationException;
+import org.commonjava.atlas.maven.ident.version.RangeVersionSpec;
+import org.commonjava.atlas.maven.ident.version.SingleVersion;
+import org.commonjava.atlas.maven.ident.version.VersionSpec;
+import org.junit.After;
+import org.junit.Test;
+
+public class VersionSpecCacheTest
+{
+
+    @After
+    public void disableCache()
+    {
+        VersionUtils.disableVersionSpecCache();
+    }
+
+    @Test
+    public void repeatedParseReturnsSharedInstance()
+    {
+        final VersionSpecCache cache = VersionUtils.enableVersionSpecCache( 100 );
+
+        final VersionSpec first = VersionUtils.createFromSpec( "1.0.1-redhat-1" );
+        final VersionSpec second = VersionUtils.createFromSpec( "1.0.1-redhat-1" );
+
+        assertThat( second, sameInstance( first ) );
+        assertThat( cache.getHits(), equalTo( 1L ) );
+        assertThat( cache.getMisses(), equalTo( 1L ) );
+        assertThat( cache.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void singleVersionSharesEntryWithSpec()
+    {
+        VersionUtils.enableVersionSpecCache( 100 );
+
+        final SingleVersion single = VersionUtils.createSingleVersion( "2.3-SNAPSHOT" );
+        final VersionSpec spec = VersionUtils.createFromSpec( "2.3-SNAPSHOT" );
+
+        assertThat( spec, sameInstance( (VersionSpec) single ) );
+    }
+
+    @Test
+    public void rangeIsCachedButNotReturnedAsSingle()
+    {
+        final VersionSpecCache cache = VersionUtils.enableVersionSpecCache( 100 );
+
+        final VersionSpec range = VersionUtils.createFromSpec( "[1.0,2.0)" );
+        assertThat( range, instanceOf( RangeVersionSpec.class ) );
+        assertThat( VersionUtils.createFromSpec( "[1.0,2.0)" ), sameInstance( range ) );
+        assertThat( cache.get( "[1.0,2.0)" ), sameInstance( range ) );
+
+        try
+        {
+            final SingleVersion single = VersionUtils.createSingleVersion( "[1.0,2.0)" );
+            fail( "Cached range should not be returned as a single version: " + single );
+        }
+        catch ( final InvalidVersionSpecificationException e )
+        {
+            // expected; the range stays cached for createFromSpec(..) callers.
+        }
+
+        assertThat( cache.get( "[1.0,2.0)" ), sameInstance( range ) );
+        assertThat( cache.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void evictsWhenFull()
+    {
+        final VersionSpecCache cache = new VersionSpecCache( 4 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            final String v = "1." + i;
+            cache.put( v, VersionUtils.createSingleVersion( v ) );
+        }
+
+        assertTrue( cache.size() <= 4 );
+        assertThat( cache.getEvictions(), equalTo( 10L - cache.size() ) );
+        assertThat( cache.get( "1.0" ), nullValue() );
+    }
+
+    @Test
+    public void cachedVersionsCompareLikeFreshOnes()
+    {
+        VersionUtils.enableVersionSpecCache( 100 );
+
+        final SingleVersion cached = VersionUtils.createSingleVersion( "1.2.0" );
+        VersionUtils.disableVersionSpecCache();
+
+        final SingleVersion fresh = VersionUtils.createSingleVersion( "1.2" );
+
+        assertThat( cached.compareTo( fresh ), equalTo( 0 ) );
+        assertThat( cached, equalTo( fresh ) );
+    }
+
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.version;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.commonjava.atlas.maven.ident.version.parse.VersionParser;
+import org.commonjava.atlas.maven.ident.version.part.VersionPhrase;
+import org.junit.Test;
+
+/**
+ * Differential test: every version the scanner accepts must come out exactly as the grammar would build it.
+ */
+public class SingleVersionScannerTest
+{
+
+    private static final String[] CORPUS =
+        { "1", "1.0", "1.0.0", "2.0.12", "1.2.3.4.5", "10.100.1000", "1-SNAPSHOT", "1.0-SNAPSHOT", "1.0-snapshot",
+            "1.0.SNAPSHOT", "1.0_SNAPSHOT", "1.0SNAPSHOT", "1.0-SNAPSHOTS", "1.0-rebuild-SNAPSHOT",
+            "1.0-rebuild-1-SNAPSHOT", "1.0-alpha", "1.0-alpha-1", "1.0-alpha1", "1.0alpha1", "1.0.Final",
+            "1.0.GA", "1.0-GA", "4.1.0.Final-redhat-1", "2.0.12-redhat-1", "1.2.3.redhat-00001", "1_2_3",
+            "1.0_01", "1-m2", "1-m11", "1-alpha2snapshot", "1-beta-2", "1-rc", "1-cr2", "1-sp123", "1-abc",
+            "1-pom-1", "1-1-snapshot", "2.0.0.a", "2.1b", "11m", "11.a11", "abc123a", "r1", "v2.1",
+            "1.0-20140828.225831-1", "1.0-20140828.225831-12", "1.0.0-redhat-20140828.225831-3",
+            "20031129.200437", "20031129.200437j", "20031129.200437-600", "120031129.200437", "20031129.2004370",
+            "1.0-20140828.225831", "1.0-SNAPSHOT-foo", "1.0-0", "0", "0.0.0", "1.0.0.0.0-0", "3.0-beta-3.0.0",
+            "1.0-M1", "1.0.M1", "1.0-RC1-SNAPSHOT", "5.5.0.RELEASE", "1.0-b20120101", "9223372036854775",
+            "99999999999999999999", "1.99999999999999999999.0" };
+
+    private static final String[] UNHANDLED = { "[1.0,2.0)", "(,1.0]", "[1.0]", "1.0,2.0", "1..0", ".1", "1.0-",
+        "1.0.", "1 .0", "1.0+build", "1.0~rc1", "1.0-20140828.225831-9999999999" };
+
+    private static final String[] FRAGMENTS = { "0", "1", "2", "10", "99", "123456", "a", "b", "m", "rc", "cr",
+        "sp", "ga", "Final", "alpha", "beta", "redhat", "SNAPSHOT", "snapshot", "20140828.225831", "20140828.225831-1",
+        "pre", "x" };
+
+    private static final String[] SEPARATORS = { ".", "-", "_", "" };
+
+    @Test
+    public void scannedCorpusMatchesGrammar()
+        throws Exception
+    {
+        final List<SingleVersion> scanned = new ArrayList<SingleVersion>();
+        final List<SingleVersion> parsed = new ArrayList<SingleVersion>();
+        for ( final String version : CORPUS )
+        {
+            final SingleVersion sv = SingleVersionScanner.scan( version );
+            assertThat( "Scanner should handle: " + version, sv, notNullValue() );
+
+            final SingleVersion pv = new VersionParser( version ).single();
+            assertSameStructure( version, sv, pv );
+
+            scanned.add( sv );
+            parsed.add( pv );
+        }
+
+        assertSameOrdering( scanned, parsed );
+    }
+
+    @Test
+    public void unusualVersionsAreLeftToGrammar()
+    {
+        for ( final String version : UNHANDLED )
+        {
+            assertThat( "Scanner should NOT handle: " + version, SingleVersionScanner.scan( version ), nullValue() );
+        }
+    }
+
+    @Test
+    public void generatedVersionsMatchGrammar()
+        throws Exception
+    {
+        final Random rand = new Random( 1234L );
+        final List<SingleVersion> scanned = new ArrayList<SingleVersion>();
+        final List<SingleVersion> parsed = new ArrayList<SingleVersion>();
+
+        for ( int i = 0; i < 5000; i++ )
+        {
+            final StringBuilder sb = new StringBuilder();
+            final int count = 1 + rand.nextInt( 6 );
+            for ( int j = 0; j < count; j++ )
+            {
+                if ( j > 0 )
+                {
+                    sb.append( SEPARATORS[rand.nextInt( SEPARATORS.length )] );
+                }
+                sb.append( FRAGMENTS[rand.nextInt( FRAGMENTS.length )] );
+            }
+
+            final String version = sb.toString();
+
+            SingleVersion sv;
+            try
+            {
+                sv = SingleVersionScanner.scan( version );
+            }
+            catch ( final InvalidVersionSpecificationException e )
+            {
+                try
+                {
+                    new VersionParser( version ).single();
+                    fail( "Scanner rejected: " + version + " but grammar accepted it. Scanner error: " + e.getMessage() );
+                }
+                catch ( final InvalidVersionSpecificationException pe )
+                {
+                    assertThat( pe.getMessage(), equalTo( e.getMessage() ) );
+                }
+                continue;
+            }
+
+            if ( sv == null )
+            {
+                continue;
+            }
+
+            final SingleVersion pv = new VersionParser( version ).single();
+            assertSameStructure( version, sv, pv );
+
+            final VersionSpec fullSpec = new VersionParser( version ).parse();
+            assertThat( version, fullSpec.renderStandard(), equalTo( sv.renderStandard() ) );
+            assertThat( version, fullSpec.equals( sv ), equalTo( true ) );
+
+            if ( scanned.size() < 300 )
+            {
+                scanned.add( sv );
+                parsed.add( pv );
+            }
+        }
+
+        assertSameOrdering( scanned, parsed );
+    }
+
+    private void assertSameStructure( final String version, final SingleVersion scanned, final SingleVersion parsed )
+    {
+        assertThat( version, scanned.renderStandard(), equalTo( parsed.renderStandard() ) );
+        assertThat( version, scanned.toString(), equalTo( parsed.toString() ) );
+
+        final List<VersionPhrase> sp = scanned.getVersionPhrases();
+        final List<VersionPhrase> pp = parsed.getVersionPhrases();
+        assertThat( version, sp.size(), equalTo( pp.size() ) );
+        for ( int i = 0; i < sp.size(); i++ )
+        {
+            final VersionPhrase s = sp.get( i );
+            final VersionPhrase p = pp.get( i );
+            assertThat( version, s.renderDebug(), equalTo( p.renderDebug() ) );
+            assertThat( version, s.getSeparator(), equalTo( p.getSeparator() ) );
+            assertThat( version, s.getMarkerIndex(), equalTo( p.getMarkerIndex() ) );
+            assertThat( version, s.isSilent(), equalTo( p.isSilent() ) );
+            assertThat( version, s.hashCode(), equalTo( p.hashCode() ) );
+        }
+
+        assertThat( version, scanned.isSnapshot(), equalTo( parsed.isSnapshot() ) );
+        assertThat( version, scanned.isLocalSnapshot(), equalTo( parsed.isLocalSnapshot() ) );
+        assertThat( version, scanned.hashCode(), equalTo( parsed.hashCode() ) );
+        assertThat( version, scanned.equals( parsed ), equalTo( true ) );
+        assertThat( version, scanned.compareTo( parsed ), equalTo( 0 ) );
+    }
+
+    private void assertSameOrdering( final List<SingleVersion> scanned, final List<SingleVersion> parsed )
+    {
+        for ( int i = 0; i < scanned.size(); i++ )
+        {
+            for ( int j = 0; j < scanned.size(); j++ )
+            {
+                final int expected = Integer.signum( parsed.get( i ).compareTo( parsed.get( j ) ) );
+                final int actual = Integer.signum( scanned.get( i ).compareTo( scanned.get( j ) ) );
+                if ( expected != actual )
+                {
+                    fail( "Ordering mismatch for: " + scanned.get( i ).renderStandard() + " vs. "
+                        + scanned.get( j ).renderStandard() + ". Expected: " + expected + ", got: " + actual );
+                }
+            }
+        }
+    }
+
+}
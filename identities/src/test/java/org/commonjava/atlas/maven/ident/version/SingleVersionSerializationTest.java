@@ -0,0 +1,164 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.version;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.commonjava.atlas.maven.ident.util.VersionUtils;
+import org.commonjava.atlas.maven.ident.version.part.NumericPart;
+import org.commonjava.atlas.maven.ident.version.part.SnapshotPart;
+import org.commonjava.atlas.maven.ident.version.part.VersionPhrase;
+import org.junit.Test;
+
+public class SingleVersionSerializationTest
+{
+
+    @Test
+    public void keepsOriginalSerialVersionUIDs()
+    {
+        assertThat( ObjectStreamClass.lookup( NumericPart.class )
+                                     .getSerialVersionUID(), equalTo( 1L ) );
+        assertThat( ObjectStreamClass.lookup( VersionPhrase.class )
+                                     .getSerialVersionUID(), equalTo( 1L ) );
+        assertThat( ObjectStreamClass.lookup( SnapshotPart.class )
+                                     .getSerialVersionUID(), equalTo( 1L ) );
+    }
+
+    @Test
+    public void readsVersionsWrittenBeforePrimitiveParts()
+        throws Exception
+    {
+        assertReadsAsParsed( "serialization/SingleVersion-v0.ser", "1.0", "1.2.0-redhat-1", "2.20181012123456",
+                             "3.0.GA" );
+    }
+
+    @Test
+    public void readsSnapshotsWrittenBeforePrimitiveTimestamps()
+        throws Exception
+    {
+        // the fixture holds timestamps parsed in UTC; compare against the same.
+        final TimeZone original = TimeZone.getDefault();
+        TimeZone.setDefault( TimeZone.getTimeZone( "UTC" ) );
+        try
+        {
+            assertReadsAsParsed( "serialization/SingleVersion-snapshot-v0.ser", "1.0-SNAPSHOT",
+                                 "1.0-20181012.123456-3", "2.1-20181012.123456-12" );
+        }
+        finally
+        {
+            TimeZone.setDefault( original );
+        }
+    }
+
+    @Test
+    public void roundTripsVersions()
+        throws Exception
+    {
+        for ( final String v : Arrays.asList( "1.0", "1.2.0-redhat-1", "2.99999999999999999999", "3.0.GA",
+                                              "1.0-SNAPSHOT", "1.0-20181012.123456-3" ) )
+        {
+            final SingleVersion version = VersionUtils.createSingleVersion( v );
+            final SingleVersion result = (SingleVersion) deserialize( serialize( version ) );
+
+            assertThat( result, equalTo( version ) );
+            assertThat( result.hashCode(), equalTo( version.hashCode() ) );
+            assertThat( result.compareTo( version ), equalTo( 0 ) );
+            assertThat( result.renderStandard(), equalTo( version.renderStandard() ) );
+        }
+    }
+
+    private static void assertReadsAsParsed( final String resource, final String... versions )
+        throws Exception
+    {
+        @SuppressWarnings( "unchecked" )
+        final List<SingleVersion> read = (List<SingleVersion>) deserialize( resourceBytes( resource ) );
+
+        assertThat( read.size(), equalTo( versions.length ) );
+        for ( int i = 0; i < versions.length; i++ )
+        {
+            final SingleVersion expected = VersionUtils.createSingleVersion( versions[i] );
+            final SingleVersion actual = read.get( i );
+
+            assertThat( actual, equalTo( expected ) );
+            assertThat( actual.hashCode(), equalTo( expected.hashCode() ) );
+            assertThat( actual.compareTo( expected ), equalTo( 0 ) );
+            assertThat( actual.renderStandard(), equalTo( expected.renderStandard() ) );
+            assertThat( actual.isSnapshot(), equalTo( expected.isSnapshot() ) );
+        }
+    }
+
+    private static byte[] serialize( final Object value )
+        throws IOException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream( baos );
+        out.writeObject( value );
+        out.close();
+
+        return baos.toByteArray();
+    }
+
+    private static Object deserialize( final byte[] bytes )
+        throws Exception
+    {
+        final ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes ) );
+        try
+        {
+            return in.readObject();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static byte[] resourceBytes( final String path )
+        throws IOException
+    {
+        final InputStream in = Thread.currentThread()
+                                     .getContextClassLoader()
+                                     .getResourceAsStream( path );
+        try
+        {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int read;
+            while ( ( read = in.read( buf ) ) > -1 )
+            {
+                baos.write( buf, 0, read );
+            }
+
+            return baos.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.ident.version;
+
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.commonjava.atlas.maven.ident.util.VersionUtils;
+import org.junit.Test;
+
+/**
+ * Checks that the binary sort key orders versions exactly the way {@link VersionSpecComparisons} does.
+ */
+public class SingleVersionSortKeyTest
+{
+
+    private static final String[] CORPUS =
+        { "1-m2", "1-m11", "1-alpha2snapshot", "1-alpha2", "1-alpha-123", "1-beta-2", "1-beta123", "1-rc", "1-cr2",
+            "1-rc123", "1-SNAPSHOT", "1", "1-sp", "1-sp2", "1-sp123", "1-abc", "1-def", "1-pom-1", "1-1-snapshot",
+            "1-1", "1-2", "1-123", "2.0.0.a", "2.0", "2-1", "2.0.2", "2.0.123", "2.1-a", "2.1b", "2.1.0", "2.1-c",
+            "2.1-1", "2.1.0.1", "2.2", "2.123", "11m", "11.m2", "11.m11", "11.a", "11.a2", "11.a11", "11b",
+            "11.b2", "11.b11", "11", "11c", "1.0", "1.0.0", "1.0.0.0", "1.0-0", "1.0.GA", "1.0-GA", "1.0.Final",
+            "1.0-final", "1.0-GA-1", "1.0.GA-alpha", "1.0-SNAPSHOT", "1.0.0-SNAPSHOT", "1.0.SNAPSHOT",
+            "1.0SNAPSHOT", "1.0-20140828.225831-1", "1.0-20140828.225831-2", "1.0-20140829.000001-1",
+            "1.0-20140828.225831-10", "1.0.0-20140828.225831-1", "1.0-alpha-SNAPSHOT", "1.0-alpha-1-SNAPSHOT",
+            "1.0-redhat-1", "1.0-redhat-2", "1.0.0.redhat-1", "1.0-Redhat-1", "1.0-sp1-SNAPSHOT", "0", "0.0",
+            "0.1", "0-SNAPSHOT", "0.0.1-SNAPSHOT", "20031129.200437", "10.0", "9.9.9", "1.0-rc1-SNAPSHOT",
+            "1.0-rc1", "1.0-RC1", "1.0.M1", "1.0-M1", "1.0.0.M1", "1.0-pre", "1.0-preview", "1.0-cp1", "abc",
+            "ABC", "abd", "1.0-xyz", "1.0-xyz-SNAPSHOT", "1.0-0-SNAPSHOT", "1.0-1-SNAPSHOT",
+            "99999999999999999", "1.99999999999999999" };
+
+    private static final String[] FRAGMENTS = { "0", "1", "2", "10", "a", "b", "m", "rc", "sp", "GA", "Final",
+        "alpha", "beta", "redhat", "foo", "Foo" };
+
+    private static final String[] SEPARATORS = { ".", "-", "_", "" };
+
+    private static final String[] SUFFIXES = { "", "", "-SNAPSHOT", ".SNAPSHOT", "-20140828.225831-1",
+        "-20140828.225831-3", "-20150101.000000-1" };
+
+    @Test
+    public void corpusOrderMatchesComparisons()
+    {
+        checkPairs( parseAll( CORPUS ) );
+    }
+
+    @Test
+    public void generatedOrderMatchesComparisons()
+    {
+        final Random rand = new Random( 4321L );
+        final List<String> versions = new ArrayList<String>();
+        for ( int i = 0; i < 600; i++ )
+        {
+            final StringBuilder sb = new StringBuilder();
+            final int count = 1 + rand.nextInt( 5 );
+            for ( int j = 0; j < count; j++ )
+            {
+                if ( j > 0 )
+                {
+                    sb.append( SEPARATORS[rand.nextInt( SEPARATORS.length )] );
+                }
+                sb.append( FRAGMENTS[rand.nextInt( FRAGMENTS.length )] );
+            }
+            sb.append( SUFFIXES[rand.nextInt( SUFFIXES.length )] );
+
+            versions.add( sb.toString() );
+        }
+
+        checkPairs( parseAll( versions.toArray( new String[versions.size()] ) ) );
+    }
+
+    @Test
+    public void sortedListsAgree()
+    {
+        final List<SingleVersion> expected = parseAll( CORPUS );
+        final List<SingleVersion> actual = new ArrayList<SingleVersion>( expected );
+        Collections.shuffle( actual, new Random( 99L ) );
+
+        Collections.sort( expected, VersionSpecComparisons.comparator() );
+        Collections.sort( actual, VersionSpecComparisons.sortKeyComparator() );
+
+        final Comparator<VersionSpec> comp = VersionSpecComparisons.comparator();
+        for ( int i = 0; i < expected.size(); i++ )
+        {
+            if ( comp.compare( expected.get( i ), actual.get( i ) ) != 0 )
+            {
+                fail( "Sort mismatch at: " + i + ". Expected: " + expected.get( i ).renderStandard() + ", got: "
+                    + actual.get( i ).renderStandard() );
+            }
+        }
+    }
+
+    private List<SingleVersion> parseAll( final String[] versions )
+    {
+        final List<SingleVersion> result = new ArrayList<SingleVersion>( versions.length );
+        for ( final String v : versions )
+        {
+            result.add( VersionUtils.createSingleVersion( v ) );
+        }
+
+        return result;
+    }
+
+    private void checkPairs( final List<SingleVersion> versions )
+    {
+        final Comparator<VersionSpec> expected = VersionSpecComparisons.comparator();
+        final Comparator<SingleVersion> actual = VersionSpecComparisons.sortKeyComparator();
+
+        final List<String> failures = new ArrayList<String>();
+        for ( final SingleVersion first : versions )
+        {
+            for ( final SingleVersion second : versions )
+            {
+                final int e = Integer.signum( expected.compare( first, second ) );
+                final int a = Integer.signum( actual.compare( first, second ) );
+                if ( e != a )
+                {
+                    failures.add( first.renderStandard() + " vs. " + second.renderStandard() + ": expected " + e
+                        + ", got " + a );
+                }
+            }
+        }
+
+        if ( !failures.isEmpty() )
+        {
+            fail( failures.size() + " comparisons differ:\n  "
+                + failures.subList( 0, Math.min( 20, failures.size() ) ) );
+        }
+    }
+
+}
@@ -16,8 +16,16 @@
 package org.commonjava.atlas.maven.ident.version.part;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.junit.Assert.assertThat;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigInteger;
+
 import org.commonjava.atlas.maven.ident.version.InvalidVersionSpecificationException;
 import org.commonjava.atlas.maven.ident.version.part.NumericPart;
 import org.junit.Test;
@@ -32,4 +40,58 @@ public class NumericPartTest
         assertThat( new NumericPart( "20050331" ), equalTo( new NumericPart( "20050331" ) ) );
     }
 
+    @Test
+    public void smallValuesAreShared()
+    {
+        assertThat( NumericPart.valueOf( "0" ), sameInstance( NumericPart.ZERO ) );
+        assertThat( NumericPart.valueOf( "007" ), sameInstance( NumericPart.valueOf( 7 ) ) );
+        assertThat( NumericPart.valueOf( 255 ), sameInstance( NumericPart.valueOf( "255" ) ) );
+        assertThat( NumericPart.valueOf( 256 ), not( sameInstance( NumericPart.valueOf( 256 ) ) ) );
+        assertThat( NumericPart.valueOf( 256 ), equalTo( NumericPart.valueOf( "256" ) ) );
+    }
+
+    @Test
+    public void valuesBeyondLongRangeCompareAndRender()
+    {
+        final String huge = "99999999999999999999";
+        final NumericPart big = new NumericPart( huge );
+        assertThat( big.fitsInLong(), equalTo( false ) );
+        assertThat( big.renderStandard(), equalTo( huge ) );
+        assertThat( big.getValue(), equalTo( new BigInteger( huge ) ) );
+        assertThat( big, equalTo( NumericPart.valueOf( huge ) ) );
+        assertThat( big.hashCode(), equalTo( NumericPart.valueOf( huge ).hashCode() ) );
+
+        final NumericPart max = new NumericPart( Long.MAX_VALUE );
+        assertThat( max.compareTo( big ), equalTo( -1 ) );
+        assertThat( big.compareTo( max ), equalTo( 1 ) );
+        assertThat( big.compareTo( new NumericPart( "100000000000000000000" ) ), equalTo( -1 ) );
+        assertThat( big.equals( max ), equalTo( false ) );
+    }
+
+    @Test
+    public void longValuesMatchBigIntegerSemantics()
+    {
+        final NumericPart part = new NumericPart( "20050331" );
+        assertThat( part.fitsInLong(), equalTo( true ) );
+        assertThat( part.longValue(), equalTo( 20050331L ) );
+        assertThat( part.getValue(), equalTo( BigInteger.valueOf( 20050331L ) ) );
+        assertThat( part.renderStandard(), equalTo( "20050331" ) );
+        assertThat( new NumericPart( "0010" ).renderStandard(), equalTo( "10" ) );
+        assertThat( part.compareTo( new NumericPart( 20050330 ) ), equalTo( 1 ) );
+        assertThat( NumericPart.ZERO.isZero(), equalTo( true ) );
+    }
+
+    @Test
+    public void deserializedSmallValuesAreCanonical()
+        throws Exception
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream( baos );
+        oos.writeObject( NumericPart.valueOf( 3 ) );
+        oos.close();
+
+        final ObjectInputStream ois = new ObjectInputStream( new ByteArrayInputStream( baos.toByteArray() ) );
+        assertThat( ois.readObject(), sameInstance( (Object) NumericPart.valueOf( 3 ) ) );
+    }
+
 }
@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.commonjava.atlas.maven.graph.model.EProjectCycle;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Result of a {@link BuildOrderScheduler} run: the projects of a {@link RelationshipGraph} in waves, where every
+ * project's dependencies are in earlier waves, so each wave can build concurrently once the previous ones are done.
+ * Also carries the relationships that were ignored to break cycles, and the critical path (the chain of dependent
+ * projects with the highest total cost, which bounds the build time however many builds run in parallel).
+ */
+public final class BuildOrder
+{
+
+    private final RelationshipGraph graph;
+
+    private final int[] waves;
+
+    private final int[] waveOffsets;
+
+    private final int[] waveMembers;
+
+    private final long[] finish;
+
+    private final int[] criticalPath;
+
+    private final int[] brokenEdges;
+
+    private final List<EProjectCycle> brokenCycles;
+
+    BuildOrder( final RelationshipGraph graph, final int[] waves, final int[] waveOffsets, final int[] waveMembers,
+                final long[] finish, final int[] criticalPath, final int[] brokenEdges,
+                final List<EProjectCycle> brokenCycles )
+    {
+        this.graph = graph;
+        this.waves = waves;
+        this.waveOffsets = waveOffsets;
+        this.waveMembers = waveMembers;
+        this.finish = finish;
+        this.criticalPath = criticalPath;
+        this.brokenEdges = brokenEdges;
+        this.brokenCycles = Collections.unmodifiableList( brokenCycles );
+    }
+
+    public int getWaveCount()
+    {
+        return waveOffsets.length - 1;
+    }
+
+    /**
+     * @return the projects in the given wave, in ascending node id order
+     */
+    public List<ProjectVersionRef> getWave( final int wave )
+    {
+        final int start = waveOffsets[wave];
+        final int size = waveOffsets[wave + 1] - start;
+        return new AbstractList<ProjectVersionRef>()
+        {
+            @Override
+            public ProjectVersionRef get( final int index )
+            {
+                if ( index < 0 || index >= size )
+                {
+                    throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + size );
+                }
+
+                return graph.getNode( waveMembers[start + index] );
+            }
+
+            @Override
+            public int size()
+            {
+                return size;
+            }
+        };
+    }
+
+    public List<List<ProjectVersionRef>> getWaves()
+    {
+        final List<List<ProjectVersionRef>> result = new ArrayList<List<ProjectVersionRef>>( getWaveCount() );
+        for ( int wave = 0; wave < getWaveCount(); wave++ )
+        {
+            result.add( getWave( wave ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the wave the project builds in, or -1 if it isn't part of the graph
+     */
+    public int getWaveOf( final ProjectVersionRef ref )
+    {
+        final int node = graph.getNodeId( ref );
+        return node < 0 ? -1 : waves[node];
+    }
+
+    /**
+     * @return the earliest time the project can finish building, counting its own cost and that of its slowest chain
+     *         of dependencies; -1 if it isn't part of the graph
+     */
+    public long getEarliestFinish( final ProjectVersionRef ref )
+    {
+        final int node = graph.getNodeId( ref );
+        return node < 0 ? -1 : finish[node];
+    }
+
+    /**
+     * @return the most expensive chain of dependent projects, dependencies first
+     */
+    public List<ProjectVersionRef> getCriticalPath()
+    {
+        final List<ProjectVersionRef> result = new ArrayList<ProjectVersionRef>( criticalPath.length );
+        for ( final int node : criticalPath )
+        {
+            result.add( graph.getNode( node ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the total cost of the {@link #getCriticalPath() critical path}: the shortest possible build time
+     */
+    public long getCriticalPathCost()
+    {
+        return criticalPath.length == 0 ? 0 : finish[criticalPath[criticalPath.length - 1]];
+    }
+
+    /**
+     * @return the ids of the edges that were ignored to break cycles
+     */
+    public int[] getBrokenEdges()
+    {
+        return brokenEdges.clone();
+    }
+
+    /**
+     * @return the relationships that were ignored to break cycles; empty if the graph didn't retain its relationships
+     */
+    public List<ProjectRelationship<?, ?>> getBrokenRelationships()
+    {
+        if ( !graph.hasRelationships() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>( brokenEdges.length );
+        for ( final int edge : brokenEdges )
+        {
+            result.add( graph.getRelationship( edge ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return for each broken relationship, a cycle it closed; empty if the graph didn't retain its relationships
+     */
+    public List<EProjectCycle> getBrokenCycles()
+    {
+        return brokenCycles;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "BuildOrder [projects=%d, waves=%d, broken=%d, critical path=%d (cost %d)]",
+                              waves.length, getWaveCount(), brokenEdges.length, criticalPath.length,
+                              getCriticalPathCost() );
+    }
+
+}
@@ -0,0 +1,534 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.commonjava.atlas.maven.graph.model.EProjectCycle;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Computes a {@link BuildOrder} for a {@link RelationshipGraph}, where each relationship means its declaring project
+ * has to build after its target.
+ * <p>
+ * Cycles are broken first. The graph is split into strongly connected components, and each cyclic component is
+ * walked depth-first, starting from its lowest project (by {@link ProjectVersionRef#compareTo(ProjectVersionRef)})
+ * and visiting targets in the same order; every edge back into the current walk is ignored, and reported with the
+ * {@link EProjectCycle} it closed. Because the walk follows project order rather than node ids, the same
+ * relationships are broken however the input was ordered. Components are independent, so they can be broken
+ * concurrently on an {@link ExecutorService}.
+ * <p>
+ * The remaining edges are then layered in one pass (Kahn's algorithm): a project goes into the wave after its last
+ * dependency's, and its earliest finish is its own cost plus the latest finish among its dependencies. Apart from
+ * sorting the members of cyclic components, the whole run is O(V+E).
+ */
+public final class BuildOrderScheduler
+{
+
+    private static final int ALL_TYPES = EdgeAttributes.typeMask( RelationshipType.values() );
+
+    private final RelationshipGraph graph;
+
+    private int typeMask = ALL_TYPES;
+
+    private Map<ProjectVersionRef, ? extends Number> costs = Collections.emptyMap();
+
+    private long defaultCost = 1;
+
+    public BuildOrderScheduler( final RelationshipGraph graph )
+    {
+        this.graph = graph;
+    }
+
+    public BuildOrderScheduler( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+    {
+        this( new RelationshipGraph.Builder().retainRelationships().withRelationships( relationships ).build() );
+    }
+
+    /**
+     * Only order by relationships of the given types (for instance, leave out {@link RelationshipType#PLUGIN}).
+     */
+    public BuildOrderScheduler withTypes( final RelationshipType... types )
+    {
+        typeMask = EdgeAttributes.typeMask( types );
+        return this;
+    }
+
+    /**
+     * @param costs build cost per project, in any unit (seconds, historical build times...); projects not in the map
+     *            use the {@link #withDefaultCost(long) default cost}
+     */
+    public BuildOrderScheduler withCosts( final Map<ProjectVersionRef, ? extends Number> costs )
+    {
+        this.costs = costs == null ? Collections.<ProjectVersionRef, Number> emptyMap() : costs;
+        return this;
+    }
+
+    /**
+     * @param cost build cost of projects without an explicit one; 1 unless set, so the critical path is the longest
+     *            chain of projects
+     */
+    public BuildOrderScheduler withDefaultCost( final long cost )
+    {
+        if ( cost < 0 )
+        {
+            throw new IllegalArgumentException( "Build cost cannot be negative: " + cost );
+        }
+
+        defaultCost = cost;
+        return this;
+    }
+
+    public BuildOrder schedule()
+    {
+        final Scheduling scheduling = new Scheduling();
+        final List<Cut> cuts = new ArrayList<Cut>( scheduling.cyclic.length );
+        for ( final int component : scheduling.cyclic )
+        {
+            cuts.add( scheduling.breakCycles( component ) );
+        }
+
+        return scheduling.layer( cuts );
+    }
+
+    /**
+     * Same as {@link #schedule()}, but breaks the cycles of different components concurrently on the given executor.
+     */
+    public BuildOrder schedule( final ExecutorService executor )
+        throws InterruptedException
+    {
+        final Scheduling scheduling = new Scheduling();
+        final List<Future<Cut>> futures = new ArrayList<Future<Cut>>( scheduling.cyclic.length );
+        for ( final int component : scheduling.cyclic )
+        {
+            futures.add( executor.submit( new Callable<Cut>()
+            {
+                @Override
+                public Cut call()
+                {
+                    return scheduling.breakCycles( component );
+                }
+            } ) );
+        }
+
+        final List<Cut> cuts = new ArrayList<Cut>( futures.size() );
+        try
+        {
+            for ( final Future<Cut> future : futures )
+            {
+                cuts.add( future.get() );
+            }
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException( "Cycle breaking failed: " + cause.getMessage(), cause );
+        }
+        finally
+        {
+            for ( final Future<Cut> future : futures )
+            {
+                future.cancel( true );
+            }
+        }
+
+        return scheduling.layer( cuts );
+    }
+
+    /**
+     * Edges ignored within one component, with the cycles they closed.
+     */
+    private static final class Cut
+    {
+        private final int[] edges;
+
+        private final List<EProjectCycle> cycles;
+
+        Cut( final int[] edges, final List<EProjectCycle> cycles )
+        {
+            this.edges = edges;
+            this.cycles = cycles;
+        }
+    }
+
+    /**
+     * State of one scheduling run. The per-node arrays are shared by the component tasks, which only touch the
+     * entries of their own members.
+     */
+    private final class Scheduling
+    {
+        private final int typeMask;
+
+        private final StronglyConnectedComponents components;
+
+        private final int[] cyclic;
+
+        // node -> position within its component, in project order.
+        private final int[] rank;
+
+        Scheduling()
+        {
+            typeMask = BuildOrderScheduler.this.typeMask;
+            components = new StronglyConnectedComponents( graph, typeMask );
+
+            int count = 0;
+            final int[] ids = new int[components.getComponentCount()];
+            for ( int c = 0; c < ids.length; c++ )
+            {
+                if ( components.isCyclic( c ) )
+                {
+                    ids[count++] = c;
+                }
+            }
+            cyclic = Arrays.copyOf( ids, count );
+            rank = new int[graph.getNodeCount()];
+        }
+
+        Cut breakCycles( final int component )
+        {
+            final int[] members = sortedMembers( component );
+            final int size = members.length;
+            for ( int i = 0; i < size; i++ )
+            {
+                rank[members[i]] = i;
+            }
+
+            // internal out-edges per member, ordered by target rank (then edge id), as (rank << 32 | edge) keys.
+            final int[] offsets = new int[size + 1];
+            long[] keys = new long[size * 2];
+            int count = 0;
+            for ( int i = 0; i < size; i++ )
+            {
+                final int node = members[i];
+                for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+                {
+                    final int target = graph.getTarget( e );
+                    if ( EdgeAttributes.hasType( graph.getAttributes( e ), typeMask )
+                        && components.getComponent( target ) == component )
+                    {
+                        if ( count == keys.length )
+                        {
+                            keys = Arrays.copyOf( keys, count * 2 );
+                        }
+                        keys[count++] = ( (long) rank[target] << 32 ) | e;
+                    }
+                }
+
+                offsets[i + 1] = count;
+                Arrays.sort( keys, offsets[i], count );
+            }
+
+            final boolean retained = graph.hasRelationships();
+            final List<EProjectCycle> cycles = new ArrayList<EProjectCycle>();
+            int[] broken = new int[4];
+            int brokenCount = 0;
+
+            // 0: unvisited, 1: on the current path, 2: done
+            final byte[] state = new byte[size];
+            final int[] parentEdge = new int[size];
+            final int[] cursor = new int[size];
+            final int[] stack = new int[size];
+
+            for ( int root = 0; root < size; root++ )
+            {
+                if ( state[root] != 0 )
+                {
+                    continue;
+                }
+
+                int sp = 0;
+                stack[sp++] = root;
+                state[root] = 1;
+                cursor[root] = offsets[root];
+                parentEdge[root] = -1;
+
+                while ( sp > 0 )
+                {
+                    final int top = stack[sp - 1];
+                    if ( cursor[top] < offsets[top + 1] )
+                    {
+                        final long key = keys[cursor[top]++];
+                        final int next = (int) ( key >>> 32 );
+                        final int edge = (int) key;
+                        if ( state[next] == 0 )
+                        {
+                            state[next] = 1;
+                            cursor[next] = offsets[next];
+                            parentEdge[next] = edge;
+                            stack[sp++] = next;
+                        }
+                        else if ( state[next] == 1 )
+                        {
+                            if ( brokenCount == broken.length )
+                            {
+                                broken = Arrays.copyOf( broken, brokenCount * 2 );
+                            }
+                            broken[brokenCount++] = edge;
+
+                            if ( retained )
+                            {
+                                cycles.add( closedCycle( parentEdge, top, next, edge ) );
+                            }
+                        }
+                    }
+                    else
+                    {
+                        state[top] = 2;
+                        sp--;
+                    }
+                }
+            }
+
+            return new Cut( Arrays.copyOf( broken, brokenCount ), cycles );
+        }
+
+        private int[] sortedMembers( final int component )
+        {
+            final int[] ids = components.getMembers( component );
+            final Integer[] boxed = new Integer[ids.length];
+            for ( int i = 0; i < ids.length; i++ )
+            {
+                boxed[i] = ids[i];
+            }
+
+            Arrays.sort( boxed, new Comparator<Integer>()
+            {
+                @Override
+                public int compare( final Integer first, final Integer second )
+                {
+                    final int result = graph.getNode( first ).compareTo( graph.getNode( second ) );
+                    return result == 0 ? first.compareTo( second ) : result;
+                }
+            } );
+
+            for ( int i = 0; i < ids.length; i++ )
+            {
+                ids[i] = boxed[i];
+            }
+
+            return ids;
+        }
+
+        /**
+         * The walk from 'start' down to 'end', closed by the back edge from 'end' to 'start'.
+         */
+        private EProjectCycle closedCycle( final int[] parentEdge, final int end, final int start,
+                                           final int backEdge )
+        {
+            final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+            rels.add( graph.getRelationship( backEdge ) );
+            for ( int local = end; local != start; local = rank[graph.getSource( parentEdge[local] )] )
+            {
+                rels.add( graph.getRelationship( parentEdge[local] ) );
+            }
+
+            Collections.reverse( rels );
+            return new EProjectCycle( rels );
+        }
+
+        BuildOrder layer( final List<Cut> cuts )
+        {
+            final int nodeCount = graph.getNodeCount();
+            final boolean[] ignored = new boolean[graph.getEdgeCount()];
+            int brokenCount = 0;
+            final List<EProjectCycle> brokenCycles = new ArrayList<EProjectCycle>();
+            for ( final Cut cut : cuts )
+            {
+                for ( final int edge : cut.edges )
+                {
+                    ignored[edge] = true;
+                }
+                brokenCount += cut.edges.length;
+                brokenCycles.addAll( cut.cycles );
+            }
+
+            final int[] brokenEdges = new int[brokenCount];
+            int b = 0;
+            for ( final Cut cut : cuts )
+            {
+                System.arraycopy( cut.edges, 0, brokenEdges, b, cut.edges.length );
+                b += cut.edges.length;
+            }
+
+            for ( int e = 0; e < ignored.length; e++ )
+            {
+                if ( !EdgeAttributes.hasType( graph.getAttributes( e ), typeMask ) )
+                {
+                    ignored[e] = true;
+                }
+            }
+
+            final long[] cost = new long[nodeCount];
+            final int[] pending = new int[nodeCount];
+            for ( int node = 0; node < nodeCount; node++ )
+            {
+                cost[node] = costOf( graph.getNode( node ) );
+                for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+                {
+                    if ( !ignored[e] )
+                    {
+                        pending[node]++;
+                    }
+                }
+            }
+
+            // projects join 'ready' as their last dependency is placed, so each wave is a contiguous run of it.
+            final int[] ready = new int[nodeCount];
+            final int[] waves = new int[nodeCount];
+            final long[] start = new long[nodeCount];
+            final long[] finish = new long[nodeCount];
+            final int[] slowest = new int[nodeCount];
+            Arrays.fill( slowest, -1 );
+
+            int tail = 0;
+            for ( int node = 0; node < nodeCount; node++ )
+            {
+                if ( pending[node] == 0 )
+                {
+                    ready[tail++] = node;
+                }
+            }
+
+            int head = 0;
+            int waveCount = 0;
+            while ( head < tail )
+            {
+                final int waveEnd = tail;
+                for ( ; head < waveEnd; head++ )
+                {
+                    final int node = ready[head];
+                    waves[node] = waveCount;
+                    finish[node] = start[node] + cost[node];
+
+                    for ( int pos = graph.getInStart( node ); pos < graph.getInEnd( node ); pos++ )
+                    {
+                        final int edge = graph.getInEdge( pos );
+                        if ( ignored[edge] )
+                        {
+                            continue;
+                        }
+
+                        final int dependent = graph.getSource( edge );
+                        if ( slowest[dependent] < 0 || finish[node] > start[dependent] )
+                        {
+                            start[dependent] = finish[node];
+                            slowest[dependent] = node;
+                        }
+
+                        if ( --pending[dependent] == 0 )
+                        {
+                            ready[tail++] = dependent;
+                        }
+                    }
+                }
+
+                waveCount++;
+            }
+
+            if ( tail != nodeCount )
+            {
+                throw new IllegalStateException( "Cycle breaking left " + ( nodeCount - tail )
+                    + " projects unscheduled." );
+            }
+
+            // regroup by wave, in node id order.
+            final int[] offsets = new int[waveCount + 1];
+            for ( int node = 0; node < nodeCount; node++ )
+            {
+                offsets[waves[node] + 1]++;
+            }
+            for ( int w = 0; w < waveCount; w++ )
+            {
+                offsets[w + 1] += offsets[w];
+            }
+
+            final int[] members = new int[nodeCount];
+            final int[] fill = Arrays.copyOf( offsets, waveCount );
+            for ( int node = 0; node < nodeCount; node++ )
+            {
+                members[fill[waves[node]]++] = node;
+            }
+
+            return new BuildOrder( graph, waves, offsets, members, finish, criticalPath( finish, slowest ),
+                                   brokenEdges, brokenCycles );
+        }
+
+        private long costOf( final ProjectVersionRef ref )
+        {
+            final Number value = costs.get( ref );
+            if ( value == null )
+            {
+                return defaultCost;
+            }
+
+            final long cost = value.longValue();
+            if ( cost < 0 )
+            {
+                throw new IllegalArgumentException( "Build cost of " + ref + " cannot be negative: " + cost );
+            }
+
+            return cost;
+        }
+
+        private int[] criticalPath( final long[] finish, final int[] slowest )
+        {
+            int last = -1;
+            for ( int node = 0; node < finish.length; node++ )
+            {
+                if ( last < 0 || finish[node] > finish[last] )
+                {
+                    last = node;
+                }
+            }
+
+            int length = 0;
+            for ( int node = last; node >= 0; node = slowest[node] )
+            {
+                length++;
+            }
+
+            final int[] path = new int[length];
+            for ( int node = last; node >= 0; node = slowest[node] )
+            {
+                path[--length] = node;
+            }
+
+            return path;
+        }
+    }
+
+}
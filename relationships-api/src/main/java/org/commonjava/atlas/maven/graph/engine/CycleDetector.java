@@ -0,0 +1,459 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.commonjava.atlas.maven.graph.model.EProjectCycle;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+
+/**
+ * Finds cycles without enumerating paths. Strongly connected components are found in linear time
+ * ({@link StronglyConnectedComponents}); only components that actually contain a cycle are then searched for their
+ * elementary cycles, using Johnson's algorithm, which costs O(V+E) per cycle found. Components are independent, so
+ * that search can be spread over an {@link ExecutorService}.
+ * <p>
+ * Each elementary cycle is reported once, as an {@link EProjectCycle} (in that class's canonical rotation). Where one
+ * project has several qualifying relationships to the next (say, a dependency and a plugin), the first one declared
+ * is used. Enumeration stops at {@link #withMaxCyclesPerComponent(int) a per-component limit}; components over the
+ * limit are reported with their membership and the cycles found so far, and {@link CyclicComponent#isComplete()}
+ * returns false.
+ */
+public final class CycleDetector
+{
+
+    public static final int DEFAULT_MAX_CYCLES_PER_COMPONENT = 10000;
+
+    private static final int ALL_TYPES = EdgeAttributes.typeMask( RelationshipType.values() );
+
+    private final RelationshipGraph graph;
+
+    private int typeMask = ALL_TYPES;
+
+    private int maxCycles = DEFAULT_MAX_CYCLES_PER_COMPONENT;
+
+    public CycleDetector( final RelationshipGraph graph )
+    {
+        this.graph = graph;
+    }
+
+    public CycleDetector( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+    {
+        this( new RelationshipGraph.Builder().retainRelationships().withRelationships( relationships ).build() );
+    }
+
+    /**
+     * Only follow relationships of the given types (for instance, leave out {@link RelationshipType#PLUGIN}).
+     */
+    public CycleDetector withTypes( final RelationshipType... types )
+    {
+        typeMask = EdgeAttributes.typeMask( types );
+        return this;
+    }
+
+    /**
+     * @param max cycles to enumerate per component before giving up on it; 0 reports membership only
+     */
+    public CycleDetector withMaxCyclesPerComponent( final int max )
+    {
+        if ( max < 0 )
+        {
+            throw new IllegalArgumentException( "Cycle limit cannot be negative: " + max );
+        }
+
+        maxCycles = max;
+        return this;
+    }
+
+    public StronglyConnectedComponents findComponents()
+    {
+        return new StronglyConnectedComponents( graph, typeMask );
+    }
+
+    /**
+     * @return the components that contain cycles, in {@link StronglyConnectedComponents} (reverse topological) order
+     */
+    public List<CyclicComponent> detect()
+    {
+        final Detection detection = new Detection();
+        final List<CyclicComponent> result = new ArrayList<CyclicComponent>( detection.cyclic.length );
+        for ( final int component : detection.cyclic )
+        {
+            result.add( detection.enumerate( component ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * Same as {@link #detect()}, but searches the components concurrently on the given executor.
+     */
+    public List<CyclicComponent> detect( final ExecutorService executor )
+        throws InterruptedException
+    {
+        final Detection detection = new Detection();
+        final List<Future<CyclicComponent>> futures = new ArrayList<Future<CyclicComponent>>( detection.cyclic.length );
+        for ( final int component : detection.cyclic )
+        {
+            futures.add( executor.submit( new Callable<CyclicComponent>()
+            {
+                @Override
+                public CyclicComponent call()
+                {
+                    return detection.enumerate( component );
+                }
+            } ) );
+        }
+
+        final List<CyclicComponent> result = new ArrayList<CyclicComponent>( futures.size() );
+        try
+        {
+            for ( final Future<CyclicComponent> future : futures )
+            {
+                result.add( future.get() );
+            }
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException( "Cycle search failed: " + cause.getMessage(), cause );
+        }
+        finally
+        {
+            for ( final Future<CyclicComponent> future : futures )
+            {
+                future.cancel( true );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return all cycles of all components, as returned by {@link #detect()}
+     */
+    public List<EProjectCycle> findCycles()
+    {
+        final List<EProjectCycle> cycles = new ArrayList<EProjectCycle>();
+        for ( final CyclicComponent component : detect() )
+        {
+            cycles.addAll( component.getCycles() );
+        }
+
+        return cycles;
+    }
+
+    /**
+     * State shared (read-only) by the per-component searches of one detection run.
+     */
+    private final class Detection
+    {
+        private final StronglyConnectedComponents components;
+
+        private final int[] cyclic;
+
+        // node -> position within its own component; components are disjoint, so one array serves them all.
+        private final int[] localIndex;
+
+        private final int typeMask;
+
+        private final int maxCycles;
+
+        Detection()
+        {
+            typeMask = CycleDetector.this.typeMask;
+            maxCycles = CycleDetector.this.maxCycles;
+            if ( maxCycles > 0 && !graph.hasRelationships() )
+            {
+                throw new IllegalStateException( "Enumerating cycles needs a graph built with retained relationships. "
+                    + "Use RelationshipGraph.Builder.retainRelationships(), or withMaxCyclesPerComponent( 0 )." );
+            }
+
+            components = new StronglyConnectedComponents( graph, typeMask );
+
+            int count = 0;
+            final int[] ids = new int[components.getComponentCount()];
+            for ( int c = 0; c < ids.length; c++ )
+            {
+                if ( components.isCyclic( c ) )
+                {
+                    ids[count++] = c;
+                }
+            }
+            cyclic = Arrays.copyOf( ids, count );
+
+            localIndex = new int[graph.getNodeCount()];
+            for ( final int c : cyclic )
+            {
+                final int[] members = components.getMembers( c );
+                for ( int i = 0; i < members.length; i++ )
+                {
+                    localIndex[members[i]] = i;
+                }
+            }
+        }
+
+        CyclicComponent enumerate( final int component )
+        {
+            final int[] members = components.getMembers( component );
+            if ( maxCycles == 0 )
+            {
+                return new CyclicComponent( graph, members, Collections.<EProjectCycle> emptyList(), false );
+            }
+
+            return new ElementaryCycles( members, component ).search();
+        }
+
+        /**
+         * Johnson's algorithm over one component, with both recursions (circuit and unblock) made iterative.
+         */
+        private final class ElementaryCycles
+        {
+            private final int[] members;
+
+            private final int size;
+
+            // distinct successors within the component, with the first qualifying edge to each.
+            private final int[] adjOffsets;
+
+            private int[] adj;
+
+            private int[] adjEdges;
+
+            private final boolean[] blocked;
+
+            private final int[][] blockedBy;
+
+            private final int[] blockedBySize;
+
+            private final List<EProjectCycle> cycles = new ArrayList<EProjectCycle>();
+
+            ElementaryCycles( final int[] members, final int component )
+            {
+                this.members = members;
+                size = members.length;
+
+                adjOffsets = new int[size + 1];
+                adj = new int[size * 2];
+                adjEdges = new int[size * 2];
+                final int[] seen = new int[size];
+                int count = 0;
+                for ( int i = 0; i < size; i++ )
+                {
+                    adjOffsets[i] = count;
+                    final int v = members[i];
+                    for ( int e = graph.getOutStart( v ); e < graph.getOutEnd( v ); e++ )
+                    {
+                        final int t = graph.getTarget( e );
+                        if ( components.getComponent( t ) != component
+                            || !EdgeAttributes.hasType( graph.getAttributes( e ), typeMask ) )
+                        {
+                            continue;
+                        }
+
+                        final int w = localIndex[t];
+                        if ( seen[w] == i + 1 )
+                        {
+                            continue;
+                        }
+
+                        seen[w] = i + 1;
+                        if ( count == adj.length )
+                        {
+                            adj = Arrays.copyOf( adj, count * 2 );
+                            adjEdges = Arrays.copyOf( adjEdges, count * 2 );
+                        }
+
+                        adj[count] = w;
+                        adjEdges[count++] = e;
+                    }
+                }
+                adjOffsets[size] = count;
+
+                blocked = new boolean[size];
+                blockedBy = new int[size][];
+                blockedBySize = new int[size];
+            }
+
+            CyclicComponent search()
+            {
+                final int[] pathNode = new int[size];
+                final int[] pathEdge = new int[size];
+                final int[] cursor = new int[size];
+                final boolean[] found = new boolean[size];
+                final int[] unblockStack = new int[size];
+
+                for ( int s = 0; s < size; s++ )
+                {
+                    for ( int i = s; i < size; i++ )
+                    {
+                        blocked[i] = false;
+                        blockedBySize[i] = 0;
+                    }
+
+                    int depth = 0;
+                    pathNode[0] = s;
+                    cursor[0] = adjOffsets[s];
+                    found[0] = false;
+                    blocked[s] = true;
+
+                    while ( depth >= 0 )
+                    {
+                        final int v = pathNode[depth];
+                        final int c = cursor[depth];
+                        if ( c < adjOffsets[v + 1] )
+                        {
+                            cursor[depth] = c + 1;
+                            final int w = adj[c];
+                            if ( w < s )
+                            {
+                                continue;
+                            }
+
+                            if ( w == s )
+                            {
+                                if ( cycles.size() == maxCycles )
+                                {
+                                    return new CyclicComponent( graph, members, cycles, false );
+                                }
+
+                                pathEdge[depth] = adjEdges[c];
+                                cycles.add( toCycle( pathEdge, depth + 1 ) );
+                                found[depth] = true;
+                            }
+                            else if ( !blocked[w] )
+                            {
+                                pathEdge[depth] = adjEdges[c];
+                                depth++;
+                                pathNode[depth] = w;
+                                cursor[depth] = adjOffsets[w];
+                                found[depth] = false;
+                                blocked[w] = true;
+                            }
+                        }
+                        else
+                        {
+                            final boolean f = found[depth];
+                            if ( f )
+                            {
+                                unblock( v, unblockStack );
+                            }
+                            else
+                            {
+                                for ( int i = adjOffsets[v]; i < adjOffsets[v + 1]; i++ )
+                                {
+                                    if ( adj[i] >= s )
+                                    {
+                                        addBlockedBy( adj[i], v );
+                                    }
+                                }
+                            }
+
+                            depth--;
+                            if ( f && depth >= 0 )
+                            {
+                                found[depth] = true;
+                            }
+                        }
+                    }
+                }
+
+                return new CyclicComponent( graph, members, cycles, true );
+            }
+
+            private void unblock( final int u, final int[] stack )
+            {
+                int sp = 0;
+                blocked[u] = false;
+                stack[sp++] = u;
+                while ( sp > 0 )
+                {
+                    final int x = stack[--sp];
+                    final int[] waiting = blockedBy[x];
+                    for ( int i = 0; i < blockedBySize[x]; i++ )
+                    {
+                        final int w = waiting[i];
+                        if ( blocked[w] )
+                        {
+                            blocked[w] = false;
+                            stack[sp++] = w;
+                        }
+                    }
+
+                    blockedBySize[x] = 0;
+                }
+            }
+
+            private void addBlockedBy( final int w, final int v )
+            {
+                int[] list = blockedBy[w];
+                final int n = blockedBySize[w];
+                if ( list == null )
+                {
+                    list = blockedBy[w] = new int[4];
+                }
+                else
+                {
+                    for ( int i = 0; i < n; i++ )
+                    {
+                        if ( list[i] == v )
+                        {
+                            return;
+                        }
+                    }
+
+                    if ( n == list.length )
+                    {
+                        list = blockedBy[w] = Arrays.copyOf( list, n * 2 );
+                    }
+                }
+
+                list[n] = v;
+                blockedBySize[w] = n + 1;
+            }
+
+            private EProjectCycle toCycle( final int[] edges, final int length )
+            {
+                final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>( length );
+                for ( int i = 0; i < length; i++ )
+                {
+                    rels.add( graph.getRelationship( edges[i] ) );
+                }
+
+                return new EProjectCycle.Builder( rels ).build();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.model.EProjectCycle;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * A strongly connected component that contains at least one cycle: either two or more projects, or a single project
+ * that refers to itself. Carries the elementary cycles found inside it, unless enumeration was skipped or cut short
+ * (see {@link #isComplete()}).
+ */
+public final class CyclicComponent
+{
+
+    private final RelationshipGraph graph;
+
+    private final int[] nodes;
+
+    private final List<EProjectCycle> cycles;
+
+    private final boolean complete;
+
+    CyclicComponent( final RelationshipGraph graph, final int[] nodes, final List<EProjectCycle> cycles,
+                     final boolean complete )
+    {
+        this.graph = graph;
+        this.nodes = nodes;
+        this.cycles = Collections.unmodifiableList( cycles );
+        this.complete = complete;
+    }
+
+    /**
+     * @return the member node ids, in ascending order
+     */
+    public int[] getNodeIds()
+    {
+        return nodes.clone();
+    }
+
+    public int size()
+    {
+        return nodes.length;
+    }
+
+    public Set<ProjectVersionRef> getProjects()
+    {
+        final Set<ProjectVersionRef> result = new LinkedHashSet<ProjectVersionRef>( nodes.length * 2 );
+        for ( final int node : nodes )
+        {
+            result.add( graph.getNode( node ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the elementary cycles in this component, in canonical rotation; partial if
+     *         {@link #isComplete()} is false
+     */
+    public List<EProjectCycle> getCycles()
+    {
+        return cycles;
+    }
+
+    /**
+     * @return false if cycle enumeration was skipped or stopped at the configured limit, so that only the membership
+     *         of this component is reliable
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "CyclicComponent [projects=%d, cycles=%d%s]", nodes.length, cycles.size(),
+                              complete ? "" : ", incomplete" );
+    }
+
+}
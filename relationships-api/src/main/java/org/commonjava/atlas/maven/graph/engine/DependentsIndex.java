@@ -0,0 +1,552 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Reverse index from relationship targets to the relationships (and projects) declaring them, answering "which
+ * projects depend on X", for an exact version or for any version of a groupId:artifactId, directly or transitively.
+ * <p>
+ * Unlike {@link RelationshipGraph}, the index is maintained incrementally: relationships can be added and removed at
+ * any time, and {@link #index(EProjectDirectRelationships)} replaces everything a project declared. Projects get dense
+ * int ids, and each target keeps a posting list of relationship ids, with the relationship attributes packed next to
+ * them ({@link EdgeAttributes}), so filtering by {@link EdgeFilter} doesn't touch the relationship objects.
+ * <p>
+ * Queries can run concurrently with each other; updates are exclusive.
+ */
+public final class DependentsIndex
+{
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final NodeTable nodes = new NodeTable( INITIAL_CAPACITY );
+
+    private final Map<ProjectRef, Integer> projectIds = new HashMap<ProjectRef, Integer>();
+
+    // groupId:artifactId id -> node ids of its known versions
+    private final PostingLists versions = new PostingLists();
+
+    // node -> ids of the relationships targeting it
+    private final PostingLists byTarget = new PostingLists();
+
+    // node -> ids of the relationships it declares
+    private final PostingLists byDeclaring = new PostingLists();
+
+    private ProjectRelationship<?, ?>[] relationships = new ProjectRelationship<?, ?>[INITIAL_CAPACITY];
+
+    private int[] attributes = new int[INITIAL_CAPACITY];
+
+    private int[] declaring = new int[INITIAL_CAPACITY];
+
+    private int[] targets = new int[INITIAL_CAPACITY];
+
+    // ids below this have been handed out; the removed ones are kept in 'free' for reuse.
+    private int highWater;
+
+    private int[] free = new int[16];
+
+    private int freeCount;
+
+    public DependentsIndex()
+    {
+    }
+
+    public DependentsIndex( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+    {
+        addAll( relationships );
+    }
+
+    /**
+     * @return false if the relationship was already indexed
+     */
+    public boolean add( final ProjectRelationship<?, ?> rel )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            return doAdd( rel );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of relationships that weren't indexed yet
+     */
+    public int addAll( final Collection<? extends ProjectRelationship<?, ?>> rels )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            int added = 0;
+            for ( final ProjectRelationship<?, ?> rel : rels )
+            {
+                if ( doAdd( rel ) )
+                {
+                    added++;
+                }
+            }
+
+            return added;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces whatever the project declared before with its current relationships.
+     */
+    public void index( final EProjectDirectRelationships rels )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            doRemoveDeclaredBy( rels.getProjectRef() );
+            for ( final ProjectRelationship<?, ?> rel : rels.getAllRelationships() )
+            {
+                doAdd( rel );
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return false if the relationship wasn't indexed
+     */
+    public boolean remove( final ProjectRelationship<?, ?> rel )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            final int node = nodes.indexOf( rel.getDeclaring() );
+            final int id = node < 0 ? -1 : find( node, rel );
+            if ( id < 0 )
+            {
+                return false;
+            }
+
+            unlink( id );
+            return true;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of relationships removed
+     */
+    public int removeDeclaredBy( final ProjectVersionRef ref )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            return doRemoveDeclaredBy( ref );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getRelationshipCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return highWater - freeCount;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of distinct projects (declaring or targeted) seen so far; projects are not forgotten when
+     *         their relationships are removed
+     */
+    public int getProjectCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return nodes.size();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the versions of the project that are declared or targeted by some indexed relationship (or were once)
+     */
+    public Set<ProjectVersionRef> getVersions( final ProjectRef ref )
+    {
+        lock.readLock().lock();
+        try
+        {
+            final Set<ProjectVersionRef> result = new LinkedHashSet<ProjectVersionRef>();
+            final int project = projectId( ref );
+            for ( int i = 0; i < versions.size( project ); i++ )
+            {
+                result.add( nodes.get( versions.get( project, i ) ) );
+            }
+
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the accepted relationships targeting exactly this version
+     */
+    public List<ProjectRelationship<?, ?>> getRelationshipsTargeting( final ProjectVersionRef target,
+                                                                      final EdgeFilter filter )
+    {
+        lock.readLock().lock();
+        try
+        {
+            final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>();
+            collectRelationships( nodes.indexOf( target ), filter, result );
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the accepted relationships targeting any version of the project
+     */
+    public List<ProjectRelationship<?, ?>> getRelationshipsTargetingAnyVersion( final ProjectRef target,
+                                                                                final EdgeFilter filter )
+    {
+        lock.readLock().lock();
+        try
+        {
+            final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>();
+            final int project = projectId( target );
+            for ( int i = 0; i < versions.size( project ); i++ )
+            {
+                collectRelationships( versions.get( project, i ), filter, result );
+            }
+
+            return result;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the projects declaring an accepted relationship to exactly this version
+     */
+    public Set<ProjectVersionRef> getDependents( final ProjectVersionRef target, final EdgeFilter filter )
+    {
+        lock.readLock().lock();
+        try
+        {
+            final int node = nodes.indexOf( target );
+            return walk( node < 0 ? new int[0] : new int[] { node }, filter, false );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the projects declaring an accepted relationship to any version of the project
+     */
+    public Set<ProjectVersionRef> getDependentsOfAnyVersion( final ProjectRef target, final EdgeFilter filter )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return walk( versionNodes( target ), filter, false );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return every project that reaches this version through accepted relationships, nearest first
+     */
+    public Set<ProjectVersionRef> getAffected( final ProjectVersionRef target, final EdgeFilter filter )
+    {
+        lock.readLock().lock();
+        try
+        {
+            final int node = nodes.indexOf( target );
+            return walk( node < 0 ? new int[0] : new int[] { node }, filter, true );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return every project that reaches any version of the project through accepted relationships, nearest first
+     */
+    public Set<ProjectVersionRef> getAffectedByAnyVersion( final ProjectRef target, final EdgeFilter filter )
+    {
+        lock.readLock().lock();
+        try
+        {
+            return walk( versionNodes( target ), filter, true );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "DependentsIndex [projects=%d, relationships=%d]", getProjectCount(),
+                              getRelationshipCount() );
+    }
+
+    private boolean doAdd( final ProjectRelationship<?, ?> rel )
+    {
+        final int source = node( rel.getDeclaring() );
+        if ( find( source, rel ) >= 0 )
+        {
+            return false;
+        }
+
+        final int target = node( rel.getTarget().asProjectVersionRef() );
+
+        final int id;
+        if ( freeCount > 0 )
+        {
+            id = free[--freeCount];
+        }
+        else
+        {
+            id = highWater++;
+            if ( id == relationships.length )
+            {
+                final int capacity = id * 2;
+                relationships = Arrays.copyOf( relationships, capacity );
+                attributes = Arrays.copyOf( attributes, capacity );
+                declaring = Arrays.copyOf( declaring, capacity );
+                targets = Arrays.copyOf( targets, capacity );
+            }
+        }
+
+        relationships[id] = rel;
+        attributes[id] = EdgeAttributes.pack( rel );
+        declaring[id] = source;
+        targets[id] = target;
+        byDeclaring.add( source, id );
+        byTarget.add( target, id );
+
+        return true;
+    }
+
+    private int doRemoveDeclaredBy( final ProjectVersionRef ref )
+    {
+        final int node = nodes.indexOf( ref );
+        if ( node < 0 )
+        {
+            return 0;
+        }
+
+        final int count = byDeclaring.size( node );
+        while ( byDeclaring.size( node ) > 0 )
+        {
+            unlink( byDeclaring.get( node, byDeclaring.size( node ) - 1 ) );
+        }
+
+        return count;
+    }
+
+    private void unlink( final int id )
+    {
+        byDeclaring.remove( declaring[id], id );
+        byTarget.remove( targets[id], id );
+        relationships[id] = null;
+
+        if ( freeCount == free.length )
+        {
+            free = Arrays.copyOf( free, freeCount * 2 );
+        }
+        free[freeCount++] = id;
+    }
+
+    private int find( final int source, final ProjectRelationship<?, ?> rel )
+    {
+        for ( int i = 0; i < byDeclaring.size( source ); i++ )
+        {
+            final int id = byDeclaring.get( source, i );
+            if ( relationships[id].equals( rel ) )
+            {
+                return id;
+            }
+        }
+
+        return -1;
+    }
+
+    private int node( final ProjectVersionRef ref )
+    {
+        final int size = nodes.size();
+        final int node = nodes.intern( ref );
+        if ( node == size )
+        {
+            final ProjectRef key = ref.asProjectRef();
+            Integer project = projectIds.get( key );
+            if ( project == null )
+            {
+                project = projectIds.size();
+                projectIds.put( key, project );
+            }
+
+            versions.add( project, node );
+        }
+
+        return node;
+    }
+
+    private int projectId( final ProjectRef ref )
+    {
+        final Integer project = projectIds.get( ref.asProjectRef() );
+        return project == null ? -1 : project;
+    }
+
+    private int[] versionNodes( final ProjectRef ref )
+    {
+        final int project = projectId( ref );
+        final int[] result = new int[project < 0 ? 0 : versions.size( project )];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = versions.get( project, i );
+        }
+
+        return result;
+    }
+
+    private void collectRelationships( final int node, final EdgeFilter filter,
+                                       final List<ProjectRelationship<?, ?>> result )
+    {
+        if ( node < 0 )
+        {
+            return;
+        }
+
+        for ( int i = 0; i < byTarget.size( node ); i++ )
+        {
+            final int id = byTarget.get( node, i );
+            if ( filter.accepts( attributes[id] ) )
+            {
+                result.add( relationships[id] );
+            }
+        }
+    }
+
+    /**
+     * Breadth-first over the reverse edges from the start nodes; the start nodes themselves are only reported if they
+     * are reached again.
+     */
+    private Set<ProjectVersionRef> walk( final int[] start, final EdgeFilter filter, final boolean transitive )
+    {
+        if ( start.length == 0 )
+        {
+            return Collections.emptySet();
+        }
+
+        // direct lookups dedupe through the result set; only the transitive walk needs a visited mark per node.
+        final boolean[] seen = transitive ? new boolean[nodes.size()] : null;
+        int[] queue = start;
+        int tail = start.length;
+
+        final Set<ProjectVersionRef> result = new LinkedHashSet<ProjectVersionRef>();
+        for ( int head = 0; head < tail; head++ )
+        {
+            final int node = queue[head];
+            for ( int i = 0; i < byTarget.size( node ); i++ )
+            {
+                final int id = byTarget.get( node, i );
+                if ( !filter.accepts( attributes[id] ) )
+                {
+                    continue;
+                }
+
+                final int dependent = declaring[id];
+                if ( !transitive )
+                {
+                    result.add( nodes.get( dependent ) );
+                    continue;
+                }
+
+                if ( seen[dependent] )
+                {
+                    continue;
+                }
+
+                seen[dependent] = true;
+                result.add( nodes.get( dependent ) );
+
+                if ( tail == queue.length )
+                {
+                    queue = Arrays.copyOf( queue, Math.max( 16, tail * 2 ) );
+                }
+                queue[tail++] = dependent;
+            }
+        }
+
+        return result;
+    }
+
+}
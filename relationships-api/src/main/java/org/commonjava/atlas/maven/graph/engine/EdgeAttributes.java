@@ -0,0 +1,223 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.Collection;
+
+import org.commonjava.atlas.maven.graph.rel.BomRelationship;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+
+/**
+ * Packs the attributes of a relationship edge into a single int:
+ *
+ * <pre>
+ * bits  0-2   relationship type (RelationshipType ordinal)
+ * bits  3-6   dependency scope (DependencyScope ordinal + 1, or 0 for none)
+ * bit   7     managed
+ * bit   8     inherited
+ * bit   9     optional
+ * bit  10     mixin
+ * bits 11-31  declaration index (0 to {@link #MAX_INDEX})
+ * </pre>
+ */
+public final class EdgeAttributes
+{
+
+    public static final int MAX_INDEX = ( 1 << 21 ) - 1;
+
+    private static final int TYPE_MASK = 0x7;
+
+    private static final int SCOPE_SHIFT = 3;
+
+    private static final int SCOPE_MASK = 0xF;
+
+    private static final int MANAGED = 1 << 7;
+
+    private static final int INHERITED = 1 << 8;
+
+    private static final int OPTIONAL = 1 << 9;
+
+    private static final int MIXIN = 1 << 10;
+
+    private static final int INDEX_SHIFT = 11;
+
+    private static final RelationshipType[] TYPES = RelationshipType.values();
+
+    private static final DependencyScope[] SCOPES = DependencyScope.values();
+
+    private EdgeAttributes()
+    {
+    }
+
+    /**
+     * @throws IllegalArgumentException if the index is negative or over {@link #MAX_INDEX}, since it couldn't be
+     *         unpacked again
+     */
+    public static int pack( final RelationshipType type, final DependencyScope scope, final int index,
+                            final boolean managed, final boolean inherited, final boolean optional,
+                            final boolean mixin )
+    {
+        if ( index < 0 || index > MAX_INDEX )
+        {
+            throw new IllegalArgumentException( "Declaration index " + index + " is outside the packable range [0, "
+                + MAX_INDEX + "]" );
+        }
+
+        int attrs = type.ordinal();
+        if ( scope != null )
+        {
+            attrs |= ( scope.ordinal() + 1 ) << SCOPE_SHIFT;
+        }
+        if ( managed )
+        {
+            attrs |= MANAGED;
+        }
+        if ( inherited )
+        {
+            attrs |= INHERITED;
+        }
+        if ( optional )
+        {
+            attrs |= OPTIONAL;
+        }
+        if ( mixin )
+        {
+            attrs |= MIXIN;
+        }
+
+        return attrs | ( index << INDEX_SHIFT );
+    }
+
+    public static int pack( final ProjectRelationship<?, ?> rel )
+    {
+        DependencyScope scope = null;
+        boolean optional = false;
+        switch ( rel.getType() )
+        {
+            case DEPENDENCY:
+            {
+                final DependencyRelationship dep = (DependencyRelationship) rel;
+                scope = dep.getScope();
+                optional = dep.isOptional();
+                break;
+            }
+            case PLUGIN_DEP:
+            {
+                optional = ( (PluginDependencyRelationship) rel ).isOptional();
+                break;
+            }
+            case BOM:
+            {
+                return pack( rel.getType(), null, rel.getIndex(), rel.isManaged(), rel.isInherited(), false,
+                             ( (BomRelationship) rel ).isMixin() );
+            }
+            default:
+                break;
+        }
+
+        return pack( rel.getType(), scope, rel.getIndex(), rel.isManaged(), rel.isInherited(), optional, false );
+    }
+
+    public static RelationshipType type( final int attrs )
+    {
+        return TYPES[attrs & TYPE_MASK];
+    }
+
+    /**
+     * @return the dependency scope, or null for edges that don't carry one
+     */
+    public static DependencyScope scope( final int attrs )
+    {
+        final int s = ( attrs >>> SCOPE_SHIFT ) & SCOPE_MASK;
+        return s == 0 ? null : SCOPES[s - 1];
+    }
+
+    public static boolean isManaged( final int attrs )
+    {
+        return ( attrs & MANAGED ) != 0;
+    }
+
+    public static boolean isInherited( final int attrs )
+    {
+        return ( attrs & INHERITED ) != 0;
+    }
+
+    public static boolean isOptional( final int attrs )
+    {
+        return ( attrs & OPTIONAL ) != 0;
+    }
+
+    public static boolean isMixin( final int attrs )
+    {
+        return ( attrs & MIXIN ) != 0;
+    }
+
+    public static int index( final int attrs )
+    {
+        return attrs >>> INDEX_SHIFT;
+    }
+
+    /**
+     * @return a bit mask of the given types, for use with {@link #hasType(int, int)}
+     */
+    public static int typeMask( final RelationshipType... types )
+    {
+        int mask = 0;
+        for ( final RelationshipType type : types )
+        {
+            mask |= 1 << type.ordinal();
+        }
+
+        return mask;
+    }
+
+    public static int typeMask( final Collection<RelationshipType> types )
+    {
+        return typeMask( types.toArray( new RelationshipType[types.size()] ) );
+    }
+
+    public static boolean hasType( final int attrs, final int typeMask )
+    {
+        return ( typeMask & ( 1 << ( attrs & TYPE_MASK ) ) ) != 0;
+    }
+
+    /**
+     * @return a bit mask of the given scopes, for use with {@link #hasScope(int, int)}
+     */
+    public static int scopeMask( final DependencyScope... scopes )
+    {
+        int mask = 0;
+        for ( final DependencyScope scope : scopes )
+        {
+            mask |= 1 << ( scope.ordinal() + 1 );
+        }
+
+        return mask;
+    }
+
+    /**
+     * @return true if the edge's scope is in the mask; edges without a scope only match if the mask has bit 0 set
+     */
+    public static boolean hasScope( final int attrs, final int scopeMask )
+    {
+        return ( scopeMask & ( 1 << ( ( attrs >>> SCOPE_SHIFT ) & SCOPE_MASK ) ) ) != 0;
+    }
+
+}
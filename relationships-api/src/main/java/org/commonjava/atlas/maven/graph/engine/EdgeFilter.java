@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+
+/**
+ * Immutable filter over {@link EdgeAttributes}: relationship types, dependency scopes and whether managed
+ * relationships count. Scopes only restrict relationships that have one, so
+ * {@code EdgeFilter.ALL.withScopes( compile, runtime )} still accepts parents and plugins; combine it with
+ * {@link #withTypes(RelationshipType...)} to keep dependencies only.
+ */
+public final class EdgeFilter
+{
+
+    public static final EdgeFilter ALL = new EdgeFilter( EdgeAttributes.typeMask( RelationshipType.values() ),
+                                                         ~0, true );
+
+    private final int typeMask;
+
+    // bit 0 (no scope) is always set.
+    private final int scopeMask;
+
+    private final boolean managed;
+
+    private EdgeFilter( final int typeMask, final int scopeMask, final boolean managed )
+    {
+        this.typeMask = typeMask;
+        this.scopeMask = scopeMask;
+        this.managed = managed;
+    }
+
+    public EdgeFilter withTypes( final RelationshipType... types )
+    {
+        return new EdgeFilter( EdgeAttributes.typeMask( types ), scopeMask, managed );
+    }
+
+    EdgeFilter withTypeMask( final int typeMask )
+    {
+        return new EdgeFilter( typeMask, scopeMask, managed );
+    }
+
+    public EdgeFilter withScopes( final DependencyScope... scopes )
+    {
+        return new EdgeFilter( typeMask, EdgeAttributes.scopeMask( scopes ) | 1, managed );
+    }
+
+    /**
+     * Leave out managed relationships (dependencyManagement, pluginManagement), which don't pull anything in by
+     * themselves.
+     */
+    public EdgeFilter withoutManaged()
+    {
+        return new EdgeFilter( typeMask, scopeMask, false );
+    }
+
+    public boolean accepts( final int attributes )
+    {
+        return EdgeAttributes.hasType( attributes, typeMask ) && EdgeAttributes.hasScope( attributes, scopeMask )
+            && ( managed || !EdgeAttributes.isManaged( attributes ) );
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = 31 + typeMask;
+        result = 31 * result + scopeMask;
+        return 31 * result + ( managed ? 1231 : 1237 );
+    }
+
+    @Override
+    public boolean equals( final Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        if ( !( obj instanceof EdgeFilter ) )
+        {
+            return false;
+        }
+
+        final EdgeFilter other = (EdgeFilter) obj;
+        return typeMask == other.typeMask && scopeMask == other.scopeMask && managed == other.managed;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "EdgeFilter [types=0x%x, scopes=0x%x, managed=%s]", typeMask, scopeMask, managed );
+    }
+
+}
@@ -0,0 +1,1295 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.model.EProjectRelationshipCollection;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipComparator;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleExtensionRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.IdentityPool;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+
+/**
+ * Read-only relationship graph backed by a snapshot file, laid out so that it can be memory-mapped and queried without
+ * deserializing anything up front. Opening a snapshot only validates the header and records where each section
+ * starts; refs and relationships are materialized from the mapped bytes when they are asked for, and not cached.
+ * <p>
+ * Nodes and edges are numbered as in {@link RelationshipGraph}, and the adjacency accessors have the same names and
+ * meaning: outgoing edges of node n are [{@link #getOutStart(int)}, {@link #getOutEnd(int)}), and incoming edges are
+ * reached through {@link #getInEdge(int)}. Edge attributes use the {@link EdgeAttributes} packing.
+ * <p>
+ * File layout (all ints big-endian; string, node, ref and set ids index into their own tables):
+ *
+ * <pre>
+ * int       magic ('ATGS')
+ * int       format version
+ * int       S string count; int[S + 1] offsets into the UTF-8 blob; int blob length; byte[] blob, padded to 4
+ * int       N node count; int[3N] groupId/artifactId/version string ids; int[N] node hashes
+ * int       H hash slot count (power of two); int[H] node id + 1 per slot, 0 for empty
+ * int       P project ref count; int[2P] groupId/artifactId string ids (plugins and excludes)
+ * int       U source set count; int[U + 1] offsets; int length; int[] URI string ids
+ * int       X exclude set count; int[X + 1] offsets; int length; int[] project ref ids
+ * int       E edge count
+ * int[N+1]  out offsets; int[E] sources; int[E] targets; int[E] packed attributes
+ * int[N+1]  in offsets; int[E] in edges
+ * int[E]    target type string id (-1 unless the target is an artifact)
+ * int[E]    target classifier string id (-1 for none)
+ * int[E]    pom location string id (-1 for none)
+ * int[E]    source set id
+ * int[E]    exclude set id for dependencies, plugin ref id for plugin dependencies, otherwise -1
+ * int[E]    flags ({@link #FLAG_REPORTING})
+ * </pre>
+ *
+ * A single mapping is limited to 2 GB, so {@link Writer#write(File)} refuses to write larger snapshots. The packed
+ * attributes store enum ordinals, so changing {@link RelationshipType} or {@link DependencyScope} requires a new
+ * format version.
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public final class GraphSnapshot
+{
+
+    public static final int MAGIC = 0x41544753;
+
+    public static final int FORMAT_VERSION = 1;
+
+    static final int FLAG_REPORTING = 0x1;
+
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private final ByteBuffer buffer;
+
+    private final int stringCount;
+
+    private final int stringOffsets;
+
+    private final int stringBytes;
+
+    private final int nodeCount;
+
+    private final int nodeCoordinates;
+
+    private final int nodeHashes;
+
+    private final int slotCount;
+
+    private final int slots;
+
+    private final int projectRefs;
+
+    private final int sourceSetOffsets;
+
+    private final int sourceSetValues;
+
+    private final int excludeSetOffsets;
+
+    private final int excludeSetValues;
+
+    private final int edgeCount;
+
+    private final int outOffsets;
+
+    private final int edgeSources;
+
+    private final int edgeTargets;
+
+    private final int edgeAttributes;
+
+    private final int inOffsets;
+
+    private final int inEdges;
+
+    private final int targetTypes;
+
+    private final int targetClassifiers;
+
+    private final int pomLocations;
+
+    private final int edgeSourceSets;
+
+    private final int edgeExtras;
+
+    private final int edgeFlags;
+
+    private GraphSnapshot( final ByteBuffer source )
+        throws IOException
+    {
+        buffer = source.duplicate().order( ByteOrder.BIG_ENDIAN );
+
+        final Cursor cursor = new Cursor( buffer );
+        final int magic = cursor.nextInt();
+        if ( magic != MAGIC )
+        {
+            throw new IOException( "Not a graph snapshot (magic: " + Integer.toHexString( magic ) + ")" );
+        }
+
+        final int version = cursor.nextInt();
+        if ( version != FORMAT_VERSION )
+        {
+            throw new IOException( "Unsupported graph snapshot format: " + version + " (this library reads "
+                + FORMAT_VERSION + ")" );
+        }
+
+        stringCount = cursor.nextInt();
+        stringOffsets = cursor.skipInts( stringCount + 1 );
+        stringBytes = cursor.skipBytes( cursor.nextInt() );
+
+        nodeCount = cursor.nextInt();
+        nodeCoordinates = cursor.skipInts( 3L * nodeCount );
+        nodeHashes = cursor.skipInts( nodeCount );
+        slotCount = cursor.nextInt();
+        slots = cursor.skipInts( slotCount );
+
+        projectRefs = cursor.skipInts( 2L * cursor.nextInt() );
+
+        sourceSetOffsets = cursor.skipInts( cursor.nextInt() + 1L );
+        sourceSetValues = cursor.skipInts( cursor.nextInt() );
+
+        excludeSetOffsets = cursor.skipInts( cursor.nextInt() + 1L );
+        excludeSetValues = cursor.skipInts( cursor.nextInt() );
+
+        edgeCount = cursor.nextInt();
+        outOffsets = cursor.skipInts( nodeCount + 1L );
+        edgeSources = cursor.skipInts( edgeCount );
+        edgeTargets = cursor.skipInts( edgeCount );
+        edgeAttributes = cursor.skipInts( edgeCount );
+        inOffsets = cursor.skipInts( nodeCount + 1L );
+        inEdges = cursor.skipInts( edgeCount );
+        targetTypes = cursor.skipInts( edgeCount );
+        targetClassifiers = cursor.skipInts( edgeCount );
+        pomLocations = cursor.skipInts( edgeCount );
+        edgeSourceSets = cursor.skipInts( edgeCount );
+        edgeExtras = cursor.skipInts( edgeCount );
+        edgeFlags = cursor.skipInts( edgeCount );
+
+        if ( cursor.position != buffer.limit() )
+        {
+            throw new IOException( "Graph snapshot has " + ( buffer.limit() - cursor.position )
+                + " trailing bytes; it is corrupt or was written by a different version." );
+        }
+
+        if ( slotCount == 0 || Integer.bitCount( slotCount ) != 1 )
+        {
+            throw new IOException( "Graph snapshot has an invalid node hash table size: " + slotCount );
+        }
+    }
+
+    /**
+     * Maps the snapshot file read-only. The file must not be modified while the snapshot is in use.
+     */
+    public static GraphSnapshot open( final File file )
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            final FileChannel channel = raf.getChannel();
+            final long size = channel.size();
+            if ( size > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Graph snapshot is too large to map: " + file + " (" + size + " bytes)" );
+            }
+
+            // the mapping stays valid after the channel is closed.
+            return new GraphSnapshot( channel.map( FileChannel.MapMode.READ_ONLY, 0, size ) );
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot from the remaining bytes of the buffer, without copying it.
+     */
+    public static GraphSnapshot open( final ByteBuffer buffer )
+        throws IOException
+    {
+        return new GraphSnapshot( buffer.slice() );
+    }
+
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeCount;
+    }
+
+    public ProjectVersionRef getNode( final int node )
+    {
+        checkNode( node );
+
+        final int base = nodeCoordinates + node * 12;
+        return IdentityPool.canonical( new SimpleProjectVersionRef( getString( buffer.getInt( base ) ),
+                                                                    getString( buffer.getInt( base + 4 ) ),
+                                                                    getString( buffer.getInt( base + 8 ) ) ) );
+    }
+
+    /**
+     * @return the node id for the given project, or -1 if it isn't part of this snapshot
+     */
+    public int getNodeId( final ProjectVersionRef ref )
+    {
+        final String groupId = ref.getGroupId();
+        final String artifactId = ref.getArtifactId();
+        final String version = ref.getVersionString();
+        final int hash = nodeHash( groupId, artifactId, version );
+
+        final int mask = slotCount - 1;
+        int slot = spread( hash ) & mask;
+        int id;
+        while ( ( id = intAt( slots, slot ) ) != 0 )
+        {
+            final int node = id - 1;
+            if ( intAt( nodeHashes, node ) == hash )
+            {
+                final int base = nodeCoordinates + node * 12;
+                if ( version.equals( getString( buffer.getInt( base + 8 ) ) )
+                    && artifactId.equals( getString( buffer.getInt( base + 4 ) ) )
+                    && groupId.equals( getString( buffer.getInt( base ) ) ) )
+                {
+                    return node;
+                }
+            }
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return -1;
+    }
+
+    public int getOutStart( final int node )
+    {
+        return intAt( outOffsets, node );
+    }
+
+    public int getOutEnd( final int node )
+    {
+        return intAt( outOffsets, node + 1 );
+    }
+
+    public int getOutDegree( final int node )
+    {
+        return getOutEnd( node ) - getOutStart( node );
+    }
+
+    public int getInStart( final int node )
+    {
+        return intAt( inOffsets, node );
+    }
+
+    public int getInEnd( final int node )
+    {
+        return intAt( inOffsets, node + 1 );
+    }
+
+    public int getInDegree( final int node )
+    {
+        return getInEnd( node ) - getInStart( node );
+    }
+
+    /**
+     * @param position a reverse-index position, in [{@link #getInStart(int)}, {@link #getInEnd(int)})
+     * @return the id of the incoming edge at that position
+     */
+    public int getInEdge( final int position )
+    {
+        return intAt( inEdges, position );
+    }
+
+    public int getSource( final int edge )
+    {
+        return intAt( edgeSources, edge );
+    }
+
+    public int getTarget( final int edge )
+    {
+        return intAt( edgeTargets, edge );
+    }
+
+    /**
+     * @return the packed attributes of the edge; decode with {@link EdgeAttributes}
+     */
+    public int getAttributes( final int edge )
+    {
+        return intAt( edgeAttributes, edge );
+    }
+
+    public RelationshipType getType( final int edge )
+    {
+        return EdgeAttributes.type( getAttributes( edge ) );
+    }
+
+    public DependencyScope getScope( final int edge )
+    {
+        return EdgeAttributes.scope( getAttributes( edge ) );
+    }
+
+    public int getIndex( final int edge )
+    {
+        return EdgeAttributes.index( getAttributes( edge ) );
+    }
+
+    public boolean isManaged( final int edge )
+    {
+        return EdgeAttributes.isManaged( getAttributes( edge ) );
+    }
+
+    public boolean isInherited( final int edge )
+    {
+        return EdgeAttributes.isInherited( getAttributes( edge ) );
+    }
+
+    public boolean isOptional( final int edge )
+    {
+        return EdgeAttributes.isOptional( getAttributes( edge ) );
+    }
+
+    /**
+     * Builds the relationship for an edge from the mapped columns. Each call returns a new instance.
+     */
+    public ProjectRelationship<?, ?> getRelationship( final int edge )
+    {
+        if ( edge < 0 || edge >= edgeCount )
+        {
+            throw new IndexOutOfBoundsException( "No edge: " + edge );
+        }
+
+        final int attrs = getAttributes( edge );
+        final ProjectVersionRef declaring = getNode( getSource( edge ) );
+        final ProjectVersionRef target = getNode( getTarget( edge ) );
+        final List<URI> sources = getSourceSet( intAt( edgeSourceSets, edge ) );
+        final int pomLocation = intAt( pomLocations, edge );
+        final URI pom = pomLocation < 0 ? null : URI.create( getString( pomLocation ) );
+        final int index = EdgeAttributes.index( attrs );
+        final boolean managed = EdgeAttributes.isManaged( attrs );
+        final boolean inherited = EdgeAttributes.isInherited( attrs );
+
+        switch ( EdgeAttributes.type( attrs ) )
+        {
+            case PARENT:
+            {
+                return new SimpleParentRelationship( sources, declaring, target );
+            }
+            case BOM:
+            {
+                return new SimpleBomRelationship( sources, pom, declaring, target, index, inherited,
+                                                  EdgeAttributes.isMixin( attrs ) );
+            }
+            case DEPENDENCY:
+            {
+                return new SimpleDependencyRelationship( sources, pom, declaring, getTargetArtifact( edge, target ),
+                                                         EdgeAttributes.scope( attrs ), index, managed, inherited,
+                                                         EdgeAttributes.isOptional( attrs ),
+                                                         getExcludeSet( intAt( edgeExtras, edge ) ) );
+            }
+            case PLUGIN:
+            {
+                final boolean reporting = ( intAt( edgeFlags, edge ) & FLAG_REPORTING ) != 0;
+                return new SimplePluginRelationship( sources, pom, declaring, target, index, managed, reporting,
+                                                     inherited );
+            }
+            case PLUGIN_DEP:
+            {
+                return new SimplePluginDependencyRelationship( sources, pom, declaring,
+                                                               getProjectRef( intAt( edgeExtras, edge ) ),
+                                                               getTargetArtifact( edge, target ), index, managed,
+                                                               inherited );
+            }
+            default:
+            {
+                return new SimpleExtensionRelationship( sources, pom, declaring, target, index, inherited );
+            }
+        }
+    }
+
+    /**
+     * @return the relationships declared by the node, in the order they were written
+     */
+    public List<ProjectRelationship<?, ?>> getOutgoing( final int node )
+    {
+        final int start = getOutStart( node );
+        final int end = getOutEnd( node );
+        final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>( end - start );
+        for ( int e = start; e < end; e++ )
+        {
+            result.add( getRelationship( e ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the relationships targeting the node
+     */
+    public List<ProjectRelationship<?, ?>> getIncoming( final int node )
+    {
+        final int start = getInStart( node );
+        final int end = getInEnd( node );
+        final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>( end - start );
+        for ( int p = start; p < end; p++ )
+        {
+            result.add( getRelationship( getInEdge( p ) ) );
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the size of the snapshot, in bytes
+     */
+    public int getSize()
+    {
+        return buffer.limit();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "GraphSnapshot [nodes=%d, edges=%d, bytes=%d]", nodeCount, edgeCount, getSize() );
+    }
+
+    String getString( final int id )
+    {
+        if ( id < 0 || id >= stringCount )
+        {
+            throw new IndexOutOfBoundsException( "No string: " + id );
+        }
+
+        final int start = intAt( stringOffsets, id );
+        final byte[] bytes = new byte[intAt( stringOffsets, id + 1 ) - start];
+
+        final ByteBuffer view = buffer.duplicate();
+        view.position( stringBytes + start );
+        view.get( bytes );
+
+        return new String( bytes, UTF_8 );
+    }
+
+    private ArtifactRef getTargetArtifact( final int edge, final ProjectVersionRef target )
+    {
+        final int type = intAt( targetTypes, edge );
+        final int classifier = intAt( targetClassifiers, edge );
+
+        return new SimpleArtifactRef( target, type < 0 ? null : getString( type ),
+                                      classifier < 0 ? null : getString( classifier ) );
+    }
+
+    private ProjectRef getProjectRef( final int id )
+    {
+        final int base = projectRefs + id * 8;
+        return IdentityPool.canonical( new SimpleProjectRef( getString( buffer.getInt( base ) ),
+                                                             getString( buffer.getInt( base + 4 ) ) ) );
+    }
+
+    private List<URI> getSourceSet( final int id )
+    {
+        final int start = intAt( sourceSetOffsets, id );
+        final int end = intAt( sourceSetOffsets, id + 1 );
+        final List<URI> result = new ArrayList<URI>( end - start );
+        for ( int i = start; i < end; i++ )
+        {
+            result.add( URI.create( getString( intAt( sourceSetValues, i ) ) ) );
+        }
+
+        return result;
+    }
+
+    private ProjectRef[] getExcludeSet( final int id )
+    {
+        if ( id < 0 )
+        {
+            return new ProjectRef[0];
+        }
+
+        final int start = intAt( excludeSetOffsets, id );
+        final ProjectRef[] result = new ProjectRef[intAt( excludeSetOffsets, id + 1 ) - start];
+        for ( int i = 0; i < result.length; i++ )
+        {
+            result[i] = getProjectRef( intAt( excludeSetValues, start + i ) );
+        }
+
+        return result;
+    }
+
+    private void checkNode( final int node )
+    {
+        if ( node < 0 || node >= nodeCount )
+        {
+            throw new IndexOutOfBoundsException( "No node: " + node );
+        }
+    }
+
+    private int intAt( final int section, final int i )
+    {
+        return buffer.getInt( section + ( i << 2 ) );
+    }
+
+    static int nodeHash( final String groupId, final String artifactId, final String version )
+    {
+        return ( groupId.hashCode() * 31 + artifactId.hashCode() ) * 31 + version.hashCode();
+    }
+
+    static int spread( final int h )
+    {
+        return h ^ ( h >>> 16 );
+    }
+
+    /**
+     * Walks the section headers while a snapshot is opened, checking each section against the buffer size.
+     */
+    private static final class Cursor
+    {
+        private final ByteBuffer buffer;
+
+        private int position;
+
+        Cursor( final ByteBuffer buffer )
+        {
+            this.buffer = buffer;
+        }
+
+        int nextInt()
+            throws IOException
+        {
+            final int start = skipInts( 1 );
+            final int value = buffer.getInt( start );
+            if ( value < 0 )
+            {
+                throw new IOException( "Graph snapshot is corrupt: negative count " + value + " at " + start );
+            }
+
+            return value;
+        }
+
+        int skipInts( final long count )
+            throws IOException
+        {
+            return skipBytes( count * 4 );
+        }
+
+        int skipBytes( final long count )
+            throws IOException
+        {
+            final long padded = ( count + 3 ) & ~3L;
+            if ( count < 0 || position + padded > buffer.limit() )
+            {
+                throw new IOException( "Graph snapshot is truncated: needs " + padded + " bytes at " + position
+                    + ", but only has " + buffer.limit() );
+            }
+
+            final int start = position;
+            position += (int) padded;
+
+            return start;
+        }
+    }
+
+    /**
+     * Collects relationships, then lays them out in the snapshot format in {@link #write(File)}. Duplicate
+     * relationships (by {@link ProjectRelationship#equals(Object)}) are written once.
+     */
+    public static final class Writer
+    {
+        private static final int DEFAULT_CAPACITY = 64;
+
+        private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+
+        private final List<String> strings = new ArrayList<String>();
+
+        private final NodeTable nodes;
+
+        private final Map<Long, Integer> projectRefIds = new HashMap<Long, Integer>();
+
+        private final IntColumn projectRefs = new IntColumn( DEFAULT_CAPACITY );
+
+        private final SetTable sourceSets = new SetTable();
+
+        private final SetTable excludeSets = new SetTable();
+
+        private final Set<ProjectRelationship<?, ?>> seen = new HashSet<ProjectRelationship<?, ?>>();
+
+        private final IntColumn sources;
+
+        private final IntColumn targets;
+
+        private final IntColumn attributes;
+
+        private final IntColumn types;
+
+        private final IntColumn classifiers;
+
+        private final IntColumn pomLocations;
+
+        private final IntColumn edgeSourceSets;
+
+        private final IntColumn extras;
+
+        private final IntColumn flags;
+
+        public Writer()
+        {
+            this( DEFAULT_CAPACITY, DEFAULT_CAPACITY );
+        }
+
+        /**
+         * Pre-sizes the writer for bulk loading.
+         */
+        public Writer( final int expectedNodes, final int expectedEdges )
+        {
+            nodes = new NodeTable( expectedNodes );
+
+            final int capacity = Math.max( expectedEdges, DEFAULT_CAPACITY );
+            sources = new IntColumn( capacity );
+            targets = new IntColumn( capacity );
+            attributes = new IntColumn( capacity );
+            types = new IntColumn( capacity );
+            classifiers = new IntColumn( capacity );
+            pomLocations = new IntColumn( capacity );
+            edgeSourceSets = new IntColumn( capacity );
+            extras = new IntColumn( capacity );
+            flags = new IntColumn( capacity );
+        }
+
+        public Writer withRelationship( final ProjectRelationship<?, ?> rel )
+        {
+            if ( !seen.add( rel ) )
+            {
+                return this;
+            }
+
+            sources.add( nodes.intern( rel.getDeclaring().asProjectVersionRef() ) );
+            targets.add( nodes.intern( rel.getTarget().asProjectVersionRef() ) );
+            attributes.add( EdgeAttributes.pack( rel ) );
+
+            final ProjectVersionRef target = rel.getTarget();
+            if ( target instanceof ArtifactRef )
+            {
+                final ArtifactRef artifact = (ArtifactRef) target;
+                types.add( stringId( artifact.getType() ) );
+                classifiers.add( artifact.getClassifier() == null ? -1 : stringId( artifact.getClassifier() ) );
+            }
+            else
+            {
+                types.add( -1 );
+                classifiers.add( -1 );
+            }
+
+            pomLocations.add( rel.getPomLocation() == null ? -1 : stringId( rel.getPomLocation().toString() ) );
+
+            final Set<URI> relSources = rel.getSources();
+            final int[] uris = new int[relSources.size()];
+            int i = 0;
+            for ( final URI uri : relSources )
+            {
+                uris[i++] = stringId( uri.toString() );
+            }
+            edgeSourceSets.add( sourceSets.intern( uris ) );
+
+            int extra = -1;
+            int flag = 0;
+            switch ( rel.getType() )
+            {
+                case DEPENDENCY:
+                {
+                    final Set<ProjectRef> excludes = ( (DependencyRelationship) rel ).getExcludes();
+                    if ( excludes != null && !excludes.isEmpty() )
+                    {
+                        final int[] refs = new int[excludes.size()];
+                        i = 0;
+                        for ( final ProjectRef exclude : excludes )
+                        {
+                            refs[i++] = projectRefId( exclude );
+                        }
+                        extra = excludeSets.intern( refs );
+                    }
+                    break;
+                }
+                case PLUGIN_DEP:
+                {
+                    extra = projectRefId( ( (PluginDependencyRelationship) rel ).getPlugin() );
+                    break;
+                }
+                case PLUGIN:
+                {
+                    flag = ( (PluginRelationship) rel ).isReporting() ? FLAG_REPORTING : 0;
+                    break;
+                }
+                default:
+                    break;
+            }
+
+            extras.add( extra );
+            flags.add( flag );
+
+            return this;
+        }
+
+        public Writer withRelationships( final Collection<? extends ProjectRelationship<?, ?>> rels )
+        {
+            for ( final ProjectRelationship<?, ?> rel : rels )
+            {
+                withRelationship( rel );
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds {@link EProjectRelationshipCollection#getExactAllRelationships()}, including terminal parents, sorted
+         * with {@link RelationshipComparator} so each project's relationships keep their declaration order.
+         */
+        public Writer withRelationships( final EProjectRelationshipCollection collection )
+        {
+            final List<ProjectRelationship<?, ?>> rels =
+                new ArrayList<ProjectRelationship<?, ?>>( collection.getExactAllRelationships() );
+            Collections.sort( rels, RelationshipComparator.INSTANCE );
+
+            return withRelationships( rels );
+        }
+
+        public Writer withCollections( final Collection<? extends EProjectRelationshipCollection> collections )
+        {
+            for ( final EProjectRelationshipCollection collection : collections )
+            {
+                withRelationships( collection );
+            }
+
+            return this;
+        }
+
+        public int getNodeCount()
+        {
+            return nodes.size();
+        }
+
+        public int getEdgeCount()
+        {
+            return sources.size;
+        }
+
+        /**
+         * Writes the snapshot, replacing the file if it exists. Open it with {@link GraphSnapshot#open(File)}.
+         * <p>
+         * The snapshot is written to a temporary file next to <code>file</code>, synced, and renamed over it, so
+         * <code>file</code> holds either the old snapshot or the complete new one. Where a plain rename can't replace
+         * an existing file (Windows), the atomic move of Java 7+ is used instead; if that isn't available either, the
+         * write fails and the old snapshot is left in place. Snapshots over the 2 GB mapping limit are refused before
+         * anything is written.
+         */
+        public void write( final File file )
+            throws IOException
+        {
+            write( file, Integer.MAX_VALUE );
+        }
+
+        void write( final File file, final long maxSize )
+            throws IOException
+        {
+            // node coordinates add strings, so they have to be collected before the string table is sized.
+            final int[] coordinates = nodeCoordinates();
+            final byte[][] encoded = encodeStrings();
+
+            final long size = size( encoded );
+            if ( size > maxSize )
+            {
+                throw new IOException( "Graph snapshot of " + size + " bytes exceeds the " + maxSize
+                    + " byte mapping limit: " + file );
+            }
+
+            final File dir = file.getAbsoluteFile().getParentFile();
+            final File tmp = File.createTempFile( file.getName() + ".", ".tmp", dir );
+            boolean replaced = false;
+            try
+            {
+                final FileOutputStream stream = new FileOutputStream( tmp );
+                try
+                {
+                    final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( stream, 1 << 16 ) );
+                    write( out, coordinates, encoded );
+                    out.flush();
+                    stream.getChannel().force( true );
+                }
+                finally
+                {
+                    stream.close();
+                }
+
+                if ( !tmp.renameTo( file ) && !moveAtomically( tmp, file ) )
+                {
+                    throw new IOException( "Failed to replace graph snapshot: " + file );
+                }
+                replaced = true;
+            }
+            finally
+            {
+                if ( !replaced )
+                {
+                    tmp.delete();
+                }
+            }
+        }
+
+        /**
+         * Files.move(source, target, REPLACE_EXISTING, ATOMIC_MOVE), looked up reflectively since this library still
+         * targets Java 6.
+         *
+         * @return false if NIO.2 isn't available
+         */
+        static boolean moveAtomically( final File source, final File target )
+            throws IOException
+        {
+            try
+            {
+                final Class<?> path = Class.forName( "java.nio.file.Path" );
+                final Class<?> option = Class.forName( "java.nio.file.CopyOption" );
+                final Class<?> standard = Class.forName( "java.nio.file.StandardCopyOption" );
+
+                final Object options = Array.newInstance( option, 2 );
+                Array.set( options, 0, standard.getField( "REPLACE_EXISTING" ).get( null ) );
+                Array.set( options, 1, standard.getField( "ATOMIC_MOVE" ).get( null ) );
+
+                final Method toPath = File.class.getMethod( "toPath" );
+                Class.forName( "java.nio.file.Files" )
+                     .getMethod( "move", path, path, options.getClass() )
+                     .invoke( null, toPath.invoke( source ), toPath.invoke( target ), options );
+
+                return true;
+            }
+            catch ( final ClassNotFoundException e )
+            {
+                return false;
+            }
+            catch ( final NoSuchMethodException e )
+            {
+                return false;
+            }
+            catch ( final NoSuchFieldException e )
+            {
+                return false;
+            }
+            catch ( final IllegalAccessException e )
+            {
+                return false;
+            }
+            catch ( final InvocationTargetException e )
+            {
+                throw (IOException) new IOException( "Failed to replace graph snapshot: " + target )
+                    .initCause( e.getCause() );
+            }
+        }
+
+        /**
+         * @return the length in bytes of the snapshot {@link #write(File)} would write now
+         */
+        long getSize()
+        {
+            nodeCoordinates();
+            return size( encodeStrings() );
+        }
+
+        private void write( final DataOutputStream out, final int[] coordinates, final byte[][] encoded )
+            throws IOException
+        {
+            out.writeInt( MAGIC );
+            out.writeInt( FORMAT_VERSION );
+
+            writeStrings( out, encoded );
+            writeNodes( out, coordinates );
+
+            out.writeInt( projectRefs.size / 2 );
+            writeInts( out, projectRefs.values, projectRefs.size );
+
+            sourceSets.write( out );
+            excludeSets.write( out );
+
+            writeEdges( out );
+        }
+
+        /**
+         * Adds up the sections in the order {@link #write(DataOutputStream, int[], byte[][])} writes them.
+         */
+        private long size( final byte[][] encoded )
+        {
+            final long nodeCount = nodes.size();
+            final long edgeCount = sources.size;
+
+            long size = 8;
+            size += 4 + 4L * ( encoded.length + 1 ) + 4 + padded( blobLength( encoded ) );
+            size += 4 + 16 * nodeCount + 4 + 4L * hashCapacity( nodes.size() );
+            size += 4 + 4L * projectRefs.size;
+            size += sourceSets.size() + excludeSets.size();
+            size += 4 + 8 * ( nodeCount + 1 ) + 40 * edgeCount;
+
+            return size;
+        }
+
+        private byte[][] encodeStrings()
+        {
+            final byte[][] encoded = new byte[strings.size()][];
+            for ( int i = 0; i < encoded.length; i++ )
+            {
+                encoded[i] = strings.get( i ).getBytes( UTF_8 );
+            }
+
+            return encoded;
+        }
+
+        private static long blobLength( final byte[][] encoded )
+        {
+            long length = 0;
+            for ( final byte[] bytes : encoded )
+            {
+                length += bytes.length;
+            }
+
+            return length;
+        }
+
+        private static long padded( final long length )
+        {
+            return ( length + 3 ) & ~3L;
+        }
+
+        private void writeStrings( final DataOutputStream out, final byte[][] encoded )
+            throws IOException
+        {
+            final int[] offsets = new int[encoded.length + 1];
+            for ( int i = 0; i < encoded.length; i++ )
+            {
+                offsets[i + 1] = offsets[i] + encoded[i].length;
+            }
+
+            final int length = offsets[encoded.length];
+            out.writeInt( encoded.length );
+            writeInts( out, offsets, offsets.length );
+            out.writeInt( length );
+            for ( final byte[] bytes : encoded )
+            {
+                out.write( bytes );
+            }
+            for ( int pad = length; ( pad & 3 ) != 0; pad++ )
+            {
+                out.write( 0 );
+            }
+        }
+
+        private int[] nodeCoordinates()
+        {
+            final int[] coordinates = new int[nodes.size() * 3];
+            for ( int n = 0; n < nodes.size(); n++ )
+            {
+                final ProjectVersionRef ref = nodes.get( n );
+                coordinates[n * 3] = stringId( ref.getGroupId() );
+                coordinates[n * 3 + 1] = stringId( ref.getArtifactId() );
+                coordinates[n * 3 + 2] = stringId( ref.getVersionString() );
+            }
+
+            return coordinates;
+        }
+
+        private void writeNodes( final DataOutputStream out, final int[] coordinates )
+            throws IOException
+        {
+            final int count = nodes.size();
+            final int[] hashes = new int[count];
+            for ( int n = 0; n < count; n++ )
+            {
+                final ProjectVersionRef ref = nodes.get( n );
+                hashes[n] = nodeHash( ref.getGroupId(), ref.getArtifactId(), ref.getVersionString() );
+            }
+
+            final int capacity = hashCapacity( count );
+            final int mask = capacity - 1;
+            final int[] table = new int[capacity];
+            for ( int n = 0; n < count; n++ )
+            {
+                int slot = spread( hashes[n] ) & mask;
+                while ( table[slot] != 0 )
+                {
+                    slot = ( slot + 1 ) & mask;
+                }
+                table[slot] = n + 1;
+            }
+
+            out.writeInt( count );
+            writeInts( out, coordinates, coordinates.length );
+            writeInts( out, hashes, count );
+            out.writeInt( capacity );
+            writeInts( out, table, capacity );
+        }
+
+        private static int hashCapacity( final int count )
+        {
+            int capacity = 16;
+            while ( capacity < count * 2 )
+            {
+                capacity <<= 1;
+            }
+
+            return capacity;
+        }
+
+        private void writeEdges( final DataOutputStream out )
+            throws IOException
+        {
+            final int nodeCount = nodes.size();
+            final int edgeCount = sources.size;
+
+            // counting sort by source keeps insertion order within each node, as in RelationshipGraph.
+            final int[] outOffsets = offsets( sources.values, edgeCount, nodeCount );
+            final int[] next = Arrays.copyOf( outOffsets, nodeCount );
+            final int[] order = new int[edgeCount];
+            for ( int i = 0; i < edgeCount; i++ )
+            {
+                order[next[sources.values[i]]++] = i;
+            }
+
+            final int[] sortedTargets = permute( targets, order );
+            final int[] inOffsets = offsets( sortedTargets, edgeCount, nodeCount );
+            final int[] nextIn = Arrays.copyOf( inOffsets, nodeCount );
+            final int[] inEdges = new int[edgeCount];
+            for ( int e = 0; e < edgeCount; e++ )
+            {
+                inEdges[nextIn[sortedTargets[e]]++] = e;
+            }
+
+            out.writeInt( edgeCount );
+            writeInts( out, outOffsets, outOffsets.length );
+            writeInts( out, permute( sources, order ), edgeCount );
+            writeInts( out, sortedTargets, edgeCount );
+            writeInts( out, permute( attributes, order ), edgeCount );
+            writeInts( out, inOffsets, inOffsets.length );
+            writeInts( out, inEdges, edgeCount );
+            writeInts( out, permute( types, order ), edgeCount );
+            writeInts( out, permute( classifiers, order ), edgeCount );
+            writeInts( out, permute( pomLocations, order ), edgeCount );
+            writeInts( out, permute( edgeSourceSets, order ), edgeCount );
+            writeInts( out, permute( extras, order ), edgeCount );
+            writeInts( out, permute( flags, order ), edgeCount );
+        }
+
+        private int stringId( final String value )
+        {
+            Integer id = stringIds.get( value );
+            if ( id == null )
+            {
+                id = strings.size();
+                stringIds.put( value, id );
+                strings.add( value );
+            }
+
+            return id;
+        }
+
+        private int projectRefId( final ProjectRef ref )
+        {
+            final int groupId = stringId( ref.getGroupId() );
+            final int artifactId = stringId( ref.getArtifactId() );
+            final Long key = ( (long) groupId << 32 ) | artifactId;
+
+            Integer id = projectRefIds.get( key );
+            if ( id == null )
+            {
+                id = projectRefs.size / 2;
+                projectRefIds.put( key, id );
+                projectRefs.add( groupId );
+                projectRefs.add( artifactId );
+            }
+
+            return id;
+        }
+
+        private static int[] offsets( final int[] keys, final int count, final int nodeCount )
+        {
+            final int[] offsets = new int[nodeCount + 1];
+            for ( int i = 0; i < count; i++ )
+            {
+                offsets[keys[i] + 1]++;
+            }
+            for ( int n = 0; n < nodeCount; n++ )
+            {
+                offsets[n + 1] += offsets[n];
+            }
+
+            return offsets;
+        }
+
+        private static int[] permute( final IntColumn column, final int[] order )
+        {
+            final int[] result = new int[order.length];
+            for ( int e = 0; e < order.length; e++ )
+            {
+                result[e] = column.values[order[e]];
+            }
+
+            return result;
+        }
+
+        private static void writeInts( final DataOutputStream out, final int[] values, final int count )
+            throws IOException
+        {
+            for ( int i = 0; i < count; i++ )
+            {
+                out.writeInt( values[i] );
+            }
+        }
+
+        /**
+         * Growable int array.
+         */
+        private static final class IntColumn
+        {
+            private int[] values;
+
+            private int size;
+
+            IntColumn( final int capacity )
+            {
+                values = new int[capacity];
+            }
+
+            void add( final int value )
+            {
+                if ( size == values.length )
+                {
+                    values = Arrays.copyOf( values, size + ( size >> 1 ) + 1 );
+                }
+
+                values[size++] = value;
+            }
+        }
+
+        /**
+         * Distinct sets of ids, each stored once as a sorted run of values in CSR form.
+         */
+        private static final class SetTable
+        {
+            private final Map<IntKey, Integer> ids = new HashMap<IntKey, Integer>();
+
+            private final IntColumn offsets = new IntColumn( DEFAULT_CAPACITY );
+
+            private final IntColumn values = new IntColumn( DEFAULT_CAPACITY );
+
+            SetTable()
+            {
+                offsets.add( 0 );
+            }
+
+            int intern( final int[] members )
+            {
+                Arrays.sort( members );
+                final IntKey key = new IntKey( members );
+
+                Integer id = ids.get( key );
+                if ( id == null )
+                {
+                    id = ids.size();
+                    ids.put( key, id );
+                    for ( final int member : members )
+                    {
+                        values.add( member );
+                    }
+                    offsets.add( values.size );
+                }
+
+                return id;
+            }
+
+            long size()
+            {
+                return 8 + 4L * offsets.size + 4L * values.size;
+            }
+
+            void write( final DataOutputStream out )
+                throws IOException
+            {
+                out.writeInt( offsets.size - 1 );
+                writeInts( out, offsets.values, offsets.size );
+                out.writeInt( values.size );
+                writeInts( out, values.values, values.size );
+            }
+        }
+
+        private static final class IntKey
+        {
+            private final int[] values;
+
+            private final int hashCode;
+
+            IntKey( final int[] values )
+            {
+                this.values = values;
+                this.hashCode = Arrays.hashCode( values );
+            }
+
+            @Override
+            public int hashCode()
+            {
+                return hashCode;
+            }
+
+            @Override
+            public boolean equals( final Object obj )
+            {
+                return obj instanceof IntKey && Arrays.equals( values, ( (IntKey) obj ).values );
+            }
+        }
+    }
+
+}
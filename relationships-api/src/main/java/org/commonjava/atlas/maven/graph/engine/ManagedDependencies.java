@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleVersionlessArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.VersionlessArtifactRef;
+
+/**
+ * Effective dependency management of one project, from a {@link ManagedDependencyResolver}: its own managed
+ * dependencies, over those inherited from its parents and imported from BOMs. The inherited and imported part is
+ * shared with every project that has the same parent and BOM imports.
+ */
+public final class ManagedDependencies
+{
+
+    private final ProjectVersionRef project;
+
+    private final Map<VersionlessArtifactRef, DependencyRelationship> own;
+
+    private final ManagedDependencyResolver.Chain chain;
+
+    ManagedDependencies( final ProjectVersionRef project, final Map<VersionlessArtifactRef, DependencyRelationship> own,
+                         final ManagedDependencyResolver.Chain chain )
+    {
+        this.project = project;
+        this.own = own;
+        this.chain = chain;
+    }
+
+    public ProjectVersionRef getProject()
+    {
+        return project;
+    }
+
+    /**
+     * @return the managed dependency that applies to the artifact, or null if it isn't managed
+     */
+    public DependencyRelationship get( final VersionlessArtifactRef artifact )
+    {
+        final DependencyRelationship rel = own.get( artifact );
+        return rel != null ? rel : chain.entries.get( artifact );
+    }
+
+    /**
+     * @return the managed dependency that applies to the artifact (ignoring its version), or null if it isn't managed
+     */
+    public DependencyRelationship get( final ArtifactRef artifact )
+    {
+        return get( new SimpleVersionlessArtifactRef( artifact ) );
+    }
+
+    /**
+     * @return the managed dependency that applies to the dependency's target, or null if it isn't managed
+     */
+    public DependencyRelationship getManagement( final DependencyRelationship dependency )
+    {
+        return get( dependency.getTargetArtifact() );
+    }
+
+    /**
+     * @return the managed version of the artifact, or null if it isn't managed
+     */
+    public ProjectVersionRef getManagedVersion( final VersionlessArtifactRef artifact )
+    {
+        final DependencyRelationship rel = get( artifact );
+        return rel == null ? null : rel.getTarget().asProjectVersionRef();
+    }
+
+    public boolean isManaged( final VersionlessArtifactRef artifact )
+    {
+        return get( artifact ) != null;
+    }
+
+    /**
+     * @return the number of managed artifacts
+     */
+    public int size()
+    {
+        int size = chain.entries.size();
+        for ( final VersionlessArtifactRef artifact : own.keySet() )
+        {
+            if ( !chain.entries.containsKey( artifact ) )
+            {
+                size++;
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * @return every managed artifact with the dependency that manages it, as a new map
+     */
+    public Map<VersionlessArtifactRef, DependencyRelationship> asMap()
+    {
+        final Map<VersionlessArtifactRef, DependencyRelationship> result =
+            new LinkedHashMap<VersionlessArtifactRef, DependencyRelationship>( chain.entries );
+        result.putAll( own );
+        return result;
+    }
+
+    /**
+     * @return parents and BOMs (and possibly the project itself) that weren't available to the resolver, so their
+     *         management is missing from this result
+     */
+    public Set<ProjectVersionRef> getMissing()
+    {
+        return chain.missing;
+    }
+
+    /**
+     * @return true if this project shares its inherited and imported management with the other's
+     */
+    public boolean sharesChainWith( final ManagedDependencies other )
+    {
+        return chain == other.chain;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "ManagedDependencies [project=%s, own=%d, inherited=%d%s]", project, own.size(),
+                              chain.entries.size(), chain.missing.isEmpty() ? "" : ", missing=" + chain.missing );
+    }
+
+}
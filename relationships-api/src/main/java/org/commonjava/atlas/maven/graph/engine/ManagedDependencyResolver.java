@@ -0,0 +1,405 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.BomRelationship;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.ParentRelationship;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleVersionlessArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.VersionlessArtifactRef;
+
+/**
+ * Works out the effective dependency management of projects from their {@link EProjectDirectRelationships}: the
+ * project's own managed dependencies, then those of its parents (nearest first), then those of the BOMs imported by
+ * the project and its parents (the project's own imports first, each BOM with its own effective management). The
+ * first declaration of an artifact wins.
+ * <p>
+ * Everything except the project's own entries depends only on its parent and its BOM imports, so it is flattened once
+ * per distinct (parent, BOMs) chain into a map and shared by every project with that chain; a lookup is then at most
+ * two hash probes. Import-scoped managed dependencies are BOM references rather than managed versions, and are left
+ * out. Parents or BOMs that aren't among the projects given are reported by {@link ManagedDependencies#getMissing()};
+ * a parent or BOM that is already being flattened further down the same chain (a cycle) is skipped. Anything
+ * flattened while part of a cycle was skipped is only correct from inside that cycle, so it isn't shared.
+ * <p>
+ * Resolution is thread-safe. The projects are fixed at construction; create a new resolver when they change.
+ */
+public final class ManagedDependencyResolver
+{
+
+    private final Map<ProjectVersionRef, EProjectDirectRelationships> projects;
+
+    private final ConcurrentMap<ProjectVersionRef, ManagedDependencies> resolved =
+        new ConcurrentHashMap<ProjectVersionRef, ManagedDependencies>();
+
+    private final ConcurrentMap<ChainKey, Chain> chains = new ConcurrentHashMap<ChainKey, Chain>();
+
+    private final ConcurrentMap<ProjectVersionRef, Inheritance> inheritances =
+        new ConcurrentHashMap<ProjectVersionRef, Inheritance>();
+
+    private final AtomicInteger flattenCount = new AtomicInteger();
+
+    public ManagedDependencyResolver( final Collection<EProjectDirectRelationships> projects )
+    {
+        this.projects = new HashMap<ProjectVersionRef, EProjectDirectRelationships>( projects.size() * 2 );
+        for ( final EProjectDirectRelationships project : projects )
+        {
+            this.projects.put( project.getProjectRef().asProjectVersionRef(), project );
+        }
+    }
+
+    public ManagedDependencyResolver( final EProjectDirectRelationships... projects )
+    {
+        this( Arrays.asList( projects ) );
+    }
+
+    public ManagedDependencies resolve( final ProjectVersionRef project )
+    {
+        return resolve( project.asProjectVersionRef(), new HashSet<ProjectVersionRef>(),
+                        new HashSet<ProjectVersionRef>() );
+    }
+
+    /**
+     * @return the number of chains flattened so far (each distinct chain should be flattened once)
+     */
+    int getFlattenCount()
+    {
+        return flattenCount.get();
+    }
+
+    /**
+     * @return the number of distinct (parent, BOMs) chains flattened so far
+     */
+    public int getChainCount()
+    {
+        return chains.size();
+    }
+
+    /**
+     * @param cut collects the projects that were skipped below this one because they were still being flattened
+     */
+    private ManagedDependencies resolve( final ProjectVersionRef ref, final Set<ProjectVersionRef> visiting,
+                                         final Set<ProjectVersionRef> cut )
+    {
+        ManagedDependencies result = resolved.get( ref );
+        if ( result != null )
+        {
+            return result;
+        }
+
+        final EProjectDirectRelationships project = projects.get( ref );
+        if ( project == null )
+        {
+            final Map<VersionlessArtifactRef, DependencyRelationship> none = Collections.emptyMap();
+            result = new ManagedDependencies( ref, none, new Chain( none, Collections.singleton( ref ) ) );
+        }
+        else
+        {
+            final Set<ProjectVersionRef> chainCut = new HashSet<ProjectVersionRef>();
+            visiting.add( ref );
+            final Chain chain = chain( new ChainKey( parentOf( project ), bomsOf( project ) ), visiting, chainCut );
+            visiting.remove( ref );
+
+            result = new ManagedDependencies( ref, ownManagement( project ), chain );
+
+            // skipping this project itself is the right answer for it; skipping anything else is not.
+            chainCut.remove( ref );
+            if ( !chainCut.isEmpty() )
+            {
+                cut.addAll( chainCut );
+                return result;
+            }
+        }
+
+        final ManagedDependencies existing = resolved.putIfAbsent( ref, result );
+        return existing == null ? result : existing;
+    }
+
+    private Chain chain( final ChainKey key, final Set<ProjectVersionRef> visiting, final Set<ProjectVersionRef> cut )
+    {
+        Chain chain = chains.get( key );
+        if ( chain != null )
+        {
+            return chain;
+        }
+
+        flattenCount.incrementAndGet();
+
+        final Map<VersionlessArtifactRef, DependencyRelationship> entries =
+            new HashMap<VersionlessArtifactRef, DependencyRelationship>();
+        final Set<ProjectVersionRef> missing = new LinkedHashSet<ProjectVersionRef>();
+        final Set<ProjectVersionRef> chainCut = new HashSet<ProjectVersionRef>();
+
+        final Set<ProjectVersionRef> imports = new LinkedHashSet<ProjectVersionRef>( key.boms );
+        if ( key.parent != null )
+        {
+            final Inheritance inheritance = inheritance( key.parent, visiting, chainCut );
+            entries.putAll( inheritance.entries );
+            imports.addAll( inheritance.imports );
+            missing.addAll( inheritance.missing );
+        }
+
+        for ( final ProjectVersionRef bom : imports )
+        {
+            if ( visiting.contains( bom ) )
+            {
+                chainCut.add( bom );
+                continue;
+            }
+
+            final ManagedDependencies managed = resolve( bom, visiting, chainCut );
+            for ( final Map.Entry<VersionlessArtifactRef, DependencyRelationship> entry : managed.asMap().entrySet() )
+            {
+                if ( !entries.containsKey( entry.getKey() ) )
+                {
+                    entries.put( entry.getKey(), entry.getValue() );
+                }
+            }
+            missing.addAll( managed.getMissing() );
+        }
+
+        chain = new Chain( entries, missing );
+        if ( !chainCut.isEmpty() )
+        {
+            cut.addAll( chainCut );
+            return chain;
+        }
+
+        final Chain existing = chains.putIfAbsent( key, chain );
+        return existing == null ? chain : existing;
+    }
+
+    /**
+     * The managed dependencies declared by a project and its parents, nearest first, and the BOMs they import.
+     */
+    private Inheritance inheritance( final ProjectVersionRef ref, final Set<ProjectVersionRef> visiting,
+                                     final Set<ProjectVersionRef> cut )
+    {
+        Inheritance inheritance = inheritances.get( ref );
+        if ( inheritance != null )
+        {
+            return inheritance;
+        }
+
+        final EProjectDirectRelationships project = projects.get( ref );
+        if ( project == null || visiting.contains( ref ) )
+        {
+            final Map<VersionlessArtifactRef, DependencyRelationship> none = Collections.emptyMap();
+            final List<ProjectVersionRef> noImports = Collections.emptyList();
+            final Set<ProjectVersionRef> missing =
+                project == null ? Collections.singleton( ref ) : Collections.<ProjectVersionRef> emptySet();
+
+            inheritance = new Inheritance( none, noImports, missing );
+            if ( project != null )
+            {
+                // a cycle only looks this way from inside it, so don't remember it.
+                cut.add( ref );
+                return inheritance;
+            }
+
+            return remember( ref, inheritance );
+        }
+
+        final Map<VersionlessArtifactRef, DependencyRelationship> entries =
+            new HashMap<VersionlessArtifactRef, DependencyRelationship>();
+        final List<ProjectVersionRef> imports = new ArrayList<ProjectVersionRef>( bomsOf( project ) );
+        Set<ProjectVersionRef> missing = Collections.emptySet();
+        final Set<ProjectVersionRef> parentCut = new HashSet<ProjectVersionRef>();
+
+        final ProjectVersionRef parent = parentOf( project );
+        if ( parent != null )
+        {
+            visiting.add( ref );
+            final Inheritance inherited = inheritance( parent, visiting, parentCut );
+            visiting.remove( ref );
+
+            entries.putAll( inherited.entries );
+            imports.addAll( inherited.imports );
+            missing = inherited.missing;
+        }
+
+        entries.putAll( ownManagement( project ) );
+        inheritance = new Inheritance( entries, imports, missing );
+
+        parentCut.remove( ref );
+        if ( !parentCut.isEmpty() )
+        {
+            cut.addAll( parentCut );
+            return inheritance;
+        }
+
+        return remember( ref, inheritance );
+    }
+
+    private Inheritance remember( final ProjectVersionRef ref, final Inheritance inheritance )
+    {
+        final Inheritance existing = inheritances.putIfAbsent( ref, inheritance );
+        return existing == null ? inheritance : existing;
+    }
+
+    private static Map<VersionlessArtifactRef, DependencyRelationship> ownManagement(
+        final EProjectDirectRelationships project )
+    {
+        final List<DependencyRelationship> managed = project.getManagedDependencies();
+        if ( managed == null || managed.isEmpty() )
+        {
+            return Collections.emptyMap();
+        }
+
+        final Map<VersionlessArtifactRef, DependencyRelationship> result =
+            new LinkedHashMap<VersionlessArtifactRef, DependencyRelationship>( managed.size() * 2 );
+        for ( final DependencyRelationship rel : managed )
+        {
+            if ( rel.isBOM() )
+            {
+                continue;
+            }
+
+            final VersionlessArtifactRef key = new SimpleVersionlessArtifactRef( rel.getTargetArtifact() );
+            if ( !result.containsKey( key ) )
+            {
+                result.put( key, rel );
+            }
+        }
+
+        return result;
+    }
+
+    private static ProjectVersionRef parentOf( final EProjectDirectRelationships project )
+    {
+        final ParentRelationship parent = project.getParent();
+        if ( parent == null || parent.isTerminus() )
+        {
+            return null;
+        }
+
+        return parent.getTarget().asProjectVersionRef();
+    }
+
+    private static List<ProjectVersionRef> bomsOf( final EProjectDirectRelationships project )
+    {
+        final List<BomRelationship> boms = project.getBoms();
+        if ( boms == null || boms.isEmpty() )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<ProjectVersionRef> result = new ArrayList<ProjectVersionRef>( boms.size() );
+        for ( final BomRelationship bom : boms )
+        {
+            result.add( bom.getTarget().asProjectVersionRef() );
+        }
+
+        return result;
+    }
+
+    /**
+     * What a project's inherited and imported management depends on: its parent and its own BOM imports, in order.
+     */
+    private static final class ChainKey
+    {
+        private final ProjectVersionRef parent;
+
+        private final List<ProjectVersionRef> boms;
+
+        private final int hashCode;
+
+        ChainKey( final ProjectVersionRef parent, final List<ProjectVersionRef> boms )
+        {
+            this.parent = parent;
+            this.boms = boms;
+            this.hashCode = 31 * ( parent == null ? 0 : parent.hashCode() ) + boms.hashCode();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( final Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof ChainKey ) )
+            {
+                return false;
+            }
+
+            final ChainKey other = (ChainKey) obj;
+            if ( hashCode != other.hashCode || !boms.equals( other.boms ) )
+            {
+                return false;
+            }
+
+            return parent == null ? other.parent == null : parent.equals( other.parent );
+        }
+    }
+
+    /**
+     * Flattened management shared by the projects with one {@link ChainKey}.
+     */
+    static final class Chain
+    {
+        final Map<VersionlessArtifactRef, DependencyRelationship> entries;
+
+        final Set<ProjectVersionRef> missing;
+
+        Chain( final Map<VersionlessArtifactRef, DependencyRelationship> entries,
+               final Set<ProjectVersionRef> missing )
+        {
+            this.entries = entries;
+            this.missing = Collections.unmodifiableSet( missing );
+        }
+    }
+
+    private static final class Inheritance
+    {
+        private final Map<VersionlessArtifactRef, DependencyRelationship> entries;
+
+        private final List<ProjectVersionRef> imports;
+
+        private final Set<ProjectVersionRef> missing;
+
+        Inheritance( final Map<VersionlessArtifactRef, DependencyRelationship> entries,
+                     final List<ProjectVersionRef> imports, final Set<ProjectVersionRef> missing )
+        {
+            this.entries = entries;
+            this.imports = imports;
+            this.missing = missing;
+        }
+    }
+
+}
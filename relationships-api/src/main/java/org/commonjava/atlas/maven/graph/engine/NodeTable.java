@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.Arrays;
+
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Assigns dense int ids to {@link ProjectVersionRef}s, in insertion order. Open addressing over an int[] of ids, so
+ * lookups don't box.
+ */
+final class NodeTable
+{
+
+    private static final int MIN_CAPACITY = 16;
+
+    private ProjectVersionRef[] refs;
+
+    private int size;
+
+    // id + 1 per slot, 0 for empty.
+    private int[] slots;
+
+    NodeTable( final int expected )
+    {
+        refs = new ProjectVersionRef[Math.max( expected, MIN_CAPACITY )];
+        slots = new int[tableSizeFor( expected )];
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    ProjectVersionRef get( final int id )
+    {
+        if ( id < 0 || id >= size )
+        {
+            throw new IndexOutOfBoundsException( "No node: " + id );
+        }
+
+        return refs[id];
+    }
+
+    int indexOf( final ProjectVersionRef ref )
+    {
+        final int mask = slots.length - 1;
+        int slot = spread( ref.hashCode() ) & mask;
+        int id;
+        while ( ( id = slots[slot] ) != 0 )
+        {
+            if ( refs[id - 1].equals( ref ) )
+            {
+                return id - 1;
+            }
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        return -1;
+    }
+
+    int intern( final ProjectVersionRef ref )
+    {
+        final int mask = slots.length - 1;
+        int slot = spread( ref.hashCode() ) & mask;
+        int id;
+        while ( ( id = slots[slot] ) != 0 )
+        {
+            if ( refs[id - 1].equals( ref ) )
+            {
+                return id - 1;
+            }
+
+            slot = ( slot + 1 ) & mask;
+        }
+
+        if ( size == refs.length )
+        {
+            refs = Arrays.copyOf( refs, Math.max( MIN_CAPACITY, size + ( size >> 1 ) ) );
+        }
+
+        final int newId = size++;
+        refs[newId] = ref;
+        slots[slot] = newId + 1;
+
+        if ( size * 2 > slots.length )
+        {
+            rehash( slots.length * 2 );
+        }
+
+        return newId;
+    }
+
+    /**
+     * @return a copy without spare capacity, for a graph that won't add nodes
+     */
+    NodeTable compactCopy()
+    {
+        final NodeTable copy = new NodeTable( 0 );
+        copy.refs = Arrays.copyOf( refs, size );
+        copy.size = size;
+        copy.rehash( tableSizeFor( size ) );
+
+        return copy;
+    }
+
+    private void rehash( final int capacity )
+    {
+        final int[] table = new int[capacity];
+        final int mask = capacity - 1;
+        for ( int id = 0; id < size; id++ )
+        {
+            int slot = spread( refs[id].hashCode() ) & mask;
+            while ( table[slot] != 0 )
+            {
+                slot = ( slot + 1 ) & mask;
+            }
+
+            table[slot] = id + 1;
+        }
+
+        slots = table;
+    }
+
+    private static int tableSizeFor( final int expected )
+    {
+        int capacity = MIN_CAPACITY;
+        while ( capacity < expected * 2 )
+        {
+            capacity <<= 1;
+        }
+
+        return capacity;
+    }
+
+    private static int spread( final int h )
+    {
+        return h ^ ( h >>> 16 );
+    }
+
+}
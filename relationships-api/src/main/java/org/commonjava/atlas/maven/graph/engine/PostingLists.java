@@ -0,0 +1,131 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.Arrays;
+
+/**
+ * Growable int lists, one per dense key, stored as plain arrays (no boxing). Removal swaps the last element in, so
+ * lists are unordered once anything has been removed.
+ */
+final class PostingLists
+{
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[][] lists = new int[16][];
+
+    private int[] sizes = new int[16];
+
+    int size( final int key )
+    {
+        return key < sizes.length ? sizes[key] : 0;
+    }
+
+    int get( final int key, final int position )
+    {
+        return lists[key][position];
+    }
+
+    void add( final int key, final int value )
+    {
+        ensureKey( key );
+
+        int[] list = lists[key];
+        if ( list == null )
+        {
+            list = new int[4];
+            lists[key] = list;
+        }
+        else if ( sizes[key] == list.length )
+        {
+            list = Arrays.copyOf( list, list.length * 2 );
+            lists[key] = list;
+        }
+
+        list[sizes[key]++] = value;
+    }
+
+    /**
+     * @return true if the value was in the list
+     */
+    boolean remove( final int key, final int value )
+    {
+        final int size = size( key );
+        final int[] list = size == 0 ? EMPTY : lists[key];
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( list[i] == value )
+            {
+                list[i] = list[size - 1];
+                sizes[key]--;
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    boolean contains( final int key, final int value )
+    {
+        final int size = size( key );
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( lists[key][i] == value )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    void clear( final int key )
+    {
+        if ( key < sizes.length )
+        {
+            sizes[key] = 0;
+        }
+    }
+
+    /**
+     * @return approximate bytes held by the list arrays
+     */
+    long getBytes()
+    {
+        long bytes = 4L * sizes.length + 8L * lists.length;
+        for ( final int[] list : lists )
+        {
+            if ( list != null )
+            {
+                bytes += 16 + 4L * list.length;
+            }
+        }
+
+        return bytes;
+    }
+
+    private void ensureKey( final int key )
+    {
+        if ( key >= lists.length )
+        {
+            final int capacity = Math.max( key + 1, lists.length * 2 );
+            lists = Arrays.copyOf( lists, capacity );
+            sizes = Arrays.copyOf( sizes, capacity );
+        }
+    }
+
+}
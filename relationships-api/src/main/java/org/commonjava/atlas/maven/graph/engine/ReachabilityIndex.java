@@ -0,0 +1,693 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.commonjava.atlas.maven.graph.model.EProjectRelationshipCollection;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Precomputed answers to "does A transitively depend on B" (following the relationships an {@link EdgeFilter}
+ * accepts), for graphs that are queried far more often than they change.
+ * <p>
+ * The graph is condensed into its strongly connected components, whose ids are already in reverse topological order
+ * (see {@link StronglyConnectedComponents}), so a component can only reach lower ids. Up to
+ * {@link #DEFAULT_BITSET_LIMIT} components, the full transitive closure is kept as bitsets and every query is a bit
+ * test. Above that, each component gets several interval labels from randomized depth-first traversals of the
+ * condensed graph (GRAIL): if B's intervals don't nest inside A's, A can't reach B, which settles most negative
+ * queries in constant time; the rest are confirmed by a depth-first search that only enters components whose labels
+ * still allow reaching B.
+ * <p>
+ * Relationships added later are absorbed without rebuilding where possible: an edge whose source already reaches its
+ * target changes nothing, and edges declared by projects that nothing points to yet go into a small overlay that
+ * queries search before handing over to the index. Anything else marks the index stale, and it is rebuilt on the
+ * next query (or {@link #refresh()}).
+ * <p>
+ * Queries can run concurrently with each other; updates and rebuilds are exclusive.
+ */
+public final class ReachabilityIndex
+{
+
+    public static final int DEFAULT_BITSET_LIMIT = 4096;
+
+    private static final int LABELINGS = 3;
+
+    // projects the overlay may hold before the next query rebuilds instead.
+    private static final int MAX_OVERLAY_NODES = 4096;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final EdgeFilter filter;
+
+    private final int bitsetLimit;
+
+    // every accepted edge that wasn't already implied when added; node ids are shared with the index and overlay.
+    private final RelationshipGraph.Builder builder = new RelationshipGraph.Builder();
+
+    private Labels labels;
+
+    // out-edges of the projects added since the last build (node ids >= labels.nodeCount)
+    private PostingLists overlay = new PostingLists();
+
+    private boolean stale;
+
+    private int rebuilds;
+
+    public ReachabilityIndex( final RelationshipGraph graph, final EdgeFilter filter )
+    {
+        this( graph, filter, DEFAULT_BITSET_LIMIT );
+    }
+
+    ReachabilityIndex( final RelationshipGraph graph, final EdgeFilter filter, final int bitsetLimit )
+    {
+        this.filter = filter;
+        this.bitsetLimit = bitsetLimit;
+
+        for ( int node = 0; node < graph.getNodeCount(); node++ )
+        {
+            builder.addNode( graph.getNode( node ) );
+        }
+        for ( int e = 0; e < graph.getEdgeCount(); e++ )
+        {
+            if ( filter.accepts( graph.getAttributes( e ) ) )
+            {
+                builder.withEdge( graph.getSource( e ), graph.getTarget( e ), graph.getAttributes( e ) );
+            }
+        }
+
+        rebuild();
+        rebuilds = 0;
+    }
+
+    public ReachabilityIndex( final Collection<? extends ProjectRelationship<?, ?>> relationships,
+                              final EdgeFilter filter )
+    {
+        this( new RelationshipGraph.Builder().withRelationships( relationships ).build(), filter );
+    }
+
+    /**
+     * @return true if 'from' depends on 'to' through one or more accepted relationships; every project reaches itself
+     */
+    public boolean reaches( final ProjectVersionRef from, final ProjectVersionRef to )
+    {
+        if ( from.equals( to ) )
+        {
+            return true;
+        }
+
+        lock.readLock().lock();
+        try
+        {
+            if ( !stale )
+            {
+                return query( from, to );
+            }
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+
+        lock.writeLock().lock();
+        try
+        {
+            if ( stale )
+            {
+                rebuild();
+            }
+
+            return query( from, to );
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the relationships the filter accepts.
+     *
+     * @return the number of relationships that could change reachability (the others were already implied)
+     */
+    public int addAll( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+    {
+        lock.writeLock().lock();
+        try
+        {
+            int added = 0;
+            for ( final ProjectRelationship<?, ?> rel : relationships )
+            {
+                if ( doAdd( rel ) )
+                {
+                    added++;
+                }
+            }
+
+            if ( builder.getNodeCount() - labels.nodeCount > MAX_OVERLAY_NODES )
+            {
+                stale = true;
+            }
+
+            return added;
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds {@link EProjectRelationshipCollection#getAllRelationships()}, typically a newly parsed project's
+     * {@link org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships}.
+     */
+    public int add( final EProjectRelationshipCollection relationships )
+    {
+        return addAll( relationships.getAllRelationships() );
+    }
+
+    /**
+     * Rebuilds now if updates have made the index stale, rather than on the next query.
+     */
+    public void refresh()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if ( stale )
+            {
+                rebuild();
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the number of rebuilds caused by updates since construction
+     */
+    public int getRebuildCount()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return rebuilds;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return how long the last (re)build took
+     */
+    public long getBuildNanos()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return labels.buildNanos;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the approximate number of bytes held by the index structures, not counting the project refs and the
+     *         edges kept for rebuilding
+     */
+    public long getIndexBytes()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return labels.getBytes() + overlay.getBytes();
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return true if queries are answered from the full transitive closure, rather than from interval labels
+     */
+    public boolean isClosure()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return labels.closure != null;
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        lock.readLock().lock();
+        try
+        {
+            return String.format( "ReachabilityIndex [projects=%d, components=%d, %s, %d bytes, built in %.1fms%s]",
+                                  builder.getNodeCount(), labels.componentCount,
+                                  labels.closure != null ? "closure" : "labels", getIndexBytes(),
+                                  labels.buildNanos / 1000000.0, stale ? ", stale" : "" );
+        }
+        finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean doAdd( final ProjectRelationship<?, ?> rel )
+    {
+        final int attributes = EdgeAttributes.pack( rel );
+        if ( !filter.accepts( attributes ) )
+        {
+            return false;
+        }
+
+        final int source = builder.addNode( rel.getDeclaring() );
+        final int target = builder.addNode( rel.getTarget().asProjectVersionRef() );
+        if ( source == target )
+        {
+            return false;
+        }
+
+        final int base = labels.nodeCount;
+        if ( source < base )
+        {
+            if ( target < base && !stale && labels.reaches( source, target ) )
+            {
+                return false;
+            }
+
+            // an existing project gains a new path; only a rebuild can account for it.
+            stale = true;
+        }
+        else if ( !stale )
+        {
+            if ( overlay.contains( source, target ) )
+            {
+                return false;
+            }
+
+            overlay.add( source, target );
+        }
+
+        builder.withEdge( source, target, attributes );
+        return true;
+    }
+
+    private void rebuild()
+    {
+        labels = new Labels( builder.build(), filter, bitsetLimit );
+        overlay = new PostingLists();
+        stale = false;
+        rebuilds++;
+    }
+
+    private boolean query( final ProjectVersionRef from, final ProjectVersionRef to )
+    {
+        final int source = builder.getNodeId( from );
+        final int target = builder.getNodeId( to );
+        if ( source < 0 || target < 0 )
+        {
+            return false;
+        }
+
+        final int base = labels.nodeCount;
+        if ( source < base )
+        {
+            // nothing in the index points into the overlay, or it would be stale.
+            return target < base && labels.reaches( source, target );
+        }
+
+        final boolean[] seen = new boolean[builder.getNodeCount() - base];
+        final int[] stack = new int[seen.length];
+        int sp = 0;
+        stack[sp++] = source;
+        seen[source - base] = true;
+        while ( sp > 0 )
+        {
+            final int node = stack[--sp];
+            for ( int i = 0; i < overlay.size( node ); i++ )
+            {
+                final int next = overlay.get( node, i );
+                if ( next == target )
+                {
+                    return true;
+                }
+
+                if ( next < base )
+                {
+                    if ( target < base && labels.reaches( next, target ) )
+                    {
+                        return true;
+                    }
+                }
+                else if ( !seen[next - base] )
+                {
+                    seen[next - base] = true;
+                    stack[sp++] = next;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Immutable index over one build of the graph.
+     */
+    private static final class Labels
+    {
+        private final int nodeCount;
+
+        private final int[] components;
+
+        private final int componentCount;
+
+        // condensed graph: component -> distinct components it has edges to (all lower ids)
+        private final int[] dagOffsets;
+
+        private final int[] dagTargets;
+
+        // componentCount rows of 'words' longs, or null
+        private final long[] closure;
+
+        private final int words;
+
+        // LABELINGS rows of componentCount entries, or null
+        private final int[] low;
+
+        private final int[] post;
+
+        private final long buildNanos;
+
+        private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>()
+        {
+            @Override
+            protected Scratch initialValue()
+            {
+                return new Scratch( componentCount );
+            }
+        };
+
+        Labels( final RelationshipGraph graph, final EdgeFilter filter, final int bitsetLimit )
+        {
+            final long start = System.nanoTime();
+
+            nodeCount = graph.getNodeCount();
+            final StronglyConnectedComponents scc = new StronglyConnectedComponents( graph, filter );
+            componentCount = scc.getComponentCount();
+            components = new int[nodeCount];
+            for ( int node = 0; node < nodeCount; node++ )
+            {
+                components[node] = scc.getComponent( node );
+            }
+
+            dagOffsets = new int[componentCount + 1];
+            int[] targets = new int[Math.max( 16, graph.getEdgeCount() / 2 )];
+            int count = 0;
+            final int[] mark = new int[componentCount];
+            for ( int c = 0; c < componentCount; c++ )
+            {
+                for ( final int node : scc.getMembers( c ) )
+                {
+                    for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+                    {
+                        final int d = components[graph.getTarget( e )];
+                        if ( d == c || mark[d] == c + 1 || !filter.accepts( graph.getAttributes( e ) ) )
+                        {
+                            continue;
+                        }
+
+                        mark[d] = c + 1;
+                        if ( count == targets.length )
+                        {
+                            targets = Arrays.copyOf( targets, count * 2 );
+                        }
+                        targets[count++] = d;
+                    }
+                }
+
+                dagOffsets[c + 1] = count;
+            }
+            dagTargets = Arrays.copyOf( targets, count );
+
+            if ( componentCount <= bitsetLimit )
+            {
+                words = ( componentCount + 63 ) >>> 6;
+                closure = buildClosure();
+                low = null;
+                post = null;
+            }
+            else
+            {
+                words = 0;
+                closure = null;
+                low = new int[LABELINGS * componentCount];
+                post = new int[LABELINGS * componentCount];
+                buildLabels();
+            }
+
+            buildNanos = System.nanoTime() - start;
+        }
+
+        private long[] buildClosure()
+        {
+            final long[] rows = new long[componentCount * words];
+            // targets have lower ids, so their rows are complete by the time they're merged.
+            for ( int c = 0; c < componentCount; c++ )
+            {
+                final int row = c * words;
+                for ( int i = dagOffsets[c]; i < dagOffsets[c + 1]; i++ )
+                {
+                    final int d = dagTargets[i];
+                    rows[row + ( d >>> 6 )] |= 1L << d;
+
+                    final int other = d * words;
+                    for ( int w = 0; w <= ( d >>> 6 ); w++ )
+                    {
+                        rows[row + w] |= rows[other + w];
+                    }
+                }
+            }
+
+            return rows;
+        }
+
+        private void buildLabels()
+        {
+            final boolean[] hasParent = new boolean[componentCount];
+            for ( final int d : dagTargets )
+            {
+                hasParent[d] = true;
+            }
+
+            int rootCount = 0;
+            final int[] roots = new int[componentCount];
+            for ( int c = 0; c < componentCount; c++ )
+            {
+                if ( !hasParent[c] )
+                {
+                    roots[rootCount++] = c;
+                }
+            }
+
+            final int[] stack = new int[componentCount];
+            final int[] cursor = new int[componentCount];
+            final int[] rotation = new int[componentCount];
+            for ( int labeling = 0; labeling < LABELINGS; labeling++ )
+            {
+                final Random rand = new Random( 31L * labeling + 7 );
+                final int offset = labeling * componentCount;
+                final boolean[] visited = new boolean[componentCount];
+                int counter = 1;
+
+                for ( int r = 0; r < rootCount; r++ )
+                {
+                    // visit roots, and children below, in a different random order for each labeling.
+                    final int pick = r + rand.nextInt( rootCount - r );
+                    final int root = roots[pick];
+                    roots[pick] = roots[r];
+                    roots[r] = root;
+
+                    int sp = 0;
+                    stack[sp++] = root;
+                    visited[root] = true;
+                    cursor[root] = 0;
+                    rotation[root] = randomRotation( rand, root );
+
+                    while ( sp > 0 )
+                    {
+                        final int c = stack[sp - 1];
+                        final int degree = dagOffsets[c + 1] - dagOffsets[c];
+                        if ( cursor[c] < degree )
+                        {
+                            final int d = dagTargets[dagOffsets[c] + ( cursor[c]++ + rotation[c] ) % degree];
+                            if ( !visited[d] )
+                            {
+                                visited[d] = true;
+                                cursor[d] = 0;
+                                rotation[d] = randomRotation( rand, d );
+                                stack[sp++] = d;
+                            }
+                        }
+                        else
+                        {
+                            sp--;
+                            final int rank = counter++;
+                            int min = rank;
+                            for ( int i = dagOffsets[c]; i < dagOffsets[c + 1]; i++ )
+                            {
+                                min = Math.min( min, low[offset + dagTargets[i]] );
+                            }
+
+                            post[offset + c] = rank;
+                            low[offset + c] = min;
+                        }
+                    }
+                }
+            }
+        }
+
+        private int randomRotation( final Random rand, final int c )
+        {
+            final int degree = dagOffsets[c + 1] - dagOffsets[c];
+            return degree < 2 ? 0 : rand.nextInt( degree );
+        }
+
+        boolean reaches( final int sourceNode, final int targetNode )
+        {
+            final int from = components[sourceNode];
+            final int to = components[targetNode];
+            if ( from == to )
+            {
+                return true;
+            }
+            if ( to > from )
+            {
+                return false;
+            }
+
+            if ( closure != null )
+            {
+                return ( closure[from * words + ( to >>> 6 )] & ( 1L << to ) ) != 0;
+            }
+
+            if ( !nests( to, from ) )
+            {
+                return false;
+            }
+
+            final Scratch s = scratch.get();
+            final int stamp = s.next();
+            int sp = 0;
+            s.stack[sp++] = from;
+            s.marks[from] = stamp;
+            while ( sp > 0 )
+            {
+                final int c = s.stack[--sp];
+                for ( int i = dagOffsets[c]; i < dagOffsets[c + 1]; i++ )
+                {
+                    final int d = dagTargets[i];
+                    if ( d == to )
+                    {
+                        return true;
+                    }
+
+                    if ( d > to && s.marks[d] != stamp && nests( to, d ) )
+                    {
+                        s.marks[d] = stamp;
+                        s.stack[sp++] = d;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        // true if every interval of 'inner' lies within the matching interval of 'outer'.
+        private boolean nests( final int inner, final int outer )
+        {
+            for ( int offset = 0; offset < low.length; offset += componentCount )
+            {
+                if ( low[offset + inner] < low[offset + outer] || post[offset + inner] > post[offset + outer] )
+                {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        long getBytes()
+        {
+            long ints = (long) components.length + dagOffsets.length + dagTargets.length;
+            if ( low != null )
+            {
+                ints += low.length + post.length;
+            }
+
+            return ints * 4 + ( closure == null ? 0 : closure.length * 8L );
+        }
+    }
+
+    /**
+     * Per-thread search state for label-guided searches, so queries don't allocate.
+     */
+    private static final class Scratch
+    {
+        private final int[] marks;
+
+        private final int[] stack;
+
+        private int stamp;
+
+        Scratch( final int size )
+        {
+            marks = new int[size];
+            stack = new int[size];
+        }
+
+        int next()
+        {
+            if ( ++stamp == Integer.MAX_VALUE )
+            {
+                Arrays.fill( marks, 0 );
+                stamp = 1;
+            }
+
+            return stamp;
+        }
+    }
+
+}
@@ -0,0 +1,420 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.commonjava.atlas.maven.graph.model.EProjectRelationshipCollection;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Immutable relationship graph in compressed-sparse-row form. Projects are nodes with dense int ids (in the order they
+ * were first seen), and relationships are edges with dense int ids, grouped by declaring node. Each edge keeps its
+ * target node and its {@link EdgeAttributes packed attributes}, so the whole graph costs about 16 bytes per edge plus
+ * the offset arrays, instead of a map entry and a set entry per edge.
+ * <p>
+ * Outgoing edges of node n are the edge ids in [{@link #getOutStart(int)}, {@link #getOutEnd(int)}), in the order they
+ * were added. Incoming edges are listed through the reverse index: for positions p in [{@link #getInStart(int)},
+ * {@link #getInEnd(int)}), {@link #getInEdge(int)} gives the edge id.
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public final class RelationshipGraph
+{
+
+    private final NodeTable nodes;
+
+    // node -> first edge id; length nodeCount + 1.
+    private final int[] outOffsets;
+
+    private final int[] edgeSources;
+
+    private final int[] edgeTargets;
+
+    private final int[] edgeAttributes;
+
+    // node -> first position in inEdges; length nodeCount + 1.
+    private final int[] inOffsets;
+
+    private final int[] inEdges;
+
+    private final ProjectRelationship<?, ?>[] relationships;
+
+    private RelationshipGraph( final NodeTable nodes, final int[] sources, final int[] targets, final int[] attributes,
+                               final ProjectRelationship<?, ?>[] rels, final int edgeCount )
+    {
+        this.nodes = nodes;
+
+        final int nodeCount = nodes.size();
+
+        // counting sort by source keeps insertion order within each node.
+        outOffsets = offsets( sources, edgeCount, nodeCount );
+        final int[] next = Arrays.copyOf( outOffsets, nodeCount );
+
+        edgeSources = new int[edgeCount];
+        edgeTargets = new int[edgeCount];
+        edgeAttributes = new int[edgeCount];
+        relationships = rels == null ? null : new ProjectRelationship<?, ?>[edgeCount];
+        for ( int i = 0; i < edgeCount; i++ )
+        {
+            final int e = next[sources[i]]++;
+            edgeSources[e] = sources[i];
+            edgeTargets[e] = targets[i];
+            edgeAttributes[e] = attributes[i];
+            if ( relationships != null )
+            {
+                relationships[e] = rels[i];
+            }
+        }
+
+        inOffsets = offsets( edgeTargets, edgeCount, nodeCount );
+        final int[] nextIn = Arrays.copyOf( inOffsets, nodeCount );
+        inEdges = new int[edgeCount];
+        for ( int e = 0; e < edgeCount; e++ )
+        {
+            inEdges[nextIn[edgeTargets[e]]++] = e;
+        }
+    }
+
+    private static int[] offsets( final int[] keys, final int count, final int nodeCount )
+    {
+        final int[] offsets = new int[nodeCount + 1];
+        for ( int i = 0; i < count; i++ )
+        {
+            offsets[keys[i] + 1]++;
+        }
+        for ( int n = 0; n < nodeCount; n++ )
+        {
+            offsets[n + 1] += offsets[n];
+        }
+
+        return offsets;
+    }
+
+    public int getNodeCount()
+    {
+        return nodes.size();
+    }
+
+    public int getEdgeCount()
+    {
+        return edgeTargets.length;
+    }
+
+    public ProjectVersionRef getNode( final int node )
+    {
+        return nodes.get( node );
+    }
+
+    /**
+     * @return the node id for the given project, or -1 if it isn't part of this graph
+     */
+    public int getNodeId( final ProjectVersionRef ref )
+    {
+        return nodes.indexOf( ref.asProjectVersionRef() );
+    }
+
+    public int getOutStart( final int node )
+    {
+        return outOffsets[node];
+    }
+
+    public int getOutEnd( final int node )
+    {
+        return outOffsets[node + 1];
+    }
+
+    public int getOutDegree( final int node )
+    {
+        return outOffsets[node + 1] - outOffsets[node];
+    }
+
+    public int getInStart( final int node )
+    {
+        return inOffsets[node];
+    }
+
+    public int getInEnd( final int node )
+    {
+        return inOffsets[node + 1];
+    }
+
+    public int getInDegree( final int node )
+    {
+        return inOffsets[node + 1] - inOffsets[node];
+    }
+
+    /**
+     * @param position a reverse-index position, in [{@link #getInStart(int)}, {@link #getInEnd(int)})
+     * @return the id of the incoming edge at that position
+     */
+    public int getInEdge( final int position )
+    {
+        return inEdges[position];
+    }
+
+    public int getSource( final int edge )
+    {
+        return edgeSources[edge];
+    }
+
+    public int getTarget( final int edge )
+    {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * @return the packed attributes of the edge; decode with {@link EdgeAttributes}
+     */
+    public int getAttributes( final int edge )
+    {
+        return edgeAttributes[edge];
+    }
+
+    public RelationshipType getType( final int edge )
+    {
+        return EdgeAttributes.type( edgeAttributes[edge] );
+    }
+
+    public DependencyScope getScope( final int edge )
+    {
+        return EdgeAttributes.scope( edgeAttributes[edge] );
+    }
+
+    public int getIndex( final int edge )
+    {
+        return EdgeAttributes.index( edgeAttributes[edge] );
+    }
+
+    public boolean isManaged( final int edge )
+    {
+        return EdgeAttributes.isManaged( edgeAttributes[edge] );
+    }
+
+    public boolean isInherited( final int edge )
+    {
+        return EdgeAttributes.isInherited( edgeAttributes[edge] );
+    }
+
+    public boolean isOptional( final int edge )
+    {
+        return EdgeAttributes.isOptional( edgeAttributes[edge] );
+    }
+
+    /**
+     * @return true if the graph was built with {@link Builder#retainRelationships()}
+     */
+    public boolean hasRelationships()
+    {
+        return relationships != null;
+    }
+
+    /**
+     * @return the relationship this edge was built from, or null if relationships weren't retained (or the edge was
+     *         added with {@link Builder#withEdge(int, int, int)})
+     */
+    public ProjectRelationship<?, ?> getRelationship( final int edge )
+    {
+        return relationships == null ? null : relationships[edge];
+    }
+
+    /**
+     * @return the approximate number of bytes held by the adjacency arrays, not counting the node refs or any retained
+     *         relationships
+     */
+    public long getAdjacencyBytes()
+    {
+        final long ints = (long) outOffsets.length + inOffsets.length + edgeSources.length + edgeTargets.length
+            + edgeAttributes.length + inEdges.length;
+
+        return ints * 4;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "RelationshipGraph [nodes=%d, edges=%d]", getNodeCount(), getEdgeCount() );
+    }
+
+    /**
+     * Collects nodes and edges, then lays them out once in {@link #build()}. The builder can be reused afterwards;
+     * the graphs it has already built are not affected.
+     */
+    public static final class Builder
+    {
+        private static final int DEFAULT_CAPACITY = 64;
+
+        private final NodeTable nodes;
+
+        private int[] sources;
+
+        private int[] targets;
+
+        private int[] attributes;
+
+        private ProjectRelationship<?, ?>[] rels;
+
+        private int edgeCount;
+
+        public Builder()
+        {
+            this( DEFAULT_CAPACITY, DEFAULT_CAPACITY );
+        }
+
+        /**
+         * Pre-sizes the builder for bulk loading.
+         */
+        public Builder( final int expectedNodes, final int expectedEdges )
+        {
+            nodes = new NodeTable( expectedNodes );
+
+            final int capacity = Math.max( expectedEdges, DEFAULT_CAPACITY );
+            sources = new int[capacity];
+            targets = new int[capacity];
+            attributes = new int[capacity];
+        }
+
+        /**
+         * Keep a reference to each relationship added, so {@link RelationshipGraph#getRelationship(int)} can map
+         * edges back to it. Must be called before any edges are added.
+         */
+        public Builder retainRelationships()
+        {
+            if ( edgeCount > 0 )
+            {
+                throw new IllegalStateException( "Relationships must be retained from the first edge on." );
+            }
+
+            if ( rels == null )
+            {
+                rels = new ProjectRelationship<?, ?>[sources.length];
+            }
+
+            return this;
+        }
+
+        /**
+         * @return the node id for the project, adding it if necessary
+         */
+        public int addNode( final ProjectVersionRef ref )
+        {
+            return nodes.intern( ref.asProjectVersionRef() );
+        }
+
+        /**
+         * @return the node id for the project, or -1 if it hasn't been added
+         */
+        public int getNodeId( final ProjectVersionRef ref )
+        {
+            return nodes.indexOf( ref.asProjectVersionRef() );
+        }
+
+        public Builder withEdge( final int source, final int target, final int attributes )
+        {
+            if ( source < 0 || source >= nodes.size() || target < 0 || target >= nodes.size() )
+            {
+                throw new IndexOutOfBoundsException( "Invalid edge: " + source + " -> " + target + " (nodes: "
+                    + nodes.size() + ")" );
+            }
+
+            addEdge( source, target, attributes, null );
+            return this;
+        }
+
+        public Builder withRelationship( final ProjectRelationship<?, ?> rel )
+        {
+            final int source = addNode( rel.getDeclaring() );
+            final int target = addNode( rel.getTarget().asProjectVersionRef() );
+            addEdge( source, target, EdgeAttributes.pack( rel ), rel );
+
+            return this;
+        }
+
+        public Builder withRelationships( final Collection<? extends ProjectRelationship<?, ?>> rels )
+        {
+            ensureEdgeCapacity( edgeCount + rels.size() );
+            for ( final ProjectRelationship<?, ?> rel : rels )
+            {
+                withRelationship( rel );
+            }
+
+            return this;
+        }
+
+        /**
+         * Adds {@link EProjectRelationshipCollection#getAllRelationships()}, which leaves out terminal parents.
+         */
+        public Builder withRelationships( final EProjectRelationshipCollection collection )
+        {
+            return withRelationships( collection.getAllRelationships() );
+        }
+
+        public int getNodeCount()
+        {
+            return nodes.size();
+        }
+
+        public int getEdgeCount()
+        {
+            return edgeCount;
+        }
+
+        public RelationshipGraph build()
+        {
+            return new RelationshipGraph( nodes.compactCopy(), sources, targets, attributes, rels, edgeCount );
+        }
+
+        private void addEdge( final int source, final int target, final int attrs,
+                              final ProjectRelationship<?, ?> rel )
+        {
+            if ( edgeCount == sources.length )
+            {
+                ensureEdgeCapacity( edgeCount + ( edgeCount >> 1 ) + 1 );
+            }
+
+            sources[edgeCount] = source;
+            targets[edgeCount] = target;
+            attributes[edgeCount] = attrs;
+            if ( rels != null )
+            {
+                rels[edgeCount] = rel;
+            }
+
+            edgeCount++;
+        }
+
+        private void ensureEdgeCapacity( final int capacity )
+        {
+            if ( capacity <= sources.length )
+            {
+                return;
+            }
+
+            sources = Arrays.copyOf( sources, capacity );
+            targets = Arrays.copyOf( targets, capacity );
+            attributes = Arrays.copyOf( attributes, capacity );
+            if ( rels != null )
+            {
+                rels = Arrays.copyOf( rels, capacity );
+            }
+        }
+    }
+
+}
@@ -0,0 +1,688 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.commonjava.atlas.maven.graph.model.EProjectRelationshipCollection;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipComparator;
+
+/**
+ * Append-only, checksummed log of relationship batches, for persisting graph updates incrementally instead of
+ * re-serializing the whole graph. Each {@link #add(Collection)} or {@link #remove(Collection)} call appends one record
+ * and returns once it is on disk. Concurrent appenders share fsyncs (group commit): while one thread syncs, records
+ * written by the others pile up and go to disk with the next sync, so the sync rate is bounded by the disk rather than
+ * by the number of appenders.
+ * <p>
+ * File layout (big-endian):
+ *
+ * <pre>
+ * int    magic ('ATWL')
+ * int    format version
+ * long   sequence number of the first record
+ * record*
+ *   int    body length
+ *   int    CRC32 of the body
+ *   body:  long sequence, byte operation ({@link Operation#getCode()}), then the relationships as a Java
+ *          serialization stream (int count, one object per relationship)
+ * </pre>
+ *
+ * A crash can leave a torn record at the end of the file. {@link #read(File)} stops at the first record that is short
+ * or fails its checksum, and {@link #open(File)} also truncates the file there, so appends resume after the last
+ * intact record. {@link #compact(File)} folds the log into a {@link GraphSnapshot} and empties it; replaying a log
+ * over a snapshot it was already folded into gives the same graph, so a crash in between loses nothing.
+ * <p>
+ * Instances are safe to share between threads.
+ */
+public final class RelationshipLog
+    implements Closeable
+{
+
+    public static final int MAGIC = 0x4154574C;
+
+    public static final int FORMAT_VERSION = 1;
+
+    static final int HEADER_LENGTH = 16;
+
+    // body length + CRC
+    static final int RECORD_OVERHEAD = 8;
+
+    // sequence + operation
+    private static final int BODY_PREFIX = 9;
+
+    /**
+     * What a batch does to the graph.
+     */
+    public enum Operation
+    {
+        ADD( 1 ), REMOVE( 2 );
+
+        private final int code;
+
+        Operation( final int code )
+        {
+            this.code = code;
+        }
+
+        /**
+         * @return the byte written to the log for this operation; stable across releases
+         */
+        public int getCode()
+        {
+            return code;
+        }
+
+        static Operation forCode( final int code )
+        {
+            for ( final Operation op : values() )
+            {
+                if ( op.code == code )
+                {
+                    return op;
+                }
+            }
+
+            return null;
+        }
+    }
+
+    /**
+     * One record read back from the log.
+     */
+    public static final class Batch
+    {
+        private final long sequence;
+
+        private final Operation operation;
+
+        private final List<ProjectRelationship<?, ?>> relationships;
+
+        Batch( final long sequence, final Operation operation, final List<ProjectRelationship<?, ?>> relationships )
+        {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.relationships = Collections.unmodifiableList( relationships );
+        }
+
+        public long getSequence()
+        {
+            return sequence;
+        }
+
+        public Operation getOperation()
+        {
+            return operation;
+        }
+
+        public List<ProjectRelationship<?, ?>> getRelationships()
+        {
+            return relationships;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format( "Batch [%d: %s %d relationships]", sequence, operation, relationships.size() );
+        }
+    }
+
+    private final File file;
+
+    private final FileChannel channel;
+
+    // guarded by this
+    private long nextSequence;
+
+    // guarded by this
+    private long lastWritten;
+
+    // guarded by this
+    private boolean closed;
+
+    private final Object syncLock = new Object();
+
+    // guarded by syncLock
+    private long lastSynced;
+
+    // guarded by syncLock
+    private boolean syncing;
+
+    // guarded by syncLock
+    private long syncCount;
+
+    private RelationshipLog( final File file, final FileChannel channel, final long nextSequence )
+    {
+        this.file = file;
+        this.channel = channel;
+        this.nextSequence = nextSequence;
+        this.lastWritten = nextSequence - 1;
+        this.lastSynced = nextSequence - 1;
+    }
+
+    /**
+     * Opens the log for appending, creating it if necessary. A torn record left at the end by a crash is cut off.
+     */
+    public static RelationshipLog open( final File file )
+        throws IOException
+    {
+        return open( file, new RandomAccessFile( file, "rw" ).getChannel() );
+    }
+
+    /**
+     * Opens the log on a channel already open for reading and writing <code>file</code>; the log closes it.
+     */
+    static RelationshipLog open( final File file, final FileChannel channel )
+        throws IOException
+    {
+        boolean opened = false;
+        try
+        {
+            long next;
+            if ( channel.size() < HEADER_LENGTH )
+            {
+                // new, or the crash happened before the header was synced; nothing can follow it.
+                next = 1;
+                writeHeader( channel, next );
+            }
+            else
+            {
+                final Scan scan = scan( channel, file, false );
+                next = scan.nextSequence;
+                if ( scan.end < channel.size() )
+                {
+                    channel.truncate( scan.end );
+                    channel.force( true );
+                }
+            }
+
+            channel.position( channel.size() );
+            opened = true;
+
+            return new RelationshipLog( file, channel, next );
+        }
+        finally
+        {
+            if ( !opened )
+            {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads every intact batch in the log, stopping at the first torn or corrupt record. The file is not modified.
+     */
+    public static List<Batch> read( final File file )
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            if ( raf.length() < HEADER_LENGTH )
+            {
+                return Collections.emptyList();
+            }
+
+            return scan( raf.getChannel(), file, true ).batches;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    /**
+     * Appends a batch of added relationships, and returns once it is durable. If the sync fails, the batch may still
+     * be in the log.
+     *
+     * @return the sequence number of the batch
+     */
+    public long add( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+        throws IOException
+    {
+        return append( Operation.ADD, relationships );
+    }
+
+    /**
+     * Appends {@link EProjectRelationshipCollection#getExactAllRelationships()} as one batch, in declaration order.
+     */
+    public long add( final EProjectRelationshipCollection collection )
+        throws IOException
+    {
+        final List<ProjectRelationship<?, ?>> rels =
+            new ArrayList<ProjectRelationship<?, ?>>( collection.getExactAllRelationships() );
+        Collections.sort( rels, RelationshipComparator.INSTANCE );
+
+        return append( Operation.ADD, rels );
+    }
+
+    /**
+     * Appends a batch of removed relationships, and returns once it is durable. If the sync fails, the batch may
+     * still be in the log.
+     *
+     * @return the sequence number of the batch
+     */
+    public long remove( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+        throws IOException
+    {
+        return append( Operation.REMOVE, relationships );
+    }
+
+    /**
+     * Folds the log into the snapshot at <code>base</code> (which need not exist yet), replaces that snapshot, and
+     * empties the log. Appends wait while this runs.
+     *
+     * @return the number of batches folded in
+     */
+    public synchronized int compact( final File base )
+        throws IOException
+    {
+        ensureOpen();
+
+        final Scan scan = scan( channel, file, true );
+        final Set<ProjectRelationship<?, ?>> graph = new LinkedHashSet<ProjectRelationship<?, ?>>();
+        if ( base.exists() )
+        {
+            // read rather than mapped: the mapping couldn't be released before the snapshot is replaced below.
+            final GraphSnapshot snapshot = GraphSnapshot.open( readSnapshot( base ) );
+            for ( int e = 0; e < snapshot.getEdgeCount(); e++ )
+            {
+                graph.add( snapshot.getRelationship( e ) );
+            }
+        }
+
+        for ( final Batch batch : scan.batches )
+        {
+            for ( final ProjectRelationship<?, ?> rel : batch.getRelationships() )
+            {
+                // remove first, so a re-added relationship replaces the old one's flags and sources.
+                graph.remove( rel );
+                if ( batch.getOperation() == Operation.ADD )
+                {
+                    graph.add( rel );
+                }
+            }
+        }
+
+        // write(..) syncs the new snapshot and renames it into place, so the log is only emptied once it's on disk.
+        new GraphSnapshot.Writer( 0, graph.size() ).withRelationships( graph ).write( base );
+
+        // the new header is synced before the records are cut off. If a crash comes in between, the old records no
+        // longer follow on from the header's sequence, so open() drops them rather than restarting the sequence.
+        writeHeader( channel, nextSequence );
+        channel.truncate( HEADER_LENGTH );
+        channel.position( HEADER_LENGTH );
+
+        return scan.batches.size();
+    }
+
+    /**
+     * @return the sequence number the next batch will get
+     */
+    public synchronized long getNextSequence()
+    {
+        return nextSequence;
+    }
+
+    /**
+     * @return how many fsyncs appends have needed so far; with concurrent appenders this is lower than the number of
+     *         batches appended
+     */
+    public long getSyncCount()
+    {
+        synchronized ( syncLock )
+        {
+            return syncCount;
+        }
+    }
+
+    public File getFile()
+    {
+        return file;
+    }
+
+    @Override
+    public synchronized void close()
+        throws IOException
+    {
+        if ( !closed )
+        {
+            closed = true;
+            channel.close();
+        }
+    }
+
+    private long append( final Operation operation, final Collection<? extends ProjectRelationship<?, ?>> rels )
+        throws IOException
+    {
+        final byte[] payload = encode( rels );
+
+        final long sequence;
+        synchronized ( this )
+        {
+            ensureOpen();
+            sequence = nextSequence;
+
+            final ByteBuffer head = ByteBuffer.allocate( RECORD_OVERHEAD + BODY_PREFIX );
+            head.putInt( BODY_PREFIX + payload.length );
+            head.putInt( 0 );
+            head.putLong( sequence );
+            head.put( (byte) operation.getCode() );
+
+            final CRC32 crc = new CRC32();
+            crc.update( head.array(), RECORD_OVERHEAD, BODY_PREFIX );
+            crc.update( payload );
+            head.putInt( 4, (int) crc.getValue() );
+            head.flip();
+
+            final ByteBuffer[] record = { head, ByteBuffer.wrap( payload ) };
+            final long start = channel.position();
+            try
+            {
+                while ( record[1].hasRemaining() )
+                {
+                    channel.write( record );
+                }
+            }
+            catch ( final IOException e )
+            {
+                // don't leave a partial record in front of the next one.
+                channel.truncate( start );
+                channel.position( start );
+                throw e;
+            }
+
+            nextSequence = sequence + 1;
+            lastWritten = sequence;
+        }
+
+        awaitSync( sequence );
+
+        return sequence;
+    }
+
+    /**
+     * Group commit: the first appender to find no sync in progress syncs everything written so far; the others wait
+     * for that sync, and if it didn't cover their record, one of them starts the next. A failed sync covers nothing,
+     * so its waiters retry it, and each gets its own exception if that fails too.
+     */
+    private void awaitSync( final long sequence )
+        throws IOException
+    {
+        while ( true )
+        {
+            synchronized ( syncLock )
+            {
+                while ( syncing && lastSynced < sequence )
+                {
+                    try
+                    {
+                        syncLock.wait();
+                    }
+                    catch ( final InterruptedException e )
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException( "Interrupted waiting for log sync." );
+                    }
+                }
+
+                if ( lastSynced >= sequence )
+                {
+                    return;
+                }
+
+                syncing = true;
+            }
+
+            long target = -1;
+            boolean synced = false;
+            try
+            {
+                synchronized ( this )
+                {
+                    ensureOpen();
+                    target = lastWritten;
+                }
+
+                // data-only sync still covers the file length, which is all recovery needs.
+                channel.force( false );
+                synced = true;
+            }
+            finally
+            {
+                synchronized ( syncLock )
+                {
+                    syncing = false;
+                    if ( synced && target > lastSynced )
+                    {
+                        syncCount++;
+                        lastSynced = target;
+                    }
+                    syncLock.notifyAll();
+                }
+            }
+        }
+    }
+
+    private void ensureOpen()
+        throws IOException
+    {
+        if ( closed )
+        {
+            throw new IOException( "Relationship log is closed: " + file );
+        }
+    }
+
+    private static byte[] encode( final Collection<? extends ProjectRelationship<?, ?>> rels )
+        throws IOException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream( 64 + rels.size() * 128 );
+        final ObjectOutputStream out = new ObjectOutputStream( baos );
+        out.writeInt( rels.size() );
+        for ( final ProjectRelationship<?, ?> rel : rels )
+        {
+            out.writeObject( rel );
+        }
+        out.close();
+
+        return baos.toByteArray();
+    }
+
+    private static List<ProjectRelationship<?, ?>> decode( final byte[] body )
+        throws IOException, ClassNotFoundException
+    {
+        final ObjectInputStream in =
+            new ObjectInputStream( new ByteArrayInputStream( body, BODY_PREFIX, body.length - BODY_PREFIX ) );
+        try
+        {
+            final int count = in.readInt();
+            final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>( count );
+            for ( int i = 0; i < count; i++ )
+            {
+                rels.add( (ProjectRelationship<?, ?>) in.readObject() );
+            }
+
+            return rels;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static ByteBuffer readSnapshot( final File file )
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            final long size = raf.length();
+            if ( size > Integer.MAX_VALUE )
+            {
+                throw new IOException( "Graph snapshot exceeds the 2 GB limit: " + file );
+            }
+
+            final ByteBuffer buffer = ByteBuffer.allocate( (int) size );
+            readFully( raf.getChannel(), buffer, 0 );
+            buffer.flip();
+
+            return buffer;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    private static void writeHeader( final FileChannel channel, final long firstSequence )
+        throws IOException
+    {
+        final ByteBuffer header = ByteBuffer.allocate( HEADER_LENGTH );
+        header.putInt( MAGIC ).putInt( FORMAT_VERSION ).putLong( firstSequence ).flip();
+        while ( header.hasRemaining() )
+        {
+            channel.write( header, header.position() );
+        }
+        channel.force( true );
+    }
+
+    /**
+     * Walks the records from the header on. Only batches are decoded when <code>decode</code> is set; otherwise the
+     * checksums alone decide where the intact part of the log ends.
+     */
+    private static Scan scan( final FileChannel channel, final File file, final boolean decode )
+        throws IOException
+    {
+        final long size = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate( HEADER_LENGTH );
+        readFully( channel, header, 0 );
+
+        final int magic = header.getInt( 0 );
+        if ( magic != MAGIC )
+        {
+            throw new IOException( "Not a relationship log: " + file + " (magic: " + Integer.toHexString( magic )
+                + ")" );
+        }
+
+        final int version = header.getInt( 4 );
+        if ( version != FORMAT_VERSION )
+        {
+            throw new IOException( "Unsupported relationship log format: " + version + " (this library reads "
+                + FORMAT_VERSION + ")" );
+        }
+
+        final Scan scan = new Scan( header.getLong( 8 ), decode );
+        long position = HEADER_LENGTH;
+        final ByteBuffer head = ByteBuffer.allocate( RECORD_OVERHEAD );
+        while ( position + RECORD_OVERHEAD <= size )
+        {
+            head.clear();
+            readFully( channel, head, position );
+
+            final int length = head.getInt( 0 );
+            if ( length < BODY_PREFIX || length > size - position - RECORD_OVERHEAD )
+            {
+                break;
+            }
+
+            final ByteBuffer body = ByteBuffer.allocate( length );
+            readFully( channel, body, position + RECORD_OVERHEAD );
+
+            final CRC32 crc = new CRC32();
+            crc.update( body.array() );
+            if ( (int) crc.getValue() != head.getInt( 4 ) )
+            {
+                break;
+            }
+
+            final long sequence = body.getLong( 0 );
+            final Operation operation = Operation.forCode( body.get( 8 ) );
+            if ( sequence != scan.nextSequence || operation == null )
+            {
+                break;
+            }
+
+            if ( decode )
+            {
+                try
+                {
+                    scan.batches.add( new Batch( sequence, operation, decode( body.array() ) ) );
+                }
+                catch ( final ClassNotFoundException e )
+                {
+                    throw (IOException) new IOException( "Cannot decode batch " + sequence + " in " + file )
+                        .initCause( e );
+                }
+            }
+
+            scan.nextSequence++;
+            position += RECORD_OVERHEAD + length;
+        }
+
+        scan.end = position;
+
+        return scan;
+    }
+
+    private static void readFully( final FileChannel channel, final ByteBuffer buffer, final long position )
+        throws IOException
+    {
+        long pos = position;
+        while ( buffer.hasRemaining() )
+        {
+            final int read = channel.read( buffer, pos );
+            if ( read < 0 )
+            {
+                throw new IOException( "Unexpected end of relationship log at " + pos );
+            }
+            pos += read;
+        }
+    }
+
+    private static final class Scan
+    {
+        private final List<Batch> batches;
+
+        private long nextSequence;
+
+        private long end;
+
+        Scan( final long firstSequence, final boolean decode )
+        {
+            this.nextSequence = firstSequence;
+            this.batches = decode ? new ArrayList<Batch>() : Collections.<Batch> emptyList();
+        }
+    }
+
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.Arrays;
+
+/**
+ * Strongly connected components of a {@link RelationshipGraph}, found with Tarjan's algorithm in O(V+E). The
+ * traversal is iterative, so deep graphs can't overflow the stack.
+ * <p>
+ * Component ids are assigned in the order Tarjan completes them, which is a reverse topological order of the
+ * condensed graph: if any node of component a has an edge to a node of component b (a != b), then b < a.
+ */
+public final class StronglyConnectedComponents
+{
+
+    private final int[] components;
+
+    private final int[] offsets;
+
+    private final int[] members;
+
+    private final boolean[] cyclic;
+
+    /**
+     * @param typeMask edge types to follow, from {@link EdgeAttributes#typeMask(org.commonjava.atlas.maven.graph.rel.RelationshipType...)}
+     */
+    public StronglyConnectedComponents( final RelationshipGraph graph, final int typeMask )
+    {
+        this( graph, EdgeFilter.ALL.withTypeMask( typeMask ) );
+    }
+
+    /**
+     * @param filter edges to follow
+     */
+    public StronglyConnectedComponents( final RelationshipGraph graph, final EdgeFilter filter )
+    {
+        final int n = graph.getNodeCount();
+        components = new int[n];
+        Arrays.fill( components, -1 );
+
+        final int[] index = new int[n];
+        Arrays.fill( index, -1 );
+        final int[] low = new int[n];
+        final boolean[] onStack = new boolean[n];
+        final int[] stack = new int[n];
+        final int[] callNode = new int[n];
+        final int[] callEdge = new int[n];
+
+        int sp = 0;
+        int counter = 0;
+        int count = 0;
+        for ( int root = 0; root < n; root++ )
+        {
+            if ( index[root] >= 0 )
+            {
+                continue;
+            }
+
+            int csp = 0;
+            index[root] = low[root] = counter++;
+            stack[sp++] = root;
+            onStack[root] = true;
+            callNode[csp] = root;
+            callEdge[csp++] = graph.getOutStart( root );
+
+            while ( csp > 0 )
+            {
+                final int v = callNode[csp - 1];
+                final int e = callEdge[csp - 1];
+                if ( e < graph.getOutEnd( v ) )
+                {
+                    callEdge[csp - 1] = e + 1;
+                    if ( !filter.accepts( graph.getAttributes( e ) ) )
+                    {
+                        continue;
+                    }
+
+                    final int w = graph.getTarget( e );
+                    if ( index[w] < 0 )
+                    {
+                        index[w] = low[w] = counter++;
+                        stack[sp++] = w;
+                        onStack[w] = true;
+                        callNode[csp] = w;
+                        callEdge[csp++] = graph.getOutStart( w );
+                    }
+                    else if ( onStack[w] && index[w] < low[v] )
+                    {
+                        low[v] = index[w];
+                    }
+                }
+                else
+                {
+                    csp--;
+                    if ( low[v] == index[v] )
+                    {
+                        int w;
+                        do
+                        {
+                            w = stack[--sp];
+                            onStack[w] = false;
+                            components[w] = count;
+                        }
+                        while ( w != v );
+
+                        count++;
+                    }
+
+                    if ( csp > 0 )
+                    {
+                        final int u = callNode[csp - 1];
+                        if ( low[v] < low[u] )
+                        {
+                            low[u] = low[v];
+                        }
+                    }
+                }
+            }
+        }
+
+        offsets = new int[count + 1];
+        for ( int v = 0; v < n; v++ )
+        {
+            offsets[components[v] + 1]++;
+        }
+        for ( int c = 0; c < count; c++ )
+        {
+            offsets[c + 1] += offsets[c];
+        }
+
+        members = new int[n];
+        final int[] next = Arrays.copyOf( offsets, count );
+        for ( int v = 0; v < n; v++ )
+        {
+            members[next[components[v]]++] = v;
+        }
+
+        cyclic = new boolean[count];
+        for ( int c = 0; c < count; c++ )
+        {
+            cyclic[c] = offsets[c + 1] - offsets[c] > 1;
+        }
+        for ( int v = 0; v < n; v++ )
+        {
+            for ( int e = graph.getOutStart( v ); e < graph.getOutEnd( v ); e++ )
+            {
+                if ( graph.getTarget( e ) == v && filter.accepts( graph.getAttributes( e ) ) )
+                {
+                    cyclic[components[v]] = true;
+                }
+            }
+        }
+    }
+
+    public int getComponentCount()
+    {
+        return cyclic.length;
+    }
+
+    public int getComponent( final int node )
+    {
+        return components[node];
+    }
+
+    public int getSize( final int component )
+    {
+        return offsets[component + 1] - offsets[component];
+    }
+
+    /**
+     * @return the member node ids of the component, in ascending order
+     */
+    public int[] getMembers( final int component )
+    {
+        return Arrays.copyOfRange( members, offsets[component], offsets[component + 1] );
+    }
+
+    /**
+     * @return true if the component contains a cycle: it has more than one member, or its single member has an edge
+     *         to itself
+     */
+    public boolean isCyclic( final int component )
+    {
+        return cyclic[component];
+    }
+
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Result of a {@link TransitiveResolver} run: the selected dependencies of the roots, nearest first, with the scope,
+ * depth and path each was selected through.
+ */
+public final class TransitiveResolution
+{
+
+    private final RelationshipGraph graph;
+
+    private final int rootCount;
+
+    private final int[] nodes;
+
+    private final DependencyScope[] scopes;
+
+    private final int[] depths;
+
+    private final int[] parents;
+
+    private final int[] edges;
+
+    private final List<DependencyRelationship> omitted;
+
+    private final Map<ProjectVersionRef, Integer> positions;
+
+    TransitiveResolution( final RelationshipGraph graph, final int rootCount, final int[] nodes,
+                          final DependencyScope[] scopes, final int[] depths, final int[] parents, final int[] edges,
+                          final List<DependencyRelationship> omitted )
+    {
+        this.graph = graph;
+        this.rootCount = rootCount;
+        this.nodes = nodes;
+        this.scopes = scopes;
+        this.depths = depths;
+        this.parents = parents;
+        this.edges = edges;
+        this.omitted = Collections.unmodifiableList( omitted );
+
+        positions = new HashMap<ProjectVersionRef, Integer>( nodes.length * 2 );
+        for ( int i = 0; i < nodes.length; i++ )
+        {
+            positions.put( graph.getNode( nodes[i] ), i );
+        }
+    }
+
+    /**
+     * @return the roots that were found in the graph
+     */
+    public List<ProjectVersionRef> getRoots()
+    {
+        return refs( 0, rootCount );
+    }
+
+    /**
+     * @return the selected dependencies, not including the roots, in breadth-first (nearest first) order
+     */
+    public List<ProjectVersionRef> getDependencies()
+    {
+        return refs( rootCount, nodes.length );
+    }
+
+    public int getDependencyCount()
+    {
+        return nodes.length - rootCount;
+    }
+
+    /**
+     * @return true if the project is a root, or a selected dependency
+     */
+    public boolean contains( final ProjectVersionRef ref )
+    {
+        return positions.containsKey( ref );
+    }
+
+    /**
+     * @return the scope the project was selected in (the requested scope for roots), or null if it wasn't selected
+     */
+    public DependencyScope getScope( final ProjectVersionRef ref )
+    {
+        final Integer position = positions.get( ref );
+        return position == null ? null : scopes[position];
+    }
+
+    /**
+     * @return the number of relationships between the nearest root and the project (0 for roots), or -1 if it wasn't
+     *         selected
+     */
+    public int getDepth( final ProjectVersionRef ref )
+    {
+        final Integer position = positions.get( ref );
+        return position == null ? -1 : depths[position];
+    }
+
+    /**
+     * @return the relationships from a root down to the project, or an empty list for roots and projects that weren't
+     *         selected
+     */
+    public List<DependencyRelationship> getPath( final ProjectVersionRef ref )
+    {
+        final Integer position = positions.get( ref );
+        if ( position == null )
+        {
+            return Collections.emptyList();
+        }
+
+        final List<DependencyRelationship> path = new ArrayList<DependencyRelationship>( depths[position] );
+        for ( int p = position; parents[p] >= 0; p = parents[p] )
+        {
+            path.add( (DependencyRelationship) graph.getRelationship( edges[p] ) );
+        }
+
+        Collections.reverse( path );
+        return path;
+    }
+
+    /**
+     * @return relationships that were not followed because another version of their target was selected
+     */
+    public List<DependencyRelationship> getOmittedForConflict()
+    {
+        return omitted;
+    }
+
+    private List<ProjectVersionRef> refs( final int from, final int to )
+    {
+        final List<ProjectVersionRef> result = new ArrayList<ProjectVersionRef>( to - from );
+        for ( int i = from; i < to; i++ )
+        {
+            result.add( graph.getNode( nodes[i] ) );
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format( "TransitiveResolution [roots=%d, dependencies=%d, omitted=%d]", rootCount,
+                              getDependencyCount(), omitted.size() );
+    }
+
+}
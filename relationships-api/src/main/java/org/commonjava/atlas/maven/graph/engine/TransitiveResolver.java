@@ -0,0 +1,507 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ScopeTransitivity;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Resolves the transitive dependencies of one or more root projects over a {@link RelationshipGraph} (which has to
+ * retain its relationships, for their exclusions).
+ * <p>
+ * The walk is breadth-first, so versions are mediated nearest-wins: the first version of a groupId:artifactId
+ * reached (the shallowest, then the first declared) is selected, and relationships to other versions of it are
+ * reported as omitted. Only the selected path to a project is followed, so its scope and exclusions are the ones of
+ * that path.
+ * <p>
+ * Scopes propagate as follows. A root's direct dependencies are included if the requested scope
+ * {@link DependencyScope#implies(DependencyScope) implies} their scope. Below that, the children of a dependency in
+ * scope S are filtered by {@link ScopeTransitivity#getChildFor(DependencyScope)} (none at all if it returns null),
+ * optional ones are skipped, and a child ends up in the wider of S and its declared scope, which again has to be
+ * implied by the requested scope. Managed dependencies are not followed. Exclusions accumulate along each path: those
+ * of a relationship apply to everything below its target.
+ * <p>
+ * The filtered children of a project depend only on the project, its scope and the exclusions in effect, so they are
+ * computed once per such key and shared by every path, root and thread that reaches it. Resolving many roots with
+ * {@link #resolveEach(Collection, ExecutorService)} reuses the shared subgraphs across roots; any
+ * {@link ExecutorService} works, including a ForkJoinPool.
+ */
+public final class TransitiveResolver
+{
+
+    private static final Set<ProjectRef> NO_EXCLUSIONS = Collections.emptySet();
+
+    private final RelationshipGraph graph;
+
+    // node -> groupId:artifactId id, for mediation.
+    private final int[] conflictKeys;
+
+    private final int conflictKeyCount;
+
+    private DependencyScope scope = DependencyScope.runtime;
+
+    private ScopeTransitivity transitivity = ScopeTransitivity.maven;
+
+    private ConcurrentMap<Context, Expansion> expansions = new ConcurrentHashMap<Context, Expansion>();
+
+    private final ConcurrentMap<Set<ProjectRef>, Set<ProjectRef>> exclusionSets =
+        new ConcurrentHashMap<Set<ProjectRef>, Set<ProjectRef>>();
+
+    public TransitiveResolver( final RelationshipGraph graph )
+    {
+        if ( !graph.hasRelationships() )
+        {
+            throw new IllegalStateException( "Resolving dependencies needs a graph built with retained relationships. "
+                + "Use RelationshipGraph.Builder.retainRelationships()." );
+        }
+
+        this.graph = graph;
+
+        final Map<ProjectRef, Integer> keys = new HashMap<ProjectRef, Integer>();
+        conflictKeys = new int[graph.getNodeCount()];
+        for ( int node = 0; node < conflictKeys.length; node++ )
+        {
+            final ProjectRef ref = graph.getNode( node ).asProjectRef();
+            Integer key = keys.get( ref );
+            if ( key == null )
+            {
+                key = keys.size();
+                keys.put( ref, key );
+            }
+
+            conflictKeys[node] = key;
+        }
+        conflictKeyCount = keys.size();
+    }
+
+    public TransitiveResolver( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+    {
+        this( new RelationshipGraph.Builder().retainRelationships().withRelationships( relationships ).build() );
+    }
+
+    /**
+     * @param scope the scope being resolved (for instance, {@link DependencyScope#test} for a test classpath);
+     *            {@link DependencyScope#runtime} unless set
+     */
+    public TransitiveResolver withScope( final DependencyScope scope )
+    {
+        this.scope = scope;
+        expansions = new ConcurrentHashMap<Context, Expansion>();
+        return this;
+    }
+
+    /**
+     * @param transitivity how scopes propagate to transitive dependencies; {@link ScopeTransitivity#maven} unless set
+     */
+    public TransitiveResolver withTransitivity( final ScopeTransitivity transitivity )
+    {
+        this.transitivity = transitivity;
+        expansions = new ConcurrentHashMap<Context, Expansion>();
+        return this;
+    }
+
+    public TransitiveResolution resolve( final ProjectVersionRef... roots )
+    {
+        return resolve( Arrays.asList( roots ) );
+    }
+
+    /**
+     * Resolves the roots together, as one set: they are all selected at depth 0, and mediation is shared.
+     */
+    public TransitiveResolution resolve( final Collection<ProjectVersionRef> roots )
+    {
+        return new Walk( scope, transitivity, expansions ).run( roots );
+    }
+
+    /**
+     * Resolves each root on its own, concurrently on the given executor.
+     *
+     * @return the resolution of each root, in the order of the roots
+     */
+    public Map<ProjectVersionRef, TransitiveResolution> resolveEach( final Collection<ProjectVersionRef> roots,
+                                                                     final ExecutorService executor )
+        throws InterruptedException
+    {
+        final DependencyScope scope = this.scope;
+        final ScopeTransitivity transitivity = this.transitivity;
+        final ConcurrentMap<Context, Expansion> expansions = this.expansions;
+
+        final Map<ProjectVersionRef, Future<TransitiveResolution>> futures =
+            new LinkedHashMap<ProjectVersionRef, Future<TransitiveResolution>>();
+        for ( final ProjectVersionRef root : roots )
+        {
+            futures.put( root, executor.submit( new Callable<TransitiveResolution>()
+            {
+                @Override
+                public TransitiveResolution call()
+                {
+                    return new Walk( scope, transitivity, expansions ).run( Collections.singleton( root ) );
+                }
+            } ) );
+        }
+
+        final Map<ProjectVersionRef, TransitiveResolution> result =
+            new LinkedHashMap<ProjectVersionRef, TransitiveResolution>( futures.size() * 2 );
+        try
+        {
+            for ( final Map.Entry<ProjectVersionRef, Future<TransitiveResolution>> entry : futures.entrySet() )
+            {
+                result.put( entry.getKey(), entry.getValue().get() );
+            }
+        }
+        catch ( final ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw (Error) cause;
+            }
+
+            throw new IllegalStateException( "Dependency resolution failed: " + cause.getMessage(), cause );
+        }
+        finally
+        {
+            for ( final Future<TransitiveResolution> future : futures.values() )
+            {
+                future.cancel( true );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return the number of (project, scope, exclusions) expansions computed so far for the current settings
+     */
+    int getExpansionCount()
+    {
+        return expansions.size();
+    }
+
+    private static DependencyScope wider( final DependencyScope parent, final DependencyScope declared )
+    {
+        if ( parent.implies( declared ) )
+        {
+            return parent;
+        }
+
+        return declared.implies( parent ) ? declared : parent;
+    }
+
+    private static boolean isExcluded( final Set<ProjectRef> exclusions, final ProjectVersionRef target )
+    {
+        for ( final ProjectRef exclusion : exclusions )
+        {
+            final String groupId = exclusion.getGroupId();
+            final String artifactId = exclusion.getArtifactId();
+            if ( groupId.indexOf( '*' ) < 0 && artifactId.indexOf( '*' ) < 0 )
+            {
+                if ( artifactId.equals( target.getArtifactId() ) && groupId.equals( target.getGroupId() ) )
+                {
+                    return true;
+                }
+            }
+            else if ( exclusion.matches( target ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private Set<ProjectRef> union( final Set<ProjectRef> inherited, final Set<ProjectRef> declared )
+    {
+        if ( declared == null || declared.isEmpty() || inherited.containsAll( declared ) )
+        {
+            return inherited;
+        }
+
+        final Set<ProjectRef> merged = new HashSet<ProjectRef>( inherited );
+        merged.addAll( declared );
+
+        final Set<ProjectRef> existing = exclusionSets.putIfAbsent( merged, merged );
+        return existing == null ? merged : existing;
+    }
+
+    /**
+     * A project reached in some scope (null for a root), with the exclusions that apply below it.
+     */
+    private static final class Context
+    {
+        private final int node;
+
+        private final DependencyScope scope;
+
+        private final Set<ProjectRef> exclusions;
+
+        private final int hashCode;
+
+        Context( final int node, final DependencyScope scope, final Set<ProjectRef> exclusions )
+        {
+            this.node = node;
+            this.scope = scope;
+            this.exclusions = exclusions;
+
+            int result = 31 + node;
+            result = 31 * result + ( scope == null ? 0 : scope.hashCode() );
+            hashCode = 31 * result + exclusions.hashCode();
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals( final Object obj )
+        {
+            if ( this == obj )
+            {
+                return true;
+            }
+            if ( !( obj instanceof Context ) )
+            {
+                return false;
+            }
+
+            final Context other = (Context) obj;
+            return node == other.node && scope == other.scope && hashCode == other.hashCode
+                && ( exclusions == other.exclusions || exclusions.equals( other.exclusions ) );
+        }
+    }
+
+    /**
+     * The children a {@link Context} leads to, in declaration order.
+     */
+    private static final class Expansion
+    {
+        private final int[] edges;
+
+        private final Context[] children;
+
+        Expansion( final int[] edges, final Context[] children )
+        {
+            this.edges = edges;
+            this.children = children;
+        }
+    }
+
+    /**
+     * One breadth-first resolution. Settings are captured up front, so a run isn't affected by later with*() calls.
+     */
+    private final class Walk
+    {
+        private final DependencyScope scope;
+
+        private final ScopeTransitivity transitivity;
+
+        private final ConcurrentMap<Context, Expansion> expansions;
+
+        Walk( final DependencyScope scope, final ScopeTransitivity transitivity,
+              final ConcurrentMap<Context, Expansion> expansions )
+        {
+            this.scope = scope;
+            this.transitivity = transitivity;
+            this.expansions = expansions;
+        }
+
+        TransitiveResolution run( final Collection<ProjectVersionRef> roots )
+        {
+            // conflict key -> position + 1 of the selected entry
+            final int[] selected = new int[conflictKeyCount];
+
+            final List<Context> entries = new ArrayList<Context>();
+            final List<DependencyRelationship> omitted = new ArrayList<DependencyRelationship>();
+
+            for ( final ProjectVersionRef root : roots )
+            {
+                final int node = graph.getNodeId( root );
+                if ( node < 0 || selected[conflictKeys[node]] != 0 )
+                {
+                    continue;
+                }
+
+                selected[conflictKeys[node]] = entries.size() + 1;
+                entries.add( new Context( node, null, NO_EXCLUSIONS ) );
+            }
+
+            final int rootCount = entries.size();
+            int[] depths = new int[rootCount + 16];
+            int[] parents = new int[depths.length];
+            int[] edges = new int[depths.length];
+            Arrays.fill( parents, 0, rootCount, -1 );
+            Arrays.fill( edges, 0, rootCount, -1 );
+
+            for ( int head = 0; head < entries.size(); head++ )
+            {
+                final Expansion expansion = expand( entries.get( head ) );
+                for ( int i = 0; i < expansion.children.length; i++ )
+                {
+                    final Context child = expansion.children[i];
+                    final int key = conflictKeys[child.node];
+                    final int existing = selected[key];
+                    if ( existing != 0 )
+                    {
+                        final ProjectRelationship<?, ?> rel = graph.getRelationship( expansion.edges[i] );
+                        if ( rel != null && entries.get( existing - 1 ).node != child.node )
+                        {
+                            omitted.add( (DependencyRelationship) rel );
+                        }
+                        continue;
+                    }
+
+                    final int position = entries.size();
+                    if ( position == depths.length )
+                    {
+                        depths = Arrays.copyOf( depths, position * 2 );
+                        parents = Arrays.copyOf( parents, position * 2 );
+                        edges = Arrays.copyOf( edges, position * 2 );
+                    }
+
+                    selected[key] = position + 1;
+                    entries.add( child );
+                    depths[position] = depths[head] + 1;
+                    parents[position] = head;
+                    edges[position] = expansion.edges[i];
+                }
+            }
+
+            final int size = entries.size();
+            final int[] nodes = new int[size];
+            final DependencyScope[] scopes = new DependencyScope[size];
+            for ( int i = 0; i < size; i++ )
+            {
+                final Context entry = entries.get( i );
+                nodes[i] = entry.node;
+                scopes[i] = entry.scope == null ? scope : entry.scope;
+            }
+
+            return new TransitiveResolution( graph, rootCount, nodes, scopes, Arrays.copyOf( depths, size ),
+                                             Arrays.copyOf( parents, size ), Arrays.copyOf( edges, size ), omitted );
+        }
+
+        private Expansion expand( final Context context )
+        {
+            Expansion expansion = expansions.get( context );
+            if ( expansion == null )
+            {
+                expansion = computeExpansion( context );
+                final Expansion existing = expansions.putIfAbsent( context, expansion );
+                if ( existing != null )
+                {
+                    expansion = existing;
+                }
+            }
+
+            return expansion;
+        }
+
+        private Expansion computeExpansion( final Context context )
+        {
+            final boolean root = context.scope == null;
+            final DependencyScope filter = root ? scope : transitivity.getChildFor( context.scope );
+            if ( filter == null )
+            {
+                return new Expansion( new int[0], new Context[0] );
+            }
+
+            final int node = context.node;
+            final int[] edges = new int[graph.getOutDegree( node )];
+            final Context[] children = new Context[edges.length];
+            int count = 0;
+            for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+            {
+                if ( graph.getType( e ) != RelationshipType.DEPENDENCY || graph.isManaged( e ) )
+                {
+                    continue;
+                }
+
+                // edges added without a relationship only have their attributes, and no exclusions.
+                final DependencyRelationship rel = (DependencyRelationship) graph.getRelationship( e );
+                DependencyScope declared = graph.getScope( e );
+                if ( declared == null )
+                {
+                    declared = DependencyScope.compile;
+                }
+
+                final DependencyScope childScope;
+                if ( root )
+                {
+                    if ( !filter.implies( declared ) )
+                    {
+                        continue;
+                    }
+                    childScope = declared;
+                }
+                else
+                {
+                    if ( graph.isOptional( e ) || !filter.implies( declared ) )
+                    {
+                        continue;
+                    }
+
+                    childScope = wider( context.scope, declared );
+                    if ( !scope.implies( childScope ) )
+                    {
+                        continue;
+                    }
+                }
+
+                final int target = graph.getTarget( e );
+                if ( isExcluded( context.exclusions, graph.getNode( target ) ) )
+                {
+                    continue;
+                }
+
+                edges[count] = e;
+                final Set<ProjectRef> excludes = rel == null ? null : rel.getExcludes();
+                children[count] = new Context( target, childScope, union( context.exclusions, excludes ) );
+                count++;
+            }
+
+            return new Expansion( Arrays.copyOf( edges, count ), Arrays.copyOf( children, count ) );
+        }
+    }
+
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.jackson;
+
+import org.commonjava.atlas.maven.graph.model.EProjectRelationshipCollection;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipComparator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A collection of relationships that {@link ProjectRelationshipSerializerModule} writes in the dictionary-encoded
+ * form: every distinct ref, URI and source set is written once in a header table, and each relationship becomes a
+ * short array of indexes into those tables. Write one with
+ * {@code mapper.writeValueAsString( new DictionaryEncodedRelationships( rels ) )} and read it back with
+ * {@code mapper.readValue( json, DictionaryEncodedRelationships.class ).getRelationships()}.
+ *
+ * @see DictionaryEncodedRelationshipsSerializer for the layout
+ */
+public final class DictionaryEncodedRelationships
+{
+
+    private final List<ProjectRelationship<?, ?>> relationships;
+
+    public DictionaryEncodedRelationships( final Collection<? extends ProjectRelationship<?, ?>> relationships )
+    {
+        this.relationships =
+                Collections.unmodifiableList( new ArrayList<ProjectRelationship<?, ?>>( relationships ) );
+    }
+
+    /**
+     * The collection only exposes its relationships as a set, so they are sorted by type, declaring project and index
+     * to keep declaration order (dependency order matters) when the collection is rebuilt from the decoded list.
+     */
+    public DictionaryEncodedRelationships( final EProjectRelationshipCollection collection )
+    {
+        this( sorted( collection.getExactAllRelationships() ) );
+    }
+
+    private static List<ProjectRelationship<?, ?>> sorted( final Collection<ProjectRelationship<?, ?>> relationships )
+    {
+        final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>( relationships );
+        Collections.sort( result, RelationshipComparator.INSTANCE );
+
+        return result;
+    }
+
+    public List<ProjectRelationship<?, ?>> getRelationships()
+    {
+        return relationships;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return relationships.hashCode();
+    }
+
+    @Override
+    public boolean equals( final Object obj )
+    {
+        return this == obj || ( obj instanceof DictionaryEncodedRelationships
+                && relationships.equals( ( (DictionaryEncodedRelationships) obj ).relationships ) );
+    }
+
+    @Override
+    public String toString()
+    {
+        return "DictionaryEncodedRelationships [" + relationships.size() + " relationships]";
+    }
+
+}
@@ -0,0 +1,341 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleExtensionRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.IdentityPool;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.commonjava.atlas.maven.graph.jackson.DictionaryEncodedRelationshipsSerializer.FLAG_INHERITED;
+import static org.commonjava.atlas.maven.graph.jackson.DictionaryEncodedRelationshipsSerializer.FLAG_MANAGED;
+import static org.commonjava.atlas.maven.graph.jackson.DictionaryEncodedRelationshipsSerializer.FLAG_MIXIN;
+import static org.commonjava.atlas.maven.graph.jackson.DictionaryEncodedRelationshipsSerializer.FLAG_OPTIONAL;
+import static org.commonjava.atlas.maven.graph.jackson.DictionaryEncodedRelationshipsSerializer.FLAG_REPORTING;
+
+/**
+ * Reads the layout written by {@link DictionaryEncodedRelationshipsSerializer}. Each table entry is decoded once, so
+ * a ref or URI shared by many relationships is parsed once and the relationships share the instance. The tables must
+ * come before the relationships that use them (the serializer always writes them first); unknown fields are skipped.
+ */
+public final class DictionaryEncodedRelationshipsDeserializer
+        extends StdDeserializer<DictionaryEncodedRelationships>
+{
+    private static final long serialVersionUID = 1L;
+
+    private static final int MIN_ROW_LENGTH = 7;
+
+    private static final int MAX_ROW_LENGTH = 8;
+
+    public DictionaryEncodedRelationshipsDeserializer()
+    {
+        super( DictionaryEncodedRelationships.class );
+    }
+
+    @Override
+    public DictionaryEncodedRelationships deserialize( final JsonParser jp, final DeserializationContext ctx )
+            throws JsonProcessingException, IOException
+    {
+        if ( jp.getCurrentToken() != JsonToken.START_OBJECT )
+        {
+            throw new JsonParseException( jp, "Expected the start of a dictionary-encoded relationship collection" );
+        }
+
+        final List<RelationshipType> types = new ArrayList<RelationshipType>();
+        final List<DependencyScope> scopes = new ArrayList<DependencyScope>();
+        final List<URI> uris = new ArrayList<URI>();
+        final List<List<URI>> sourceSets = new ArrayList<List<URI>>();
+        final List<ProjectVersionRef> refs = new ArrayList<ProjectVersionRef>();
+        final List<ArtifactRef> artifacts = new ArrayList<ArtifactRef>();
+        final List<ProjectRef> plugins = new ArrayList<ProjectRef>();
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+
+        JsonToken token;
+        while ( ( token = next( jp ) ) != JsonToken.END_OBJECT )
+        {
+            final String field = jp.getCurrentName();
+            token = next( jp );
+
+            if ( SerializationConstants.JSON_VERSION.equals( field ) )
+            {
+                final int version = jp.getIntValue();
+                if ( version > SerializationConstants.CURRENT_DICTIONARY_VERSION )
+                {
+                    throw new JsonParseException( jp, "Unsupported dictionary-encoding version: " + version );
+                }
+            }
+            else if ( SerializationConstants.DICTIONARY_TYPES.equals( field ) )
+            {
+                for ( final String name : readStrings( jp ) )
+                {
+                    final RelationshipType type = RelationshipType.getType( name );
+                    if ( type == null )
+                    {
+                        throw new JsonParseException( jp, "Invalid relationship type: '" + name + "'" );
+                    }
+                    types.add( type );
+                }
+            }
+            else if ( SerializationConstants.DICTIONARY_SCOPES.equals( field ) )
+            {
+                for ( final String name : readStrings( jp ) )
+                {
+                    final DependencyScope scope = DependencyScope.getScope( name );
+                    scopes.add( scope == null ? DependencyScope.compile : scope );
+                }
+            }
+            else if ( SerializationConstants.DICTIONARY_URIS.equals( field ) )
+            {
+                for ( final String uri : readStrings( jp ) )
+                {
+                    uris.add( toURI( jp, uri ) );
+                }
+            }
+            else if ( SerializationConstants.DICTIONARY_SOURCE_SETS.equals( field ) )
+            {
+                expect( jp, token, JsonToken.START_ARRAY );
+                while ( next( jp ) != JsonToken.END_ARRAY )
+                {
+                    expect( jp, jp.getCurrentToken(), JsonToken.START_ARRAY );
+                    final List<URI> set = new ArrayList<URI>( 2 );
+                    while ( next( jp ) != JsonToken.END_ARRAY )
+                    {
+                        set.add( lookup( uris, jp.getIntValue(), SerializationConstants.DICTIONARY_URIS, jp ) );
+                    }
+                    sourceSets.add( set );
+                }
+            }
+            else if ( SerializationConstants.DICTIONARY_REFS.equals( field ) )
+            {
+                for ( final String gav : readStrings( jp ) )
+                {
+                    refs.add( SimpleProjectVersionRef.parse( gav ) );
+                }
+            }
+            else if ( SerializationConstants.DICTIONARY_ARTIFACTS.equals( field ) )
+            {
+                expect( jp, token, JsonToken.START_ARRAY );
+                while ( next( jp ) != JsonToken.END_ARRAY )
+                {
+                    expect( jp, jp.getCurrentToken(), JsonToken.START_ARRAY );
+                    next( jp );
+                    final ProjectVersionRef ref =
+                            lookup( refs, jp.getIntValue(), SerializationConstants.DICTIONARY_REFS, jp );
+                    next( jp );
+                    final String type = jp.getText();
+                    String classifier = null;
+                    if ( next( jp ) != JsonToken.END_ARRAY )
+                    {
+                        classifier = jp.getText();
+                        expect( jp, next( jp ), JsonToken.END_ARRAY );
+                    }
+                    artifacts.add( IdentityPool.canonical( new SimpleArtifactRef( ref, type, classifier ) ) );
+                }
+            }
+            else if ( SerializationConstants.DICTIONARY_PLUGINS.equals( field ) )
+            {
+                for ( final String ga : readStrings( jp ) )
+                {
+                    plugins.add( SimpleProjectRef.parse( ga ) );
+                }
+            }
+            else if ( SerializationConstants.RELATIONSHIPS.equals( field ) )
+            {
+                expect( jp, token, JsonToken.START_ARRAY );
+                final int[] row = new int[MAX_ROW_LENGTH];
+                while ( next( jp ) != JsonToken.END_ARRAY )
+                {
+                    expect( jp, jp.getCurrentToken(), JsonToken.START_ARRAY );
+                    int length = 0;
+                    while ( next( jp ) != JsonToken.END_ARRAY )
+                    {
+                        if ( length == MAX_ROW_LENGTH )
+                        {
+                            throw new JsonParseException( jp, "Too many columns in relationship" );
+                        }
+                        row[length++] = jp.getIntValue();
+                    }
+                    if ( length < MIN_ROW_LENGTH )
+                    {
+                        throw new JsonParseException( jp, "Too few columns in relationship" );
+                    }
+
+                    rels.add( relationship( row, length, types, scopes, uris, sourceSets, refs, artifacts, plugins,
+                                            jp ) );
+                }
+            }
+            else
+            {
+                jp.skipChildren();
+            }
+        }
+
+        return new DictionaryEncodedRelationships( rels );
+    }
+
+    private static ProjectRelationship<?, ?> relationship( final int[] row, final int length,
+                                                           final List<RelationshipType> types,
+                                                           final List<DependencyScope> scopes, final List<URI> uris,
+                                                           final List<List<URI>> sourceSets,
+                                                           final List<ProjectVersionRef> refs,
+                                                           final List<ArtifactRef> artifacts,
+                                                           final List<ProjectRef> plugins, final JsonParser jp )
+            throws JsonParseException
+    {
+        final RelationshipType type = lookup( types, row[0], SerializationConstants.DICTIONARY_TYPES, jp );
+        final int flags = row[1];
+        final ProjectVersionRef declaring = lookup( refs, row[2], SerializationConstants.DICTIONARY_REFS, jp );
+        final URI pomLocation = lookup( uris, row[4], SerializationConstants.DICTIONARY_URIS, jp );
+        final int index = row[5];
+        final List<URI> sources = lookup( sourceSets, row[6], SerializationConstants.DICTIONARY_SOURCE_SETS, jp );
+
+        final boolean managed = ( flags & FLAG_MANAGED ) != 0;
+        final boolean inherited = ( flags & FLAG_INHERITED ) != 0;
+
+        switch ( type )
+        {
+            case DEPENDENCY:
+            {
+                final ArtifactRef target = lookup( artifacts, row[3], SerializationConstants.DICTIONARY_ARTIFACTS, jp );
+                final DependencyScope scope = length > MIN_ROW_LENGTH ?
+                        lookup( scopes, row[7], SerializationConstants.DICTIONARY_SCOPES, jp ) :
+                        DependencyScope.compile;
+
+                return new SimpleDependencyRelationship( sources, pomLocation, declaring, target, scope, index,
+                                                         managed, inherited, ( flags & FLAG_OPTIONAL ) != 0 );
+            }
+            case PLUGIN_DEP:
+            {
+                if ( length == MIN_ROW_LENGTH )
+                {
+                    throw new JsonParseException( jp, "No plugin reference found in plugin-dependency relationship!" );
+                }
+
+                final ArtifactRef target = lookup( artifacts, row[3], SerializationConstants.DICTIONARY_ARTIFACTS, jp );
+                final ProjectRef plugin = lookup( plugins, row[7], SerializationConstants.DICTIONARY_PLUGINS, jp );
+
+                return new SimplePluginDependencyRelationship( sources, pomLocation, declaring, plugin, target, index,
+                                                               managed, inherited );
+            }
+            case EXTENSION:
+            {
+                final ProjectVersionRef target = lookup( refs, row[3], SerializationConstants.DICTIONARY_REFS, jp );
+                return new SimpleExtensionRelationship( sources, pomLocation, declaring, target, index, inherited );
+            }
+            case PARENT:
+            {
+                final ProjectVersionRef target = lookup( refs, row[3], SerializationConstants.DICTIONARY_REFS, jp );
+                return new SimpleParentRelationship( sources, declaring, target );
+            }
+            case PLUGIN:
+            {
+                final ProjectVersionRef target = lookup( refs, row[3], SerializationConstants.DICTIONARY_REFS, jp );
+                return new SimplePluginRelationship( sources, pomLocation, declaring, target, index, managed,
+                                                     ( flags & FLAG_REPORTING ) != 0, inherited );
+            }
+            case BOM:
+            default:
+            {
+                final ProjectVersionRef target = lookup( refs, row[3], SerializationConstants.DICTIONARY_REFS, jp );
+                return new SimpleBomRelationship( sources, pomLocation, declaring, target, index, inherited,
+                                                  ( flags & FLAG_MIXIN ) != 0 );
+            }
+        }
+    }
+
+    private static List<String> readStrings( final JsonParser jp )
+            throws IOException
+    {
+        expect( jp, jp.getCurrentToken(), JsonToken.START_ARRAY );
+        final List<String> values = new ArrayList<String>();
+        while ( next( jp ) != JsonToken.END_ARRAY )
+        {
+            values.add( jp.getText() );
+        }
+
+        return values;
+    }
+
+    private static <T> T lookup( final List<T> table, final int index, final String name, final JsonParser jp )
+            throws JsonParseException
+    {
+        if ( index < 0 || index >= table.size() )
+        {
+            throw new JsonParseException( jp, "Invalid index into '" + name + "' (size: " + table.size() + "): "
+                + index );
+        }
+
+        return table.get( index );
+    }
+
+    private static JsonToken next( final JsonParser jp )
+            throws IOException
+    {
+        final JsonToken token = jp.nextToken();
+        if ( token == null )
+        {
+            throw new JsonParseException( jp, "Unexpected end of input in relationship collection" );
+        }
+
+        return token;
+    }
+
+    private static void expect( final JsonParser jp, final JsonToken actual, final JsonToken expected )
+            throws JsonParseException
+    {
+        if ( actual != expected )
+        {
+            throw new JsonParseException( jp, "Expected " + expected + " but found " + actual );
+        }
+    }
+
+    private static URI toURI( final JsonParser jp, final String value )
+            throws JsonParseException
+    {
+        try
+        {
+            return new URI( value );
+        }
+        catch ( final URISyntaxException e )
+        {
+            throw new JsonParseException( jp, "Failed to parse URI: " + value + ": " + e.getMessage(), e );
+        }
+    }
+}
@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.jackson;
+
+import com.fasterxml.jackson.core.JsonGenerationException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Writes {@link DictionaryEncodedRelationships} as one object: the header tables first, then the relationships.
+ * <pre>
+ * {
+ *   "jsonVersion": 1,
+ *   "types": [ "DEPENDENCY", ... ],
+ *   "scopes": [ "compile", ... ],
+ *   "uris": [ "http://repo/", "pom:root", ... ],
+ *   "source-sets": [ [ 0 ], [ 0, 3 ], ... ],                  (indexes into uris)
+ *   "refs": [ "g:a:v", ... ],
+ *   "artifacts": [ [ 0, "jar" ], [ 0, "jar", "tests" ], ... ],  (ref index, type[, classifier])
+ *   "plugins": [ "g:a", ... ],
+ *   "relationships": [ [ type, flags, declaring, target, pom-location, index, source-set(, extra) ], ... ]
+ * }
+ * </pre>
+ * In a relationship, type indexes into types, declaring into refs, pom-location into uris and source-set into
+ * source-sets. The target indexes into artifacts for dependencies and plugin-level dependencies, and into refs
+ * otherwise. Only those two types have the extra column: an index into scopes for dependencies, and into plugins for
+ * plugin-level dependencies. The flags are a bit set of the FLAG_* constants. Each table holds distinct entries, in
+ * the order they are first used.
+ *
+ * Refs are keyed on their rendered form, not on equals(), so '1.0' and '1.0.0' stay distinct and round-trip exactly.
+ */
+public final class DictionaryEncodedRelationshipsSerializer
+        extends StdSerializer<DictionaryEncodedRelationships>
+{
+
+    static final int FLAG_MANAGED = 1;
+
+    static final int FLAG_INHERITED = 1 << 1;
+
+    static final int FLAG_MIXIN = 1 << 2;
+
+    static final int FLAG_OPTIONAL = 1 << 3;
+
+    static final int FLAG_REPORTING = 1 << 4;
+
+    public DictionaryEncodedRelationshipsSerializer()
+    {
+        super( DictionaryEncodedRelationships.class );
+    }
+
+    @Override
+    public void serialize( final DictionaryEncodedRelationships value, final JsonGenerator gen,
+                           final SerializerProvider provider )
+            throws IOException, JsonGenerationException
+    {
+        final List<ProjectRelationship<?, ?>> rels = value.getRelationships();
+
+        final Dictionary<String> types = new Dictionary<String>();
+        final Dictionary<String> scopes = new Dictionary<String>();
+        final Dictionary<String> uris = new Dictionary<String>();
+        final Dictionary<Set<URI>> sourceSets = new Dictionary<Set<URI>>();
+        final Dictionary<String> refs = new Dictionary<String>();
+        final Dictionary<List<Object>> artifacts = new Dictionary<List<Object>>();
+        final Dictionary<String> plugins = new Dictionary<String>();
+
+        final int[][] rows = new int[rels.size()][];
+        int r = 0;
+        for ( final ProjectRelationship<?, ?> rel : rels )
+        {
+            final boolean extra;
+            int flags = 0;
+            if ( rel.isManaged() )
+            {
+                flags |= FLAG_MANAGED;
+            }
+            if ( rel.isInherited() )
+            {
+                flags |= FLAG_INHERITED;
+            }
+            if ( rel.isMixin() )
+            {
+                flags |= FLAG_MIXIN;
+            }
+
+            int target;
+            int more = 0;
+            switch ( rel.getType() )
+            {
+                case DEPENDENCY:
+                {
+                    final DependencyRelationship dep = (DependencyRelationship) rel;
+                    if ( dep.isOptional() )
+                    {
+                        flags |= FLAG_OPTIONAL;
+                    }
+                    target = artifact( dep.getTarget(), refs, artifacts );
+                    more = scopes.index( dep.getScope().realName() );
+                    extra = true;
+                    break;
+                }
+                case PLUGIN_DEP:
+                {
+                    final PluginDependencyRelationship pdr = (PluginDependencyRelationship) rel;
+                    target = artifact( pdr.getTarget(), refs, artifacts );
+                    more = plugins.index( pdr.getPlugin().toString() );
+                    extra = true;
+                    break;
+                }
+                case PLUGIN:
+                {
+                    if ( ( (PluginRelationship) rel ).isReporting() )
+                    {
+                        flags |= FLAG_REPORTING;
+                    }
+                    target = refs.index( gav( rel.getTarget() ) );
+                    extra = false;
+                    break;
+                }
+                default:
+                {
+                    target = refs.index( gav( rel.getTarget() ) );
+                    extra = false;
+                    break;
+                }
+            }
+
+            final Set<URI> sources = rel.getSources();
+            for ( final Iterator<URI> iter = sources.iterator(); iter.hasNext(); )
+            {
+                final URI uri = iter.next();
+                if ( uri == null )
+                {
+                    iter.remove();
+                }
+                else
+                {
+                    uris.index( uri.toString() );
+                }
+            }
+
+            final int[] row = new int[extra ? 8 : 7];
+            row[0] = types.index( rel.getType().name() );
+            row[1] = flags;
+            row[2] = refs.index( gav( rel.getDeclaring() ) );
+            row[3] = target;
+            row[4] = uris.index( rel.getPomLocation().toString() );
+            row[5] = rel.getIndex();
+            row[6] = sourceSets.index( sources );
+            if ( extra )
+            {
+                row[7] = more;
+            }
+            rows[r++] = row;
+        }
+
+        gen.writeStartObject();
+        gen.writeNumberField( SerializationConstants.JSON_VERSION, SerializationConstants.CURRENT_DICTIONARY_VERSION );
+        writeStrings( SerializationConstants.DICTIONARY_TYPES, types, gen );
+        writeStrings( SerializationConstants.DICTIONARY_SCOPES, scopes, gen );
+        writeStrings( SerializationConstants.DICTIONARY_URIS, uris, gen );
+
+        gen.writeArrayFieldStart( SerializationConstants.DICTIONARY_SOURCE_SETS );
+        for ( final Set<URI> set : sourceSets.entries.keySet() )
+        {
+            gen.writeStartArray();
+            for ( final URI uri : set )
+            {
+                gen.writeNumber( uris.index( uri.toString() ) );
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+
+        writeStrings( SerializationConstants.DICTIONARY_REFS, refs, gen );
+
+        gen.writeArrayFieldStart( SerializationConstants.DICTIONARY_ARTIFACTS );
+        for ( final List<Object> artifact : artifacts.entries.keySet() )
+        {
+            gen.writeStartArray();
+            gen.writeNumber( (Integer) artifact.get( 0 ) );
+            gen.writeString( (String) artifact.get( 1 ) );
+            if ( artifact.get( 2 ) != null )
+            {
+                gen.writeString( (String) artifact.get( 2 ) );
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+
+        writeStrings( SerializationConstants.DICTIONARY_PLUGINS, plugins, gen );
+
+        gen.writeArrayFieldStart( SerializationConstants.RELATIONSHIPS );
+        for ( final int[] row : rows )
+        {
+            gen.writeStartArray();
+            for ( final int cell : row )
+            {
+                gen.writeNumber( cell );
+            }
+            gen.writeEndArray();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static int artifact( final ArtifactRef target, final Dictionary<String> refs,
+                                 final Dictionary<List<Object>> artifacts )
+    {
+        final int ref = refs.index( gav( target ) );
+        return artifacts.index( Arrays.<Object>asList( ref, target.getType(), target.getClassifier() ) );
+    }
+
+    /**
+     * The groupId:artifactId:version form {@link org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef#parse}
+     * reads back, also for artifact refs (whose toString() includes the type).
+     */
+    private static String gav( final ProjectVersionRef ref )
+    {
+        return ref.getGroupId() + ':' + ref.getArtifactId() + ':' + ref.getVersionString();
+    }
+
+    private static void writeStrings( final String field, final Dictionary<String> dictionary,
+                                      final JsonGenerator gen )
+            throws IOException
+    {
+        gen.writeArrayFieldStart( field );
+        for ( final String value : dictionary.entries.keySet() )
+        {
+            gen.writeString( value );
+        }
+        gen.writeEndArray();
+    }
+
+    /**
+     * Assigns dense ids to distinct values, in first-use order.
+     */
+    private static final class Dictionary<K>
+    {
+        private final Map<K, Integer> entries = new LinkedHashMap<K, Integer>();
+
+        int index( final K value )
+        {
+            final Integer existing = entries.get( value );
+            if ( existing != null )
+            {
+                return existing;
+            }
+
+            final int id = entries.size();
+            entries.put( value, id );
+            return id;
+        }
+    }
+
+}
@@ -15,7 +15,10 @@
  */
 package org.commonjava.atlas.maven.graph.jackson;
 
-import com.fasterxml.jackson.core.*;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
 import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
@@ -34,15 +37,23 @@ import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
 import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
 import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
 import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.jackson.SerializerIdentityUtils;
+import org.commonjava.atlas.maven.ident.ref.IdentityPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.*;
+import java.util.Collection;
+import java.util.HashSet;
 
 /**
+ * Reads relationships straight off the token stream: each field is decoded into a local as it arrives (the last
+ * occurrence wins, nulls and unknown fields are ignored), and the relationship is built once the object ends. Parser
+ * locations are only looked up to report errors. Refs may be strings or the field objects binary generators get (see
+ * {@link SerializerIdentityUtils}).
+ *
  * Created by jdcasey on 8/26/15.
  */
 @SuppressWarnings( { "rawtypes", "unchecked" } )
@@ -51,6 +62,36 @@ public final class ProjectRelationshipDeserializer<T extends ProjectRelationship
 {
     private static final long serialVersionUID = 1L;
 
+    private static final Logger logger = LoggerFactory.getLogger( ProjectRelationshipDeserializer.class );
+
+    private static final int UNKNOWN = 0;
+
+    private static final int TYPE = 1;
+
+    private static final int POM_LOCATION = 2;
+
+    private static final int SOURCES = 3;
+
+    private static final int DECLARING = 4;
+
+    private static final int TARGET = 5;
+
+    private static final int INDEX = 6;
+
+    private static final int MANAGED = 7;
+
+    private static final int INHERITED = 8;
+
+    private static final int MIXIN = 9;
+
+    private static final int OPTIONAL = 10;
+
+    private static final int REPORTING = 11;
+
+    private static final int SCOPE = 12;
+
+    private static final int PLUGIN = 13;
+
     public ProjectRelationshipDeserializer()
     {
         super( ProjectRelationship.class );
@@ -60,157 +101,182 @@ public final class ProjectRelationshipDeserializer<T extends ProjectRelationship
     public T deserialize( final JsonParser jp, final DeserializationContext ctx )
             throws JsonProcessingException, IOException
     {
-        Map<String, Object> ast = new HashMap<String, Object>();
-        Map<String, JsonLocation> locations = new HashMap<String, JsonLocation>();
+        String typeName = null;
+        URI pomLocation = RelationshipConstants.POM_ROOT_URI;
+        Collection<URI> sources = new HashSet<URI>();
+        String decl = null;
+        String tgt = null;
+        ProjectRef declRef = null;
+        ProjectRef tgtRef = null;
+        ProjectRef plugRef = null;
+        int index = 0;
+        boolean managed = false;
+        boolean inherited = false;
+        boolean mixin = false;
+        boolean optional = false;
+        boolean reporting = false;
+        String scp = null;
+        String plug = null;
+
+        int field = UNKNOWN;
+        boolean inArray = false;
 
         JsonToken token = jp.getCurrentToken();
-        String currentField = null;
-        List<String> currentArry = null;
+        if ( token == JsonToken.START_OBJECT )
+        {
+            token = jp.nextToken();
+        }
 
-        Logger logger = LoggerFactory.getLogger( getClass() );
-        do
+        while ( token != JsonToken.END_OBJECT )
         {
-            //                logger.info( "Token: {}", token );
             switch ( token )
             {
+                case FIELD_NAME:
+                {
+                    field = fieldId( jp.getCurrentName() );
+                    break;
+                }
+                case START_OBJECT:
+                {
+                    switch ( inArray ? UNKNOWN : field )
+                    {
+                        case DECLARING:
+                            declRef = SerializerIdentityUtils.read( jp, ProjectRef.class );
+                            decl = null;
+                            break;
+                        case TARGET:
+                            tgtRef = SerializerIdentityUtils.read( jp, ProjectRef.class );
+                            tgt = null;
+                            break;
+                        case PLUGIN:
+                            plugRef = SerializerIdentityUtils.read( jp, ProjectRef.class );
+                            plug = null;
+                            break;
+                        default:
+                            jp.skipChildren();
+                            break;
+                    }
+                    break;
+                }
                 case START_ARRAY:
                 {
-                    //                        logger.info( "Starting array for field: {}", currentField );
-                    currentArry = new ArrayList<String>();
+                    inArray = true;
+                    if ( field == SOURCES )
+                    {
+                        sources.clear();
+                    }
                     break;
                 }
                 case END_ARRAY:
-                    //                        logger.info( "Ending array for field: {}", currentField );
-                    locations.put( currentField, jp.getCurrentLocation() );
-                    ast.put( currentField, currentArry );
-                    currentArry = null;
-                    break;
-                case FIELD_NAME:
-                    currentField = jp.getCurrentName();
+                {
+                    inArray = false;
                     break;
+                }
                 case VALUE_STRING:
-                    if ( currentArry != null )
+                {
+                    final String text = jp.getText();
+                    if ( inArray )
                     {
-                        currentArry.add( jp.getText() );
+                        if ( field == SOURCES )
+                        {
+                            sources.add( toURI( jp, text, "Failed to parse source URI: " + text ) );
+                        }
+                        break;
                     }
-                    else
+
+                    switch ( field )
                     {
-                        locations.put( currentField, jp.getCurrentLocation() );
-                        ast.put( currentField, jp.getText() );
+                        case TYPE:
+                            typeName = text;
+                            break;
+                        case POM_LOCATION:
+                            pomLocation = toURI( jp, text, "Invalid " + SerializationConstants.POM_LOCATION_URI + ": '"
+                                    + text + "'" );
+                            break;
+                        case DECLARING:
+                            decl = text;
+                            declRef = null;
+                            break;
+                        case TARGET:
+                            tgt = text;
+                            tgtRef = null;
+                            break;
+                        case SCOPE:
+                            scp = text;
+                            break;
+                        case PLUGIN:
+                            plug = text;
+                            plugRef = null;
+                            break;
+                        default:
+                            break;
                     }
                     break;
+                }
                 case VALUE_NUMBER_INT:
-                    locations.put( currentField, jp.getCurrentLocation() );
-                    ast.put( currentField, jp.getIntValue() );
-                    break;
-                case VALUE_NUMBER_FLOAT:
-                    locations.put( currentField, jp.getCurrentLocation() );
-                    ast.put( currentField, jp.getFloatValue() );
+                {
+                    if ( !inArray && field == INDEX )
+                    {
+                        index = jp.getIntValue();
+                    }
                     break;
+                }
                 case VALUE_TRUE:
-                    locations.put( currentField, jp.getCurrentLocation() );
-                    ast.put( currentField, Boolean.TRUE );
-                    break;
                 case VALUE_FALSE:
-                    locations.put( currentField, jp.getCurrentLocation() );
-                    ast.put( currentField, Boolean.FALSE );
+                {
+                    if ( !inArray )
+                    {
+                        final boolean value = token == JsonToken.VALUE_TRUE;
+                        switch ( field )
+                        {
+                            case MANAGED:
+                                managed = value;
+                                break;
+                            case INHERITED:
+                                inherited = value;
+                                break;
+                            case MIXIN:
+                                mixin = value;
+                                break;
+                            case OPTIONAL:
+                                optional = value;
+                                break;
+                            case REPORTING:
+                                reporting = value;
+                                break;
+                            default:
+                                break;
+                        }
+                    }
+                    break;
+                }
+                default:
                     break;
             }
 
             token = jp.nextToken();
-        }
-        while ( token != JsonToken.END_OBJECT );
-
-        StringBuilder sb = new StringBuilder();
-        sb.append( "AST is:" );
-        for ( String field : ast.keySet() )
-        {
-            Object value = ast.get( field );
-            sb.append( "\n  " ).append( field ).append( " = " );
-            if ( value == null )
-            {
-                sb.append( "null" );
-            }
-            else
-            {
-                sb.append( value ).append( "  (type: " ).append( value.getClass().getSimpleName() ).append( ")" );
-            }
-        }
-
-        logger.debug( sb.toString() );
-
-        final RelationshipType type = RelationshipType.getType( (String) ast.get( SerializationConstants.RELATIONSHIP_TYPE ) );
-
-        final String uri = (String) ast.get( SerializationConstants.POM_LOCATION_URI );
-        URI pomLocation;
-        if ( uri == null )
-        {
-            pomLocation = RelationshipConstants.POM_ROOT_URI;
-        }
-        else
-        {
-            try
-            {
-                pomLocation = new URI( uri );
-            }
-            catch ( final URISyntaxException e )
-            {
-                throw new JsonParseException( "Invalid " + SerializationConstants.POM_LOCATION_URI + ": '" + uri + "': " + e.getMessage(),
-                                              locations.get( SerializationConstants.POM_LOCATION_URI ), e );
-            }
-        }
-
-        Collection<URI> sources = new HashSet<URI>();
-        List<String> srcs = (List<String>) ast.get( SerializationConstants.SOURCE_URIS );
-        if ( srcs != null )
-        {
-            for ( String u : srcs )
+            if ( token == null )
             {
-                try
-                {
-                    sources.add( new URI( u ) );
-                }
-                catch ( URISyntaxException e )
-                {
-                    throw new JsonParseException( "Failed to parse source URI: " + u,
-                                                  locations.get( SerializationConstants.SOURCE_URIS ) );
-                }
+                throw new JsonParseException( jp, "Unexpected end of input in relationship" );
             }
         }
 
-        String decl = (String) ast.get( SerializationConstants.DECLARING_REF );
-        final ProjectVersionRef declaring = SimpleProjectVersionRef.parse( decl );
-
-        String tgt = (String) ast.get( SerializationConstants.TARGET_REF );
-        Integer index = (Integer) ast.get( SerializationConstants.INDEX );
-        if ( index == null )
+        final RelationshipType type = RelationshipType.getType( typeName );
+        if ( type == null )
         {
-            index = 0;
+            throw new JsonParseException( jp, "Missing or invalid relationship "
+                    + SerializationConstants.RELATIONSHIP_TYPE + ": '" + typeName + "'" );
         }
 
-        // handle null implicitly by comparing to true.
-        boolean managed = Boolean.TRUE.equals( ast.get( SerializationConstants.MANAGED ) );
-        boolean inherited = Boolean.TRUE.equals( ast.get( SerializationConstants.INHERITED ) );
-        boolean mixin = Boolean.TRUE.equals( ast.get( SerializationConstants.MIXIN ) );
-        boolean optional = Boolean.TRUE.equals( ast.get( SerializationConstants.OPTIONAL ) );
+        final ProjectVersionRef declaring = versionRef( declRef, decl, jp );
 
         ProjectRelationship<?, ?> rel = null;
         switch ( type )
         {
             case DEPENDENCY:
             {
-                final ArtifactRef target = SimpleArtifactRef.parse( tgt );
-
-                String scp = (String) ast.get( SerializationConstants.SCOPE );
-                final DependencyScope scope;
-                if ( scp == null )
-                {
-                    scope = DependencyScope.compile;
-                }
-                else
-                {
-                    scope = DependencyScope.getScope( scp );
-                }
+                final ArtifactRef target = artifactRef( tgtRef, tgt, jp );
+                final DependencyScope scope = scp == null ? DependencyScope.compile : DependencyScope.getScope( scp );
 
                 rel = new SimpleDependencyRelationship( sources, pomLocation, declaring, target, scope, index,
                                                         managed, inherited, optional );
@@ -218,39 +284,36 @@ public final class ProjectRelationshipDeserializer<T extends ProjectRelationship
             }
             case EXTENSION:
             {
-                final ProjectVersionRef target = SimpleProjectVersionRef.parse( tgt );
+                final ProjectVersionRef target = versionRef( tgtRef, tgt, jp );
 
                 rel = new SimpleExtensionRelationship( sources, pomLocation, declaring, target, index, inherited );
                 break;
             }
             case PARENT:
             {
-                final ProjectVersionRef target = SimpleProjectVersionRef.parse( tgt );
+                final ProjectVersionRef target = versionRef( tgtRef, tgt, jp );
 
                 rel = new SimpleParentRelationship( sources, declaring, target );
                 break;
             }
             case PLUGIN:
             {
-                final ProjectVersionRef target = SimpleProjectVersionRef.parse( tgt );
+                final ProjectVersionRef target = versionRef( tgtRef, tgt, jp );
 
-                Boolean report = (Boolean) ast.get( SerializationConstants.REPORTING );
                 rel = new SimplePluginRelationship( sources, pomLocation, declaring, target, index, managed,
-                                                    Boolean.TRUE.equals( report ), inherited );
+                                                    reporting, inherited );
                 break;
             }
             case PLUGIN_DEP:
             {
-                String plug = (String) ast.get( SerializationConstants.PLUGIN_REF );
-                if ( plug == null )
+                if ( plug == null && plugRef == null )
                 {
-                    throw new JsonParseException( "No plugin reference (field: " + SerializationConstants.PLUGIN_REF
-                                                          + ") found in plugin-dependency relationship!",
-                                                  jp.getCurrentLocation() );
+                    throw new JsonParseException( jp, "No plugin reference (field: " + SerializationConstants.PLUGIN_REF
+                                                          + ") found in plugin-dependency relationship!" );
                 }
 
-                final ProjectRef plugin = SimpleProjectRef.parse( plug );
-                final ArtifactRef target = SimpleArtifactRef.parse( tgt );
+                final ProjectRef plugin = plugRef != null ? plugRef : SimpleProjectRef.parse( plug );
+                final ArtifactRef target = artifactRef( tgtRef, tgt, jp );
 
                 rel = new SimplePluginDependencyRelationship( sources, pomLocation, declaring, plugin, target,
                                                               index, managed, inherited );
@@ -258,13 +321,125 @@ public final class ProjectRelationshipDeserializer<T extends ProjectRelationship
             }
             case BOM:
             {
-                final ProjectVersionRef target = SimpleProjectVersionRef.parse( tgt );
+                final ProjectVersionRef target = versionRef( tgtRef, tgt, jp );
 
                 rel = new SimpleBomRelationship( sources, pomLocation, declaring, target, index, inherited, mixin );
                 break;
             }
         }
 
+        logger.debug( "Deserialized relationship: {}", rel );
+
         return (T) rel;
     }
+
+    private static ProjectVersionRef versionRef( final ProjectRef ref, final String text, final JsonParser jp )
+            throws JsonParseException
+    {
+        if ( ref == null )
+        {
+            return SimpleProjectVersionRef.parse( text );
+        }
+        else if ( ref instanceof ArtifactRef )
+        {
+            return IdentityPool.canonical( ( (ArtifactRef) ref ).asProjectVersionRef() );
+        }
+        else if ( ref instanceof ProjectVersionRef )
+        {
+            return (ProjectVersionRef) ref;
+        }
+
+        throw new JsonParseException( jp, "Expected a versioned project reference, found: " + ref );
+    }
+
+    private static ArtifactRef artifactRef( final ProjectRef ref, final String text, final JsonParser jp )
+            throws JsonParseException
+    {
+        if ( ref == null )
+        {
+            return SimpleArtifactRef.parse( text );
+        }
+        else if ( ref instanceof ArtifactRef )
+        {
+            return (ArtifactRef) ref;
+        }
+        else if ( ref instanceof ProjectVersionRef )
+        {
+            // same default as SimpleArtifactRef.parse() for a bare GAV
+            return IdentityPool.canonical( new SimpleArtifactRef( (ProjectVersionRef) ref, "pom", null ) );
+        }
+
+        throw new JsonParseException( jp, "Expected an artifact reference, found: " + ref );
+    }
+
+    private static URI toURI( final JsonParser jp, final String value, final String error )
+            throws JsonParseException
+    {
+        try
+        {
+            return new URI( value );
+        }
+        catch ( final URISyntaxException e )
+        {
+            throw new JsonParseException( jp, error + ": " + e.getMessage(), e );
+        }
+    }
+
+    private static int fieldId( final String name )
+    {
+        if ( SerializationConstants.RELATIONSHIP_TYPE.equals( name ) )
+        {
+            return TYPE;
+        }
+        else if ( SerializationConstants.POM_LOCATION_URI.equals( name ) )
+        {
+            return POM_LOCATION;
+        }
+        else if ( SerializationConstants.SOURCE_URIS.equals( name ) )
+        {
+            return SOURCES;
+        }
+        else if ( SerializationConstants.DECLARING_REF.equals( name ) )
+        {
+            return DECLARING;
+        }
+        else if ( SerializationConstants.TARGET_REF.equals( name ) )
+        {
+            return TARGET;
+        }
+        else if ( SerializationConstants.INDEX.equals( name ) )
+        {
+            return INDEX;
+        }
+        else if ( SerializationConstants.MANAGED.equals( name ) )
+        {
+            return MANAGED;
+        }
+        else if ( SerializationConstants.INHERITED.equals( name ) )
+        {
+            return INHERITED;
+        }
+        else if ( SerializationConstants.MIXIN.equals( name ) )
+        {
+            return MIXIN;
+        }
+        else if ( SerializationConstants.OPTIONAL.equals( name ) )
+        {
+            return OPTIONAL;
+        }
+        else if ( SerializationConstants.REPORTING.equals( name ) )
+        {
+            return REPORTING;
+        }
+        else if ( SerializationConstants.SCOPE.equals( name ) )
+        {
+            return SCOPE;
+        }
+        else if ( SerializationConstants.PLUGIN_REF.equals( name ) )
+        {
+            return PLUGIN;
+        }
+
+        return UNKNOWN;
+    }
 }
@@ -66,6 +66,8 @@ public class ProjectRelationshipSerializerModule
         }
         addKeySerializer( PluginKey.class, new PluginKeySerializer() );
         addKeyDeserializer( PluginKey.class, new PluginKeyDeserializer() );
+        addSerializer( DictionaryEncodedRelationships.class, new DictionaryEncodedRelationshipsSerializer() );
+        addDeserializer( DictionaryEncodedRelationships.class, new DictionaryEncodedRelationshipsDeserializer() );
     }
 
     private <T extends ProjectRelationship> void register( Class<T> cls )
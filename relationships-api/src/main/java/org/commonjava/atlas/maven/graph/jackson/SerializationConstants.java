@@ -70,4 +70,20 @@ public final class SerializationConstants
 
     public static final String GAVS = WEB_ROOTS;
 
+    public static final int CURRENT_DICTIONARY_VERSION = 1;
+
+    public static final String DICTIONARY_TYPES = "types";
+
+    public static final String DICTIONARY_SCOPES = "scopes";
+
+    public static final String DICTIONARY_URIS = "uris";
+
+    public static final String DICTIONARY_SOURCE_SETS = "source-sets";
+
+    public static final String DICTIONARY_REFS = "refs";
+
+    public static final String DICTIONARY_ARTIFACTS = "artifacts";
+
+    public static final String DICTIONARY_PLUGINS = "plugins";
+
 }
@@ -31,13 +31,35 @@ import org.commonjava.atlas.maven.graph.rel.RelationshipComparator;
 import org.commonjava.atlas.maven.graph.util.RelationshipUtils;
 import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
 
+/**
+ * A cycle of relationships, each one's target being the next one's declaring project. Cycles are normalized when
+ * built: the relationship list is rotated to start at the lowest relationship according to
+ * {@link RelationshipComparator}, so every rotation of the same cycle is stored (and printed) the same way. The hash is
+ * computed once, and lookups by project go through a small array-backed index, so cycles are cheap to use as set
+ * members and to query.
+ * <p>
+ * This changes the API from earlier releases, which kept the relationships in the order given and handed out that
+ * list directly:
+ * <ul>
+ * <li>{@link #getRelationships()} and {@link #iterator()} are read-only, in canonical order; a cycle is changed through
+ * {@link #setRelationships(List)} or rebuilt with a {@link Builder}.</li>
+ * <li>{@link #indexOf(ProjectVersionRef)} and {@link #indexOf(ProjectRelationship)} report canonical positions, while
+ * the {@link Builder} lookups keep insertion order.</li>
+ * <li>{@link #equals(Object)} needs the same relationships in the same cyclic order; it used to accept any cycle
+ * holding all of this one's relationships, which wasn't symmetric.</li>
+ * </ul>
+ */
 public class EProjectCycle
     implements Iterable<ProjectRelationship<?, ?>>, EProjectRelationshipCollection
 {
 
     private static final long serialVersionUID = 1L;
 
-    private List<ProjectRelationship<?, ?>> relationships = new ArrayList<ProjectRelationship<?, ?>>();
+    private List<ProjectRelationship<?, ?>> relationships = Collections.emptyList();
+
+    private transient int hashCode;
+
+    private transient volatile ParticipantIndex index;
 
     public static final class Builder
     {
@@ -60,11 +82,9 @@ public class EProjectCycle
 
         public Builder( final Builder builder, final int start )
         {
-            participants = new ArrayList<ProjectRelationship<?, ?>>( builder.participants );
-            for ( int i = 0; i < start; i++ )
-            {
-                participants.remove( 0 );
-            }
+            participants =
+                new ArrayList<ProjectRelationship<?, ?>>( builder.participants.subList( start,
+                                                                                        builder.participants.size() ) );
         }
 
         public Builder with( final ProjectRelationship<?, ?> rel )
@@ -79,29 +99,44 @@ public class EProjectCycle
             return this;
         }
 
+        /**
+         * @return the cycle, rotated into its canonical form
+         */
         public EProjectCycle build()
         {
             return new EProjectCycle( participants );
         }
 
+        /**
+         * @return the position of the project in the relationships added so far (not in the canonical order used by
+         *         {@link #build()}), as {@link EProjectCycle#indexOf(ProjectVersionRef)} defines it
+         */
         public int indexOf( final ProjectVersionRef ref )
         {
-            return build().indexOf( ref );
+            return indexOfProject( participants, ref );
         }
 
         public int indexOf( final ProjectRelationship<?, ?> rel )
         {
-            return build().indexOf( rel );
+            return participants.indexOf( rel );
         }
 
         public boolean contains( final ProjectVersionRef ref )
         {
-            return build().contains( ref );
+            for ( final ProjectRelationship<?, ?> rel : participants )
+            {
+                if ( rel.getDeclaring().equals( ref ) )
+                {
+                    return true;
+                }
+            }
+
+            return false;
         }
 
         public boolean contains( final ProjectRelationship<?, ?> rel )
         {
-            return build().contains( rel );
+            return participants.contains( rel );
         }
     }
 
@@ -109,39 +144,52 @@ public class EProjectCycle
 
     public EProjectCycle( final List<ProjectRelationship<?, ?>> cycle )
     {
-        this.relationships = new ArrayList<ProjectRelationship<?, ?>>( cycle );
+        this.relationships = canonical( cycle );
+        this.hashCode = computeHashCode( relationships );
     }
 
-    public boolean contains( final ProjectRelationship<?, ?> rel )
+    private static List<ProjectRelationship<?, ?>> canonical( final List<ProjectRelationship<?, ?>> cycle )
     {
-        return relationships.contains( rel );
-    }
+        final int size = cycle.size();
+        if ( size == 0 )
+        {
+            return Collections.emptyList();
+        }
 
-    public boolean contains( final ProjectVersionRef ref )
-    {
-        for ( final ProjectRelationship<?, ?> rel : relationships )
+        int start = 0;
+        for ( int i = 1; i < size; i++ )
         {
-            if ( rel.getDeclaring()
-                    .equals( ref ) )
+            if ( RelationshipComparator.INSTANCE.compare( cycle.get( i ), cycle.get( start ) ) < 0 )
             {
-                return true;
+                start = i;
             }
         }
 
-        return false;
+        final List<ProjectRelationship<?, ?>> rotated = new ArrayList<ProjectRelationship<?, ?>>( size );
+        rotated.addAll( cycle.subList( start, size ) );
+        rotated.addAll( cycle.subList( 0, start ) );
+
+        return Collections.unmodifiableList( rotated );
     }
 
-    public int indexOf( final ProjectRelationship<?, ?> rel )
+    // order-independent, so it doesn't depend on how ties in the canonical rotation were broken.
+    private static int computeHashCode( final List<ProjectRelationship<?, ?>> rels )
     {
-        return relationships.indexOf( rel );
+        int result = 31 + rels.size();
+        for ( final ProjectRelationship<?, ?> rel : rels )
+        {
+            result += rel.hashCode();
+        }
+
+        return result == 0 ? 1 : result;
     }
 
-    public int indexOf( final ProjectVersionRef ref )
+    private static int indexOfProject( final List<ProjectRelationship<?, ?>> rels, final ProjectVersionRef ref )
     {
         int targetIdx = -1;
-        for ( int i = 0; i < relationships.size(); i++ )
+        for ( int i = 0; i < rels.size(); i++ )
         {
-            final ProjectRelationship<?, ?> rel = relationships.get( i );
+            final ProjectRelationship<?, ?> rel = rels.get( i );
             if ( rel.getDeclaring()
                     .equals( ref ) )
             {
@@ -162,6 +210,65 @@ public class EProjectCycle
         return targetIdx;
     }
 
+    private ParticipantIndex index()
+    {
+        ParticipantIndex idx = index;
+        if ( idx == null )
+        {
+            idx = new ParticipantIndex( relationships );
+            index = idx;
+        }
+
+        return idx;
+    }
+
+    public boolean contains( final ProjectRelationship<?, ?> rel )
+    {
+        return relationships.contains( rel );
+    }
+
+    public boolean contains( final ProjectVersionRef ref )
+    {
+        return index().indexOf( ref ) >= 0;
+    }
+
+    /**
+     * @return the position of the relationship in canonical order, or -1 if it isn't part of this cycle
+     */
+    public int indexOf( final ProjectRelationship<?, ?> rel )
+    {
+        return relationships.indexOf( rel );
+    }
+
+    /**
+     * @return the position, in canonical order, of the relationship declared by the given project, or failing that, of
+     *         the first relationship targeting it; -1 if the project isn't part of this cycle
+     */
+    public int indexOf( final ProjectVersionRef ref )
+    {
+        final int idx = index().indexOf( ref );
+        if ( idx >= 0 )
+        {
+            return idx;
+        }
+
+        for ( int i = 0; i < relationships.size(); i++ )
+        {
+            if ( relationships.get( i )
+                              .getTarget()
+                              .asProjectVersionRef()
+                              .equals( ref ) )
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @return an iterator over the relationships in canonical order, which doesn't support removal
+     */
     @Override
     public Iterator<ProjectRelationship<?, ?>> iterator()
     {
@@ -196,14 +303,22 @@ public class EProjectCycle
         return refs;
     }
 
+    /**
+     * @return the relationships in canonical order; the list is unmodifiable
+     */
     public List<ProjectRelationship<?, ?>> getRelationships()
     {
         return relationships;
     }
 
+    /**
+     * Replaces the relationships, rotating them into canonical form; the given list is copied, not kept.
+     */
     public void setRelationships( final List<ProjectRelationship<?, ?>> relationships )
     {
-        this.relationships = relationships;
+        this.relationships = canonical( relationships );
+        this.hashCode = computeHashCode( this.relationships );
+        this.index = null;
     }
 
     @Override
@@ -215,16 +330,21 @@ public class EProjectCycle
     @Override
     public int hashCode()
     {
-        final int prime = 31;
-        int result = 1;
-
-        final List<ProjectRelationship<?, ?>> sorted = new ArrayList<ProjectRelationship<?, ?>>( relationships );
-        Collections.sort( sorted, RelationshipComparator.INSTANCE );
+        int h = hashCode;
+        if ( h == 0 )
+        {
+            // deserialized instance.
+            h = computeHashCode( relationships );
+            hashCode = h;
+        }
 
-        result = prime * result + sorted.hashCode();
-        return result;
+        return h;
     }
 
+    /**
+     * Two cycles are equal if they hold the same relationships in the same cyclic order, whatever their starting
+     * point.
+     */
     @Override
     public boolean equals( final Object obj )
     {
@@ -241,29 +361,98 @@ public class EProjectCycle
             return false;
         }
         final EProjectCycle other = (EProjectCycle) obj;
-        if ( relationships == null )
+
+        final List<ProjectRelationship<?, ?>> mine = relationships;
+        final List<ProjectRelationship<?, ?>> theirs = other.relationships;
+        final int size = mine.size();
+        if ( size != theirs.size() || hashCode() != other.hashCode() )
         {
-            if ( other.relationships != null )
+            return false;
+        }
+        if ( size == 0 )
+        {
+            return true;
+        }
+
+        // canonical forms normally line up at 0; only ties in the rotation order need the offset.
+        final int offset = mine.get( 0 ).equals( theirs.get( 0 ) ) ? 0 : theirs.indexOf( mine.get( 0 ) );
+        if ( offset < 0 )
+        {
+            return false;
+        }
+
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( !mine.get( i ).equals( theirs.get( ( offset + i ) % size ) ) )
             {
                 return false;
             }
         }
-        else
+
+        return true;
+    }
+
+    /**
+     * Open-addressing table from each declaring project to its first position in the cycle.
+     */
+    private static final class ParticipantIndex
+    {
+        private final ProjectVersionRef[] declaring;
+
+        // position + 1 per slot, 0 for empty.
+        private final int[] slots;
+
+        ParticipantIndex( final List<ProjectRelationship<?, ?>> rels )
         {
+            final int size = rels.size();
+            declaring = new ProjectVersionRef[size];
 
-            final Set<ProjectRelationship<?, ?>> cycle = new HashSet<ProjectRelationship<?, ?>>( this.relationships );
-            final Set<ProjectRelationship<?, ?>> otherCycle = new HashSet<ProjectRelationship<?, ?>>( other.relationships );
+            int capacity = 4;
+            while ( capacity < size * 2 )
+            {
+                capacity <<= 1;
+            }
+            slots = new int[capacity];
 
-            for ( final ProjectRelationship<?, ?> rel : cycle )
+            for ( int i = 0; i < size; i++ )
             {
-                if ( !otherCycle.contains( rel ) )
+                final ProjectVersionRef ref = rels.get( i ).getDeclaring();
+                declaring[i] = ref;
+                if ( indexOf( ref ) < 0 )
                 {
-                    return false;
+                    int slot = spread( ref.hashCode() ) & ( capacity - 1 );
+                    while ( slots[slot] != 0 )
+                    {
+                        slot = ( slot + 1 ) & ( capacity - 1 );
+                    }
+
+                    slots[slot] = i + 1;
                 }
             }
         }
 
-        return true;
+        int indexOf( final ProjectVersionRef ref )
+        {
+            final int mask = slots.length - 1;
+            int slot = spread( ref.hashCode() ) & mask;
+            int pos;
+            while ( ( pos = slots[slot] ) != 0 )
+            {
+                if ( declaring[pos - 1].equals( ref ) )
+                {
+                    return pos - 1;
+                }
+
+                slot = ( slot + 1 ) & mask;
+            }
+
+            return -1;
+        }
+
+        private static int spread( final int h )
+        {
+            return h ^ ( h >>> 16 );
+        }
     }
 
 }
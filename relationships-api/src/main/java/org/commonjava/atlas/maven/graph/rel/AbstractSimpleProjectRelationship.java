@@ -51,6 +51,9 @@ public abstract class AbstractSimpleProjectRelationship<R extends ProjectRelatio
 
     private URI pomLocation;
 
+    // lazily computed from the (immutable) declaring, target and type; 0 means not yet
+    private transient int hashCode;
+
     private final boolean cloneUsesLocation = true;
 
     protected AbstractSimpleProjectRelationship( final URI source, final RelationshipType type,
@@ -199,11 +202,17 @@ public abstract class AbstractSimpleProjectRelationship<R extends ProjectRelatio
     @Override
     public int hashCode()
     {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ( ( declaring == null ) ? 0 : declaring.hashCode() );
-        result = prime * result + ( ( target == null ) ? 0 : target.hashCode() );
-        result = prime * result + ( ( type == null ) ? 0 : type.hashCode() );
+        int result = hashCode;
+        if ( result == 0 )
+        {
+            final int prime = 31;
+            result = 1;
+            result = prime * result + ( ( declaring == null ) ? 0 : declaring.hashCode() );
+            result = prime * result + ( ( target == null ) ? 0 : target.hashCode() );
+            result = prime * result + ( ( type == null ) ? 0 : type.hashCode() );
+            hashCode = result;
+        }
+
         return result;
     }
 
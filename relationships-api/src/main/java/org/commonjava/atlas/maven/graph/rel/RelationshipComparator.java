@@ -17,6 +17,8 @@ package org.commonjava.atlas.maven.graph.rel;
 
 import java.util.Comparator;
 
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
 public final class RelationshipComparator
     implements Comparator<ProjectRelationship<?, ?>>
 {
@@ -30,35 +32,30 @@ public final class RelationshipComparator
     @Override
     public int compare( final ProjectRelationship<?, ?> one, final ProjectRelationship<?, ?> two )
     {
-        if ( one.getType() == two.getType() )
+        if ( one == two )
         {
-            if ( one.getPomLocation()
-                    .equals( RelationshipConstants.POM_ROOT_URI ) && !two.getPomLocation()
-                                                                         .equals( RelationshipConstants.POM_ROOT_URI ) )
-            {
-                return -1;
-            }
-            else if ( !one.getPomLocation()
-                          .equals( RelationshipConstants.POM_ROOT_URI ) && two.getPomLocation()
-                                                                              .equals( RelationshipConstants.POM_ROOT_URI ) )
-            {
-                return 1;
-            }
+            return 0;
+        }
 
-            int res = one.getDeclaring().compareTo( two.getDeclaring() );
-            if ( res == 0 )
-            {
-                res = one.getIndex() - two.getIndex();
-            }
+        if ( one.getType() != two.getType() )
+        {
+            return one.getType().ordinal() - two.getType().ordinal();
+        }
 
-            return res;
+        final boolean oneRoot = one.getPomLocation().equals( RelationshipConstants.POM_ROOT_URI );
+        if ( oneRoot != two.getPomLocation().equals( RelationshipConstants.POM_ROOT_URI ) )
+        {
+            return oneRoot ? -1 : 1;
         }
-        else
+
+        final ProjectVersionRef declaring = one.getDeclaring();
+        int res = declaring == two.getDeclaring() ? 0 : declaring.compareTo( two.getDeclaring() );
+        if ( res == 0 )
         {
-            return one.getType()
-                      .ordinal() - two.getType()
-                                      .ordinal();
+            res = one.getIndex() - two.getIndex();
         }
+
+        return res;
     }
 
 }
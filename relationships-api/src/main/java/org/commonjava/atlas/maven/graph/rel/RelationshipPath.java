@@ -0,0 +1,320 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.rel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Immutable path of relationships from a root project, stored as a linked list from the last relationship back to the
+ * first. {@link #append(ProjectRelationship)} is O(1) and shares the whole existing path with the result, so a
+ * traversal can extend paths without copying them.
+ * <p>
+ * The length and hash code are computed on creation; the hash code is the one {@link List#hashCode()} would give for
+ * {@link #getRelationships()}. Each path also carries a 64-bit Bloom filter of the projects on it, so
+ * {@link #contains(ProjectVersionRef)} can reject most projects without walking the path.
+ * <p>
+ * The natural ordering is the same as {@link RelationshipPathComparator}'s on the equivalent lists.
+ */
+public final class RelationshipPath
+    implements Comparable<RelationshipPath>
+{
+
+    public static final RelationshipPath EMPTY = new RelationshipPath();
+
+    private final RelationshipPath parent;
+
+    private final ProjectRelationship<?, ?> last;
+
+    private final ProjectVersionRef target;
+
+    private final int length;
+
+    private final int hashCode;
+
+    private final long projects;
+
+    private RelationshipPath()
+    {
+        parent = null;
+        last = null;
+        target = null;
+        length = 0;
+        hashCode = 1;
+        projects = 0;
+    }
+
+    private RelationshipPath( final RelationshipPath parent, final ProjectRelationship<?, ?> last )
+    {
+        this.parent = parent;
+        this.last = last;
+        this.target = last.getTarget().asProjectVersionRef();
+        this.length = parent.length + 1;
+        this.hashCode = 31 * parent.hashCode + last.hashCode();
+        this.projects = parent.projects | bloomBits( last.getDeclaring() ) | bloomBits( target );
+    }
+
+    public static RelationshipPath of( final List<? extends ProjectRelationship<?, ?>> relationships )
+    {
+        RelationshipPath path = EMPTY;
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            path = path.append( rel );
+        }
+
+        return path;
+    }
+
+    public static RelationshipPath of( final ProjectRelationship<?, ?>... relationships )
+    {
+        RelationshipPath path = EMPTY;
+        for ( final ProjectRelationship<?, ?> rel : relationships )
+        {
+            path = path.append( rel );
+        }
+
+        return path;
+    }
+
+    /**
+     * @return a path one relationship longer, sharing this one
+     */
+    public RelationshipPath append( final ProjectRelationship<?, ?> rel )
+    {
+        if ( rel == null )
+        {
+            throw new NullPointerException( "Cannot append a null relationship." );
+        }
+
+        return new RelationshipPath( this, rel );
+    }
+
+    /**
+     * @return the path without its last relationship, or null if this path is empty
+     */
+    public RelationshipPath getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * @return the last relationship, or null if this path is empty
+     */
+    public ProjectRelationship<?, ?> getLast()
+    {
+        return last;
+    }
+
+    /**
+     * @return the target of the last relationship, or null if this path is empty
+     */
+    public ProjectVersionRef getTarget()
+    {
+        return target;
+    }
+
+    public int size()
+    {
+        return length;
+    }
+
+    public boolean isEmpty()
+    {
+        return length == 0;
+    }
+
+    /**
+     * O(size - index): walks back from the end of the path.
+     */
+    public ProjectRelationship<?, ?> get( final int index )
+    {
+        if ( index < 0 || index >= length )
+        {
+            throw new IndexOutOfBoundsException( "Index: " + index + ", size: " + length );
+        }
+
+        RelationshipPath path = this;
+        while ( path.length > index + 1 )
+        {
+            path = path.parent;
+        }
+
+        return path.last;
+    }
+
+    /**
+     * @return true if the project declares or is the target of any relationship on this path
+     */
+    public boolean contains( final ProjectVersionRef ref )
+    {
+        final ProjectVersionRef pvr = ref.asProjectVersionRef();
+        final long bits = bloomBits( pvr );
+        if ( ( projects & bits ) != bits )
+        {
+            return false;
+        }
+
+        for ( RelationshipPath path = this; path.length > 0; path = path.parent )
+        {
+            if ( ( path.projects & bits ) != bits )
+            {
+                // nothing further back can contain it either.
+                return false;
+            }
+
+            if ( path.target.equals( pvr ) || path.last.getDeclaring().equals( pvr ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return the relationships from the root onward, as a new unmodifiable list
+     */
+    public List<ProjectRelationship<?, ?>> getRelationships()
+    {
+        final ProjectRelationship<?, ?>[] rels = new ProjectRelationship<?, ?>[length];
+        for ( RelationshipPath path = this; path.length > 0; path = path.parent )
+        {
+            rels[path.length - 1] = path.last;
+        }
+
+        final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>( length );
+        Collections.addAll( result, rels );
+        return Collections.unmodifiableList( result );
+    }
+
+    /**
+     * Same ordering as {@link RelationshipPathComparator}: shorter paths first, then by the relationship types from
+     * the root onward, then by {@link RelationshipComparator} from the root onward. Only walks back as far as the
+     * paths share structure, and only compares relationships that aren't the same instance.
+     */
+    @Override
+    public int compareTo( final RelationshipPath other )
+    {
+        if ( length != other.length )
+        {
+            return length < other.length ? -1 : 1;
+        }
+
+        // walking back toward the root, so the last difference seen is the first one from the root.
+        int typeResult = 0;
+        RelationshipPath first = null;
+        RelationshipPath firstOther = null;
+        for ( RelationshipPath one = this, two = other; one != two; one = one.parent, two = two.parent )
+        {
+            if ( one.last != two.last )
+            {
+                final int types = one.last.getType().ordinal() - two.last.getType().ordinal();
+                if ( types != 0 )
+                {
+                    typeResult = types;
+                }
+
+                first = one;
+                firstOther = two;
+            }
+        }
+
+        if ( typeResult != 0 )
+        {
+            return typeResult;
+        }
+
+        // usually settled at the first differing relationship; otherwise find the next one past it.
+        while ( first != null )
+        {
+            final int result = RelationshipComparator.INSTANCE.compare( first.last, firstOther.last );
+            if ( result != 0 )
+            {
+                return result;
+            }
+
+            final int settled = first.length;
+            first = null;
+            firstOther = null;
+            for ( RelationshipPath one = this, two = other; one.length > settled && one != two; one = one.parent,
+                            two = two.parent )
+            {
+                if ( one.last != two.last )
+                {
+                    first = one;
+                    firstOther = two;
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals( final Object obj )
+    {
+        if ( this == obj )
+        {
+            return true;
+        }
+        if ( !( obj instanceof RelationshipPath ) )
+        {
+            return false;
+        }
+
+        RelationshipPath one = this;
+        RelationshipPath two = (RelationshipPath) obj;
+        if ( one.length != two.length || one.hashCode != two.hashCode )
+        {
+            return false;
+        }
+
+        while ( one != two )
+        {
+            if ( !one.last.equals( two.last ) )
+            {
+                return false;
+            }
+
+            one = one.parent;
+            two = two.parent;
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "RelationshipPath " + getRelationships();
+    }
+
+    private static long bloomBits( final ProjectVersionRef ref )
+    {
+        final int h = ref.hashCode() * 0x9E3779B9;
+        return ( 1L << ( h >>> 26 ) ) | ( 1L << ( ( h >>> 20 ) & 63 ) );
+    }
+
+}
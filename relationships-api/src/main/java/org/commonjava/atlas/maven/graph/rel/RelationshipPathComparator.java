@@ -15,18 +15,33 @@
  */
 package org.commonjava.atlas.maven.graph.rel;
 
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
 
+/**
+ * Orders relationship paths: shorter paths first, then by the relationship types from the root onward, then by
+ * {@link RelationshipComparator} from the root onward.
+ * <p>
+ * To sort many paths, {@link #sort(List)} gives the same order while packing each path into a key once, so the sort
+ * itself only compares longs.
+ */
 public class RelationshipPathComparator
     implements Comparator<List<ProjectRelationship<?, ?>>>
 {
 
     public static RelationshipPathComparator INSTANCE = new RelationshipPathComparator();
 
+    // relationship type ordinals packed per key word, 4 bits each; the top bits stay clear so words compare as signed
+    private static final int TYPES_PER_WORD = 15;
+
+    private static final long[] NO_WORDS = new long[0];
+
     private final RelationshipComparator comp = RelationshipComparator.INSTANCE;
 
     private RelationshipPathComparator()
@@ -36,39 +51,91 @@ public class RelationshipPathComparator
     @Override
     public int compare( final List<ProjectRelationship<?, ?>> one, final List<ProjectRelationship<?, ?>> two )
     {
-        Logger logger = LoggerFactory.getLogger( getClass() );
-        logger.debug("Comparing:\nOne: {}\nTwo: {}", one, two);
+        final int size = one.size();
+        if ( size != two.size() )
+        {
+            return size < two.size() ? -1 : 1;
+        }
+
+        // any type difference outranks a relationship difference, so the latter is only remembered.
+        int relResult = 0;
+        for ( int i = 0; i < size; i++ )
+        {
+            final ProjectRelationship<?, ?> a = one.get( i );
+            final ProjectRelationship<?, ?> b = two.get( i );
+            final int result = compareRelTypes( a, b );
+            if ( result != 0 )
+            {
+                return result;
+            }
+
+            if ( relResult == 0 )
+            {
+                relResult = compareRels( a, b );
+            }
+        }
+
+        return relResult;
+    }
 
-        final int commonLen = Math.min( one.size(), two.size() );
+    /**
+     * Sorts the paths in place, in the same order as {@link java.util.Collections#sort(List, Comparator)} with this
+     * comparator (both sorts are stable).
+     */
+    @SuppressWarnings( "unchecked" )
+    public static <P extends List<? extends ProjectRelationship<?, ?>>> void sort( final List<P> paths )
+    {
+        final Map<ProjectVersionRef, Integer> ranks = rankDeclaring( paths );
 
-        if ( one.size() > commonLen )
+        final PathKey[] keys = new PathKey[paths.size()];
+        int i = 0;
+        for ( final P path : paths )
         {
-            return 1;
+            keys[i++] = new PathKey( path, ranks );
         }
-        else if ( two.size() > commonLen )
+
+        Arrays.sort( keys );
+
+        final ListIterator<P> it = paths.listIterator();
+        for ( final PathKey key : keys )
         {
-            return -1;
+            it.next();
+            it.set( (P) key.path );
         }
+    }
 
-        for ( int i = 0; i < commonLen; i++ )
+    /**
+     * Numbers the declaring projects on the paths in {@link ProjectVersionRef#compareTo(Object)} order, with
+     * equal-ranking projects sharing a number. Keyed by identity, since refs that are equal can still differ in
+     * compareTo (equivalent but differently written versions).
+     */
+    private static Map<ProjectVersionRef, Integer> rankDeclaring(
+        final List<? extends List<? extends ProjectRelationship<?, ?>>> paths )
+    {
+        final Map<ProjectVersionRef, Integer> ranks = new IdentityHashMap<ProjectVersionRef, Integer>();
+        for ( final List<? extends ProjectRelationship<?, ?>> path : paths )
         {
-            final int result = compareRelTypes( one.get( i ), two.get( i ) );
-            if ( result != 0 )
+            for ( final ProjectRelationship<?, ?> rel : path )
             {
-                return result;
+                ranks.put( rel.getDeclaring(), null );
             }
         }
 
-        for ( int i = 0; i < commonLen; i++ )
+        final ProjectVersionRef[] distinct = ranks.keySet().toArray( new ProjectVersionRef[ranks.size()] );
+        Arrays.sort( distinct );
+
+        int rank = 0;
+        for ( int i = 0; i < distinct.length; i++ )
         {
-            final int result = compareRels( one.get( i ), two.get( i ) );
-            if ( result != 0 )
+            if ( i > 0 && distinct[i - 1].compareTo( distinct[i] ) != 0 )
             {
-                return result;
+                rank++;
             }
+
+            ranks.put( distinct[i], rank );
         }
 
-        return 0;
+        return ranks;
     }
 
     private int compareRels( final ProjectRelationship<?, ?> one, final ProjectRelationship<?, ?> two )
@@ -83,4 +150,79 @@ public class RelationshipPathComparator
                                   .ordinal();
     }
 
+    /**
+     * One path packed for sorting: its relationship types, {@value #TYPES_PER_WORD} to a word, followed by one word per
+     * relationship holding what {@link RelationshipComparator} compares once the types are equal (root POM first, then
+     * declaring project rank, then index). Keys of paths with the same length have the same number of words, and
+     * compare word by word (after the length) in the same order as {@link #compare(List, List)} compares the paths.
+     */
+    private static final class PathKey
+        implements Comparable<PathKey>
+    {
+        private final Object path;
+
+        private final int size;
+
+        // the first two words live in the key itself, which settles most comparisons without touching the rest.
+        private final long first;
+
+        private final long second;
+
+        private final long[] rest;
+
+        PathKey( final List<? extends ProjectRelationship<?, ?>> path,
+                 final Map<ProjectVersionRef, Integer> ranks )
+        {
+            this.path = path;
+
+            size = path.size();
+            final int typeWords = ( size + TYPES_PER_WORD - 1 ) / TYPES_PER_WORD;
+            final long[] words = new long[Math.max( 2, typeWords + size )];
+
+            int i = 0;
+            for ( final ProjectRelationship<?, ?> rel : path )
+            {
+                final int shift = 4 * ( TYPES_PER_WORD - 1 - i % TYPES_PER_WORD );
+                words[i / TYPES_PER_WORD] |= (long) rel.getType().ordinal() << shift;
+                final long notRoot = rel.getPomLocation().equals( RelationshipConstants.POM_ROOT_URI ) ? 0 : 1;
+                final long index = (long) rel.getIndex() - Integer.MIN_VALUE;
+                words[typeWords + i] = notRoot << 62 | (long) ranks.get( rel.getDeclaring() ) << 32 | index;
+                i++;
+            }
+
+            first = words[0];
+            second = words[1];
+            rest = words.length > 2 ? Arrays.copyOfRange( words, 2, words.length ) : NO_WORDS;
+        }
+
+        @Override
+        public int compareTo( final PathKey other )
+        {
+            if ( size != other.size )
+            {
+                return size < other.size ? -1 : 1;
+            }
+            if ( first != other.first )
+            {
+                return first < other.first ? -1 : 1;
+            }
+            if ( second != other.second )
+            {
+                return second < other.second ? -1 : 1;
+            }
+
+            final long[] mine = rest;
+            final long[] theirs = other.rest;
+            for ( int i = 0; i < mine.length; i++ )
+            {
+                if ( mine[i] != theirs[i] )
+                {
+                    return mine[i] < theirs[i] ? -1 : 1;
+                }
+            }
+
+            return 0;
+        }
+    }
+
 }
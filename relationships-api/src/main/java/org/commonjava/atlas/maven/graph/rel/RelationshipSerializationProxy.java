@@ -0,0 +1,301 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.rel;
+
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serialized form of the <code>Simple*Relationship</code> classes, substituted via their <code>writeReplace()</code>
+ * methods.
+ * <br/>
+ * Layout: a format version byte, a relationship type code, a flags byte, the index, then the declaring and target
+ * refs. The refs go through {@link ObjectOutput#writeObject(Object)} so refs shared between relationships in the same
+ * stream are written once and back-referenced afterward. After those come the pom location (omitted when it is
+ * {@link RelationshipConstants#POM_ROOT_URI}), the source URIs, and the type-specific fields. Strings are written as
+ * length-prefixed UTF.
+ * <br/>
+ * Type and scope codes come from the fixed tables below rather than enum ordinals, so reordering those enums cannot
+ * change the format. Streams written before these proxies existed still use the default field-by-field form, and
+ * remain readable since the relationship classes keep their fields and serialVersionUID.
+ */
+final class RelationshipSerializationProxy
+    implements Externalizable
+{
+
+    private static final long serialVersionUID = 1L;
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final RelationshipType[] TYPES =
+        { RelationshipType.PARENT, RelationshipType.BOM, RelationshipType.DEPENDENCY, RelationshipType.PLUGIN,
+            RelationshipType.PLUGIN_DEP, RelationshipType.EXTENSION };
+
+    private static final DependencyScope[] SCOPES =
+        { DependencyScope.compile, DependencyScope.provided, DependencyScope.runtime, DependencyScope.test,
+            DependencyScope.system, DependencyScope._import, DependencyScope.toolchain, DependencyScope.embedded };
+
+    private static final int FLAG_MANAGED = 0x1;
+
+    private static final int FLAG_INHERITED = 0x2;
+
+    private static final int FLAG_MIXIN = 0x4;
+
+    private static final int FLAG_OPTIONAL = 0x8;
+
+    private static final int FLAG_REPORTING = 0x10;
+
+    private static final int FLAG_POM_ROOT = 0x20;
+
+    private static final int FLAG_POM_LOCATION = 0x40;
+
+    private ProjectRelationship<?, ?> rel;
+
+    /**
+     * Required by {@link Externalizable}; used only during deserialization.
+     */
+    public RelationshipSerializationProxy()
+    {
+    }
+
+    RelationshipSerializationProxy( final ProjectRelationship<?, ?> rel )
+    {
+        this.rel = rel;
+    }
+
+    @Override
+    public void writeExternal( final ObjectOutput out )
+        throws IOException
+    {
+        final RelationshipType type = rel.getType();
+
+        int flags = 0;
+        if ( rel.isManaged() )
+        {
+            flags |= FLAG_MANAGED;
+        }
+        if ( rel.isInherited() )
+        {
+            flags |= FLAG_INHERITED;
+        }
+        if ( rel.isMixin() )
+        {
+            flags |= FLAG_MIXIN;
+        }
+        if ( type == RelationshipType.DEPENDENCY && ( (DependencyRelationship) rel ).isOptional() )
+        {
+            flags |= FLAG_OPTIONAL;
+        }
+        if ( type == RelationshipType.PLUGIN && ( (PluginRelationship) rel ).isReporting() )
+        {
+            flags |= FLAG_REPORTING;
+        }
+
+        final URI pomLocation = rel.getPomLocation();
+        if ( RelationshipConstants.POM_ROOT_URI.equals( pomLocation ) )
+        {
+            flags |= FLAG_POM_ROOT;
+        }
+        else if ( pomLocation != null )
+        {
+            flags |= FLAG_POM_LOCATION;
+        }
+
+        out.writeByte( FORMAT_VERSION );
+        out.writeByte( indexOf( TYPES, type ) );
+        out.writeByte( flags );
+        out.writeInt( rel.getIndex() );
+        out.writeObject( rel.getDeclaring() );
+        out.writeObject( rel.getTarget() );
+
+        if ( ( flags & FLAG_POM_LOCATION ) != 0 )
+        {
+            out.writeUTF( pomLocation.toString() );
+        }
+
+        final Set<URI> sources = rel.getSources();
+        out.writeInt( sources.size() );
+        for ( final URI source : sources )
+        {
+            out.writeUTF( source.toString() );
+        }
+
+        switch ( type )
+        {
+            case DEPENDENCY:
+            {
+                final DependencyRelationship dep = (DependencyRelationship) rel;
+                out.writeByte( indexOf( SCOPES, dep.getScope() ) );
+
+                final Set<ProjectRef> excludes = dep.getExcludes();
+                out.writeInt( excludes.size() );
+                for ( final ProjectRef exclude : excludes )
+                {
+                    out.writeObject( exclude );
+                }
+                break;
+            }
+            case PLUGIN_DEP:
+            {
+                out.writeObject( ( (PluginDependencyRelationship) rel ).getPlugin() );
+                break;
+            }
+            default:
+        }
+    }
+
+    @Override
+    public void readExternal( final ObjectInput in )
+        throws IOException, ClassNotFoundException
+    {
+        final int version = in.readUnsignedByte();
+        if ( version > FORMAT_VERSION )
+        {
+            throw new InvalidObjectException( "Unsupported relationship serialization format: " + version
+                + " (this library reads up to " + FORMAT_VERSION + ")" );
+        }
+
+        final RelationshipType type = lookup( TYPES, in.readUnsignedByte(), "relationship type" );
+        final int flags = in.readUnsignedByte();
+        final int index = in.readInt();
+        final ProjectVersionRef declaring = (ProjectVersionRef) in.readObject();
+        final ProjectVersionRef target = (ProjectVersionRef) in.readObject();
+
+        URI pomLocation = null;
+        if ( ( flags & FLAG_POM_ROOT ) != 0 )
+        {
+            pomLocation = RelationshipConstants.POM_ROOT_URI;
+        }
+        else if ( ( flags & FLAG_POM_LOCATION ) != 0 )
+        {
+            pomLocation = toURI( in.readUTF() );
+        }
+
+        final int sourceCount = in.readInt();
+        final List<URI> sources = new ArrayList<URI>( sourceCount );
+        for ( int i = 0; i < sourceCount; i++ )
+        {
+            sources.add( toURI( in.readUTF() ) );
+        }
+
+        final boolean managed = ( flags & FLAG_MANAGED ) != 0;
+        final boolean inherited = ( flags & FLAG_INHERITED ) != 0;
+        final boolean mixin = ( flags & FLAG_MIXIN ) != 0;
+
+        switch ( type )
+        {
+            case PARENT:
+            {
+                rel = new SimpleParentRelationship( sources, declaring, target );
+                break;
+            }
+            case BOM:
+            {
+                rel = new SimpleBomRelationship( sources, pomLocation, declaring, target, index, inherited, mixin );
+                break;
+            }
+            case DEPENDENCY:
+            {
+                final DependencyScope scope = lookup( SCOPES, in.readUnsignedByte(), "dependency scope" );
+                final int excludeCount = in.readInt();
+                final ProjectRef[] excludes = new ProjectRef[excludeCount];
+                for ( int i = 0; i < excludeCount; i++ )
+                {
+                    excludes[i] = (ProjectRef) in.readObject();
+                }
+
+                rel = new SimpleDependencyRelationship( sources, pomLocation, declaring, (ArtifactRef) target, scope,
+                                                        index, managed, inherited, ( flags & FLAG_OPTIONAL ) != 0,
+                                                        excludes );
+                break;
+            }
+            case PLUGIN:
+            {
+                rel = new SimplePluginRelationship( sources, pomLocation, declaring, target, index, managed,
+                                                    ( flags & FLAG_REPORTING ) != 0, inherited );
+                break;
+            }
+            case PLUGIN_DEP:
+            {
+                final ProjectRef plugin = (ProjectRef) in.readObject();
+                rel = new SimplePluginDependencyRelationship( sources, pomLocation, declaring, plugin,
+                                                              (ArtifactRef) target, index, managed, inherited );
+                break;
+            }
+            default:
+            {
+                rel = new SimpleExtensionRelationship( sources, pomLocation, declaring, target, index, inherited );
+            }
+        }
+    }
+
+    private Object readResolve()
+    {
+        return rel;
+    }
+
+    private static <T> int indexOf( final T[] table, final T value )
+        throws IOException
+    {
+        for ( int i = 0; i < table.length; i++ )
+        {
+            if ( table[i] == value )
+            {
+                return i;
+            }
+        }
+
+        throw new InvalidObjectException( "No serialization code for: " + value );
+    }
+
+    private static <T> T lookup( final T[] table, final int code, final String what )
+        throws IOException
+    {
+        if ( code >= table.length )
+        {
+            throw new InvalidObjectException( "Unknown " + what + " code: " + code );
+        }
+
+        return table[code];
+    }
+
+    private static URI toURI( final String value )
+        throws IOException
+    {
+        try
+        {
+            return new URI( value );
+        }
+        catch ( final URISyntaxException e )
+        {
+            throw (IOException) new InvalidObjectException( "Invalid URI: " + value ).initCause( e );
+        }
+    }
+
+}
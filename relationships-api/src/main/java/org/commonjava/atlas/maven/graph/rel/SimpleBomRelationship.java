@@ -132,4 +132,12 @@ public class SimpleBomRelationship
     {
         return String.format( "BomRelationship [%s => %s]", getDeclaring(), getTarget() );
     }
+
+    /**
+     * Serialize through the compact {@link RelationshipSerializationProxy} form.
+     */
+    private Object writeReplace()
+    {
+        return new RelationshipSerializationProxy( this );
+    }
 }
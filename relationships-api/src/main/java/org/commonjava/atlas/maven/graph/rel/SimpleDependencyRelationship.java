@@ -212,4 +212,12 @@ public final class SimpleDependencyRelationship
         return DependencyScope._import == getScope() && "pom".equals( getTargetArtifact().getType() );
     }
 
+    /**
+     * Serialize through the compact {@link RelationshipSerializationProxy} form.
+     */
+    private Object writeReplace()
+    {
+        return new RelationshipSerializationProxy( this );
+    }
+
 }
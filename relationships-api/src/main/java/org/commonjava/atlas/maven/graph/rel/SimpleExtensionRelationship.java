@@ -120,4 +120,12 @@ public final class SimpleExtensionRelationship
         srcs.addAll( sources );
         return new SimpleExtensionRelationship( srcs, getPomLocation(), getDeclaring(), getTarget(), getIndex(), isInherited() );
     }
+
+    /**
+     * Serialize through the compact {@link RelationshipSerializationProxy} form.
+     */
+    private Object writeReplace()
+    {
+        return new RelationshipSerializationProxy( this );
+    }
 }
@@ -128,4 +128,12 @@ public final class SimpleParentRelationship
         srcs.addAll( sources );
         return new SimpleParentRelationship( srcs, getDeclaring(), getTarget() );
     }
+
+    /**
+     * Serialize through the compact {@link RelationshipSerializationProxy} form.
+     */
+    private Object writeReplace()
+    {
+        return new RelationshipSerializationProxy( this );
+    }
 }
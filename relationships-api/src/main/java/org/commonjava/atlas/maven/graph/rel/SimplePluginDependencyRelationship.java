@@ -194,4 +194,12 @@ public final class SimplePluginDependencyRelationship
         return new SimplePluginDependencyRelationship( srcs, getPomLocation(), getDeclaring(), plugin, getTarget(),
                                                        getIndex(), isManaged(), isInherited() );
     }
+
+    /**
+     * Serialize through the compact {@link RelationshipSerializationProxy} form.
+     */
+    private Object writeReplace()
+    {
+        return new RelationshipSerializationProxy( this );
+    }
 }
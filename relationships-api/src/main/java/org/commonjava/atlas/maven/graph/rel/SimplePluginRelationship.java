@@ -171,4 +171,12 @@ public final class SimplePluginRelationship
         return new SimplePluginRelationship( srcs, getPomLocation(), getDeclaring(), getTarget(), getIndex(),
                                              isManaged(), reporting, isInherited() );
     }
+
+    /**
+     * Serialize through the compact {@link RelationshipSerializationProxy} form.
+     */
+    private Object writeReplace()
+    {
+        return new RelationshipSerializationProxy( this );
+    }
 }
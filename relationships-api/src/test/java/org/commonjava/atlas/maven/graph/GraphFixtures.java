@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph;
+
+import static org.commonjava.atlas.maven.graph.util.RelationshipUtils.dependency;
+import static org.commonjava.atlas.maven.ident.util.IdentityUtils.artifact;
+import static org.commonjava.atlas.maven.ident.util.IdentityUtils.projectVersion;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+
+/**
+ * Shorthand for the small graphs built by the engine, model and rel tests: projects are named within the
+ * {@code org.test} group, at version 1 unless given, and every relationship comes from {@link #SOURCE}.
+ */
+public final class GraphFixtures
+{
+
+    public static final URI SOURCE = URI.create( "test:source" );
+
+    private GraphFixtures()
+    {
+    }
+
+    public static DependencyRelationship dep( final String from, final String to )
+    {
+        return dependency( SOURCE, ref( from ), ref( to ), DependencyScope.compile, 0, false, false, false );
+    }
+
+    public static DependencyRelationship dep( final ProjectVersionRef from, final ProjectVersionRef to,
+                                              final DependencyScope scope, final ProjectRef... excludes )
+    {
+        return new SimpleDependencyRelationship( SOURCE, from, artifact( to, null, null ), scope, 0, false, false,
+                                                 false, excludes );
+    }
+
+    public static DependencyRelationship dep( final ProjectVersionRef from, final ProjectVersionRef to,
+                                              final DependencyScope scope, final boolean managed )
+    {
+        return dependency( SOURCE, from, to, scope, 0, managed, false, false );
+    }
+
+    public static ProjectVersionRef ref( final String name )
+    {
+        return ref( name, "1" );
+    }
+
+    public static ProjectVersionRef ref( final String name, final String version )
+    {
+        return projectVersion( "org.test", name, version );
+    }
+
+    public static Set<ProjectVersionRef> refs( final String... names )
+    {
+        final Set<ProjectVersionRef> result = new HashSet<ProjectVersionRef>();
+        for ( final String name : names )
+        {
+            result.add( ref( name ) );
+        }
+
+        return result;
+    }
+
+}
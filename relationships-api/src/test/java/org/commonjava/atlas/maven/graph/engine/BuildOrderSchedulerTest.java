@@ -0,0 +1,203 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.commonjava.atlas.maven.graph.GraphFixtures.SOURCE;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.dep;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.ref;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.refs;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.commonjava.atlas.maven.graph.model.EProjectCycle;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.junit.Test;
+
+public class BuildOrderSchedulerTest
+{
+
+    @Test
+    public void acyclicGraphBuildsInWaves()
+    {
+        // the example from build-order-improvements.txt
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( "a", "b" ) );
+        rels.add( dep( "b", "e" ) );
+        rels.add( dep( "c", "g" ) );
+        rels.add( dep( "g", "d" ) );
+        rels.add( dep( "b", "g" ) );
+
+        final BuildOrder order = new BuildOrderScheduler( rels ).schedule();
+
+        assertThat( order.getWaveCount(), equalTo( 4 ) );
+        assertThat( set( order.getWave( 0 ) ), equalTo( refs( "d", "e" ) ) );
+        assertThat( set( order.getWave( 1 ) ), equalTo( refs( "g" ) ) );
+        assertThat( set( order.getWave( 2 ) ), equalTo( refs( "b", "c" ) ) );
+        assertThat( set( order.getWave( 3 ) ), equalTo( refs( "a" ) ) );
+        assertThat( order.getWaveOf( ref( "g" ) ), equalTo( 1 ) );
+        assertThat( order.getWaveOf( ref( "missing" ) ), equalTo( -1 ) );
+        assertThat( order.getBrokenEdges().length, equalTo( 0 ) );
+
+        assertThat( order.getCriticalPath(), equalTo( Arrays.asList( ref( "d" ), ref( "g" ), ref( "b" ), ref( "a" ) ) ) );
+        assertThat( order.getCriticalPathCost(), equalTo( 4L ) );
+    }
+
+    @Test
+    public void costsPickTheCriticalPath()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( "app", "fast" ) );
+        rels.add( dep( "fast", "base" ) );
+        rels.add( dep( "app", "slow" ) );
+
+        final Map<ProjectVersionRef, Long> costs = new HashMap<ProjectVersionRef, Long>();
+        costs.put( ref( "slow" ), 30L );
+        costs.put( ref( "base" ), 5L );
+
+        final BuildOrder order = new BuildOrderScheduler( rels ).withCosts( costs ).withDefaultCost( 2 ).schedule();
+
+        assertThat( order.getCriticalPath(), equalTo( Arrays.asList( ref( "slow" ), ref( "app" ) ) ) );
+        assertThat( order.getCriticalPathCost(), equalTo( 32L ) );
+        assertThat( order.getEarliestFinish( ref( "fast" ) ), equalTo( 7L ) );
+        assertThat( order.getWaveOf( ref( "slow" ) ), equalTo( 0 ) );
+        assertThat( order.getWaveOf( ref( "app" ) ), equalTo( 2 ) );
+    }
+
+    @Test
+    public void cyclesAreBrokenTheSameWayWhateverTheInputOrder()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( "x", "a" ) );
+        rels.add( dep( "a", "b" ) );
+        rels.add( dep( "b", "c" ) );
+        rels.add( dep( "c", "a" ) );
+        rels.add( dep( "c", "leaf" ) );
+
+        final BuildOrder order = new BuildOrderScheduler( rels ).schedule();
+        assertThat( order.getBrokenRelationships(), equalTo( Collections.<ProjectRelationship<?, ?>> singletonList(
+            dep( "c", "a" ) ) ) );
+        assertThat( order.getBrokenCycles().size(), equalTo( 1 ) );
+
+        final EProjectCycle cycle = order.getBrokenCycles().get( 0 );
+        assertThat( cycle,
+                    equalTo( new EProjectCycle.Builder( dep( "b", "c" ), dep( "c", "a" ), dep( "a", "b" ) ).build() ) );
+        assertThat( set( order.getWave( 0 ) ), equalTo( refs( "leaf" ) ) );
+        assertThat( order.getWaveOf( ref( "a" ) ), equalTo( 3 ) );
+        assertThat( order.getWaveOf( ref( "x" ) ), equalTo( 4 ) );
+
+        final Random rand = new Random( 5 );
+        for ( int i = 0; i < 10; i++ )
+        {
+            Collections.shuffle( rels, rand );
+            final BuildOrder shuffled = new BuildOrderScheduler( rels ).schedule();
+            assertThat( shuffled.getBrokenRelationships(), equalTo( order.getBrokenRelationships() ) );
+            assertThat( shuffled.getBrokenCycles(), equalTo( order.getBrokenCycles() ) );
+            assertThat( shuffled.getWaveOf( ref( "x" ) ), equalTo( 4 ) );
+        }
+    }
+
+    @Test
+    public void typeFilterAvoidsPluginCycles()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( "a", "b" ) );
+        rels.add( new SimplePluginRelationship( SOURCE, ref( "b" ), ref( "a" ), 0, false, false ) );
+
+        assertThat( new BuildOrderScheduler( rels ).schedule().getBrokenEdges().length, equalTo( 1 ) );
+
+        final BuildOrder order = new BuildOrderScheduler( rels ).withTypes( RelationshipType.DEPENDENCY ).schedule();
+        assertThat( order.getBrokenEdges().length, equalTo( 0 ) );
+        assertThat( order.getWaveOf( ref( "b" ) ), equalTo( 0 ) );
+        assertThat( order.getWaveOf( ref( "a" ) ), equalTo( 1 ) );
+    }
+
+    @Test
+    public void randomGraphsYieldValidOrdersAndParallelMatchesSerial()
+        throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final Random rand = new Random( 42 );
+            for ( int round = 0; round < 30; round++ )
+            {
+                final int n = 5 + rand.nextInt( 40 );
+                final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+                for ( int i = 0; i < n * 2; i++ )
+                {
+                    rels.add( dep( "n" + rand.nextInt( n ), "n" + rand.nextInt( n ) ) );
+                }
+
+                final RelationshipGraph graph =
+                    new RelationshipGraph.Builder().retainRelationships().withRelationships( rels ).build();
+                final BuildOrder serial = new BuildOrderScheduler( graph ).schedule();
+                final BuildOrder parallel = new BuildOrderScheduler( graph ).schedule( executor );
+
+                assertThat( parallel.getWaves(), equalTo( serial.getWaves() ) );
+                assertThat( parallel.getBrokenRelationships(), equalTo( serial.getBrokenRelationships() ) );
+                assertThat( parallel.getBrokenCycles(), equalTo( serial.getBrokenCycles() ) );
+                assertThat( serial.getBrokenCycles().size(), equalTo( serial.getBrokenEdges().length ) );
+
+                final Set<Integer> broken = new HashSet<Integer>();
+                for ( final int edge : serial.getBrokenEdges() )
+                {
+                    broken.add( edge );
+                }
+
+                for ( int e = 0; e < graph.getEdgeCount(); e++ )
+                {
+                    final int source = serial.getWaveOf( graph.getNode( graph.getSource( e ) ) );
+                    final int target = serial.getWaveOf( graph.getNode( graph.getTarget( e ) ) );
+                    if ( !broken.contains( e ) )
+                    {
+                        assertThat( "round " + round + ", edge " + e, source > target, equalTo( true ) );
+                    }
+                }
+
+                // no cycle is left once the broken edges are gone.
+                final List<ProjectRelationship<?, ?>> remaining = new ArrayList<ProjectRelationship<?, ?>>( rels );
+                remaining.removeAll( serial.getBrokenRelationships() );
+                assertThat( new CycleDetector( remaining ).withMaxCyclesPerComponent( 0 ).detect().size(),
+                            equalTo( 0 ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static Set<ProjectVersionRef> set( final List<ProjectVersionRef> refs )
+    {
+        return new HashSet<ProjectVersionRef>( refs );
+    }
+
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.commonjava.atlas.maven.graph.GraphFixtures.SOURCE;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.dep;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.ref;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.refs;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.commonjava.atlas.maven.graph.model.EProjectCycle;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.junit.Test;
+
+public class CycleDetectorTest
+{
+
+    private static final int DEFAULT_LIMIT = CycleDetector.DEFAULT_MAX_CYCLES_PER_COMPONENT;
+
+    @Test
+    public void simpleCycleWithAcyclicTail()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( "tail", "a" ) );
+        rels.add( dep( "a", "b" ) );
+        rels.add( dep( "b", "c" ) );
+        rels.add( dep( "c", "a" ) );
+        rels.add( dep( "c", "leaf" ) );
+
+        final List<CyclicComponent> components = new CycleDetector( rels ).detect();
+        assertThat( components.size(), equalTo( 1 ) );
+
+        final CyclicComponent component = components.get( 0 );
+        assertThat( component.isComplete(), equalTo( true ) );
+        assertThat( component.getProjects(), equalTo( refs( "a", "b", "c" ) ) );
+        assertThat( component.getCycles().size(), equalTo( 1 ) );
+
+        final EProjectCycle cycle = component.getCycles().get( 0 );
+        assertThat( cycle.getAllParticipatingProjects(), equalTo( refs( "a", "b", "c" ) ) );
+        assertThat( cycle.getRelationships().size(), equalTo( 3 ) );
+        for ( int i = 0; i < 3; i++ )
+        {
+            final ProjectRelationship<?, ?> rel = cycle.getRelationships().get( i );
+            final ProjectRelationship<?, ?> next = cycle.getRelationships().get( ( i + 1 ) % 3 );
+            assertThat( rel.getTarget().asProjectVersionRef(), equalTo( next.getDeclaring() ) );
+        }
+    }
+
+    @Test
+    public void completeGraphYieldsEveryElementaryCycleOnce()
+    {
+        // a complete digraph on n nodes has sum( C(n,k) * (k-1)! ) elementary cycles for k = 2..n.
+        assertThat( cycleCount( complete( 4 ), DEFAULT_LIMIT ), equalTo( 20 ) );
+        assertThat( cycleCount( complete( 5 ), DEFAULT_LIMIT ), equalTo( 84 ) );
+
+        final List<EProjectCycle> cycles = new CycleDetector( complete( 5 ) ).findCycles();
+        assertThat( new HashSet<EProjectCycle>( cycles ).size(), equalTo( 84 ) );
+    }
+
+    @Test
+    public void typeFilterBreaksPluginCycles()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( "a", "b" ) );
+        rels.add( new SimplePluginRelationship( SOURCE, ref( "b" ), ref( "a" ), 0, false, false ) );
+        rels.add( dep( "c", "c" ) );
+
+        assertThat( new CycleDetector( rels ).detect().size(), equalTo( 2 ) );
+
+        final List<CyclicComponent> filtered =
+            new CycleDetector( rels ).withTypes( RelationshipType.DEPENDENCY, RelationshipType.PARENT ).detect();
+        assertThat( filtered.size(), equalTo( 1 ) );
+        assertThat( filtered.get( 0 ).getProjects(), equalTo( refs( "c" ) ) );
+        assertThat( filtered.get( 0 ).getCycles().size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void limitFallsBackToMembership()
+    {
+        final CyclicComponent limited =
+            new CycleDetector( complete( 5 ) ).withMaxCyclesPerComponent( 10 ).detect().get( 0 );
+        assertThat( limited.isComplete(), equalTo( false ) );
+        assertThat( limited.getCycles().size(), equalTo( 10 ) );
+        assertThat( limited.size(), equalTo( 5 ) );
+
+        final CyclicComponent membership =
+            new CycleDetector( complete( 5 ) ).withMaxCyclesPerComponent( 0 ).detect().get( 0 );
+        assertThat( membership.isComplete(), equalTo( false ) );
+        assertThat( membership.getCycles().size(), equalTo( 0 ) );
+        assertThat( membership.size(), equalTo( 5 ) );
+    }
+
+    @Test
+    public void randomGraphsMatchBruteForceAndParallelMatchesSerial()
+        throws Exception
+    {
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final Random rand = new Random( 99 );
+            for ( int round = 0; round < 40; round++ )
+            {
+                final int n = 3 + rand.nextInt( 7 );
+                final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+                final boolean[][] adj = new boolean[n][n];
+                for ( int i = 0; i < n; i++ )
+                {
+                    for ( int j = 0; j < n; j++ )
+                    {
+                        if ( rand.nextInt( 4 ) == 0 )
+                        {
+                            adj[i][j] = true;
+                            rels.add( dep( "n" + i, "n" + j ) );
+                        }
+                    }
+                }
+
+                final CycleDetector detector = new CycleDetector( rels );
+                final List<CyclicComponent> serial = detector.detect();
+                final List<CyclicComponent> parallel = detector.detect( executor );
+
+                int total = 0;
+                assertThat( parallel.size(), equalTo( serial.size() ) );
+                for ( int c = 0; c < serial.size(); c++ )
+                {
+                    assertThat( parallel.get( c ).getCycles(), equalTo( serial.get( c ).getCycles() ) );
+                    total += serial.get( c ).getCycles().size();
+                }
+
+                assertThat( "round " + round, total, equalTo( bruteForceCycles( adj ) ) );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int cycleCount( final List<ProjectRelationship<?, ?>> rels, final int limit )
+    {
+        int count = 0;
+        for ( final CyclicComponent component : new CycleDetector( rels ).withMaxCyclesPerComponent( limit ).detect() )
+        {
+            count += component.getCycles().size();
+        }
+
+        return count;
+    }
+
+    // counts simple cycles by their lowest node, so each is seen exactly once.
+    private static int bruteForceCycles( final boolean[][] adj )
+    {
+        int count = 0;
+        for ( int s = 0; s < adj.length; s++ )
+        {
+            count += countFrom( adj, s, s, new boolean[adj.length] );
+        }
+
+        return count;
+    }
+
+    private static int countFrom( final boolean[][] adj, final int start, final int v, final boolean[] onPath )
+    {
+        int count = 0;
+        onPath[v] = true;
+        for ( int w = start; w < adj.length; w++ )
+        {
+            if ( !adj[v][w] )
+            {
+                continue;
+            }
+
+            if ( w == start )
+            {
+                count++;
+            }
+            else if ( !onPath[w] )
+            {
+                count += countFrom( adj, start, w, onPath );
+            }
+        }
+        onPath[v] = false;
+
+        return count;
+    }
+
+    private static List<ProjectRelationship<?, ?>> complete( final int n )
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        for ( int i = 0; i < n; i++ )
+        {
+            for ( int j = 0; j < n; j++ )
+            {
+                if ( i != j )
+                {
+                    rels.add( dep( "k" + i, "k" + j ) );
+                }
+            }
+        }
+
+        return rels;
+    }
+
+}
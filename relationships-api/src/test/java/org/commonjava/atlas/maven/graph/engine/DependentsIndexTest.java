@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.commonjava.atlas.maven.graph.GraphFixtures.SOURCE;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.dep;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.ref;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.junit.Test;
+
+public class DependentsIndexTest
+{
+
+    private static final EdgeFilter RUNTIME_DEPS =
+        EdgeFilter.ALL.withTypes( RelationshipType.DEPENDENCY )
+                      .withScopes( DependencyScope.compile, DependencyScope.runtime )
+                      .withoutManaged();
+
+    @Test
+    public void directDependentsByVersionAndFilter()
+    {
+        final DependentsIndex index = new DependentsIndex();
+        index.add( dep( ref( "a" ), ref( "lib", "1" ), DependencyScope.compile, false ) );
+        index.add( dep( ref( "b" ), ref( "lib", "2" ), DependencyScope.runtime, false ) );
+        index.add( dep( ref( "c" ), ref( "lib", "2" ), DependencyScope.test, false ) );
+        index.add( dep( ref( "d" ), ref( "lib", "3" ), DependencyScope.compile, true ) );
+        index.add( new SimplePluginRelationship( SOURCE, ref( "e" ), ref( "lib", "1" ), 0, false, false ) );
+
+        assertThat( index.getDependents( ref( "lib", "2" ), EdgeFilter.ALL ), equalTo( set( ref( "b" ), ref( "c" ) ) ) );
+        assertThat( index.getDependentsOfAnyVersion( new SimpleProjectRef( "org.test", "lib" ), EdgeFilter.ALL ),
+                    equalTo( set( ref( "a" ), ref( "e" ), ref( "b" ), ref( "c" ), ref( "d" ) ) ) );
+        assertThat( index.getDependentsOfAnyVersion( ref( "lib", "9" ), RUNTIME_DEPS ),
+                    equalTo( set( ref( "a" ), ref( "b" ) ) ) );
+        assertThat( index.getRelationshipsTargeting( ref( "lib", "1" ),
+                                                     EdgeFilter.ALL.withTypes( RelationshipType.PLUGIN ) ).size(),
+                    equalTo( 1 ) );
+        assertThat( index.getVersions( new SimpleProjectRef( "org.test", "lib" ) ),
+                    equalTo( set( ref( "lib", "1" ), ref( "lib", "2" ), ref( "lib", "3" ) ) ) );
+        assertThat( index.getDependents( ref( "unknown" ), EdgeFilter.ALL ).size(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void affectedProjectsAreFoundTransitively()
+    {
+        final DependentsIndex index = new DependentsIndex();
+        index.add( dep( ref( "a" ), ref( "lib", "1" ), DependencyScope.compile, false ) );
+        index.add( dep( ref( "b" ), ref( "a" ), DependencyScope.compile, false ) );
+        index.add( dep( ref( "c" ), ref( "b" ), DependencyScope.runtime, false ) );
+        index.add( dep( ref( "t" ), ref( "b" ), DependencyScope.test, false ) );
+        index.add( dep( ref( "u" ), ref( "t" ), DependencyScope.compile, false ) );
+        index.add( dep( ref( "a" ), ref( "c" ), DependencyScope.compile, false ) );
+
+        assertThat( new ArrayList<ProjectVersionRef>( index.getAffected( ref( "lib", "1" ), RUNTIME_DEPS ) ),
+                    equalTo( Arrays.asList( ref( "a" ), ref( "b" ), ref( "c" ) ) ) );
+        assertThat( index.getAffectedByAnyVersion( new SimpleProjectRef( "org.test", "lib" ), EdgeFilter.ALL ),
+                    equalTo( set( ref( "a" ), ref( "b" ), ref( "c" ), ref( "t" ), ref( "u" ) ) ) );
+    }
+
+    @Test
+    public void updatesAreIncremental()
+    {
+        final DependentsIndex index = new DependentsIndex();
+        assertThat( index.add( dep( ref( "a" ), ref( "x" ), DependencyScope.compile, false ) ), equalTo( true ) );
+        assertThat( index.add( dep( ref( "a" ), ref( "x" ), DependencyScope.compile, false ) ), equalTo( false ) );
+        index.add( dep( ref( "a" ), ref( "y" ), DependencyScope.compile, false ) );
+        index.add( dep( ref( "b" ), ref( "y" ), DependencyScope.compile, false ) );
+        assertThat( index.getRelationshipCount(), equalTo( 3 ) );
+        final EProjectDirectRelationships reparsed =
+            new EProjectDirectRelationships.Builder( SOURCE, ref( "a" ) ).withDependencies( dep( ref( "a" ), ref( "z" ),
+                                                                                                 DependencyScope.compile,
+                                                                                                 false ) )
+                                                                         .build();
+        index.index( reparsed );
+
+        assertThat( index.getRelationshipCount(), equalTo( 2 ) );
+        assertThat( index.getDependents( ref( "x" ), EdgeFilter.ALL ).size(), equalTo( 0 ) );
+        assertThat( index.getDependents( ref( "y" ), EdgeFilter.ALL ), equalTo( set( ref( "b" ) ) ) );
+        assertThat( index.getDependents( ref( "z" ), EdgeFilter.ALL ), equalTo( set( ref( "a" ) ) ) );
+
+        assertThat( index.remove( dep( ref( "b" ), ref( "y" ), DependencyScope.compile, false ) ), equalTo( true ) );
+        assertThat( index.remove( dep( ref( "b" ), ref( "y" ), DependencyScope.compile, false ) ), equalTo( false ) );
+        assertThat( index.removeDeclaredBy( ref( "a" ) ), equalTo( 1 ) );
+        assertThat( index.getRelationshipCount(), equalTo( 0 ) );
+    }
+
+    @Test
+    public void randomUpdatesMatchBruteForce()
+    {
+        final Random rand = new Random( 8 );
+        final DependentsIndex index = new DependentsIndex();
+        final Set<ProjectRelationship<?, ?>> live = new LinkedHashSet<ProjectRelationship<?, ?>>();
+        final DependencyScope[] scopes = { DependencyScope.compile, DependencyScope.runtime, DependencyScope.test };
+
+        for ( int step = 0; step < 3000; step++ )
+        {
+            final ProjectVersionRef from = ref( "p" + rand.nextInt( 60 ), "" + rand.nextInt( 2 ) );
+            final ProjectVersionRef to = ref( "p" + rand.nextInt( 60 ), "" + rand.nextInt( 2 ) );
+            final ProjectRelationship<?, ?> rel =
+                dep( from, to, scopes[rand.nextInt( scopes.length )], rand.nextInt( 8 ) == 0 );
+
+            if ( rand.nextInt( 3 ) == 0 )
+            {
+                assertThat( index.remove( rel ), equalTo( live.remove( rel ) ) );
+            }
+            else
+            {
+                assertThat( index.add( rel ), equalTo( live.add( rel ) ) );
+            }
+
+            if ( step % 100 == 0 )
+            {
+                final SimpleProjectRef target = new SimpleProjectRef( "org.test", "p" + rand.nextInt( 60 ) );
+                assertThat( index.getRelationshipCount(), equalTo( live.size() ) );
+                assertThat( index.getAffectedByAnyVersion( target, RUNTIME_DEPS ),
+                            equalTo( bruteForceAffected( live, target ) ) );
+            }
+        }
+    }
+
+    private static Set<ProjectVersionRef> bruteForceAffected( final Set<ProjectRelationship<?, ?>> rels,
+                                                              final SimpleProjectRef target )
+    {
+        final Set<ProjectVersionRef> reached = new HashSet<ProjectVersionRef>();
+        boolean changed = true;
+        while ( changed )
+        {
+            changed = false;
+            for ( final ProjectRelationship<?, ?> rel : rels )
+            {
+                final SimpleDependencyRelationship dep = (SimpleDependencyRelationship) rel;
+                if ( dep.isManaged() || dep.getScope() == DependencyScope.test )
+                {
+                    continue;
+                }
+
+                final ProjectVersionRef to = rel.getTarget().asProjectVersionRef();
+                if ( ( to.asProjectRef().equals( target ) || reached.contains( to ) )
+                    && reached.add( rel.getDeclaring() ) )
+                {
+                    changed = true;
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    private static Set<ProjectVersionRef> set( final ProjectVersionRef... refs )
+    {
+        return new HashSet<ProjectVersionRef>( Arrays.asList( refs ) );
+    }
+
+}
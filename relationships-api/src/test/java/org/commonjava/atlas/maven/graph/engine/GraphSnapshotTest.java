@@ -0,0 +1,362 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipComparator;
+import org.commonjava.atlas.maven.graph.rel.RelationshipConstants;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GraphSnapshotTest
+{
+
+    private static final URI SRC = URI.create( "test:source" );
+
+    private static final URI OTHER_SRC = URI.create( "http://repo.example.com/releases/" );
+
+    private static final URI PROFILE = URI.create( "pom:profile:test" );
+
+    private final ProjectVersionRef app = new SimpleProjectVersionRef( "org.foo", "app", "1.0" );
+
+    private final ProjectVersionRef parent = new SimpleProjectVersionRef( "org.foo", "parent", "3" );
+
+    private final ProjectVersionRef lib = new SimpleProjectVersionRef( "org.foo", "lib", "1.0" );
+
+    private final ProjectVersionRef util = new SimpleProjectVersionRef( "org.foo", "util", "2.1" );
+
+    private final ProjectVersionRef plugin = new SimpleProjectVersionRef( "org.foo", "foo-maven-plugin", "1" );
+
+    private File file;
+
+    @Before
+    public void createFile()
+        throws IOException
+    {
+        file = File.createTempFile( "graph-snapshot", ".bin" );
+    }
+
+    @After
+    public void deleteFile()
+    {
+        file.delete();
+    }
+
+    @Test
+    public void writeAndMapCollections()
+        throws IOException
+    {
+        final EProjectDirectRelationships appRels = appRelationships();
+        final EProjectDirectRelationships libRels =
+            new EProjectDirectRelationships.Builder( SRC, lib ).withParent( parent )
+                                                               .withDependencies( dependency( lib, util, 0 ) )
+                                                               .build();
+        final EProjectDirectRelationships parentRels =
+            new EProjectDirectRelationships.Builder( SRC, parent ).build();
+
+        new GraphSnapshot.Writer().withCollections( Arrays.asList( appRels, libRels, parentRels ) ).write( file );
+        final GraphSnapshot snapshot = GraphSnapshot.open( file );
+
+        assertThat( snapshot.getSize(), equalTo( (int) file.length() ) );
+        assertThat( snapshot.getNodeCount(), equalTo( 5 ) );
+
+        final Set<ProjectRelationship<?, ?>> expected = new HashSet<ProjectRelationship<?, ?>>();
+        expected.addAll( appRels.getExactAllRelationships() );
+        expected.addAll( libRels.getExactAllRelationships() );
+        expected.addAll( parentRels.getExactAllRelationships() );
+        assertThat( snapshot.getEdgeCount(), equalTo( expected.size() ) );
+
+        final Set<ProjectRelationship<?, ?>> read = new HashSet<ProjectRelationship<?, ?>>();
+        for ( int e = 0; e < snapshot.getEdgeCount(); e++ )
+        {
+            read.add( snapshot.getRelationship( e ) );
+        }
+        assertThat( read, equalTo( expected ) );
+
+        final int appId = snapshot.getNodeId( app );
+        assertThat( snapshot.getNode( appId ), equalTo( app ) );
+        assertThat( snapshot.getOutgoing( appId ), equalTo( sorted( appRels ) ) );
+
+        final int utilId = snapshot.getNodeId( util );
+        assertThat( snapshot.getInDegree( utilId ), equalTo( 2 ) );
+        final Set<ProjectVersionRef> declaring = new HashSet<ProjectVersionRef>();
+        for ( final ProjectRelationship<?, ?> rel : snapshot.getIncoming( utilId ) )
+        {
+            declaring.add( rel.getDeclaring() );
+        }
+        assertThat( declaring, equalTo( (Set<ProjectVersionRef>) new HashSet<ProjectVersionRef>(
+            Arrays.asList( app, lib ) ) ) );
+
+        final int parentId = snapshot.getNodeId( parent );
+        final ProjectRelationship<?, ?> terminal = snapshot.getRelationship( snapshot.getOutStart( parentId ) );
+        assertThat( terminal.getTarget(), equalTo( (Object) parent ) );
+        assertThat( terminal.getSources(),
+                    equalTo( Collections.singleton( RelationshipConstants.TERMINAL_PARENT_SOURCE_URI ) ) );
+
+        assertThat( snapshot.getNodeId( new SimpleProjectVersionRef( "org.foo", "missing", "1" ) ), equalTo( -1 ) );
+        assertThat( snapshot.getNodeId( new SimpleProjectVersionRef( "org.foo", "app", "1.1" ) ), equalTo( -1 ) );
+    }
+
+    @Test
+    public void relationshipFieldsSurviveSnapshot()
+        throws IOException
+    {
+        final ProjectRef exclude = new SimpleProjectRef( "org.bad", "thing" );
+        final DependencyRelationship dep =
+            new SimpleDependencyRelationship( Arrays.asList( SRC, OTHER_SRC ), PROFILE, app,
+                                              lib.asArtifactRef( "test-jar", "tests" ), DependencyScope.test, 17,
+                                              true, true, true, exclude );
+        final PluginRelationship reporting = new SimplePluginRelationship( SRC, app, plugin, 3, false, true, false );
+        final PluginDependencyRelationship pdep =
+            new SimplePluginDependencyRelationship( SRC, app, new SimpleProjectRef( "org.foo", "foo-maven-plugin" ),
+                                                    util.asArtifactRef( "jar", null ), 0, true, false );
+        final SimpleBomRelationship bom = new SimpleBomRelationship( SRC, app, parent, 2, false, true );
+
+        final GraphSnapshot.Writer writer =
+            new GraphSnapshot.Writer().withRelationships( Arrays.asList( dep, reporting, pdep, bom, dep ) );
+        assertThat( writer.getEdgeCount(), equalTo( 4 ) );
+        writer.write( file );
+
+        final GraphSnapshot snapshot = GraphSnapshot.open( file );
+        final List<ProjectRelationship<?, ?>> out = snapshot.getOutgoing( snapshot.getNodeId( app ) );
+        assertThat( out.size(), equalTo( 4 ) );
+
+        final DependencyRelationship readDep = (DependencyRelationship) out.get( 0 );
+        assertThat( readDep, equalTo( dep ) );
+        assertThat( readDep.getTarget().getType(), equalTo( "test-jar" ) );
+        assertThat( readDep.getTarget().getClassifier(), equalTo( "tests" ) );
+        assertThat( readDep.getScope(), equalTo( DependencyScope.test ) );
+        assertThat( readDep.getIndex(), equalTo( 17 ) );
+        assertThat( readDep.isManaged(), equalTo( true ) );
+        assertThat( readDep.isInherited(), equalTo( true ) );
+        assertThat( readDep.isOptional(), equalTo( true ) );
+        assertThat( readDep.getPomLocation(), equalTo( PROFILE ) );
+        assertThat( readDep.getSources(), equalTo( dep.getSources() ) );
+        assertThat( readDep.getExcludes(), equalTo( dep.getExcludes() ) );
+
+        final PluginRelationship readPlugin = (PluginRelationship) out.get( 1 );
+        assertThat( readPlugin, equalTo( reporting ) );
+        assertThat( readPlugin.isReporting(), equalTo( true ) );
+        assertThat( readPlugin.getIndex(), equalTo( 3 ) );
+
+        final PluginDependencyRelationship readPdep = (PluginDependencyRelationship) out.get( 2 );
+        assertThat( readPdep, equalTo( pdep ) );
+        assertThat( readPdep.getPlugin(), equalTo( pdep.getPlugin() ) );
+        assertThat( readPdep.isManaged(), equalTo( true ) );
+
+        final ProjectRelationship<?, ?> readBom = out.get( 3 );
+        assertThat( readBom.getType(), equalTo( RelationshipType.BOM ) );
+        assertThat( readBom.isMixin(), equalTo( true ) );
+        assertThat( readBom.getPomLocation(), equalTo( RelationshipConstants.POM_ROOT_URI ) );
+
+        final int depEdge = snapshot.getOutStart( snapshot.getNodeId( app ) );
+        assertThat( snapshot.getType( depEdge ), equalTo( RelationshipType.DEPENDENCY ) );
+        assertThat( snapshot.getScope( depEdge ), equalTo( DependencyScope.test ) );
+        assertThat( snapshot.getNode( snapshot.getTarget( depEdge ) ), equalTo( lib ) );
+    }
+
+    @Test
+    public void openFromBuffer()
+        throws IOException
+    {
+        new GraphSnapshot.Writer().withRelationships( appRelationships() ).write( file );
+
+        final ByteBuffer buffer = ByteBuffer.wrap( readFile() );
+        final GraphSnapshot snapshot = GraphSnapshot.open( buffer );
+        assertThat( snapshot.getOutgoing( snapshot.getNodeId( app ) ), equalTo( sorted( appRelationships() ) ) );
+    }
+
+    @Test
+    public void rejectsTruncatedSnapshot()
+        throws IOException
+    {
+        new GraphSnapshot.Writer().withRelationships( appRelationships() ).write( file );
+        final byte[] bytes = readFile();
+
+        for ( int length = 0; length < bytes.length; length += 4 )
+        {
+            try
+            {
+                GraphSnapshot.open( ByteBuffer.wrap( bytes, 0, length ) );
+                fail( "Opened a snapshot truncated to " + length + " of " + bytes.length + " bytes" );
+            }
+            catch ( final IOException e )
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void sizeIsKnownBeforeWriting()
+        throws IOException
+    {
+        final GraphSnapshot.Writer writer = new GraphSnapshot.Writer().withRelationships( appRelationships() );
+        writer.withRelationship( new SimplePluginDependencyRelationship( OTHER_SRC, app, plugin, util.asJarArtifact(),
+                                                                         0, false, false ) );
+        final long size = writer.getSize();
+        writer.write( file );
+
+        assertThat( file.length(), equalTo( size ) );
+    }
+
+    @Test
+    public void replacesSnapshotWithoutLeavingTemporaryFiles()
+        throws IOException
+    {
+        new GraphSnapshot.Writer().withRelationships( appRelationships() ).write( file );
+        new GraphSnapshot.Writer().withRelationship( dependency( lib, util, 0 ) ).write( file );
+
+        final GraphSnapshot snapshot = GraphSnapshot.open( file );
+        assertThat( snapshot.getEdgeCount(), equalTo( 1 ) );
+        assertThat( snapshot.getNodeId( app ), equalTo( -1 ) );
+        assertThat( temporaryFiles(), equalTo( Collections.<String> emptySet() ) );
+    }
+
+    @Test
+    public void atomicMoveReplacesAnExistingSnapshot()
+        throws IOException
+    {
+        new GraphSnapshot.Writer().withRelationships( appRelationships() ).write( file );
+        final File replacement = File.createTempFile( file.getName() + ".", ".tmp", file.getParentFile() );
+        new GraphSnapshot.Writer().withRelationship( dependency( lib, util, 0 ) ).write( replacement );
+
+        // the fallback for platforms where renameTo(..) won't replace a file; runs on Java 7+ here.
+        assertThat( GraphSnapshot.Writer.moveAtomically( replacement, file ), equalTo( true ) );
+        assertThat( replacement.exists(), equalTo( false ) );
+        assertThat( GraphSnapshot.open( file ).getEdgeCount(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void oversizedSnapshotLeavesTheOldOneInPlace()
+        throws IOException
+    {
+        new GraphSnapshot.Writer().withRelationships( appRelationships() ).write( file );
+        final byte[] before = readFile();
+
+        final GraphSnapshot.Writer writer = new GraphSnapshot.Writer().withRelationship( dependency( lib, util, 0 ) );
+        try
+        {
+            writer.write( file, writer.getSize() - 1 );
+            fail( "Wrote a snapshot over the size limit" );
+        }
+        catch ( final IOException e )
+        {
+            // expected
+        }
+
+        assertThat( readFile(), equalTo( before ) );
+        assertThat( temporaryFiles(), equalTo( Collections.<String> emptySet() ) );
+
+        writer.write( file, writer.getSize() );
+        assertThat( GraphSnapshot.open( file ).getEdgeCount(), equalTo( 1 ) );
+    }
+
+    @Test( expected = IOException.class )
+    public void rejectsOtherFiles()
+        throws IOException
+    {
+        GraphSnapshot.open( ByteBuffer.wrap( "{\"not\":\"a snapshot\"}".getBytes( "UTF-8" ) ) );
+    }
+
+    private EProjectDirectRelationships appRelationships()
+    {
+        return new EProjectDirectRelationships.Builder( SRC, app ).withParent( parent )
+                                                                  .withDependencies( dependency( app, lib, 0 ),
+                                                                                     dependency( app, util, 1 ) )
+                                                                  .withPlugin( plugin, false, false )
+                                                                  .build();
+    }
+
+    private static List<ProjectRelationship<?, ?>> sorted( final EProjectDirectRelationships rels )
+    {
+        final List<ProjectRelationship<?, ?>> result =
+            new ArrayList<ProjectRelationship<?, ?>>( rels.getExactAllRelationships() );
+        Collections.sort( result, RelationshipComparator.INSTANCE );
+
+        return result;
+    }
+
+    private Set<String> temporaryFiles()
+    {
+        final Set<String> names = new HashSet<String>();
+        for ( final String name : file.getAbsoluteFile().getParentFile().list() )
+        {
+            if ( name.startsWith( file.getName() + "." ) )
+            {
+                names.add( name );
+            }
+        }
+
+        return names;
+    }
+
+    private byte[] readFile()
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            final byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully( bytes );
+
+            return bytes;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    private static DependencyRelationship dependency( final ProjectVersionRef from, final ProjectVersionRef to,
+                                                      final int index )
+    {
+        return new SimpleDependencyRelationship( SRC, from, to.asArtifactRef( "jar", null ), DependencyScope.compile,
+                                                 index, false, false, false );
+    }
+
+}
@@ -0,0 +1,202 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.net.URI;
+import java.util.Collections;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.VersionlessArtifactRef;
+import org.junit.Test;
+
+public class ManagedDependencyResolverTest
+{
+
+    private static final URI SRC = URI.create( "test:source" );
+
+    @Test
+    public void nearestDeclarationWins()
+    {
+        final ManagedDependencyResolver resolver =
+            new ManagedDependencyResolver( project( "root", null, managed( "root", "a", "1" ),
+                                                    managed( "root", "b", "1" ), managed( "root", "c", "1" ) ),
+                                           project( "parent", "root", managed( "parent", "b", "2" ) ),
+                                           project( "child", "parent", managed( "child", "c", "3" ) ) );
+
+        final ManagedDependencies child = resolver.resolve( ref( "child", "1" ) );
+        assertThat( child.getManagedVersion( key( "a" ) ), equalTo( ref( "a", "1" ) ) );
+        assertThat( child.getManagedVersion( key( "b" ) ), equalTo( ref( "b", "2" ) ) );
+        assertThat( child.getManagedVersion( key( "c" ) ), equalTo( ref( "c", "3" ) ) );
+        assertThat( child.get( key( "d" ) ), nullValue() );
+        assertThat( child.size(), equalTo( 3 ) );
+        assertThat( child.getMissing().size(), equalTo( 0 ) );
+
+        final DependencyRelationship usage =
+            new SimpleDependencyRelationship( SRC, ref( "child", "1" ), ref( "b", "0" ).asJarArtifact(),
+                                              DependencyScope.compile, 0, false, false, false );
+        assertThat( child.getManagement( usage ).getTarget().asProjectVersionRef(), equalTo( ref( "b", "2" ) ) );
+    }
+
+    @Test
+    public void bomsComeAfterInheritedManagement()
+    {
+        final EProjectDirectRelationships bomParent = project( "bom-parent", null, managed( "bom-parent", "e", "5" ) );
+        final EProjectDirectRelationships bom1 =
+            project( "bom1", "bom-parent", managed( "bom1", "a", "9" ), managed( "bom1", "d", "1" ) );
+        final EProjectDirectRelationships bom2 = project( "bom2", null, managed( "bom2", "d", "2" ),
+                                                          managed( "bom2", "f", "2" ) );
+        final EProjectDirectRelationships parent =
+            new EProjectDirectRelationships.Builder( SRC, ref( "parent", "1" ) ).withDependencies( managed( "parent",
+                                                                                                            "a", "1" ) )
+                                                                                 .withBoms( bom( "parent", "bom2" ) )
+                                                                                 .build();
+        final EProjectDirectRelationships child =
+            new EProjectDirectRelationships.Builder( SRC, ref( "child", "1" ) ).withParent( ref( "parent", "1" ) )
+                                                                                .withBoms( bom( "child", "bom1" ) )
+                                                                                .build();
+
+        final ManagedDependencies managed =
+            new ManagedDependencyResolver( bomParent, bom1, bom2, parent, child ).resolve( ref( "child", "1" ) );
+
+        // parent's own entry beats the child's BOM; the child's BOM beats the parent's BOM
+        assertThat( managed.getManagedVersion( key( "a" ) ), equalTo( ref( "a", "1" ) ) );
+        assertThat( managed.getManagedVersion( key( "d" ) ), equalTo( ref( "d", "1" ) ) );
+        assertThat( managed.getManagedVersion( key( "e" ) ), equalTo( ref( "e", "5" ) ) );
+        assertThat( managed.getManagedVersion( key( "f" ) ), equalTo( ref( "f", "2" ) ) );
+    }
+
+    @Test
+    public void projectsWithTheSameChainShareIt()
+    {
+        final EProjectDirectRelationships withBom =
+            new EProjectDirectRelationships.Builder( SRC, ref( "m3", "1" ) ).withParent( ref( "parent", "1" ) )
+                                                                             .withBoms( bom( "m3", "missing-bom" ) )
+                                                                             .build();
+        final ManagedDependencyResolver resolver =
+            new ManagedDependencyResolver( project( "parent", null, managed( "parent", "a", "1" ) ),
+                                           project( "m1", "parent", managed( "m1", "b", "1" ) ),
+                                           project( "m2", "parent" ), withBom );
+
+        final ManagedDependencies m1 = resolver.resolve( ref( "m1", "1" ) );
+        final ManagedDependencies m2 = resolver.resolve( ref( "m2", "1" ) );
+        final ManagedDependencies m3 = resolver.resolve( ref( "m3", "1" ) );
+        assertThat( m1.sharesChainWith( m2 ), equalTo( true ) );
+        assertThat( m1.sharesChainWith( m3 ), equalTo( false ) );
+        assertThat( m2.getManagedVersion( key( "a" ) ), equalTo( ref( "a", "1" ) ) );
+        assertThat( m2.get( key( "b" ) ), nullValue() );
+        assertThat( m3.getMissing(), equalTo( Collections.singleton( ref( "missing-bom", "1" ) ) ) );
+
+        resolver.resolve( ref( "m1", "1" ) );
+        assertThat( resolver.getChainCount(), equalTo( 2 ) );
+        assertThat( resolver.getFlattenCount(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void cyclesAndMissingParentsTerminate()
+    {
+        final EProjectDirectRelationships a =
+            new EProjectDirectRelationships.Builder( SRC, ref( "a", "1" ) ).withParent( ref( "lost", "1" ) )
+                                                                            .withBoms( bom( "a", "b" ) )
+                                                                            .build();
+        final EProjectDirectRelationships b =
+            new EProjectDirectRelationships.Builder( SRC, ref( "b", "1" ) ).withDependencies( managed( "b", "y", "1" ) )
+                                                                            .withBoms( bom( "b", "a" ) )
+                                                                            .build();
+
+        final ManagedDependencies managed = new ManagedDependencyResolver( a, b ).resolve( ref( "a", "1" ) );
+        assertThat( managed.getManagedVersion( key( "y" ) ), equalTo( ref( "y", "1" ) ) );
+        assertThat( managed.getMissing(), equalTo( Collections.singleton( ref( "lost", "1" ) ) ) );
+    }
+
+    @Test
+    public void projectsOutsideACycleSeeAllOfIt()
+    {
+        final EProjectDirectRelationships a =
+            new EProjectDirectRelationships.Builder( SRC, ref( "a", "1" ) ).withDependencies( managed( "a", "x", "1" ) )
+                                                                            .withBoms( bom( "a", "b" ) )
+                                                                            .build();
+        final EProjectDirectRelationships b =
+            new EProjectDirectRelationships.Builder( SRC, ref( "b", "1" ) ).withDependencies( managed( "b", "y", "1" ) )
+                                                                            .withBoms( bom( "b", "a" ) )
+                                                                            .build();
+        final EProjectDirectRelationships usesA =
+            new EProjectDirectRelationships.Builder( SRC, ref( "uses-a", "1" ) ).withBoms( bom( "uses-a", "a" ) )
+                                                                                 .build();
+        final EProjectDirectRelationships usesB =
+            new EProjectDirectRelationships.Builder( SRC, ref( "uses-b", "1" ) ).withBoms( bom( "uses-b", "b" ) )
+                                                                                 .build();
+        final EProjectDirectRelationships child = project( "child", "b" );
+
+        final ManagedDependencyResolver resolver = new ManagedDependencyResolver( a, b, usesA, usesB, child );
+
+        // flattens b from inside a's cycle first
+        final ManagedDependencies managedA = resolver.resolve( ref( "a", "1" ) );
+        assertThat( managedA.getManagedVersion( key( "x" ) ), equalTo( ref( "x", "1" ) ) );
+        assertThat( managedA.getManagedVersion( key( "y" ) ), equalTo( ref( "y", "1" ) ) );
+
+        for ( final String outside : new String[] { "uses-a", "uses-b", "child", "b" } )
+        {
+            final ManagedDependencies managed = resolver.resolve( ref( outside, "1" ) );
+            assertThat( outside, managed.getManagedVersion( key( "x" ) ), equalTo( ref( "x", "1" ) ) );
+            assertThat( outside, managed.getManagedVersion( key( "y" ) ), equalTo( ref( "y", "1" ) ) );
+        }
+    }
+
+    private static EProjectDirectRelationships project( final String name, final String parent,
+                                                        final DependencyRelationship... managed )
+    {
+        final EProjectDirectRelationships.Builder builder =
+            new EProjectDirectRelationships.Builder( SRC, ref( name, "1" ) );
+        if ( parent != null )
+        {
+            builder.withParent( ref( parent, "1" ) );
+        }
+
+        return builder.withDependencies( managed ).build();
+    }
+
+    private static DependencyRelationship managed( final String declaring, final String name, final String version )
+    {
+        return new SimpleDependencyRelationship( SRC, ref( declaring, "1" ), ref( name, version ).asJarArtifact(),
+                                                 DependencyScope.compile, 0, true, false, false );
+    }
+
+    private static SimpleBomRelationship bom( final String declaring, final String bom )
+    {
+        return new SimpleBomRelationship( SRC, ref( declaring, "1" ), ref( bom, "1" ), 0, false, false );
+    }
+
+    private static VersionlessArtifactRef key( final String name )
+    {
+        return ref( name, "1" ).asVersionlessJarArtifact();
+    }
+
+    private static ProjectVersionRef ref( final String name, final String version )
+    {
+        return new SimpleProjectVersionRef( "org.test", name, version );
+    }
+
+}
@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.commonjava.atlas.maven.graph.GraphFixtures.SOURCE;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.dep;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.ref;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.junit.Test;
+
+public class ReachabilityIndexTest
+{
+
+    private static final EdgeFilter COMPILE_DEPS =
+        EdgeFilter.ALL.withTypes( RelationshipType.DEPENDENCY ).withScopes( DependencyScope.compile );
+
+    @Test
+    public void closureAndLabelsMatchBruteForce()
+    {
+        final Random rand = new Random( 17 );
+        for ( int round = 0; round < 20; round++ )
+        {
+            final List<ProjectRelationship<?, ?>> rels = randomRelationships( rand, 40, 70 );
+            final RelationshipGraph graph = new RelationshipGraph.Builder().withRelationships( rels ).build();
+            final ReachabilityIndex closure = new ReachabilityIndex( graph, EdgeFilter.ALL );
+            final ReachabilityIndex labels = new ReachabilityIndex( graph, EdgeFilter.ALL, 0 );
+            assertThat( closure.isClosure(), equalTo( true ) );
+            assertThat( labels.isClosure(), equalTo( false ) );
+
+            for ( int from = 0; from < graph.getNodeCount(); from++ )
+            {
+                final boolean[] expected = bruteForce( graph, from );
+                for ( int to = 0; to < graph.getNodeCount(); to++ )
+                {
+                    assertThat( closure.reaches( graph.getNode( from ), graph.getNode( to ) ), equalTo( expected[to] ) );
+                    assertThat( labels.reaches( graph.getNode( from ), graph.getNode( to ) ), equalTo( expected[to] ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void filterLimitsTheEdgesFollowed()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( ref( "a" ), ref( "b" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "b" ), ref( "c" ), DependencyScope.test ) );
+        rels.add( dep( ref( "a" ), ref( "d" ), DependencyScope.compile ) );
+
+        final ReachabilityIndex index = new ReachabilityIndex( rels, COMPILE_DEPS );
+        assertThat( index.reaches( ref( "a" ), ref( "b" ) ), equalTo( true ) );
+        assertThat( index.reaches( ref( "a" ), ref( "c" ) ), equalTo( false ) );
+        assertThat( index.reaches( ref( "b" ), ref( "a" ) ), equalTo( false ) );
+        assertThat( index.reaches( ref( "a" ), ref( "unknown" ) ), equalTo( false ) );
+        assertThat( index.reaches( ref( "unknown" ), ref( "unknown" ) ), equalTo( true ) );
+        assertThat( new ReachabilityIndex( rels, EdgeFilter.ALL ).reaches( ref( "a" ), ref( "c" ) ), equalTo( true ) );
+    }
+
+    @Test
+    public void updatesAreAbsorbedWithoutRebuildingWherePossible()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( ref( "a" ), ref( "b" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "b" ), ref( "c" ), DependencyScope.compile ) );
+        final ReachabilityIndex index = new ReachabilityIndex( rels, COMPILE_DEPS );
+
+        // already implied, or filtered out
+        assertThat( index.addAll( Arrays.asList( dep( ref( "a" ), ref( "c" ), DependencyScope.compile ),
+                                                 dep( ref( "c" ), ref( "a" ), DependencyScope.test ) ) ),
+                    equalTo( 0 ) );
+
+        // a new project that depends on existing ones goes into the overlay
+        final EProjectDirectRelationships x =
+            new EProjectDirectRelationships.Builder( SOURCE, ref( "x" ) )
+                .withDependencies( dep( ref( "x" ), ref( "y" ), DependencyScope.compile ),
+                                   dep( ref( "y" ), ref( "b" ), DependencyScope.compile ) )
+                .build();
+        assertThat( index.add( x ), equalTo( 2 ) );
+        assertThat( index.reaches( ref( "x" ), ref( "c" ) ), equalTo( true ) );
+        assertThat( index.reaches( ref( "x" ), ref( "a" ) ), equalTo( false ) );
+        assertThat( index.reaches( ref( "a" ), ref( "x" ) ), equalTo( false ) );
+        assertThat( index.getRebuildCount(), equalTo( 0 ) );
+
+        // a new path between existing projects needs a rebuild
+        assertThat( index.addAll( Collections.singletonList( dep( ref( "c" ), ref( "x" ), DependencyScope.compile ) ) ),
+                    equalTo( 1 ) );
+        assertThat( index.reaches( ref( "a" ), ref( "y" ) ), equalTo( true ) );
+        assertThat( index.reaches( ref( "c" ), ref( "a" ) ), equalTo( false ) );
+        assertThat( index.reaches( ref( "c" ), ref( "b" ) ), equalTo( true ) );
+        assertThat( index.getRebuildCount(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void randomUpdatesMatchBruteForce()
+    {
+        final Random rand = new Random( 5 );
+        final List<ProjectRelationship<?, ?>> rels = randomRelationships( rand, 30, 40 );
+        final ReachabilityIndex index =
+            new ReachabilityIndex( new RelationshipGraph.Builder().withRelationships( rels ).build(), EdgeFilter.ALL,
+                                   0 );
+
+        for ( int step = 0; step < 40; step++ )
+        {
+            final List<ProjectRelationship<?, ?>> added = randomRelationships( rand, 45, 1 + rand.nextInt( 4 ) );
+            index.addAll( added );
+            rels.addAll( added );
+
+            final RelationshipGraph graph = new RelationshipGraph.Builder().withRelationships( rels ).build();
+            for ( int from = 0; from < graph.getNodeCount(); from++ )
+            {
+                final boolean[] expected = bruteForce( graph, from );
+                for ( int to = 0; to < graph.getNodeCount(); to++ )
+                {
+                    assertThat( index.reaches( graph.getNode( from ), graph.getNode( to ) ), equalTo( expected[to] ) );
+                }
+            }
+        }
+    }
+
+    private static boolean[] bruteForce( final RelationshipGraph graph, final int from )
+    {
+        final boolean[] reached = new boolean[graph.getNodeCount()];
+        reached[from] = true;
+        final List<Integer> queue = new ArrayList<Integer>();
+        queue.add( from );
+        for ( int i = 0; i < queue.size(); i++ )
+        {
+            final int node = queue.get( i );
+            for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+            {
+                final int target = graph.getTarget( e );
+                if ( !reached[target] )
+                {
+                    reached[target] = true;
+                    queue.add( target );
+                }
+            }
+        }
+
+        return reached;
+    }
+
+    private static List<ProjectRelationship<?, ?>> randomRelationships( final Random rand, final int projects,
+                                                                       final int count )
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        for ( int i = 0; i < count; i++ )
+        {
+            final int from = rand.nextInt( projects );
+            // mostly downhill, so there are long paths as well as a few cycles
+            final int to = rand.nextInt( 10 ) == 0 ? rand.nextInt( projects ) : rand.nextInt( from + 1 );
+            rels.add( dep( ref( "p" + from ), ref( "p" + to ), DependencyScope.compile ) );
+        }
+
+        return rels;
+    }
+
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.RelationshipType;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.junit.Test;
+
+public class RelationshipGraphTest
+{
+
+    private static final URI SRC = URI.create( "test:source" );
+
+    private final ProjectVersionRef app = new SimpleProjectVersionRef( "org.foo", "app", "1.0" );
+
+    private final ProjectVersionRef parent = new SimpleProjectVersionRef( "org.foo", "parent", "3" );
+
+    private final ProjectVersionRef lib = new SimpleProjectVersionRef( "org.foo", "lib", "1.0" );
+
+    private final ProjectVersionRef util = new SimpleProjectVersionRef( "org.foo", "util", "2.1" );
+
+    private final ProjectVersionRef plugin = new SimpleProjectVersionRef( "org.foo", "foo-maven-plugin", "1" );
+
+    @Test
+    public void ingestDirectRelationshipsWithForwardAndReverseAdjacency()
+    {
+        final EProjectDirectRelationships appRels =
+            new EProjectDirectRelationships.Builder( SRC, app ).withParent( parent )
+                                                               .withDependencies( dependency( app, lib, 0 ),
+                                                                                  dependency( app, util, 1 ) )
+                                                               .withPlugin( plugin, false, false )
+                                                               .build();
+
+        final EProjectDirectRelationships libRels =
+            new EProjectDirectRelationships.Builder( SRC, lib ).withParent( parent )
+                                                               .withDependencies( dependency( lib, util, 0 ) )
+                                                               .build();
+
+        final RelationshipGraph graph =
+            new RelationshipGraph.Builder().withRelationships( appRels ).withRelationships( libRels ).build();
+
+        assertThat( graph.getNodeCount(), equalTo( 5 ) );
+        assertThat( graph.getEdgeCount(), equalTo( 6 ) );
+
+        final int appId = graph.getNodeId( app );
+        assertThat( graph.getOutDegree( appId ), equalTo( 4 ) );
+        assertThat( targets( graph, appId ), equalTo( refs( parent, lib, util, plugin ) ) );
+
+        final int utilId = graph.getNodeId( util );
+        assertThat( graph.getOutDegree( utilId ), equalTo( 0 ) );
+        assertThat( graph.getInDegree( utilId ), equalTo( 2 ) );
+        assertThat( sources( graph, utilId ), equalTo( refs( app, lib ) ) );
+
+        final int parentId = graph.getNodeId( parent );
+        assertThat( sources( graph, parentId ), equalTo( refs( app, lib ) ) );
+
+        assertThat( graph.getNodeId( new SimpleProjectVersionRef( "org.foo", "missing", "1" ) ), equalTo( -1 ) );
+    }
+
+    @Test
+    public void edgeAttributesSurviveEncoding()
+    {
+        final DependencyRelationship dep =
+            new SimpleDependencyRelationship( SRC, app, lib.asArtifactRef( "test-jar", "tests" ), DependencyScope.test,
+                                              17, true, true, true );
+
+        final RelationshipGraph graph = new RelationshipGraph.Builder().withRelationship( dep )
+                                                                      .withRelationship( new SimpleBomRelationship(
+                                                                          SRC, app, util, 2, false, true ) )
+                                                                      .build();
+
+        final int appId = graph.getNodeId( app );
+        final int depEdge = graph.getOutStart( appId );
+        assertThat( graph.getType( depEdge ), equalTo( RelationshipType.DEPENDENCY ) );
+        assertThat( graph.getScope( depEdge ), equalTo( DependencyScope.test ) );
+        assertThat( graph.getIndex( depEdge ), equalTo( 17 ) );
+        assertThat( graph.isManaged( depEdge ), equalTo( true ) );
+        assertThat( graph.isInherited( depEdge ), equalTo( true ) );
+        assertThat( graph.isOptional( depEdge ), equalTo( true ) );
+        assertThat( graph.getNode( graph.getTarget( depEdge ) ), equalTo( lib ) );
+        assertThat( graph.getRelationship( depEdge ), nullValue() );
+
+        final int bomEdge = depEdge + 1;
+        final int attrs = graph.getAttributes( bomEdge );
+        assertThat( EdgeAttributes.type( attrs ), equalTo( RelationshipType.BOM ) );
+        assertThat( EdgeAttributes.scope( attrs ), nullValue() );
+        assertThat( EdgeAttributes.isMixin( attrs ), equalTo( true ) );
+        assertThat( EdgeAttributes.hasType( attrs, EdgeAttributes.typeMask( RelationshipType.BOM ) ), equalTo( true ) );
+        assertThat( EdgeAttributes.hasType( attrs, EdgeAttributes.typeMask( RelationshipType.DEPENDENCY,
+                                                                            RelationshipType.PARENT ) ),
+                    equalTo( false ) );
+
+        assertThat( EdgeAttributes.index( EdgeAttributes.pack( RelationshipType.DEPENDENCY, DependencyScope._import,
+                                                               EdgeAttributes.MAX_INDEX, false, false, false,
+                                                               false ) ),
+                    equalTo( EdgeAttributes.MAX_INDEX ) );
+        for ( final int index : new int[] { -1, EdgeAttributes.MAX_INDEX + 1, Integer.MAX_VALUE } )
+        {
+            try
+            {
+                EdgeAttributes.pack( RelationshipType.DEPENDENCY, DependencyScope._import, index, false, false, false,
+                                     false );
+                fail( "Packed unrepresentable index: " + index );
+            }
+            catch ( final IllegalArgumentException e )
+            {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void bulkLoadedEdgesAreGroupedBySourceInInsertionOrder()
+    {
+        final RelationshipGraph.Builder builder = new RelationshipGraph.Builder( 2000, 20000 );
+        for ( int i = 0; i < 2000; i++ )
+        {
+            assertThat( builder.addNode( new SimpleProjectVersionRef( "org.bulk", "p" + i, "1" ) ), equalTo( i ) );
+        }
+
+        // interleave sources, so build() has to regroup.
+        for ( int j = 0; j < 10; j++ )
+        {
+            for ( int i = 0; i < 2000; i++ )
+            {
+                final int attrs = EdgeAttributes.pack( RelationshipType.DEPENDENCY, DependencyScope.compile, j, false,
+                                                       false, false, false );
+                builder.withEdge( i, ( i * 7 + j + 1 ) % 2000, attrs );
+            }
+        }
+
+        final RelationshipGraph graph = builder.build();
+        assertThat( graph.getEdgeCount(), equalTo( 20000 ) );
+
+        int inTotal = 0;
+        for ( int n = 0; n < graph.getNodeCount(); n++ )
+        {
+            assertThat( graph.getOutDegree( n ), equalTo( 10 ) );
+            for ( int e = graph.getOutStart( n ), j = 0; e < graph.getOutEnd( n ); e++, j++ )
+            {
+                assertThat( graph.getSource( e ), equalTo( n ) );
+                assertThat( graph.getIndex( e ), equalTo( j ) );
+                assertThat( graph.getTarget( e ), equalTo( ( n * 7 + j + 1 ) % 2000 ) );
+            }
+
+            for ( int p = graph.getInStart( n ); p < graph.getInEnd( n ); p++ )
+            {
+                assertThat( graph.getTarget( graph.getInEdge( p ) ), equalTo( n ) );
+                inTotal++;
+            }
+        }
+
+        assertThat( inTotal, equalTo( 20000 ) );
+    }
+
+    @Test
+    public void retainedRelationshipsMapBackFromEdges()
+    {
+        final ProjectRelationship<?, ?> first = dependency( lib, util, 0 );
+        final ProjectRelationship<?, ?> second = new SimplePluginRelationship( SRC, app, plugin, 0, false, false );
+        final ProjectRelationship<?, ?> third = dependency( app, lib, 0 );
+
+        final RelationshipGraph.Builder builder = new RelationshipGraph.Builder().retainRelationships();
+        final RelationshipGraph graph = builder.withRelationship( first )
+                                               .withRelationship( second )
+                                               .withRelationship( third )
+                                               .build();
+
+        assertThat( graph.hasRelationships(), equalTo( true ) );
+        for ( int e = 0; e < graph.getEdgeCount(); e++ )
+        {
+            final ProjectRelationship<?, ?> rel = graph.getRelationship( e );
+            assertThat( graph.getNode( graph.getSource( e ) ), equalTo( rel.getDeclaring() ) );
+            assertThat( graph.getNode( graph.getTarget( e ) ), equalTo( rel.getTarget().asProjectVersionRef() ) );
+        }
+
+        // building again from the same builder leaves the first graph alone.
+        builder.withRelationship( dependency( util, parent, 0 ) );
+        assertThat( builder.build().getNodeCount(), equalTo( 5 ) );
+        assertThat( graph.getNodeCount(), equalTo( 4 ) );
+    }
+
+    private static DependencyRelationship dependency( final ProjectVersionRef from, final ProjectVersionRef to,
+                                                      final int index )
+    {
+        return new SimpleDependencyRelationship( SRC, from, to.asJarArtifact(), DependencyScope.compile, index, false,
+                                                 false, false );
+    }
+
+    private static Set<ProjectVersionRef> targets( final RelationshipGraph graph, final int node )
+    {
+        final Set<ProjectVersionRef> result = new HashSet<ProjectVersionRef>();
+        for ( int e = graph.getOutStart( node ); e < graph.getOutEnd( node ); e++ )
+        {
+            result.add( graph.getNode( graph.getTarget( e ) ) );
+        }
+
+        return result;
+    }
+
+    private static Set<ProjectVersionRef> sources( final RelationshipGraph graph, final int node )
+    {
+        final Set<ProjectVersionRef> result = new HashSet<ProjectVersionRef>();
+        for ( int p = graph.getInStart( node ); p < graph.getInEnd( node ); p++ )
+        {
+            result.add( graph.getNode( graph.getSource( graph.getInEdge( p ) ) ) );
+        }
+
+        return result;
+    }
+
+    private static Set<ProjectVersionRef> refs( final ProjectVersionRef... refs )
+    {
+        final Set<ProjectVersionRef> result = new HashSet<ProjectVersionRef>();
+        for ( final ProjectVersionRef ref : refs )
+        {
+            result.add( ref );
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,640 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RelationshipLogTest
+{
+
+    private static final URI SRC = URI.create( "test:source" );
+
+    private File dir;
+
+    private File logFile;
+
+    @Before
+    public void createDir()
+        throws IOException
+    {
+        dir = File.createTempFile( "relationship-log", ".d" );
+        dir.delete();
+        dir.mkdirs();
+        logFile = new File( dir, "graph.log" );
+    }
+
+    @After
+    public void deleteDir()
+    {
+        final File[] files = dir.listFiles();
+        if ( files != null )
+        {
+            for ( final File f : files )
+            {
+                f.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void appendAndReadBatches()
+        throws IOException
+    {
+        final ProjectVersionRef app = project( "app" );
+        final EProjectDirectRelationships appRels =
+            new EProjectDirectRelationships.Builder( SRC, app ).withParent( project( "parent" ) )
+                                                               .withDependencies( dependency( app, project( "lib" ),
+                                                                                              0 ) )
+                                                               .build();
+
+        final RelationshipLog log = RelationshipLog.open( logFile );
+        assertThat( log.add( appRels ), equalTo( 1L ) );
+        assertThat( log.remove( Collections.singletonList( dependency( app, project( "lib" ), 0 ) ) ),
+                    equalTo( 2L ) );
+        log.close();
+
+        final List<RelationshipLog.Batch> batches = RelationshipLog.read( logFile );
+        assertThat( batches.size(), equalTo( 2 ) );
+        assertThat( batches.get( 0 ).getSequence(), equalTo( 1L ) );
+        assertThat( batches.get( 0 ).getOperation(), equalTo( RelationshipLog.Operation.ADD ) );
+        assertThat( new HashSet<ProjectRelationship<?, ?>>( batches.get( 0 ).getRelationships() ),
+                    equalTo( new HashSet<ProjectRelationship<?, ?>>( appRels.getExactAllRelationships() ) ) );
+        assertThat( batches.get( 1 ).getOperation(), equalTo( RelationshipLog.Operation.REMOVE ) );
+        assertThat( batches.get( 1 ).getRelationships(),
+                    equalTo( Collections.<ProjectRelationship<?, ?>> singletonList( dependency( app,
+                                                                                                 project( "lib" ),
+                                                                                                 0 ) ) ) );
+
+        final RelationshipLog reopened = RelationshipLog.open( logFile );
+        assertThat( reopened.getNextSequence(), equalTo( 3L ) );
+        reopened.close();
+    }
+
+    @Test
+    public void recoversFromTruncationAtAnyOffset()
+        throws IOException
+    {
+        final RelationshipLog log = RelationshipLog.open( logFile );
+        final List<Long> boundaries = new ArrayList<Long>();
+        for ( int i = 0; i < 5; i++ )
+        {
+            log.add( dependencies( "batch" + i, i + 1 ) );
+            boundaries.add( logFile.length() );
+        }
+        log.close();
+
+        final byte[] bytes = readFile( logFile );
+        final File copy = new File( dir, "truncated.log" );
+        for ( int offset = 0; offset <= bytes.length; offset++ )
+        {
+            writeFile( copy, bytes, offset );
+
+            int complete = 0;
+            while ( complete < boundaries.size() && boundaries.get( complete ) <= offset )
+            {
+                complete++;
+            }
+
+            final List<RelationshipLog.Batch> batches = RelationshipLog.read( copy );
+            assertThat( "batches intact after truncating to " + offset, batches.size(), equalTo( complete ) );
+            for ( int i = 0; i < complete; i++ )
+            {
+                assertThat( batches.get( i ).getRelationships().size(), equalTo( i + 1 ) );
+            }
+
+            // opening cuts off the torn tail, and appends carry on after the last intact batch.
+            if ( offset % 11 == 0 || boundaries.contains( (long) offset ) )
+            {
+                final RelationshipLog recovered = RelationshipLog.open( copy );
+                assertThat( recovered.add( dependencies( "after", 1 ) ), equalTo( complete + 1L ) );
+                recovered.close();
+
+                final List<RelationshipLog.Batch> after = RelationshipLog.read( copy );
+                assertThat( after.size(), equalTo( complete + 1 ) );
+                assertThat( after.get( complete ).getRelationships(),
+                            equalTo( dependencies( "after", 1 ) ) );
+            }
+        }
+    }
+
+    @Test
+    public void stopsAtCorruptRecord()
+        throws IOException
+    {
+        final RelationshipLog log = RelationshipLog.open( logFile );
+        log.add( dependencies( "first", 2 ) );
+        final long firstEnd = logFile.length();
+        log.add( dependencies( "second", 2 ) );
+        log.add( dependencies( "third", 2 ) );
+        log.close();
+
+        final byte[] bytes = readFile( logFile );
+        bytes[(int) firstEnd + 20] ^= 0x40;
+        writeFile( logFile, bytes, bytes.length );
+
+        assertThat( RelationshipLog.read( logFile ).size(), equalTo( 1 ) );
+
+        RelationshipLog.open( logFile ).close();
+        assertThat( logFile.length(), equalTo( firstEnd ) );
+    }
+
+    @Test
+    public void concurrentAppendsShareSyncs()
+        throws Exception
+    {
+        final RelationshipLog log = RelationshipLog.open( logFile );
+        final int threads = 8;
+        final int perThread = 25;
+        final List<Throwable> errors = Collections.synchronizedList( new ArrayList<Throwable>() );
+
+        final List<Thread> workers = new ArrayList<Thread>();
+        for ( int t = 0; t < threads; t++ )
+        {
+            final int thread = t;
+            workers.add( new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        for ( int i = 0; i < perThread; i++ )
+                        {
+                            log.add( dependencies( "t" + thread + "-" + i, 1 ) );
+                        }
+                    }
+                    catch ( final Throwable e )
+                    {
+                        errors.add( e );
+                    }
+                }
+            } );
+        }
+
+        for ( final Thread worker : workers )
+        {
+            worker.start();
+        }
+        for ( final Thread worker : workers )
+        {
+            worker.join();
+        }
+
+        assertThat( errors.toString(), errors.isEmpty(), equalTo( true ) );
+        assertTrue( "syncs (" + log.getSyncCount() + ") should not exceed appends",
+                    log.getSyncCount() <= threads * perThread );
+        log.close();
+
+        final List<RelationshipLog.Batch> batches = RelationshipLog.read( logFile );
+        assertThat( batches.size(), equalTo( threads * perThread ) );
+
+        final Set<ProjectRelationship<?, ?>> all = new HashSet<ProjectRelationship<?, ?>>();
+        for ( int i = 0; i < batches.size(); i++ )
+        {
+            assertThat( batches.get( i ).getSequence(), equalTo( i + 1L ) );
+            all.addAll( batches.get( i ).getRelationships() );
+        }
+        assertThat( all.size(), equalTo( threads * perThread ) );
+    }
+
+    @Test
+    public void failedSyncIsNotReportedAsDurable()
+        throws Exception
+    {
+        final FailingChannel channel = new FailingChannel( new RandomAccessFile( logFile, "rw" ).getChannel() );
+        final RelationshipLog log = RelationshipLog.open( logFile, channel );
+
+        channel.failures = 1;
+        try
+        {
+            log.add( dependencies( "lost", 1 ) );
+            fail( "Append returned although its sync failed" );
+        }
+        catch ( final IOException e )
+        {
+            assertThat( e.getMessage(), equalTo( FailingChannel.MESSAGE ) );
+        }
+        assertThat( log.getSyncCount(), equalTo( 0L ) );
+
+        // the next append syncs both records.
+        assertThat( log.add( dependencies( "kept", 1 ) ), equalTo( 2L ) );
+        assertThat( log.getSyncCount(), equalTo( 1L ) );
+        log.close();
+    }
+
+    @Test
+    public void appendersWaitingOnAFailedSyncRetryIt()
+        throws Exception
+    {
+        final FailingChannel channel = new FailingChannel( new RandomAccessFile( logFile, "rw" ).getChannel() );
+        final RelationshipLog log = RelationshipLog.open( logFile, channel );
+        final List<Throwable> errors = Collections.synchronizedList( new ArrayList<Throwable>() );
+
+        final CountDownLatch release = new CountDownLatch( 1 );
+        channel.failures = 1;
+        channel.blocked = release;
+        final Thread first = appender( log, "first", errors );
+        first.start();
+        channel.syncing.await();
+
+        // the second record is written while the first sync is stuck, so that sync would have covered it.
+        final Thread second = appender( log, "second", errors );
+        second.start();
+        while ( second.getState() != Thread.State.WAITING )
+        {
+            Thread.sleep( 1 );
+        }
+
+        release.countDown();
+        first.join();
+        second.join();
+
+        assertThat( errors.size(), equalTo( 1 ) );
+        assertThat( errors.get( 0 ).getMessage(), equalTo( FailingChannel.MESSAGE ) );
+        assertThat( channel.forces.get(), equalTo( 2 ) );
+        assertThat( log.getSyncCount(), equalTo( 1L ) );
+        log.close();
+    }
+
+    @Test
+    public void compactFoldsLogIntoSnapshot()
+        throws IOException
+    {
+        final File base = new File( dir, "graph.snapshot" );
+        final List<ProjectRelationship<?, ?>> first = dependencies( "first", 3 );
+        final List<ProjectRelationship<?, ?>> second = dependencies( "second", 2 );
+
+        final RelationshipLog log = RelationshipLog.open( logFile );
+        log.add( first );
+        log.add( second );
+        log.remove( first.subList( 0, 1 ) );
+
+        final byte[] uncompacted = readFile( logFile );
+        assertThat( log.compact( base ), equalTo( 3 ) );
+        assertThat( RelationshipLog.read( logFile ).size(), equalTo( 0 ) );
+
+        final Set<ProjectRelationship<?, ?>> expected = new HashSet<ProjectRelationship<?, ?>>();
+        expected.addAll( first.subList( 1, 3 ) );
+        expected.addAll( second );
+        assertThat( snapshotRelationships( base ), equalTo( expected ) );
+
+        // sequence numbers carry on across compaction, and the next compaction builds on the snapshot.
+        final List<ProjectRelationship<?, ?>> third = dependencies( "third", 1 );
+        assertThat( log.add( third ), equalTo( 4L ) );
+        log.remove( second );
+        assertThat( log.compact( base ), equalTo( 2 ) );
+        log.close();
+
+        expected.addAll( third );
+        expected.removeAll( second );
+        assertThat( snapshotRelationships( base ), equalTo( expected ) );
+        final RelationshipLog reopened = RelationshipLog.open( logFile );
+        assertThat( reopened.getNextSequence(), equalTo( 6L ) );
+        reopened.close();
+
+        // a crash between writing the snapshot and emptying the log replays batches already folded in.
+        writeFile( logFile, uncompacted, uncompacted.length );
+        final RelationshipLog replay = RelationshipLog.open( logFile );
+        replay.compact( base );
+        replay.close();
+
+        expected.addAll( second );
+        assertThat( snapshotRelationships( base ), equalTo( expected ) );
+    }
+
+    @Test
+    public void crashWhileEmptyingTheLogKeepsTheSequence()
+        throws IOException
+    {
+        final RelationshipLog log = RelationshipLog.open( logFile );
+        log.add( dependencies( "first", 2 ) );
+        log.add( dependencies( "second", 1 ) );
+        log.close();
+
+        // what compact(..) leaves if it crashes after syncing the new header but before cutting off the records.
+        final byte[] bytes = readFile( logFile );
+        ByteBuffer.wrap( bytes ).putLong( 8, 3L );
+        writeFile( logFile, bytes, bytes.length );
+
+        assertThat( RelationshipLog.read( logFile ).size(), equalTo( 0 ) );
+        final RelationshipLog reopened = RelationshipLog.open( logFile );
+        assertThat( reopened.getNextSequence(), equalTo( 3L ) );
+        assertThat( reopened.add( dependencies( "third", 1 ) ), equalTo( 3L ) );
+        reopened.close();
+
+        final List<RelationshipLog.Batch> batches = RelationshipLog.read( logFile );
+        assertThat( batches.size(), equalTo( 1 ) );
+        assertThat( batches.get( 0 ).getSequence(), equalTo( 3L ) );
+    }
+
+    private static Thread appender( final RelationshipLog log, final String name, final List<Throwable> errors )
+    {
+        return new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    log.add( dependencies( name, 1 ) );
+                }
+                catch ( final Throwable e )
+                {
+                    errors.add( e );
+                }
+            }
+        };
+    }
+
+    private static Set<ProjectRelationship<?, ?>> snapshotRelationships( final File base )
+        throws IOException
+    {
+        final GraphSnapshot snapshot = GraphSnapshot.open( base );
+        final Set<ProjectRelationship<?, ?>> result = new HashSet<ProjectRelationship<?, ?>>();
+        for ( int e = 0; e < snapshot.getEdgeCount(); e++ )
+        {
+            result.add( snapshot.getRelationship( e ) );
+        }
+
+        return result;
+    }
+
+    private static List<ProjectRelationship<?, ?>> dependencies( final String name, final int count )
+    {
+        final ProjectVersionRef from = project( name );
+        final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>();
+        for ( int i = 0; i < count; i++ )
+        {
+            result.add( dependency( from, project( name + "-dep" + i ), i ) );
+        }
+
+        return result;
+    }
+
+    private static ProjectVersionRef project( final String artifactId )
+    {
+        return new SimpleProjectVersionRef( "org.foo", artifactId, "1.0" );
+    }
+
+    private static SimpleDependencyRelationship dependency( final ProjectVersionRef from, final ProjectVersionRef to,
+                                                            final int index )
+    {
+        return new SimpleDependencyRelationship( SRC, from, to.asArtifactRef( "jar", null ), DependencyScope.compile,
+                                                 index, false, false, false );
+    }
+
+    private static byte[] readFile( final File file )
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try
+        {
+            final byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully( bytes );
+
+            return bytes;
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+    private static void writeFile( final File file, final byte[] bytes, final int length )
+        throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile( file, "rw" );
+        try
+        {
+            raf.setLength( 0 );
+            raf.write( bytes, 0, length );
+        }
+        finally
+        {
+            raf.close();
+        }
+    }
+
+
+    /**
+     * Delegates to a real channel, but fails the next {@link #failures} data syncs. If {@link #blocked} is set, the
+     * first sync waits for it before failing.
+     */
+    private static final class FailingChannel
+        extends FileChannel
+    {
+        static final String MESSAGE = "Injected sync failure";
+
+        private final FileChannel delegate;
+
+        final AtomicInteger forces = new AtomicInteger();
+
+        final CountDownLatch syncing = new CountDownLatch( 1 );
+
+        volatile int failures;
+
+        volatile CountDownLatch blocked;
+
+        FailingChannel( final FileChannel delegate )
+        {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void force( final boolean metaData )
+            throws IOException
+        {
+            if ( metaData )
+            {
+                // header writes and recovery
+                delegate.force( true );
+                return;
+            }
+
+            forces.incrementAndGet();
+            syncing.countDown();
+            final CountDownLatch latch = blocked;
+            if ( latch != null )
+            {
+                blocked = null;
+                try
+                {
+                    latch.await();
+                }
+                catch ( final InterruptedException e )
+                {
+                    throw new InterruptedIOException();
+                }
+            }
+
+            if ( failures > 0 )
+            {
+                failures--;
+                throw new IOException( MESSAGE );
+            }
+
+            delegate.force( false );
+        }
+
+        @Override
+        public int read( final ByteBuffer dst )
+            throws IOException
+        {
+            return delegate.read( dst );
+        }
+
+        @Override
+        public long read( final ByteBuffer[] dsts, final int offset, final int length )
+            throws IOException
+        {
+            return delegate.read( dsts, offset, length );
+        }
+
+        @Override
+        public int write( final ByteBuffer src )
+            throws IOException
+        {
+            return delegate.write( src );
+        }
+
+        @Override
+        public long write( final ByteBuffer[] srcs, final int offset, final int length )
+            throws IOException
+        {
+            return delegate.write( srcs, offset, length );
+        }
+
+        @Override
+        public long position()
+            throws IOException
+        {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position( final long newPosition )
+            throws IOException
+        {
+            delegate.position( newPosition );
+            return this;
+        }
+
+        @Override
+        public long size()
+            throws IOException
+        {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate( final long size )
+            throws IOException
+        {
+            delegate.truncate( size );
+            return this;
+        }
+
+        @Override
+        public long transferTo( final long position, final long count, final WritableByteChannel target )
+            throws IOException
+        {
+            return delegate.transferTo( position, count, target );
+        }
+
+        @Override
+        public long transferFrom( final ReadableByteChannel src, final long position, final long count )
+            throws IOException
+        {
+            return delegate.transferFrom( src, position, count );
+        }
+
+        @Override
+        public int read( final ByteBuffer dst, final long position )
+            throws IOException
+        {
+            return delegate.read( dst, position );
+        }
+
+        @Override
+        public int write( final ByteBuffer src, final long position )
+            throws IOException
+        {
+            return delegate.write( src, position );
+        }
+
+        @Override
+        public MappedByteBuffer map( final MapMode mode, final long position, final long size )
+            throws IOException
+        {
+            return delegate.map( mode, position, size );
+        }
+
+        @Override
+        public FileLock lock( final long position, final long size, final boolean shared )
+            throws IOException
+        {
+            return delegate.lock( position, size, shared );
+        }
+
+        @Override
+        public FileLock tryLock( final long position, final long size, final boolean shared )
+            throws IOException
+        {
+            return delegate.tryLock( position, size, shared );
+        }
+
+        @Override
+        protected void implCloseChannel()
+            throws IOException
+        {
+            delegate.close();
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.engine;
+
+import static org.commonjava.atlas.maven.graph.GraphFixtures.SOURCE;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.dep;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.ref;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.refs;
+import static org.commonjava.atlas.maven.graph.util.RelationshipUtils.dependency;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ScopeTransitivity;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.junit.Test;
+
+public class TransitiveResolverTest
+{
+
+    @Test
+    public void scopesPropagate()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( ref( "root" ), ref( "a" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "a" ), ref( "b" ), DependencyScope.runtime ) );
+        rels.add( dep( ref( "b" ), ref( "c" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "a" ), ref( "at" ), DependencyScope.test ) );
+        rels.add( dep( ref( "root" ), ref( "t" ), DependencyScope.test ) );
+        rels.add( dep( ref( "t" ), ref( "u" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "root" ), ref( "p" ), DependencyScope.provided ) );
+        rels.add( dep( ref( "p" ), ref( "q" ), DependencyScope.compile ) );
+
+        final TransitiveResolver resolver = new TransitiveResolver( rels );
+
+        final TransitiveResolution runtime = resolver.resolve( ref( "root" ) );
+        assertThat( runtime.getDependencies(), equalTo( Arrays.asList( ref( "a" ), ref( "b" ), ref( "c" ) ) ) );
+        assertThat( runtime.getScope( ref( "a" ) ), equalTo( DependencyScope.compile ) );
+        assertThat( runtime.getScope( ref( "c" ) ), equalTo( DependencyScope.runtime ) );
+        assertThat( runtime.getDepth( ref( "c" ) ), equalTo( 3 ) );
+        assertThat( runtime.getPath( ref( "c" ) ),
+                    equalTo( Arrays.<DependencyRelationship> asList( dep( ref( "root" ), ref( "a" ),
+                                                                          DependencyScope.compile ),
+                                                                     dep( ref( "a" ), ref( "b" ),
+                                                                          DependencyScope.runtime ),
+                                                                     dep( ref( "b" ), ref( "c" ),
+                                                                          DependencyScope.compile ) ) ) );
+
+        final TransitiveResolution compile = resolver.withScope( DependencyScope.compile ).resolve( ref( "root" ) );
+        assertThat( compile.getDependencies(), equalTo( Arrays.asList( ref( "a" ), ref( "p" ) ) ) );
+
+        final TransitiveResolution test = resolver.withScope( DependencyScope.test ).resolve( ref( "root" ) );
+        assertThat( new HashSet<ProjectVersionRef>( test.getDependencies() ),
+                    equalTo( refs( "a", "t", "p", "b", "u", "c" ) ) );
+        assertThat( test.getScope( ref( "u" ) ), equalTo( DependencyScope.test ) );
+        assertThat( test.getScope( ref( "q" ) ), nullValue() );
+
+        final TransitiveResolution all =
+            resolver.withScope( DependencyScope.test ).withTransitivity( ScopeTransitivity.all ).resolve( ref( "root" ) );
+        // children keep their parent's scope filter, so compile -> runtime is dropped, and provided -> compile too.
+        assertThat( all.getDependencies(), equalTo( Arrays.asList( ref( "a" ), ref( "t" ), ref( "p" ), ref( "u" ) ) ) );
+    }
+
+    @Test
+    public void nearestVersionWins()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( ref( "root" ), ref( "a" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "root" ), ref( "b" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "a" ), ref( "x", "2" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "b" ), ref( "x", "3" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "root" ), ref( "c" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "c" ), ref( "y", "1" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "root" ), ref( "y", "2" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "x", "3" ), ref( "z", "1" ), DependencyScope.compile ) );
+
+        final TransitiveResolution resolution = new TransitiveResolver( rels ).resolve( ref( "root" ) );
+
+        assertThat( resolution.contains( ref( "x", "2" ) ), equalTo( true ) );
+        assertThat( resolution.contains( ref( "x", "3" ) ), equalTo( false ) );
+        assertThat( resolution.contains( ref( "z", "1" ) ), equalTo( false ) );
+        assertThat( resolution.contains( ref( "y", "2" ) ), equalTo( true ) );
+        assertThat( resolution.contains( ref( "y", "1" ) ), equalTo( false ) );
+        assertThat( resolution.getOmittedForConflict(),
+                    equalTo( Arrays.<DependencyRelationship> asList( dep( ref( "b" ), ref( "x", "3" ),
+                                                                          DependencyScope.compile ),
+                                                                     dep( ref( "c" ), ref( "y", "1" ),
+                                                                          DependencyScope.compile ) ) ) );
+    }
+
+    @Test
+    public void exclusionsApplyBelowTheirRelationship()
+    {
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( dep( ref( "root" ), ref( "a" ), DependencyScope.compile, new SimpleProjectRef( "org.test", "x" ) ) );
+        rels.add( dep( ref( "a" ), ref( "m" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "m" ), ref( "x" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "root" ), ref( "b" ), DependencyScope.compile, new SimpleProjectRef( "org.test", "*" ) ) );
+        rels.add( dep( ref( "b" ), ref( "n" ), DependencyScope.compile ) );
+
+        final TransitiveResolver resolver = new TransitiveResolver( rels );
+        final TransitiveResolution resolution = resolver.resolve( ref( "root" ) );
+        assertThat( resolution.getDependencies(), equalTo( Arrays.asList( ref( "a" ), ref( "b" ), ref( "m" ) ) ) );
+
+        rels.add( dep( ref( "root" ), ref( "c" ), DependencyScope.compile ) );
+        rels.add( dep( ref( "c" ), ref( "x" ), DependencyScope.compile ) );
+        assertThat( new TransitiveResolver( rels ).resolve( ref( "root" ) ).getDepth( ref( "x" ) ), equalTo( 2 ) );
+    }
+
+    @Test
+    public void rootsShareExpansionsAndParallelMatchesSerial()
+        throws Exception
+    {
+        final Random rand = new Random( 3 );
+        final DependencyScope[] scopes =
+            { DependencyScope.compile, DependencyScope.runtime, DependencyScope.test, DependencyScope.provided };
+
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        final int n = 200;
+        for ( int i = 0; i < n * 4; i++ )
+        {
+            final int from = rand.nextInt( n );
+            final int to = rand.nextInt( n );
+            rels.add( dependency( SOURCE, ref( "n" + from, "1" ), ref( "n" + ( to % 150 ), "" + ( 1 + to / 150 ) ),
+                                  scopes[rand.nextInt( scopes.length )], i, false, false, rand.nextInt( 10 ) == 0 ) );
+        }
+
+        final List<ProjectVersionRef> roots = new ArrayList<ProjectVersionRef>();
+        for ( int i = 0; i < 50; i++ )
+        {
+            roots.add( ref( "n" + i, "1" ) );
+        }
+
+        final TransitiveResolver serial = new TransitiveResolver( rels ).withScope( DependencyScope.test );
+        final ExecutorService executor = Executors.newFixedThreadPool( 4 );
+        try
+        {
+            final Map<ProjectVersionRef, TransitiveResolution> parallel =
+                new TransitiveResolver( rels ).withScope( DependencyScope.test ).resolveEach( roots, executor );
+
+            int visited = 0;
+            for ( final ProjectVersionRef root : roots )
+            {
+                final TransitiveResolution expected = serial.resolve( root );
+                final TransitiveResolution actual = parallel.get( root );
+                assertThat( actual.getDependencies(), equalTo( expected.getDependencies() ) );
+                assertThat( actual.getOmittedForConflict(), equalTo( expected.getOmittedForConflict() ) );
+                for ( final ProjectVersionRef dep : expected.getDependencies() )
+                {
+                    assertThat( actual.getScope( dep ), equalTo( expected.getScope( dep ) ) );
+                }
+
+                visited += expected.getDependencyCount() + 1;
+            }
+
+            // every root walked most of the graph, but each (project, scope, exclusions) was only expanded once.
+            assertThat( serial.getExpansionCount() + " expansions for " + visited + " visits",
+                        serial.getExpansionCount() < visited / 4, equalTo( true ) );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+}
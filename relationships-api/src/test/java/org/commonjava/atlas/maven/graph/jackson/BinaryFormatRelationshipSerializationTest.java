@@ -0,0 +1,183 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.jackson;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleExtensionRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.jackson.ProjectVersionRefSerializerModule;
+import org.commonjava.atlas.maven.ident.jackson.SerializerIdentityUtils;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class BinaryFormatRelationshipSerializationTest
+{
+
+    private static final URI SRC = URI.create( "test:source" );
+
+    private static List<ObjectMapper> binaryMappers()
+    {
+        final List<ObjectMapper> mappers = new ArrayList<ObjectMapper>();
+        for ( final ObjectMapper mapper : Arrays.asList( new ObjectMapper( new SmileFactory() ),
+                                                         new ObjectMapper( new CBORFactory() ) ) )
+        {
+            mapper.registerModules( new ProjectVersionRefSerializerModule(),
+                                    new ProjectRelationshipSerializerModule() );
+            mappers.add( mapper );
+        }
+
+        return mappers;
+    }
+
+    @Test
+    public void relationshipRefsAreWrittenAsFields()
+            throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final JsonNode node = mapper.readTree( mapper.writeValueAsBytes( relationships().get( 1 ) ) );
+
+            assertThat( node.get( SerializationConstants.DECLARING_REF ).get( SerializerIdentityUtils.ARTIFACT_ID )
+                            .asText(), equalTo( "maven-core" ) );
+            assertThat( node.get( SerializationConstants.TARGET_REF ).get( SerializerIdentityUtils.CLASSIFIER )
+                            .asText(), equalTo( "tests" ) );
+        }
+    }
+
+    @Test
+    public void everyRelationshipTypeRoundTrips()
+            throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            for ( final ProjectRelationship<?, ?> rel : relationships() )
+            {
+                final ProjectRelationship<?, ?> result =
+                        mapper.readValue( mapper.writeValueAsBytes( rel ), ProjectRelationship.class );
+
+                assertThat( result, equalTo( (ProjectRelationship) rel ) );
+                assertThat( result.getTarget().toString(), equalTo( rel.getTarget().toString() ) );
+                assertThat( result.getSources(), equalTo( rel.getSources() ) );
+                assertThat( result.getIndex(), equalTo( rel.getIndex() ) );
+                assertThat( result.isManaged(), equalTo( rel.isManaged() ) );
+                assertThat( result.isInherited(), equalTo( rel.isInherited() ) );
+                switch ( rel.getType() )
+                {
+                    case DEPENDENCY:
+                        assertThat( ( (DependencyRelationship) result ).getScope(),
+                                    equalTo( ( (DependencyRelationship) rel ).getScope() ) );
+                        assertThat( ( (DependencyRelationship) result ).isOptional(),
+                                    equalTo( ( (DependencyRelationship) rel ).isOptional() ) );
+                        break;
+                    case PLUGIN:
+                        assertThat( ( (PluginRelationship) result ).isReporting(),
+                                    equalTo( ( (PluginRelationship) rel ).isReporting() ) );
+                        break;
+                    case PLUGIN_DEP:
+                        assertThat( ( (PluginDependencyRelationship) result ).getPlugin(),
+                                    equalTo( ( (PluginDependencyRelationship) rel ).getPlugin() ) );
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip_EProjectDirectRelationships()
+            throws Exception
+    {
+        final ProjectVersionRef p = new SimpleProjectVersionRef( "org.apache.maven", "maven-core", "3.0.3" );
+        final EProjectDirectRelationships rels =
+                new EProjectDirectRelationships.Builder( SRC, p ).withRelationships( relationships() ).build();
+
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final EProjectDirectRelationships clone =
+                    mapper.readValue( mapper.writeValueAsBytes( rels ), EProjectDirectRelationships.class );
+
+            assertThat( clone.getProjectRef(), equalTo( rels.getProjectRef() ) );
+            assertThat( clone.getParent(), equalTo( rels.getParent() ) );
+            assertThat( clone.getDependencies(), equalTo( rels.getDependencies() ) );
+            assertThat( clone.getPlugins(), equalTo( rels.getPlugins() ) );
+            assertThat( clone.getPluginDependencies(), equalTo( rels.getPluginDependencies() ) );
+            assertThat( clone.getExtensions(), equalTo( rels.getExtensions() ) );
+        }
+    }
+
+    @Test
+    public void dictionaryEncodedRelationshipsRoundTrip()
+            throws Exception
+    {
+        for ( final ObjectMapper mapper : binaryMappers() )
+        {
+            final byte[] data = mapper.writeValueAsBytes( new DictionaryEncodedRelationships( relationships() ) );
+
+            assertThat( mapper.readValue( data, DictionaryEncodedRelationships.class ).getRelationships(),
+                        equalTo( relationships() ) );
+        }
+    }
+
+    private static List<ProjectRelationship<?, ?>> relationships()
+    {
+        final ProjectVersionRef p = new SimpleProjectVersionRef( "org.apache.maven", "maven-core", "3.0.3" );
+        final ProjectVersionRef compiler =
+                new SimpleProjectVersionRef( "org.apache.maven.plugins", "maven-compiler-plugin", "2.3.2" );
+
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( new SimpleParentRelationship( SRC, p, new SimpleProjectVersionRef( "org.apache.maven", "maven",
+                                                                                     "3.0.3" ) ) );
+        rels.add( new SimpleDependencyRelationship( SRC, p, new SimpleArtifactRef( "junit", "junit", "4.12",
+                                                                                   "test-jar", "tests" ),
+                                                    DependencyScope.test, 0, false, true, true ) );
+        rels.add( new SimplePluginRelationship( SRC, p, compiler, 0, false, false ) );
+        rels.add( new SimplePluginDependencyRelationship( SRC, p, new SimpleProjectRef( "org.apache.maven.plugins",
+                                                                                        "maven-compiler-plugin" ),
+                                                          new SimpleArtifactRef( "org.codehaus.plexus",
+                                                                                 "plexus-compiler-javac", "1.8.1",
+                                                                                 "jar", null ), 0, false, false ) );
+        rels.add( new SimpleExtensionRelationship( SRC, p, new SimpleProjectVersionRef( "org.apache.maven.wagon",
+                                                                                        "wagon-provider-webdav",
+                                                                                        "1.0" ), 0, false ) );
+
+        return rels;
+    }
+
+}
@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.jackson;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.commonjava.atlas.maven.graph.model.EProjectDirectRelationships;
+import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginRelationship;
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleExtensionRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginDependencyRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.jackson.ProjectVersionRefSerializerModule;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DictionaryEncodedRelationshipsTest
+{
+
+    private static final URI SRC = URI.create( "http://repo.maven.apache.org/maven2/" );
+
+    private static final URI OTHER_SRC = URI.create( "http://repo.example.com/releases/" );
+
+    private static final URI PROFILE = URI.create( "pom:profile:test" );
+
+    private ObjectMapper mapper;
+
+    @Before
+    public void before()
+    {
+        mapper = new ObjectMapper();
+        mapper.registerModules( new ProjectVersionRefSerializerModule(), new ProjectRelationshipSerializerModule() );
+    }
+
+    @Test
+    public void roundTrip_EveryRelationshipTypeMatchesCurrentFormat()
+            throws Exception
+    {
+        final List<ProjectRelationship<?, ?>> rels = relationships();
+
+        final String json = mapper.writeValueAsString( new DictionaryEncodedRelationships( rels ) );
+        System.out.println( json );
+
+        final List<ProjectRelationship<?, ?>> result =
+                mapper.readValue( json, DictionaryEncodedRelationships.class ).getRelationships();
+
+        assertThat( result.size(), equalTo( rels.size() ) );
+        for ( int i = 0; i < rels.size(); i++ )
+        {
+            final ProjectRelationship<?, ?> text =
+                    mapper.readValue( mapper.writeValueAsString( rels.get( i ) ), ProjectRelationship.class );
+
+            assertSameRelationship( result.get( i ), rels.get( i ) );
+            assertSameRelationship( result.get( i ), text );
+        }
+    }
+
+    @Test
+    public void roundTrip_EProjectDirectRelationships()
+            throws Exception
+    {
+        final ProjectVersionRef p = new SimpleProjectVersionRef( "org.apache.maven", "maven-core", "3.0.3" );
+        final EProjectDirectRelationships rels =
+                new EProjectDirectRelationships.Builder( SRC, p ).withParent( gav( "org.apache.maven", "maven",
+                                                                                    "3.0.3" ) )
+                                                                 .withRelationships( relationships() )
+                                                                 .build();
+
+        final String json = mapper.writeValueAsString( new DictionaryEncodedRelationships( rels ) );
+        final List<ProjectRelationship<?, ?>> result =
+                mapper.readValue( json, DictionaryEncodedRelationships.class ).getRelationships();
+
+        assertThat( new HashSet<ProjectRelationship<?, ?>>( result ),
+                    equalTo( new HashSet<ProjectRelationship<?, ?>>( rels.getExactAllRelationships() ) ) );
+
+        final EProjectDirectRelationships clone =
+                new EProjectDirectRelationships.Builder( SRC, p ).withRelationships( result ).build();
+
+        assertThat( clone.getParent(), equalTo( rels.getParent() ) );
+        assertThat( clone.getDependencies(), equalTo( rels.getDependencies() ) );
+        assertThat( clone.getManagedDependencies(), equalTo( rels.getManagedDependencies() ) );
+        assertThat( clone.getPlugins(), equalTo( rels.getPlugins() ) );
+        assertThat( clone.getPluginDependencies(), equalTo( rels.getPluginDependencies() ) );
+        assertThat( clone.getExtensions(), equalTo( rels.getExtensions() ) );
+        assertThat( clone.getBoms(), equalTo( rels.getBoms() ) );
+
+        final String text = mapper.writeValueAsString( rels );
+        assertTrue( "dictionary form (" + json.length() + ") should be smaller than text form (" + text.length()
+                            + ")", json.length() < text.length() );
+    }
+
+    @Test
+    public void sharedRefsAndUrisAreWrittenAndDecodedOnce()
+            throws Exception
+    {
+        final ProjectVersionRef declaring = gav( "org.foo", "bar", "1.0" );
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            rels.add( new SimpleDependencyRelationship( SRC, declaring, new SimpleArtifactRef( "org.foo", "dep" + i,
+                                                                                               "2.0", "jar", null ),
+                                                        DependencyScope.compile, i, false, false, false ) );
+        }
+
+        final String json = mapper.writeValueAsString( new DictionaryEncodedRelationships( rels ) );
+        assertThat( json.indexOf( "org.foo:bar:1.0" ), equalTo( json.lastIndexOf( "org.foo:bar:1.0" ) ) );
+        assertThat( json.indexOf( SRC.toString() ), equalTo( json.lastIndexOf( SRC.toString() ) ) );
+
+        final List<ProjectRelationship<?, ?>> result =
+                mapper.readValue( json, DictionaryEncodedRelationships.class ).getRelationships();
+        assertThat( result.get( 9 ).getDeclaring(), sameInstance( result.get( 0 ).getDeclaring() ) );
+        assertThat( result.get( 9 ).getSources().iterator().next(),
+                    sameInstance( result.get( 0 ).getSources().iterator().next() ) );
+    }
+
+    @Test
+    public void equalRefsWithDifferentVersionStringsStayDistinct()
+            throws Exception
+    {
+        final ProjectVersionRef declaring = gav( "org.foo", "bar", "1" );
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( new SimpleParentRelationship( SRC, declaring, gav( "org.foo", "parent", "1.0" ) ) );
+        rels.add( new SimpleBomRelationship( SRC, declaring, gav( "org.foo", "parent", "1.0.0" ), 0, false, false ) );
+
+        final String json = mapper.writeValueAsString( new DictionaryEncodedRelationships( rels ) );
+        final List<ProjectRelationship<?, ?>> result =
+                mapper.readValue( json, DictionaryEncodedRelationships.class ).getRelationships();
+
+        assertThat( result.get( 0 ).getTarget().getVersionString(), equalTo( "1.0" ) );
+        assertThat( result.get( 1 ).getTarget().getVersionString(), equalTo( "1.0.0" ) );
+    }
+
+    @Test
+    public void tablesInAnyOrderBeforeRelationshipsAndUnknownFieldsSkipped()
+            throws Exception
+    {
+        final String json = "{\"refs\":[\"org.foo:bar:1\",\"org.foo:dep:2\"],\"extra\":{\"a\":[1,2]},"
+                + "\"uris\":[\"test:source\",\"pom:root\"],\"source-sets\":[[0]],\"types\":[\"DEPENDENCY\"],"
+                + "\"artifacts\":[[1,\"jar\",\"tests\"]],\"scopes\":[\"test\"],"
+                + "\"relationships\":[[0,9,0,0,1,3,0,0],[0,0,0,0,1,4,0]]}";
+
+        final List<ProjectRelationship<?, ?>> result =
+                mapper.readValue( json, DictionaryEncodedRelationships.class ).getRelationships();
+
+        final DependencyRelationship dep = (DependencyRelationship) result.get( 0 );
+        assertThat( dep.getTarget().toString(), equalTo( "org.foo:dep:jar:2:tests" ) );
+        assertThat( dep.getScope(), equalTo( DependencyScope.test ) );
+        assertThat( dep.isManaged(), equalTo( true ) );
+        assertThat( dep.isOptional(), equalTo( true ) );
+        assertThat( dep.getIndex(), equalTo( 3 ) );
+        assertThat( ( (DependencyRelationship) result.get( 1 ) ).getScope(), equalTo( DependencyScope.compile ) );
+    }
+
+    @Test( expected = JsonParseException.class )
+    public void indexOutsideTableFails()
+            throws Exception
+    {
+        final String json = "{\"types\":[\"PARENT\"],\"uris\":[\"pom:root\"],\"source-sets\":[[0]],"
+                + "\"refs\":[\"org.foo:bar:1\"],\"relationships\":[[0,0,0,1,0,0,0]]}";
+
+        mapper.readValue( json, DictionaryEncodedRelationships.class );
+    }
+
+    @Test( expected = JsonParseException.class )
+    public void newerVersionFails()
+            throws Exception
+    {
+        mapper.readValue( "{\"jsonVersion\":" + ( SerializationConstants.CURRENT_DICTIONARY_VERSION + 1 ) + "}",
+                          DictionaryEncodedRelationships.class );
+    }
+
+    private static List<ProjectRelationship<?, ?>> relationships()
+    {
+        final ProjectVersionRef p = gav( "org.apache.maven", "maven-core", "3.0.3" );
+        final ProjectVersionRef compiler = gav( "org.apache.maven.plugins", "maven-compiler-plugin", "2.3.2" );
+        final List<URI> sources = Arrays.asList( SRC, OTHER_SRC );
+
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( new SimpleParentRelationship( SRC, p, gav( "org.apache.maven", "maven", "3.0.3" ) ) );
+        rels.add( new SimpleBomRelationship( sources, PROFILE, p, gav( "org.foo", "bom", "1" ), 0, true, true ) );
+        rels.add( new SimpleDependencyRelationship( SRC, p, new SimpleArtifactRef( "org.apache.maven",
+                                                                                   "maven-plugin-api", "3.0.3", "jar",
+                                                                                   null ),
+                                                    DependencyScope.compile, 0, false, false, false ) );
+        rels.add( new SimpleDependencyRelationship( sources, PROFILE, p,
+                                                    new SimpleArtifactRef( "junit", "junit", "4.12", "test-jar",
+                                                                           "tests" ), DependencyScope.test, 1, false,
+                                                    true, true ) );
+        rels.add( new SimpleDependencyRelationship( SRC, p, new SimpleArtifactRef( "org.foo", "managed", "2.0", "pom",
+                                                                                   null ),
+                                                    DependencyScope._import, 0, true, false, false ) );
+        rels.add( new SimplePluginRelationship( SRC, PROFILE, p, compiler, 0, false, true, true ) );
+        rels.add( new SimplePluginRelationship( SRC, p, gav( "org.apache.maven.plugins", "maven-jar-plugin", "2.2" ),
+                                                0, true, false ) );
+        rels.add( new SimplePluginDependencyRelationship( SRC, p, new SimpleProjectRef( "org.apache.maven.plugins",
+                                                                                        "maven-compiler-plugin" ),
+                                                          new SimpleArtifactRef( "org.codehaus.plexus",
+                                                                                 "plexus-compiler-javac", "1.8.1",
+                                                                                 "jar", null ), 0, false, false ) );
+        rels.add( new SimpleExtensionRelationship( sources, PROFILE, p, gav( "org.apache.maven.wagon",
+                                                                             "wagon-provider-webdav", "1.0" ), 0,
+                                                   true ) );
+
+        return rels;
+    }
+
+    private static void assertSameRelationship( final ProjectRelationship<?, ?> actual,
+                                                final ProjectRelationship<?, ?> expected )
+    {
+        assertThat( actual.getType(), equalTo( expected.getType() ) );
+        assertThat( actual.getDeclaring().toString(), equalTo( expected.getDeclaring().toString() ) );
+        assertThat( actual.getTarget().toString(), equalTo( expected.getTarget().toString() ) );
+        assertThat( actual.getPomLocation(), equalTo( expected.getPomLocation() ) );
+        assertThat( actual.getSources(), equalTo( expected.getSources() ) );
+        assertThat( actual.getIndex(), equalTo( expected.getIndex() ) );
+        assertThat( actual.isManaged(), equalTo( expected.isManaged() ) );
+        assertThat( actual.isInherited(), equalTo( expected.isInherited() ) );
+        assertThat( actual.isMixin(), equalTo( expected.isMixin() ) );
+
+        switch ( expected.getType() )
+        {
+            case DEPENDENCY:
+                assertThat( ( (DependencyRelationship) actual ).getScope(),
+                            equalTo( ( (DependencyRelationship) expected ).getScope() ) );
+                assertThat( ( (DependencyRelationship) actual ).isOptional(),
+                            equalTo( ( (DependencyRelationship) expected ).isOptional() ) );
+                break;
+            case PLUGIN:
+                assertThat( ( (PluginRelationship) actual ).isReporting(),
+                            equalTo( ( (PluginRelationship) expected ).isReporting() ) );
+                break;
+            case PLUGIN_DEP:
+                assertThat( ( (PluginDependencyRelationship) actual ).getPlugin(),
+                            equalTo( ( (PluginDependencyRelationship) expected ).getPlugin() ) );
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static ProjectVersionRef gav( final String groupId, final String artifactId, final String version )
+    {
+        return new SimpleProjectVersionRef( groupId, artifactId, version );
+    }
+
+}
@@ -15,24 +15,34 @@
  */
 package org.commonjava.atlas.maven.graph.jackson;
 
+import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.commonjava.atlas.maven.graph.jackson.ProjectRelationshipSerializerModule;
+import org.commonjava.atlas.maven.graph.rel.BomRelationship;
 import org.commonjava.atlas.maven.graph.rel.DependencyRelationship;
 import org.commonjava.atlas.maven.graph.rel.ParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.PluginDependencyRelationship;
 import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
 import org.commonjava.atlas.maven.graph.rel.RelationshipConstants;
+import org.commonjava.atlas.maven.graph.rel.SimpleBomRelationship;
 import org.commonjava.atlas.maven.graph.rel.SimpleDependencyRelationship;
 import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.graph.rel.SimplePluginDependencyRelationship;
 import org.commonjava.atlas.maven.ident.DependencyScope;
 import org.commonjava.atlas.maven.ident.jackson.ProjectVersionRefSerializerModule;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
 import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.HashSet;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 /**
  * Created by jdcasey on 8/21/15.
@@ -96,4 +106,106 @@ public class ProjectRelationshipSerializerModuleTest
 
         assertThat( (DependencyRelationship) result, equalTo( rel ) );
     }
+
+    @Test
+    public void roundTrip_DependencyKeepsFlagsScopeAndIndex()
+            throws Exception
+    {
+        DependencyRelationship rel = new SimpleDependencyRelationship(
+                new HashSet<URI>( Arrays.asList( URI.create( "some:test:location" ), URI.create( "other:location" ) ) ),
+                URI.create( "pom:location" ), new SimpleProjectVersionRef( "org.foo", "bar", "1" ),
+                new SimpleProjectVersionRef( "org.foo", "dep", "1.1" ).asArtifactRef( "zip", "dist" ),
+                DependencyScope.test, 3, true, true, true );
+
+        String json = mapper.writeValueAsString( rel );
+
+        DependencyRelationship result = (DependencyRelationship) mapper.readValue( json, ProjectRelationship.class );
+
+        assertThat( result, equalTo( rel ) );
+        assertThat( result.getTargetArtifact(), equalTo( rel.getTargetArtifact() ) );
+        assertThat( result.getSources(), equalTo( rel.getSources() ) );
+        assertThat( result.getPomLocation(), equalTo( rel.getPomLocation() ) );
+        assertThat( result.getScope(), equalTo( DependencyScope.test ) );
+        assertThat( result.getIndex(), equalTo( 3 ) );
+        assertThat( result.isManaged(), equalTo( true ) );
+        assertThat( result.isInherited(), equalTo( true ) );
+        assertThat( result.isOptional(), equalTo( true ) );
+    }
+
+    @Test
+    public void roundTrip_PluginDependencyAndBom()
+            throws Exception
+    {
+        PluginDependencyRelationship pdep =
+                new SimplePluginDependencyRelationship( URI.create( "some:test:location" ),
+                                                        new SimpleProjectVersionRef( "org.foo", "bar", "1" ),
+                                                        new SimpleProjectRef( "org.foo", "plugin" ),
+                                                        new SimpleProjectVersionRef( "org.foo", "dep", "2" ).asJarArtifact(),
+                                                        1, true, false );
+
+        PluginDependencyRelationship pdepResult =
+                (PluginDependencyRelationship) mapper.readValue( mapper.writeValueAsString( pdep ),
+                                                                 ProjectRelationship.class );
+
+        assertThat( pdepResult, equalTo( pdep ) );
+        assertThat( pdepResult.getPlugin(), equalTo( pdep.getPlugin() ) );
+        assertThat( pdepResult.isManaged(), equalTo( true ) );
+
+        BomRelationship bom = new SimpleBomRelationship( URI.create( "some:test:location" ),
+                                                         new SimpleProjectVersionRef( "org.foo", "bar", "1" ),
+                                                         new SimpleProjectVersionRef( "org.foo", "bom", "3" ), 2, false,
+                                                         true );
+
+        BomRelationship bomResult =
+                (BomRelationship) mapper.readValue( mapper.writeValueAsString( bom ), ProjectRelationship.class );
+
+        assertThat( bomResult, equalTo( bom ) );
+        assertThat( bomResult.isMixin(), equalTo( true ) );
+        assertThat( bomResult.getIndex(), equalTo( 2 ) );
+    }
+
+    @Test
+    public void fieldOrderAndUnknownFieldsDoNotMatter()
+            throws Exception
+    {
+        String json = "{\"idx\":4,\"optional\":true,\"unknown\":\"x\",\"target\":\"org.foo:dep:1.1:jar\","
+                + "\"scope\":\"runtime\",\"declaring\":\"org.foo:bar:1\",\"source-uris\":[\"some:test:location\"],"
+                + "\"type\":\"DEPENDENCY\"}";
+
+        DependencyRelationship result = (DependencyRelationship) mapper.readValue( json, ProjectRelationship.class );
+
+        assertThat( result.getDeclaring(), equalTo( (ProjectVersionRef) new SimpleProjectVersionRef( "org.foo", "bar", "1" ) ) );
+        assertThat( result.getScope(), equalTo( DependencyScope.runtime ) );
+        assertThat( result.getIndex(), equalTo( 4 ) );
+        assertThat( result.isOptional(), equalTo( true ) );
+        assertThat( result.isManaged(), equalTo( false ) );
+        assertThat( result.getPomLocation(), equalTo( RelationshipConstants.POM_ROOT_URI ) );
+    }
+
+    @Test
+    public void invalidSourceUriReportsLocation()
+            throws Exception
+    {
+        String json = "{\"type\":\"PARENT\",\"declaring\":\"org.foo:bar:1\",\"target\":\"org.foo:parent:1\","
+                + "\"source-uris\":[\"not a uri\"]}";
+
+        try
+        {
+            mapper.readValue( json, ProjectRelationship.class );
+            fail( "Invalid source URI should fail" );
+        }
+        catch ( JsonParseException e )
+        {
+            assertThat( e.getLocation().getLineNr(), equalTo( 1 ) );
+            assertThat( e.getLocation().getColumnNr() > 1, equalTo( true ) );
+        }
+    }
+
+    @Test( expected = JsonParseException.class )
+    public void missingTypeFails()
+            throws Exception
+    {
+        mapper.readValue( "{\"declaring\":\"org.foo:bar:1\",\"target\":\"org.foo:parent:1\"}",
+                          ProjectRelationship.class );
+    }
 }
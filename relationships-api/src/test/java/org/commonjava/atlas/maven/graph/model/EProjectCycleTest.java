@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.model;
+
+import static org.commonjava.atlas.maven.graph.GraphFixtures.dep;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.ref;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
+import org.junit.Test;
+
+public class EProjectCycleTest
+{
+
+    @Test
+    public void rotationsShareCanonicalFormAndHash()
+    {
+        final ProjectRelationship<?, ?> ab = dep( "a", "b" );
+        final ProjectRelationship<?, ?> bc = dep( "b", "c" );
+        final ProjectRelationship<?, ?> ca = dep( "c", "a" );
+
+        final EProjectCycle first = new EProjectCycle.Builder( ab, bc, ca ).build();
+        final EProjectCycle second = new EProjectCycle.Builder( bc, ca, ab ).build();
+        final EProjectCycle third = new EProjectCycle.Builder( ca, ab, bc ).build();
+
+        assertThat( second.getRelationships(), equalTo( first.getRelationships() ) );
+        assertThat( third.getRelationships(), equalTo( first.getRelationships() ) );
+        assertThat( first.getRelationships().get( 0 ), equalTo( (ProjectRelationship) ab ) );
+        assertThat( second.hashCode(), equalTo( first.hashCode() ) );
+        assertThat( third.hashCode(), equalTo( first.hashCode() ) );
+        assertThat( first.equals( third ) && third.equals( first ), equalTo( true ) );
+
+        final Set<EProjectCycle> cycles = new HashSet<EProjectCycle>();
+        cycles.add( first );
+        cycles.add( second );
+        cycles.add( third );
+        assertThat( cycles.size(), equalTo( 1 ) );
+    }
+
+    @Test
+    public void equalsIsSymmetricAndOrderSensitive()
+    {
+        final EProjectCycle abc = new EProjectCycle.Builder( dep( "a", "b" ), dep( "b", "c" ), dep( "c", "a" ) ).build();
+        final EProjectCycle ab = new EProjectCycle.Builder( dep( "a", "b" ), dep( "b", "a" ) ).build();
+        final EProjectCycle partial = new EProjectCycle.Builder( dep( "a", "b" ), dep( "b", "c" ) ).build();
+
+        assertThat( abc.equals( ab ), equalTo( false ) );
+        assertThat( ab.equals( abc ), equalTo( false ) );
+        assertThat( partial.equals( abc ), equalTo( false ) );
+        assertThat( abc.equals( partial ), equalTo( false ) );
+
+        // same relationships, different cyclic order.
+        final EProjectCycle left =
+            new EProjectCycle.Builder( dep( "a", "b" ), dep( "b", "a" ), dep( "a", "c" ), dep( "c", "a" ) ).build();
+        final EProjectCycle right =
+            new EProjectCycle.Builder( dep( "a", "b" ), dep( "c", "a" ), dep( "a", "c" ), dep( "b", "a" ) ).build();
+        assertThat( left.hashCode(), equalTo( right.hashCode() ) );
+        assertThat( left.equals( right ), equalTo( false ) );
+    }
+
+    @Test
+    public void lookupsUseCanonicalPositions()
+    {
+        final ProjectRelationship<?, ?> ab = dep( "a", "b" );
+        final ProjectRelationship<?, ?> bc = dep( "b", "c" );
+        final ProjectRelationship<?, ?> ca = dep( "c", "a" );
+        final EProjectCycle cycle = new EProjectCycle.Builder( ca, ab, bc ).build();
+
+        assertThat( cycle.contains( ref( "b" ) ), equalTo( true ) );
+        assertThat( cycle.contains( ref( "x" ) ), equalTo( false ) );
+        assertThat( cycle.indexOf( ref( "a" ) ), equalTo( 0 ) );
+        assertThat( cycle.indexOf( ref( "c" ) ), equalTo( 2 ) );
+        assertThat( cycle.indexOf( ref( "x" ) ), equalTo( -1 ) );
+        assertThat( cycle.indexOf( bc ), equalTo( 1 ) );
+        assertThat( cycle.contains( ca ), equalTo( true ) );
+
+        // targets count for indexOf when the project declares nothing in the cycle.
+        final EProjectCycle open = new EProjectCycle( new EProjectCycle.Builder( ab, bc ).build().getRelationships() );
+        assertThat( open.indexOf( ref( "c" ) ), equalTo( 1 ) );
+        assertThat( open.contains( ref( "c" ) ), equalTo( false ) );
+    }
+
+    @Test
+    public void relationshipsAreReadOnlyAndReplacedCanonically()
+    {
+        final ProjectRelationship<?, ?> ab = dep( "a", "b" );
+        final ProjectRelationship<?, ?> bc = dep( "b", "c" );
+        final ProjectRelationship<?, ?> ca = dep( "c", "a" );
+        final EProjectCycle cycle = new EProjectCycle.Builder( ab, bc, ca ).build();
+
+        try
+        {
+            cycle.getRelationships().add( dep( "x", "y" ) );
+            fail( "relationships should be read-only" );
+        }
+        catch ( final UnsupportedOperationException e )
+        {
+            // expected
+        }
+
+        final Iterator<ProjectRelationship<?, ?>> it = cycle.iterator();
+        it.next();
+        try
+        {
+            it.remove();
+            fail( "iterator should be read-only" );
+        }
+        catch ( final UnsupportedOperationException e )
+        {
+            // expected
+        }
+
+        final List<ProjectRelationship<?, ?>> replacement = new ArrayList<ProjectRelationship<?, ?>>();
+        replacement.add( ca );
+        replacement.add( ab );
+        replacement.add( bc );
+        cycle.setRelationships( replacement );
+        replacement.clear();
+
+        assertThat( cycle.getRelationships().size(), equalTo( 3 ) );
+        assertThat( cycle.indexOf( ab ), equalTo( 0 ) );
+        assertThat( cycle.indexOf( ca ), equalTo( 2 ) );
+    }
+
+    @Test
+    public void builderLookupsUseInsertionOrder()
+    {
+        final EProjectCycle.Builder builder =
+            new EProjectCycle.Builder( dep( "x", "c" ), dep( "c", "a" ), dep( "a", "b" ) );
+
+        assertThat( builder.indexOf( ref( "c" ) ), equalTo( 1 ) );
+        assertThat( builder.contains( ref( "a" ) ), equalTo( true ) );
+        assertThat( builder.contains( ref( "b" ) ), equalTo( false ) );
+
+        final EProjectCycle cycle = new EProjectCycle.Builder( builder, builder.indexOf( ref( "c" ) ) )
+            .with( dep( "b", "c" ) )
+            .build();
+        assertThat( cycle, equalTo( new EProjectCycle.Builder( dep( "a", "b" ), dep( "b", "c" ), dep( "c", "a" ) )
+            .build() ) );
+    }
+
+    @Test
+    public void hashSurvivesSerialization()
+        throws Exception
+    {
+        final EProjectCycle cycle = new EProjectCycle.Builder( dep( "b", "a" ), dep( "a", "b" ) ).build();
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream oos = new ObjectOutputStream( baos );
+        oos.writeObject( cycle );
+        oos.close();
+
+        final EProjectCycle copy =
+            (EProjectCycle) new ObjectInputStream( new ByteArrayInputStream( baos.toByteArray() ) ).readObject();
+
+        assertThat( copy.hashCode(), equalTo( cycle.hashCode() ) );
+        assertThat( copy, equalTo( cycle ) );
+        assertThat( copy.indexOf( ref( "b" ) ), equalTo( 1 ) );
+    }
+
+}
@@ -25,10 +25,12 @@ import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import org.commonjava.atlas.maven.graph.rel.ProjectRelationship;
 import org.commonjava.atlas.maven.graph.rel.RelationshipPathComparator;
 import org.commonjava.atlas.maven.graph.rel.SimpleParentRelationship;
+import org.commonjava.atlas.maven.ident.DependencyScope;
 import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
 import org.commonjava.atlas.maven.ident.version.InvalidVersionSpecificationException;
 import org.junit.Rule;
@@ -82,4 +84,43 @@ public class RelationshipPathComparatorTest
         assertThat( ( firstResult instanceof SimpleParentRelationship ), equalTo( true ) );
     }
 
+    @Test
+    public void keyedSortMatchesComparatorSort()
+        throws URISyntaxException
+    {
+        final URI source = testURI();
+        final Random rand = new Random( 4 );
+        final List<List<ProjectRelationship<?, ?>>> paths = new ArrayList<List<ProjectRelationship<?, ?>>>();
+        for ( int i = 0; i < 500; i++ )
+        {
+            final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+            final int size = rand.nextInt( 20 );
+            for ( int j = 0; j < size; j++ )
+            {
+                final ProjectVersionRef from = projectVersion( "org.test", "p" + rand.nextInt( 4 ), "1" );
+                final ProjectVersionRef to = projectVersion( "org.test", "q" + rand.nextInt( 4 ), "1" );
+                if ( rand.nextInt( 5 ) == 0 )
+                {
+                    rels.add( new SimpleParentRelationship( source, from, to ) );
+                }
+                else
+                {
+                    rels.add( dependency( source, from, to, DependencyScope.compile, rand.nextInt( 3 ), false, false,
+                                          false ) );
+                }
+            }
+
+            paths.add( rels );
+        }
+
+        final List<List<ProjectRelationship<?, ?>>> expected = new ArrayList<List<ProjectRelationship<?, ?>>>( paths );
+        Collections.sort( expected, RelationshipPathComparator.INSTANCE );
+        RelationshipPathComparator.sort( paths );
+
+        for ( int i = 0; i < paths.size(); i++ )
+        {
+            assertThat( paths.get( i ) == expected.get( i ), equalTo( true ) );
+        }
+    }
+
 }
@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.rel;
+
+import static org.commonjava.atlas.maven.graph.GraphFixtures.SOURCE;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.dep;
+import static org.commonjava.atlas.maven.graph.GraphFixtures.ref;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RelationshipPathTest
+{
+
+    @Test
+    public void appendSharesThePrefix()
+    {
+        final RelationshipPath ab = RelationshipPath.of( dep( "a", "b" ) );
+        final RelationshipPath abc = ab.append( dep( "b", "c" ) );
+        final RelationshipPath abd = ab.append( dep( "b", "d" ) );
+
+        assertThat( abc.getParent(), sameInstance( ab ) );
+        assertThat( abd.getParent(), sameInstance( ab ) );
+        assertThat( ab.size(), equalTo( 1 ) );
+        assertThat( abc.size(), equalTo( 2 ) );
+        assertThat( abc.get( 0 ) == ab.getLast(), equalTo( true ) );
+        assertThat( abc.getTarget(), equalTo( ref( "c" ) ) );
+        assertThat( abc.getRelationships(), equalTo( list( dep( "a", "b" ), dep( "b", "c" ) ) ) );
+        assertThat( RelationshipPath.EMPTY.isEmpty(), equalTo( true ) );
+    }
+
+    @Test
+    public void equalsAndHashCodeMatchTheRelationshipList()
+    {
+        final List<ProjectRelationship<?, ?>> rels = list( dep( "a", "b" ), dep( "b", "c" ), dep( "c", "d" ) );
+        final RelationshipPath path = RelationshipPath.of( rels );
+        final RelationshipPath copy = RelationshipPath.EMPTY.append( dep( "a", "b" ) )
+                                                            .append( dep( "b", "c" ) )
+                                                            .append( dep( "c", "d" ) );
+
+        assertThat( path.hashCode(), equalTo( rels.hashCode() ) );
+        assertThat( path.equals( copy ), equalTo( true ) );
+        assertThat( copy.equals( path ), equalTo( true ) );
+        assertThat( path.equals( path.getParent() ), equalTo( false ) );
+        assertThat( path.equals( path.getParent().append( dep( "c", "e" ) ) ), equalTo( false ) );
+    }
+
+    @Test
+    public void containsChecksEveryProjectOnThePath()
+    {
+        RelationshipPath path = RelationshipPath.EMPTY;
+        for ( int i = 0; i < 40; i++ )
+        {
+            path = path.append( dep( "p" + i, "p" + ( i + 1 ) ) );
+        }
+
+        for ( int i = 0; i <= 40; i++ )
+        {
+            assertThat( path.contains( ref( "p" + i ) ), equalTo( true ) );
+        }
+        for ( int i = 41; i < 200; i++ )
+        {
+            assertThat( path.contains( ref( "p" + i ) ), equalTo( false ) );
+        }
+        assertThat( path.contains( ref( "p3" ).asJarArtifact() ), equalTo( true ) );
+        assertThat( RelationshipPath.EMPTY.contains( ref( "p0" ) ), equalTo( false ) );
+    }
+
+    @Test
+    public void orderingMatchesTheListComparator()
+    {
+        final Random rand = new Random( 12 );
+        final List<List<ProjectRelationship<?, ?>>> lists = new ArrayList<List<ProjectRelationship<?, ?>>>();
+        final List<RelationshipPath> paths = new ArrayList<RelationshipPath>();
+        for ( int i = 0; i < 200; i++ )
+        {
+            final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+            // reuse prefixes of earlier paths about half the time, to exercise the shared-structure shortcut
+            RelationshipPath path = RelationshipPath.EMPTY;
+            if ( !paths.isEmpty() && rand.nextBoolean() )
+            {
+                final int other = rand.nextInt( paths.size() );
+                final int keep = rand.nextInt( lists.get( other ).size() + 1 );
+                path = paths.get( other );
+                while ( path.size() > keep )
+                {
+                    path = path.getParent();
+                }
+                rels.addAll( lists.get( other ).subList( 0, keep ) );
+            }
+
+            final int extra = rand.nextInt( 3 );
+            for ( int j = 0; j < extra; j++ )
+            {
+                final ProjectRelationship<?, ?> rel =
+                    rand.nextInt( 4 ) == 0 ? new SimpleParentRelationship( SOURCE, ref( "p" + rand.nextInt( 5 ) ),
+                                                                           ref( "q" + rand.nextInt( 5 ) ) )
+                                    : dep( "p" + rand.nextInt( 5 ), "q" + rand.nextInt( 5 ) );
+                rels.add( rel );
+                path = path.append( rel );
+            }
+
+            lists.add( rels );
+            paths.add( path );
+        }
+
+        for ( int i = 0; i < paths.size(); i++ )
+        {
+            for ( int j = 0; j < paths.size(); j++ )
+            {
+                final int expected = RelationshipPathComparator.INSTANCE.compare( lists.get( i ), lists.get( j ) );
+                assertThat( Integer.signum( paths.get( i ).compareTo( paths.get( j ) ) ),
+                            equalTo( Integer.signum( expected ) ) );
+            }
+        }
+    }
+
+    private static List<ProjectRelationship<?, ?>> list( final ProjectRelationship<?, ?>... rels )
+    {
+        final List<ProjectRelationship<?, ?>> result = new ArrayList<ProjectRelationship<?, ?>>();
+        for ( final ProjectRelationship<?, ?> rel : rels )
+        {
+            result.add( rel );
+        }
+
+        return result;
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright (C) 2012 Red Hat, Inc. (nos-devel@redhat.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.commonjava.atlas.maven.graph.rel;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.commonjava.atlas.maven.ident.DependencyScope;
+import org.commonjava.atlas.maven.ident.ref.ArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectRef;
+import org.commonjava.atlas.maven.ident.ref.ProjectVersionRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleArtifactRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectRef;
+import org.commonjava.atlas.maven.ident.ref.SimpleProjectVersionRef;
+import org.junit.Test;
+
+public class RelationshipSerializationTest
+{
+
+    private static final URI SOURCE = URI.create( "http://repo.example.com/" );
+
+    private static final URI OTHER_SOURCE = URI.create( "http://other.example.com/" );
+
+    private static final URI PROFILE = URI.create( "pom:profile:test" );
+
+    private final ProjectVersionRef declaring = new SimpleProjectVersionRef( "org.foo", "bar", "1.0" );
+
+    @Test
+    public void roundTripsEachRelationshipType()
+        throws Exception
+    {
+        final ProjectVersionRef parent = new SimpleProjectVersionRef( "org.foo", "parent", "3" );
+        final ArtifactRef dep = new SimpleArtifactRef( "org.foo", "dep", "2.0", "test-jar", "tests" );
+        final ProjectRef exclude = new SimpleProjectRef( "org.bad", "thing" );
+
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( new SimpleParentRelationship( SOURCE, declaring, parent ) );
+        rels.add( new SimpleParentRelationship( declaring ) );
+        rels.add( new SimpleBomRelationship( Arrays.asList( SOURCE, OTHER_SOURCE ), PROFILE, declaring, parent, 2,
+                                             true, true ) );
+        rels.add( new SimpleDependencyRelationship( SOURCE, PROFILE, declaring, dep, DependencyScope.provided, 4, true,
+                                                    false, true, exclude ) );
+        rels.add( new SimplePluginRelationship( SOURCE, declaring, parent, 1, false, true, true ) );
+        rels.add( new SimplePluginDependencyRelationship( SOURCE, declaring, new SimpleProjectRef( "org.foo", "plugin" ),
+                                                          dep, 0, true, false ) );
+        rels.add( new SimpleExtensionRelationship( SOURCE, declaring, parent, 5, true ) );
+
+        for ( final ProjectRelationship<?, ?> rel : rels )
+        {
+            final ProjectRelationship<?, ?> result = (ProjectRelationship<?, ?>) roundTrip( rel );
+            assertSameFields( result, rel );
+        }
+
+        final DependencyRelationship readDep = (DependencyRelationship) roundTrip( rels.get( 3 ) );
+        assertThat( readDep.getScope(), equalTo( DependencyScope.provided ) );
+        assertThat( readDep.isOptional(), equalTo( true ) );
+        assertThat( readDep.getExcludes(), equalTo( Collections.singleton( exclude ) ) );
+        assertThat( readDep.getTarget().getClassifier(), equalTo( "tests" ) );
+
+        final PluginRelationship readPlugin = (PluginRelationship) roundTrip( rels.get( 4 ) );
+        assertThat( readPlugin.isReporting(), equalTo( true ) );
+
+        final PluginDependencyRelationship readPdep = (PluginDependencyRelationship) roundTrip( rels.get( 5 ) );
+        assertThat( readPdep.getPlugin(), equalTo( (ProjectRef) new SimpleProjectRef( "org.foo", "plugin" ) ) );
+    }
+
+    @Test
+    public void sharedRefsAreWrittenOnce()
+        throws Exception
+    {
+        final ArtifactRef dep = new SimpleArtifactRef( "org.foo", "dep", "2.0", "jar", null );
+        final List<ProjectRelationship<?, ?>> rels = new ArrayList<ProjectRelationship<?, ?>>();
+        rels.add( new SimpleDependencyRelationship( SOURCE, declaring, dep, DependencyScope.test, 0, false, false,
+                                                    false ) );
+        rels.add( new SimpleDependencyRelationship( SOURCE, declaring, dep, DependencyScope.compile, 1, true, false,
+                                                    false ) );
+
+        @SuppressWarnings( "unchecked" )
+        final List<ProjectRelationship<?, ?>> result = (List<ProjectRelationship<?, ?>>) roundTrip( rels );
+
+        assertThat( result.get( 1 ).getDeclaring(), sameInstance( result.get( 0 ).getDeclaring() ) );
+        assertThat( result.get( 1 ).getTarget(), sameInstance( (Object) result.get( 0 ).getTarget() ) );
+    }
+
+    @Test
+    public void compactFormIsSmallerThanDefaultForm()
+        throws Exception
+    {
+        final SimpleDependencyRelationship rel = legacyDependency();
+        rel.getDeclaring().getVersionSpec();
+        rel.getTarget().getVersionSpec();
+        final int compact = serialize( rel ).length;
+        final int legacy = resourceBytes( "serialization/SimpleDependencyRelationship-v0.ser" ).length;
+
+        assertTrue( "compact form (" + compact + " bytes) should be smaller than default form (" + legacy + " bytes)",
+                    compact < legacy / 2 );
+    }
+
+    @Test
+    public void readsDefaultFormWrittenBeforeProxies()
+        throws Exception
+    {
+        // the fixtures were written after their versions were parsed, so they carry the old VersionSpec graphs.
+        final DependencyRelationship dep =
+            (DependencyRelationship) deserialize( resourceBytes( "serialization/SimpleDependencyRelationship-v0.ser" ) );
+        final SimpleDependencyRelationship expectedDep = legacyDependency();
+        assertSameFields( dep, expectedDep );
+        assertSameVersions( dep, expectedDep );
+        assertThat( dep.getScope(), equalTo( DependencyScope.test ) );
+        assertThat( dep.isOptional(), equalTo( true ) );
+
+        // the snapshot timestamp was parsed in UTC; compare against the same.
+        final TimeZone original = TimeZone.getDefault();
+        TimeZone.setDefault( TimeZone.getTimeZone( "UTC" ) );
+        try
+        {
+            final PluginDependencyRelationship pdep =
+                (PluginDependencyRelationship) deserialize( resourceBytes( "serialization/SimplePluginDependencyRelationship-v0.ser" ) );
+            final SimplePluginDependencyRelationship expected =
+                new SimplePluginDependencyRelationship( SOURCE, declaring, new SimpleProjectRef( "org.foo", "plugin" ),
+                                                        new SimpleArtifactRef( "org.foo", "pdep",
+                                                                               "2.0-20181012.123456-3", "jar", null ),
+                                                        1, false, true );
+            assertSameFields( pdep, expected );
+            assertSameVersions( pdep, expected );
+            assertThat( pdep.getPlugin(), equalTo( expected.getPlugin() ) );
+            assertThat( pdep.getTarget().isSnapshot(), equalTo( true ) );
+        }
+        finally
+        {
+            TimeZone.setDefault( original );
+        }
+    }
+
+    /**
+     * Matches the relationship stored in <code>serialization/SimpleDependencyRelationship-v0.ser</code>.
+     */
+    private SimpleDependencyRelationship legacyDependency()
+    {
+        return new SimpleDependencyRelationship( Arrays.asList( SOURCE, OTHER_SOURCE ), PROFILE, declaring,
+                                                 new SimpleArtifactRef( "org.foo", "dep", "[2.0,3.0)", "jar", null ),
+                                                 DependencyScope.test, 3, true, false, true );
+    }
+
+    private static void assertSameVersions( final ProjectRelationship<?, ?> actual,
+                                            final ProjectRelationship<?, ?> expected )
+    {
+        assertThat( actual.getDeclaring().getVersionSpec(), equalTo( expected.getDeclaring().getVersionSpec() ) );
+        assertThat( actual.getTarget().getVersionSpec(), equalTo( expected.getTarget().getVersionSpec() ) );
+        assertThat( actual.getTarget().isRelease(), equalTo( expected.getTarget().isRelease() ) );
+    }
+
+    private static void assertSameFields( final ProjectRelationship<?, ?> actual,
+                                          final ProjectRelationship<?, ?> expected )
+    {
+        assertThat( actual.getClass().getName(), equalTo( expected.getClass().getName() ) );
+        assertThat( actual, equalTo( (Object) expected ) );
+        assertThat( actual.getDeclaring(), equalTo( expected.getDeclaring() ) );
+        assertThat( (Object) actual.getTarget(), equalTo( (Object) expected.getTarget() ) );
+        assertThat( actual.getIndex(), equalTo( expected.getIndex() ) );
+        assertThat( actual.isManaged(), equalTo( expected.isManaged() ) );
+        assertThat( actual.isInherited(), equalTo( expected.isInherited() ) );
+        assertThat( actual.isMixin(), equalTo( expected.isMixin() ) );
+        assertThat( actual.getPomLocation(), equalTo( expected.getPomLocation() ) );
+        assertThat( new HashSet<URI>( actual.getSources() ), equalTo( new HashSet<URI>( expected.getSources() ) ) );
+    }
+
+    private static Object roundTrip( final Object value )
+        throws Exception
+    {
+        return deserialize( serialize( value ) );
+    }
+
+    private static byte[] serialize( final Object value )
+        throws IOException
+    {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream( baos );
+        out.writeObject( value );
+        out.close();
+
+        return baos.toByteArray();
+    }
+
+    private static Object deserialize( final byte[] bytes )
+        throws Exception
+    {
+        final ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes ) );
+        try
+        {
+            return in.readObject();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    private static byte[] resourceBytes( final String path )
+        throws IOException
+    {
+        final InputStream in = Thread.currentThread().getContextClassLoader().getResourceAsStream( path );
+        try
+        {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            final byte[] buf = new byte[4096];
+            int read;
+            while ( ( read = in.read( buf ) ) > -1 )
+            {
+                baos.write( buf, 0, read );
+            }
+
+            return baos.toByteArray();
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+}